@@ -0,0 +1,85 @@
+package com.breakabletoy.ima_backend.benchmark;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.InventoryChangeListener;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import com.breakabletoy.ima_backend.repository.persistence.FsyncPolicy;
+import com.breakabletoy.ima_backend.repository.persistence.InventoryJournal;
+import com.breakabletoy.ima_backend.repository.persistence.SnapshotStore;
+import com.breakabletoy.ima_backend.repository.persistence.WriteAheadLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.concurrent.TimeUnit;
+
+
+/*
+ * HotStockBenchmark measures concurrent one-unit sales of a single product in a catalog of 100k
+ * products, with contention mode off (hotRowThreshold 0: every sale is its own commit) and on
+ * (sales go through the striped cells and are folded together). Eight threads sell at once, without
+ * a journal and with a write-ahead log that syncs every write (fsync policy ALWAYS).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(8)
+@State(Scope.Benchmark)
+public class HotStockBenchmark {
+    @Param({"0", "1000"})
+    public int hotRowThreshold;
+
+    @Param({"none", "wal"})
+    public String journal;
+
+    private Path walDirectory;
+    private WriteAheadLog writeAheadLog;
+    private InMemoryInventoryRepository repository;
+    private long hotId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        InventoryJournal inventoryJournal = InventoryJournal.NONE;
+        if (journal.equals("wal")) {
+            walDirectory = Files.createTempDirectory("hot-stock-wal");
+            writeAheadLog = new WriteAheadLog(walDirectory, FsyncPolicy.ALWAYS, 100, 64L * 1024 * 1024);
+            inventoryJournal = writeAheadLog;
+        }
+        repository = new InMemoryInventoryRepository(inventoryJournal, SnapshotStore.NONE, RepositoryMetrics.NOOP,
+                InventoryChangeListener.NONE, Duration.ofDays(7), hotRowThreshold);
+        SyntheticCatalog catalog = new SyntheticCatalog(42);
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            operations.add(BatchOperation.create(catalog.nextItem()));
+        }
+        repository.applyBatch(operations);
+        Inventory hot = catalog.nextItem();
+        hot.setQuantity(Integer.MAX_VALUE);
+        hotId = repository.save(hot).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+            try (Stream<Path> files = Files.walk(walDirectory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public Inventory sellHotItem() {
+        return repository.adjustStock(hotId, -1, null);
+    }
+}
@@ -0,0 +1,120 @@
+package com.breakabletoy.ima_backend.benchmark;
+
+import com.breakabletoy.ima_backend.dto.MetricsDTO;
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.SearchMode;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import com.breakabletoy.ima_backend.repository.QueryResult;
+import com.breakabletoy.ima_backend.service.InventoryService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/*
+ * RepositoryQueryBenchmark measures the read paths of InventoryRepository.findAll and
+ * InventoryService.calculateMetrics on synthetic catalogs of 10k, 100k and 1M products, for
+ * the object layout (InMemoryInventoryRepository), the columnar layout (ColumnarInventoryRepository)
+ * and the mapped layout (MappedInventoryRepository).
+ * Run it with -prof gc to get the allocation rate per operation next to the throughput.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class RepositoryQueryBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"object", "columnar", "mapped"})
+    public String layout;
+
+    private InventoryRepository repository;
+    private InventoryService service;
+
+    private PaginationRequestDTO firstPage;
+    private PaginationRequestDTO searchContains;
+    private PaginationRequestDTO searchPrefix;
+    private PaginationRequestDTO categoryFilter;
+    private PaginationRequestDTO combinedFilter;
+    private PaginationRequestDTO multiKeySort;
+    private PaginationRequestDTO selectiveSort;
+    private PaginationRequestDTO deepPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = SyntheticCatalog.repositoryOf(catalogSize, 42, layout);
+        service = new InventoryService(repository);
+
+        int lastPage = catalogSize / 10;
+        firstPage = new PaginationRequestDTO(1, 10, null, null, null, null, null);
+        searchContains = new PaginationRequestDTO(1, 10, null, null, null, null, "lend", SearchMode.CONTAINS);
+        searchPrefix = new PaginationRequestDTO(1, 10, null, null, null, null, "wire", SearchMode.PREFIX);
+        categoryFilter = new PaginationRequestDTO(1, 10, null, null, null, List.of("Books"), null);
+        combinedFilter = new PaginationRequestDTO(1, 10, null, null, StockStatus.IN_STOCK,
+                List.of("Grocery", "Music"), "pro");
+        multiKeySort = new PaginationRequestDTO(1, 10, List.of("category", "price", "name"),
+                List.of("asc", "desc", "asc"), null, null, null);
+        selectiveSort = new PaginationRequestDTO(1, 10, List.of("price"), List.of("desc"), StockStatus.OUT_OF_STOCK,
+                List.of("Jewelry"), null);
+        deepPage = new PaginationRequestDTO(lastPage - 1, 10, List.of("expirydate", "name"),
+                List.of("asc", "asc"), null, null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (repository instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> unsortedFirstPage() {
+        return repository.findAll(firstPage);
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> searchContains() {
+        return repository.findAll(searchContains);
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> searchPrefix() {
+        return repository.findAll(searchPrefix);
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> filterCategory() {
+        return repository.findAll(categoryFilter);
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> filterStatusCategoriesAndSearch() {
+        return repository.findAll(combinedFilter);
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> multiKeySort() {
+        return repository.findAll(multiKeySort);
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> selectiveFilterSorted() {
+        return repository.findAll(selectiveSort);
+    }
+
+    @Benchmark
+    public QueryResult<Inventory> deepPageSorted() {
+        return repository.findAll(deepPage);
+    }
+
+    @Benchmark
+    public MetricsDTO metrics() {
+        return service.calculateMetrics();
+    }
+}
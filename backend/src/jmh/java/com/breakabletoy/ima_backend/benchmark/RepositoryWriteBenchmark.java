@@ -0,0 +1,73 @@
+package com.breakabletoy.ima_backend.benchmark;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/*
+ * RepositoryWriteBenchmark measures the write paths of InMemoryInventoryRepository, including the
+ * maintenance of every secondary index, on synthetic catalogs of 10k, 100k and 1M products.
+ * The write benchmarks run on four threads so that contention between writers shows up.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(4)
+@State(Scope.Benchmark)
+public class RepositoryWriteBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private InMemoryInventoryRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = SyntheticCatalog.repositoryOf(catalogSize, 42);
+    }
+
+    /*
+     * Per-thread generator for new products, seeded differently on every thread.
+     */
+    @State(Scope.Thread)
+    public static class Generator {
+        SyntheticCatalog catalog;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            catalog = new SyntheticCatalog(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public Inventory updateQuantity() {
+        long id = ThreadLocalRandom.current().nextInt(catalogSize);
+        Inventory inventory = repository.getById(id);
+        int quantity = ThreadLocalRandom.current().nextInt(200);
+        inventory.setQuantity(quantity);
+        inventory.setStockStatus((quantity > 0) ? StockStatus.IN_STOCK : StockStatus.OUT_OF_STOCK);
+        return repository.update(inventory);
+    }
+
+    @Benchmark
+    public Inventory updateNameAndCategory(Generator generator) {
+        long id = ThreadLocalRandom.current().nextInt(catalogSize);
+        Inventory inventory = repository.getById(id);
+        Inventory replacement = generator.catalog.nextItem();
+        inventory.getProduct().setName(replacement.getProduct().getName());
+        inventory.getProduct().setCategory(replacement.getProduct().getCategory());
+        return repository.update(inventory);
+    }
+
+    @Benchmark
+    public void saveAndDelete(Generator generator) {
+        Inventory saved = repository.save(generator.catalog.nextItem());
+        repository.deleteById(saved.getId());
+    }
+}
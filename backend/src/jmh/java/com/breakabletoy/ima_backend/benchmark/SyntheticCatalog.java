@@ -0,0 +1,131 @@
+package com.breakabletoy.ima_backend.benchmark;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import com.breakabletoy.ima_backend.repository.columnar.ColumnarInventoryRepository;
+import com.breakabletoy.ima_backend.repository.mapped.MappedInventoryRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Random;
+
+
+/*
+ * SyntheticCatalog generates reproducible product catalogs for the benchmarks.
+ *
+ * Distributions:
+ * - Categories follow a Zipf-like distribution over CATEGORIES, so a few categories hold most products.
+ * - Names combine a brand, an adjective, a noun and a model number ("Acme Compact Blender 4821"),
+ *   so words repeat across products the way real catalogs do.
+ * - Prices are log-normal around 40, quantities are 0 (out of stock) for about 15% of the products.
+ * - About 60% of the products have an expiry date within the next two years.
+ */
+public class SyntheticCatalog {
+    public static final String[] CATEGORIES = {
+            "Grocery", "Electronics", "Clothing", "Home", "Beauty", "Toys", "Sports", "Books", "Garden", "Automotive",
+            "Pet Supplies", "Office", "Health", "Baby", "Music", "Tools", "Jewelry", "Shoes", "Furniture", "Kitchen",
+    };
+    private static final String[] BRANDS = {
+            "Acme", "Globex", "Initech", "Umbrella", "Stark", "Wayne", "Hooli", "Vandelay", "Soylent", "Tyrell",
+            "Wonka", "Cyberdyne", "Aperture", "Gringotts", "Oscorp", "Monarch", "Duff", "Pawnee", "Dunder", "Zorg",
+    };
+    private static final String[] ADJECTIVES = {
+            "Compact", "Deluxe", "Organic", "Wireless", "Classic", "Portable", "Premium", "Smart", "Eco", "Ultra",
+            "Mini", "Pro", "Soft", "Heavy", "Light", "Vintage", "Modern", "Rugged", "Fresh", "Silent",
+    };
+    private static final String[] NOUNS = {
+            "Blender", "Headphones", "Jacket", "Lamp", "Shampoo", "Puzzle", "Racket", "Novel", "Shovel", "Charger",
+            "Leash", "Stapler", "Vitamins", "Stroller", "Guitar", "Wrench", "Necklace", "Sneakers", "Chair", "Skillet",
+            "Coffee", "Rice", "Backpack", "Monitor", "Keyboard", "Blanket", "Candle", "Mug", "Notebook", "Speaker",
+    };
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 1, 1);
+
+    private final Random random;
+    private final double[] categoryWeights;
+
+    public SyntheticCatalog(long seed) {
+        random = new Random(seed);
+        categoryWeights = new double[CATEGORIES.length];
+        double total = 0;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            total += 1.0 / (i + 1);
+            categoryWeights[i] = total;
+        }
+        for (int i = 0; i < categoryWeights.length; i++) {
+            categoryWeights[i] /= total;
+        }
+    }
+
+    /*
+     * Creates a new, unsaved product.
+     */
+    public Inventory nextItem() {
+        String name = BRANDS[random.nextInt(BRANDS.length)] + " " + ADJECTIVES[random.nextInt(ADJECTIVES.length)]
+                + " " + NOUNS[random.nextInt(NOUNS.length)] + " " + (1000 + random.nextInt(9000));
+        BigDecimal price = BigDecimal.valueOf(Math.exp(Math.log(40) + random.nextGaussian())).setScale(2, RoundingMode.HALF_UP);
+        LocalDate expiryDate = (random.nextDouble() < 0.6) ? TODAY.plusDays(random.nextInt(730)) : null;
+        LocalDate dateCreated = TODAY.minusDays(random.nextInt(1000));
+        int quantity = (random.nextDouble() < 0.15) ? 0 : 1 + random.nextInt(200);
+        Product product = new Product(null, name, nextCategory(), price, expiryDate, dateCreated, dateCreated);
+        return new Inventory(0L, product, quantity, (quantity > 0) ? StockStatus.IN_STOCK : StockStatus.OUT_OF_STOCK);
+    }
+
+    /*
+     * Picks a category with the Zipf-like weights.
+     */
+    public String nextCategory() {
+        double value = random.nextDouble();
+        for (int i = 0; i < categoryWeights.length; i++) {
+            if (value < categoryWeights[i]) {
+                return CATEGORIES[i];
+            }
+        }
+        return CATEGORIES[CATEGORIES.length - 1];
+    }
+
+    /*
+     * Creates a repository holding the given number of generated products, with IDs 0 to size - 1.
+     */
+    public static InMemoryInventoryRepository repositoryOf(int size, long seed) {
+        SyntheticCatalog catalog = new SyntheticCatalog(seed);
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository();
+        for (int i = 0; i < size; i++) {
+            repository.save(catalog.nextItem());
+        }
+        return repository;
+    }
+
+    /*
+     * Creates a repository of the given layout ("object", "columnar" or "mapped") holding the given number of
+     * generated products, with IDs 0 to size - 1. The mapped layout stores its files in a new temporary directory.
+     */
+    public static InventoryRepository repositoryOf(int size, long seed, String layout) {
+        InventoryRepository repository;
+        switch (layout) {
+            case "columnar" -> repository = new ColumnarInventoryRepository();
+            case "mapped" -> {
+                try {
+                    repository = new MappedInventoryRepository(Files.createTempDirectory("mapped-catalog"));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot create a temporary directory", e);
+                }
+            }
+            default -> {
+                return repositoryOf(size, seed);
+            }
+        }
+        SyntheticCatalog catalog = new SyntheticCatalog(seed);
+        for (int i = 0; i < size; i++) {
+            repository.save(catalog.nextItem());
+        }
+        return repository;
+    }
+}
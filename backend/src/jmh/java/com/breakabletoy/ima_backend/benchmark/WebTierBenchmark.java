@@ -0,0 +1,80 @@
+package com.breakabletoy.ima_backend.benchmark;
+
+import com.breakabletoy.ima_backend.ImaBackendApplication;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/*
+ * WebTierBenchmark is a load test of GET /api/products over HTTP: the application is started on a
+ * random port with 100k products, and 64 client threads request random pages of the first hundred,
+ * sorted by name, without the query cache. It compares request handling on Tomcat's pool of platform
+ * threads (virtualThreads false, the current model) with one virtual thread per request.
+ * The clients run in the same JVM, so the server and the load share the cores.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Threads(64)
+@State(Scope.Benchmark)
+public class WebTierBenchmark {
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(ImaBackendApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "inventory.query-cache.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+        InventoryRepository repository = context.getBean(InventoryRepository.class);
+        SyntheticCatalog catalog = new SyntheticCatalog(42);
+        List<BatchOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            operations.add(BatchOperation.create(catalog.nextItem()));
+        }
+        repository.applyBatch(operations);
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/api/products?size=10&sortBy=name&sortOrder=asc&page=";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int listProducts() throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + ThreadLocalRandom.current().nextInt(100))).build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET /api/products returned " + response.statusCode());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,35 @@
+package com.breakabletoy.ima_backend.config;
+
+import com.breakabletoy.ima_backend.service.BackgroundThreads;
+import com.breakabletoy.ima_backend.service.InventoryChangeFeed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/*
+ * ChangeFeedConfig creates the feed that publishes every repository change to the SSE subscribers
+ * of /api/products/changes. The repository receives it as its InventoryChangeListener.
+ *
+ * Properties (see application.properties):
+ * - inventory.change-feed.history-size: the number of recent events kept for resuming clients.
+ * - inventory.change-feed.buffer-size: the number of pending events per client before they are coalesced.
+ * - inventory.change-feed.heartbeat-seconds: the interval between two heartbeats on an idle connection.
+ * - inventory.change-feed.sender-threads: the number of threads writing events to the connections
+ *   (platform threads only; with virtual background threads every connection being written gets its own).
+ */
+@Configuration
+public class ChangeFeedConfig {
+    /*
+     * Creates the change feed and the threads that deliver its events.
+     */
+    @Bean(destroyMethod = "close")
+    public InventoryChangeFeed inventoryChangeFeed(@Value("${inventory.change-feed.history-size:10000}") int historySize,
+                                                   @Value("${inventory.change-feed.buffer-size:1000}") int bufferSize,
+                                                   @Value("${inventory.change-feed.heartbeat-seconds:15}") long heartbeatSeconds,
+                                                   @Value("${inventory.change-feed.sender-threads:4}") int senderThreads,
+                                                   BackgroundThreads backgroundThreads) {
+        return new InventoryChangeFeed(historySize, bufferSize, heartbeatSeconds,
+                backgroundThreads.pool("inventory-change-feed-sender", senderThreads));
+    }
+}
@@ -0,0 +1,27 @@
+package com.breakabletoy.ima_backend.config;
+
+import com.breakabletoy.ima_backend.service.BackgroundThreads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/*
+ * ExecutionConfig chooses the threads of the background jobs. Request handling is switched by Spring
+ * Boot itself: with spring.threads.virtual.enabled, Tomcat runs every request on a virtual thread.
+ *
+ * Properties (see application.properties):
+ * - spring.threads.virtual.enabled: whether requests run on virtual threads.
+ * - inventory.background.virtual-threads: whether the change feed senders and the import parsing run on
+ *   virtual threads; follows spring.threads.virtual.enabled unless set.
+ */
+@Configuration
+public class ExecutionConfig {
+    /*
+     * Creates the thread source shared by the background jobs.
+     */
+    @Bean(destroyMethod = "close")
+    public BackgroundThreads backgroundThreads(@Value("${inventory.background.virtual-threads:${spring.threads.virtual.enabled:false}}") boolean virtual) {
+        return new BackgroundThreads(virtual);
+    }
+}
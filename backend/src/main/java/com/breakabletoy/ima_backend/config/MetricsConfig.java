@@ -0,0 +1,24 @@
+package com.breakabletoy.ima_backend.config;
+
+import com.breakabletoy.ima_backend.repository.metrics.MicrometerRepositoryMetrics;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/*
+ * MetricsConfig publishes the repository measurements to the Micrometer registry provided by Actuator.
+ * Endpoint latencies are recorded by Spring MVC itself (http.server.requests); everything is scraped
+ * from /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+    /*
+     * Creates the metrics the repository reports to.
+     */
+    @Bean
+    public RepositoryMetrics repositoryMetrics(MeterRegistry meterRegistry) {
+        return new MicrometerRepositoryMetrics(meterRegistry);
+    }
+}
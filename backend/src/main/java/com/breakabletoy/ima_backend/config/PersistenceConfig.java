@@ -0,0 +1,71 @@
+package com.breakabletoy.ima_backend.config;
+
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.persistence.FileSnapshotStore;
+import com.breakabletoy.ima_backend.repository.persistence.FsyncPolicy;
+import com.breakabletoy.ima_backend.repository.persistence.InventoryJournal;
+import com.breakabletoy.ima_backend.repository.persistence.SnapshotScheduler;
+import com.breakabletoy.ima_backend.repository.persistence.SnapshotStore;
+import com.breakabletoy.ima_backend.repository.persistence.WriteAheadLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+
+/*
+ * PersistenceConfig wires the durability components of the in-memory repository.
+ *
+ * Properties (see application.properties):
+ * - inventory.wal.enabled: whether mutations are written to a write-ahead log.
+ * - inventory.wal.directory: the directory holding the log segments.
+ * - inventory.wal.fsync-policy: ALWAYS, INTERVAL or OS (see FsyncPolicy).
+ * - inventory.wal.fsync-interval-ms: the force interval used by INTERVAL.
+ * - inventory.wal.segment-bytes: the size after which a new segment is started.
+ * - inventory.snapshot.enabled: whether snapshots are stored and loaded on startup.
+ * - inventory.snapshot.directory: the directory holding the snapshot files.
+ * - inventory.snapshot.interval-seconds: the delay between two snapshots.
+ */
+@Configuration
+public class PersistenceConfig {
+    /*
+     * Creates the journal used by the repository: a write-ahead log when persistence is enabled,
+     * otherwise a journal that keeps nothing.
+     */
+    @Bean(destroyMethod = "close")
+    public InventoryJournal inventoryJournal(@Value("${inventory.wal.enabled:false}") boolean enabled,
+                                             @Value("${inventory.wal.directory:data/wal}") String directory,
+                                             @Value("${inventory.wal.fsync-policy:INTERVAL}") FsyncPolicy fsyncPolicy,
+                                             @Value("${inventory.wal.fsync-interval-ms:100}") long fsyncIntervalMillis,
+                                             @Value("${inventory.wal.segment-bytes:67108864}") long segmentBytes) {
+        if (!enabled) {
+            return InventoryJournal.NONE;
+        }
+        return new WriteAheadLog(Path.of(directory), fsyncPolicy, fsyncIntervalMillis, segmentBytes);
+    }
+
+    /*
+     * Creates the snapshot store used by the repository, or one that keeps nothing when
+     * snapshots are disabled.
+     */
+    @Bean
+    public SnapshotStore inventorySnapshotStore(@Value("${inventory.snapshot.enabled:false}") boolean enabled,
+                                                @Value("${inventory.snapshot.directory:data/snapshots}") String directory) {
+        if (!enabled) {
+            return SnapshotStore.NONE;
+        }
+        return new FileSnapshotStore(Path.of(directory));
+    }
+
+    /*
+     * Takes a snapshot of the repository periodically, when snapshots are enabled.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "inventory.snapshot.enabled", havingValue = "true")
+    public SnapshotScheduler inventorySnapshotScheduler(InMemoryInventoryRepository repository,
+                                                        @Value("${inventory.snapshot.interval-seconds:300}") long intervalSeconds) {
+        return new SnapshotScheduler(repository::takeSnapshot, intervalSeconds);
+    }
+}
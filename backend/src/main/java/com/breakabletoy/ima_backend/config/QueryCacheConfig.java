@@ -0,0 +1,40 @@
+package com.breakabletoy.ima_backend.config;
+
+import com.breakabletoy.ima_backend.service.QueryResultCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/*
+ * QueryCacheConfig creates the cache of paginated query results used by the service and publishes
+ * its hit, miss and eviction counts and its size.
+ *
+ * Properties (see application.properties):
+ * - inventory.query-cache.enabled: whether query results are cached.
+ * - inventory.query-cache.max-weight: the number of cached items (summed over every cached page) kept at most.
+ */
+@Configuration
+public class QueryCacheConfig {
+    /*
+     * Creates the query result cache, or a disabled one.
+     */
+    @Bean
+    public QueryResultCache queryResultCache(@Value("${inventory.query-cache.enabled:true}") boolean enabled,
+                                             @Value("${inventory.query-cache.max-weight:10000}") long maxWeight,
+                                             MeterRegistry meterRegistry) {
+        QueryResultCache cache = enabled ? new QueryResultCache(maxWeight) : QueryResultCache.DISABLED;
+        FunctionCounter.builder("inventory.query.cache.requests", cache, QueryResultCache::getHits)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("inventory.query.cache.requests", cache, QueryResultCache::getMisses)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("inventory.query.cache.evictions", cache, QueryResultCache::getEvictions)
+                .register(meterRegistry);
+        Gauge.builder("inventory.query.cache.entries", cache, QueryResultCache::size).register(meterRegistry);
+        Gauge.builder("inventory.query.cache.weight", cache, QueryResultCache::weight).register(meterRegistry);
+        return cache;
+    }
+}
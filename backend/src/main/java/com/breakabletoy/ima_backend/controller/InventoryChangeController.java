@@ -0,0 +1,40 @@
+package com.breakabletoy.ima_backend.controller;
+
+import com.breakabletoy.ima_backend.service.InventoryChangeFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/*
+ * InventoryChangeController streams the changes of the inventory to clients, so they can keep
+ * their views current without polling the product list and the metrics.
+ */
+@CrossOrigin("*")
+@RestController
+@RequestMapping(value = "/api/products")
+public class InventoryChangeController {
+    private final InventoryChangeFeed inventoryChangeFeed;
+
+    /*
+     * Constructor that injects the InventoryChangeFeed dependency.
+     */
+    @Autowired
+    public InventoryChangeController(InventoryChangeFeed inventoryChangeFeed) {
+        this.inventoryChangeFeed = inventoryChangeFeed;
+    }
+
+    /*
+     * GET /api/products/changes
+     * Opens a Server-Sent Events stream with one event per created, updated, deleted, out-of-stock
+     * and in-stock product (see InventoryChangeEventDTO); the SSE event ID is the sequence number.
+     * A reconnecting EventSource sends Last-Event-ID and continues after it; the since parameter
+     * does the same for clients that track the sequence themselves. A RESYNC event tells the client
+     * that events were dropped and its data must be reloaded.
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(required = false) Long since) {
+        return inventoryChangeFeed.subscribe((since != null) ? since : lastEventId);
+    }
+}
@@ -1,28 +1,50 @@
 package com.breakabletoy.ima_backend.controller;
 
+import com.breakabletoy.ima_backend.dto.BatchOperationDTO;
 import com.breakabletoy.ima_backend.dto.InventoryDTO;
 import com.breakabletoy.ima_backend.dto.MetricsDTO;
 import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.dto.StockAdjustmentDTO;
+import com.breakabletoy.ima_backend.enums.CatalogFormat;
+import com.breakabletoy.ima_backend.enums.SearchMode;
 import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.mapper.InventoryMapper;
+import com.breakabletoy.ima_backend.repository.StockConflictException;
+import com.breakabletoy.ima_backend.response.BatchResponse;
+import com.breakabletoy.ima_backend.response.ChangesResponse;
+import com.breakabletoy.ima_backend.response.ImportResponse;
 import com.breakabletoy.ima_backend.response.PaginatedResponse;
 import com.breakabletoy.ima_backend.service.InventoryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /*
  * InventoryController handles HTTP requests related to inventory products.
  * It provides endpoints for fetching, creating, updating, and deleting inventory items,
- * as well as retrieving product categories and inventory metrics.
+ * as well as retrieving product categories and inventory metrics. Stock is adjusted by atomic
+ * deltas; a rejected adjustment is answered with 409 Conflict.
+ *
+ * The product list, categories and metrics carry a strong ETag built from the inventory data version.
+ * A request whose If-None-Match still matches is answered with 304 Not Modified before any query runs
+ * or any JSON is written. The tag also holds the start time of this instance, so tags issued before a
+ * restart never match.
  */
-@CrossOrigin("*")
+@CrossOrigin(origins = "*", exposedHeaders = HttpHeaders.ETAG)
 @RestController
 @RequestMapping(value = "/api/products")
 public class InventoryController {
     private final InventoryService inventoryService;
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
 
     /*
      * Constructor that injects the InventoryService dependency.
@@ -36,26 +58,80 @@ public class InventoryController {
      * GET /api/products
      * Retrieves a paginated list of inventory items based on filter, sorting, and pagination parameters.
      * Expects optional parameters for sorting, filtering by stock status, categories, and search text.
-     * Returns a PaginatedResponse containing the list of inventory items and total count.
+     * searchMode selects how the search text is matched: CONTAINS (default) or PREFIX (start of a word).
+     * cursor continues after a previous page (its nextCursor) instead of using page, for deep paging.
+     * Returns a PaginatedResponse containing the list of inventory items, total count and next page cursor,
+     * or 304 Not Modified when the If-None-Match ETag is still current.
      */
     @GetMapping()
-    public ResponseEntity<PaginatedResponse> findAllInventoryItems(@RequestParam(defaultValue = "0") int page,
+    public ResponseEntity<PaginatedResponse<InventoryDTO>> findAllInventoryItems(@RequestParam(defaultValue = "0") int page,
                                                                    @RequestParam(defaultValue = "10") int size,
                                                                    @RequestParam(required = false) List<String> sortBy,
                                                                    @RequestParam(required = false) List<String> sortOrder,
                                                                    @RequestParam(required = false)StockStatus stockStatus,
                                                                    @RequestParam(required = false) List<String> categories,
-                                                                   @RequestParam(required = false) String search) {
+                                                                   @RequestParam(required = false) String search,
+                                                                   @RequestParam(required = false) SearchMode searchMode,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   WebRequest webRequest) {
+        if (webRequest.checkNotModified(currentETag())) {
+            return null;
+        }
         PaginationRequestDTO savedPaginationRequestDTO;
         List<String> categoriesParam = (categories == null || categories.isEmpty()) ? null : categories;
         String searchParam = (search == null || search.trim().isEmpty()) ? null : search;
-        savedPaginationRequestDTO = new PaginationRequestDTO(page, size, sortBy, sortOrder, stockStatus, categoriesParam, searchParam);
-        List<InventoryDTO> getInventory = inventoryService.getInventory(savedPaginationRequestDTO);
-        long totalItems = inventoryService.getTotalItems();
-        PaginatedResponse paginatedResponse = new PaginatedResponse(getInventory, totalItems);
+        savedPaginationRequestDTO = new PaginationRequestDTO(page, size, sortBy, sortOrder, stockStatus, categoriesParam, searchParam, searchMode);
+        savedPaginationRequestDTO.setCursor((cursor == null || cursor.isEmpty()) ? null : cursor);
+        PaginatedResponse<InventoryDTO> paginatedResponse = inventoryService.getInventory(savedPaginationRequestDTO);
         return ResponseEntity.ok(paginatedResponse);
     }
 
+    /*
+     * GET /api/products/sync
+     * Retrieves the products created, updated or deleted since the given version, at most limit
+     * changes at a time (default 1000). Pass the returned version on the next call, and call again
+     * right away while hasMore is true. When resetRequired is true, the client drops its copy and
+     * syncs again from version 0.
+     * Returns a ChangesResponse with HTTP status OK.
+     */
+    @GetMapping("/sync")
+    public ResponseEntity<ChangesResponse> findChangesSince(@RequestParam(defaultValue = "0") long since,
+                                                            @RequestParam(defaultValue = "1000") int limit) {
+        ChangesResponse changesResponse = inventoryService.getChangesSince(since, limit);
+        return ResponseEntity.ok(changesResponse);
+    }
+
+    /*
+     * GET /api/products/export
+     * Streams the whole catalog as NDJSON (default) or CSV, as selected by the format parameter.
+     * The items are written directly to the response as they are read, taken from a single
+     * point-in-time snapshot of the inventory.
+     * Returns the export as an attachment with HTTP status OK.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInventory(@RequestParam(defaultValue = "NDJSON") CatalogFormat format) {
+        MediaType mediaType = (format == CatalogFormat.CSV) ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON;
+        String fileName = (format == CatalogFormat.CSV) ? "inventory.csv" : "inventory.ndjson";
+        StreamingResponseBody body = outputStream -> inventoryService.exportInventory(format, outputStream);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    /*
+     * POST /api/products/import
+     * Imports a CSV or NDJSON body (as selected by the format parameter, NDJSON by default) as new
+     * inventory items. The body is read as a stream, in the same formats the export writes.
+     * Returns an ImportResponse with the row counts and the rejected lines with HTTP status OK.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ImportResponse> importInventory(@RequestParam(defaultValue = "NDJSON") CatalogFormat format,
+                                                          InputStream body) throws IOException {
+        ImportResponse importResponse = inventoryService.importInventory(format, body);
+        return ResponseEntity.ok(importResponse);
+    }
+
     /*
      * POST /api/products
      * Creates a new inventory item.
@@ -68,6 +144,19 @@ public class InventoryController {
         return new ResponseEntity<>(savedInventoryItem, HttpStatus.CREATED);
     }
 
+    /*
+     * POST /api/products/batch
+     * Applies many create, update and delete operations in one request.
+     * Expects a list of BatchOperationDTO in the request body; they are applied in order.
+     * Returns a BatchResponse with one result per operation with HTTP status OK, also when
+     * some operations failed.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResponse> applyBatch(@RequestBody List<BatchOperationDTO> operations) {
+        BatchResponse batchResponse = inventoryService.applyBatch(operations);
+        return ResponseEntity.ok(batchResponse);
+    }
+
     /*
      * PUT /api/products/{id}
      * Updates an existing inventory item.
@@ -80,6 +169,35 @@ public class InventoryController {
         return new ResponseEntity<>(updatedInventoryItem, HttpStatus.OK);
     }
 
+    /*
+     * PATCH /api/products/{id}/stock
+     * Adds a number of units to the stock of an inventory item, or removes them when the delta is
+     * negative, atomically. The stock status follows the new quantity.
+     * Expects the inventory item ID as a path variable and a StockAdjustmentDTO in the request body;
+     * with an expectedVersion, the adjustment only applies if the item is still at that version.
+     * Returns the adjusted InventoryDTO with HTTP status OK, or CONFLICT / UNPROCESSABLE_ENTITY
+     * (see handleStockConflict).
+     */
+    @PatchMapping("/{id}/stock")
+    public ResponseEntity<InventoryDTO> adjustInventoryItemStock(@PathVariable Long id, @RequestBody StockAdjustmentDTO stockAdjustmentDTO) {
+        InventoryDTO adjustedInventoryItem = inventoryService.adjustStock(id, stockAdjustmentDTO);
+        return ResponseEntity.ok(adjustedInventoryItem);
+    }
+
+    /*
+     * Answers a rejected stock adjustment with the current item, so the client can retry with its
+     * version without reading it again, and an HTTP status telling whether a retry makes sense:
+     * - CONFLICT: the item changed since the expected version; the same delta may apply to the current one.
+     * - UNPROCESSABLE_ENTITY: the item has fewer units than removed; only a smaller removal can apply.
+     */
+    @ExceptionHandler(StockConflictException.class)
+    public ResponseEntity<InventoryDTO> handleStockConflict(StockConflictException e) {
+        HttpStatus status = (e.getReason() == StockConflictException.Reason.INSUFFICIENT_STOCK)
+                ? HttpStatus.UNPROCESSABLE_ENTITY
+                : HttpStatus.CONFLICT;
+        return new ResponseEntity<>(InventoryMapper.mapToInventoryDto(e.getCurrent()), status);
+    }
+
     /*
      * POST /api/products/{id}/outofstock
      * Marks an inventory item as out of stock.
@@ -119,10 +237,14 @@ public class InventoryController {
     /*
      * GET /api/products/categories
      * Retrieves a list of all product categories.
-     * Returns a list of category names with HTTP status OK.
+     * Returns a list of category names with HTTP status OK, or 304 Not Modified when the
+     * If-None-Match ETag is still current.
      */
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> findAllCategories() {
+    public ResponseEntity<List<String>> findAllCategories(WebRequest webRequest) {
+        if (webRequest.checkNotModified(currentETag())) {
+            return null;
+        }
         List<String> getCategories = inventoryService.getCategories();
         return ResponseEntity.ok(getCategories);
     }
@@ -130,11 +252,24 @@ public class InventoryController {
     /*
      * GET /api/products/metrics
      * Retrieves inventory metrics such as total value, average price, and category metrics.
-     * Returns a MetricsDTO with HTTP status OK.
+     * Returns a MetricsDTO with HTTP status OK, or 304 Not Modified when the If-None-Match
+     * ETag is still current.
      */
     @GetMapping("/metrics")
-    public ResponseEntity<MetricsDTO>  findAllMetrics() {
+    public ResponseEntity<MetricsDTO>  findAllMetrics(WebRequest webRequest) {
+        if (webRequest.checkNotModified(currentETag())) {
+            return null;
+        }
         MetricsDTO metricsDTO = inventoryService.calculateMetrics();
         return ResponseEntity.ok(metricsDTO);
     }
+
+    /*
+     * Builds the ETag of the current inventory data. checkNotModified also sets it on the response.
+     * It is read before the response is computed, so a write racing with the request can only make
+     * the tag older than the body, which costs the client one more full response, never a stale one.
+     */
+    private String currentETag() {
+        return "\"" + instanceTag + "-" + inventoryService.getDataVersion() + "\"";
+    }
 }
@@ -0,0 +1,57 @@
+package com.breakabletoy.ima_backend.dto;
+
+import com.breakabletoy.ima_backend.enums.BatchOperationType;
+
+/*
+ * BatchOperationDTO represents one operation of a batch request.
+ * It encapsulates:
+ * - type: The kind of operation (CREATE, UPDATE or DELETE).
+ * - id: The ID of the product to update or delete. For UPDATE it may be omitted when item carries the ID.
+ * - item: The product data for CREATE and UPDATE; ignored for DELETE.
+ */
+public class BatchOperationDTO {
+    private BatchOperationType type;
+    private Long id;
+    private InventoryDTO item;
+
+    public BatchOperationDTO() {
+    }
+
+    /*
+     * Constructs a new BatchOperationDTO with the given parameters.
+     *
+     * @param type the kind of operation.
+     * @param id the ID of the product to update or delete.
+     * @param item the product data for CREATE and UPDATE.
+     */
+    public BatchOperationDTO(BatchOperationType type, Long id, InventoryDTO item) {
+        this.type = type;
+        this.id = id;
+        this.item = item;
+    }
+
+    // Getters and setters are provided below.
+    public BatchOperationType getType() {
+        return type;
+    }
+
+    public void setType(BatchOperationType type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public InventoryDTO getItem() {
+        return item;
+    }
+
+    public void setItem(InventoryDTO item) {
+        this.item = item;
+    }
+}
@@ -0,0 +1,66 @@
+package com.breakabletoy.ima_backend.dto;
+
+import com.breakabletoy.ima_backend.enums.BatchOperationType;
+
+/*
+ * BatchResultDTO represents the outcome of one operation of a batch request.
+ * It encapsulates:
+ * - index: The position of the operation in the request.
+ * - type: The kind of operation.
+ * - id: The ID of the affected product, if known.
+ * - success: Whether the operation was applied.
+ * - item: The stored product after a successful CREATE or UPDATE; null otherwise.
+ * - error: The reason the operation failed; null if it succeeded.
+ */
+public class BatchResultDTO {
+    private int index;
+    private BatchOperationType type;
+    private Long id;
+    private boolean success;
+    private InventoryDTO item;
+    private String error;
+
+    /*
+     * Constructs a new BatchResultDTO with the given parameters.
+     *
+     * @param index the position of the operation in the request.
+     * @param type the kind of operation.
+     * @param id the ID of the affected product.
+     * @param success whether the operation was applied.
+     * @param item the stored product, if any.
+     * @param error the reason of the failure, if any.
+     */
+    public BatchResultDTO(int index, BatchOperationType type, Long id, boolean success, InventoryDTO item, String error) {
+        this.index = index;
+        this.type = type;
+        this.id = id;
+        this.success = success;
+        this.item = item;
+        this.error = error;
+    }
+
+    // Getters are provided below.
+    public int getIndex() {
+        return index;
+    }
+
+    public BatchOperationType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public InventoryDTO getItem() {
+        return item;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -9,13 +9,14 @@ import java.math.BigDecimal;
  * This class represents the metrics for a specific product category.
  * It includes:
  * - category: The name of the category.
- * - totalProductsInStock: The number of products available in this category.
+ * - totalProductsInStock: The number of products available in this category (a long: the sum of the
+ *   quantities of a large category can exceed an int).
  * - totalValueInStock: The total monetary value of the products in stock.
  * - averagePriceInStock: The average price of the products in stock.
  */
 public class CategoryMetric {
     private String category;
-    private int totalProductsInStock;
+    private long totalProductsInStock;
     private BigDecimal totalValueInStock;
     private BigDecimal averagePriceInStock;
 
@@ -27,7 +28,7 @@ public class CategoryMetric {
      * @param totalValueInStock the total monetary value of products in stock.
      * @param averagePriceInStock the average price of products in stock.
      */
-    public CategoryMetric(String category, int totalProductsInStock, BigDecimal totalValueInStock,  BigDecimal averagePriceInStock) {
+    public CategoryMetric(String category, long totalProductsInStock, BigDecimal totalValueInStock,  BigDecimal averagePriceInStock) {
         this.category = category;
         this.totalProductsInStock = totalProductsInStock;
         this.totalValueInStock = totalValueInStock;
@@ -43,11 +44,11 @@ public class CategoryMetric {
         this.category = category;
     }
 
-    public int getTotalProductsInStock() {
+    public long getTotalProductsInStock() {
         return totalProductsInStock;
     }
 
-    public void setTotalProductsInStock(int totalProductsInStock) {
+    public void setTotalProductsInStock(long totalProductsInStock) {
         this.totalProductsInStock = totalProductsInStock;
     }
 
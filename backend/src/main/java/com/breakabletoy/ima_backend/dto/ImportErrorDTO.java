@@ -0,0 +1,32 @@
+package com.breakabletoy.ima_backend.dto;
+
+/*
+ * ImportErrorDTO describes a line of an import that was not stored.
+ * It encapsulates:
+ * - line: The line number in the uploaded file (1-based, the CSV header is line 1).
+ * - message: Why the line was rejected.
+ */
+public class ImportErrorDTO {
+    private long line;
+    private String message;
+
+    /*
+     * Constructs a new ImportErrorDTO with the given parameters.
+     *
+     * @param line the line number in the uploaded file.
+     * @param message why the line was rejected.
+     */
+    public ImportErrorDTO(long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    // Getters are provided below.
+    public long getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,68 @@
+package com.breakabletoy.ima_backend.dto;
+
+import com.breakabletoy.ima_backend.enums.InventoryChangeType;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+
+/*
+ * InventoryChangeEventDTO is one event of the inventory change feed.
+ * It encapsulates:
+ * - sequence: The position of the event in the feed, also sent as the SSE event ID.
+ * - type: What happened (see InventoryChangeType).
+ * - id: The ID of the product, or null for CLEARED and RESYNC.
+ * - category: The category of the product after the change (before it for DELETED).
+ * - stockStatus: The stock status of the product after the change, or null for DELETED.
+ * - quantity: The quantity of the product after the change, or null for DELETED.
+ */
+public class InventoryChangeEventDTO {
+    private long sequence;
+    private InventoryChangeType type;
+    private Long id;
+    private String category;
+    private StockStatus stockStatus;
+    private Integer quantity;
+
+    /*
+     * Constructs a new InventoryChangeEventDTO with the given parameters.
+     *
+     * @param sequence the position of the event in the feed.
+     * @param type what happened.
+     * @param id the ID of the product, or null.
+     * @param category the category of the product, or null.
+     * @param stockStatus the stock status after the change, or null.
+     * @param quantity the quantity after the change, or null.
+     */
+    public InventoryChangeEventDTO(long sequence, InventoryChangeType type, Long id, String category,
+                                   StockStatus stockStatus, Integer quantity) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.category = category;
+        this.stockStatus = stockStatus;
+        this.quantity = quantity;
+    }
+
+    // Getters are provided below.
+    public long getSequence() {
+        return sequence;
+    }
+
+    public InventoryChangeType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public StockStatus getStockStatus() {
+        return stockStatus;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+}
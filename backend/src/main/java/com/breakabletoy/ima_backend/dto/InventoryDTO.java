@@ -10,12 +10,14 @@ import com.breakabletoy.ima_backend.enums.StockStatus;
  * - product: The product details as a ProductDTO.
  * - quantity: The number of items available in inventory.
  * - stockStatus: The current stock status (e.g., IN_STOCK, OUT_OF_STOCK).
+ * - version: The row version, to send back as the expected version of a stock adjustment.
  */
 public class InventoryDTO {
     private Long id;
     private ProductDTO product;
     private int quantity;
     private StockStatus stockStatus;
+    private long version;
 
     /*
      * Constructs a new InventoryDTO with the given parameters.
@@ -64,4 +66,12 @@ public class InventoryDTO {
     public void setStockStatus(StockStatus stockStatus) {
         this.stockStatus = stockStatus;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -1,5 +1,6 @@
 package com.breakabletoy.ima_backend.dto;
 
+import com.breakabletoy.ima_backend.enums.SearchMode;
 import com.breakabletoy.ima_backend.enums.StockStatus;
 
 import java.util.List;
@@ -16,11 +17,14 @@ import java.util.List;
  * - stockStatus: The stock status filter (e.g., IN_STOCK, OUT_OF_STOCK).
  * - categories: A list of product categories to filter by.
  * - search: A search term to filter product names.
+ * - searchMode: How the search term is matched (anywhere in the name or at the start of a word).
+ * - cursor: The nextCursor of a previous page; when set, the page continues after it and page is ignored.
  *
  * Constructors:
  * - Default constructor.
  * - Parameterized constructor that initializes all fields. If sortBy, sortOrder, or categories
- *   are passed as null, they are replaced with an empty list.
+ *   are passed as null, they are replaced with an empty list. If searchMode is passed as null
+ *   (or omitted), CONTAINS is used.
  */
 public class PaginationRequestDTO {
     private int page;
@@ -30,6 +34,8 @@ public class PaginationRequestDTO {
     private StockStatus stockStatus;
     private List<String> categories;
     private String search;
+    private SearchMode searchMode = SearchMode.CONTAINS;
+    private String cursor;
 
     public PaginationRequestDTO() {}
 
@@ -43,6 +49,11 @@ public class PaginationRequestDTO {
         this.search = search;
     }
 
+    public PaginationRequestDTO(int page, int size, List<String> sortBy, List<String> sortOrder, StockStatus stockStatus, List<String> categories, String search, SearchMode searchMode) {
+        this(page, size, sortBy, sortOrder, stockStatus, categories, search);
+        this.searchMode = (searchMode != null) ? searchMode : SearchMode.CONTAINS;
+    }
+
     // Getters and setters are provided below.
     public int getPage() {
         return page;
@@ -99,4 +110,20 @@ public class PaginationRequestDTO {
     public void setSearch(String search) {
         this.search = search;
     }
-}
\ No newline at end of file
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,44 @@
+package com.breakabletoy.ima_backend.dto;
+
+/*
+ * StockAdjustmentDTO represents a change of the quantity of one product.
+ * It encapsulates:
+ * - delta: The number of units to add, or to remove when negative.
+ * - expectedVersion: The version of the product the client last read. The adjustment is rejected
+ *   when the product changed since; when omitted, the delta is applied to whatever is stored.
+ */
+public class StockAdjustmentDTO {
+    private int delta;
+    private Long expectedVersion;
+
+    public StockAdjustmentDTO() {
+    }
+
+    /*
+     * Constructs a new StockAdjustmentDTO with the given parameters.
+     *
+     * @param delta the number of units to add, or to remove when negative.
+     * @param expectedVersion the version the client last read, or null.
+     */
+    public StockAdjustmentDTO(int delta, Long expectedVersion) {
+        this.delta = delta;
+        this.expectedVersion = expectedVersion;
+    }
+
+    // Getters and setters are provided below.
+    public int getDelta() {
+        return delta;
+    }
+
+    public void setDelta(int delta) {
+        this.delta = delta;
+    }
+
+    public Long getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public void setExpectedVersion(Long expectedVersion) {
+        this.expectedVersion = expectedVersion;
+    }
+}
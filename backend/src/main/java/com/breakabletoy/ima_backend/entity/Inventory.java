@@ -11,16 +11,20 @@ import com.breakabletoy.ima_backend.enums.StockStatus;
  * - product: The associated product details.
  * - quantity: The available quantity of the product.
  * - stockStatus: The current stock status (e.g., IN_STOCK, OUT_OF_STOCK).
+ * - version: The row version set by the repository, which changes on every write of the record. It is
+ *   compared by stock adjustments for optimistic concurrency and is not part of the stored data.
  *
  * Constructors:
  * - Default constructor.
  * - Parameterized constructor to initialize all fields.
+ * - Copy constructor that also copies the associated product.
  */
 public class Inventory {
     private long id;
     private Product product;
     private int quantity;
     private StockStatus stockStatus;
+    private long version;
 
     // Default constructor
     public Inventory() {}
@@ -33,6 +37,15 @@ public class Inventory {
         this.stockStatus = stockStatus;
     }
 
+    // Copy constructor
+    public Inventory(Inventory other) {
+        this.id = other.id;
+        this.product = (other.product != null) ? new Product(other.product) : null;
+        this.quantity = other.quantity;
+        this.stockStatus = other.stockStatus;
+        this.version = other.version;
+    }
+
     // Getters and setters are provided below.
     public long getId() {
         return id;
@@ -65,4 +78,12 @@ public class Inventory {
     public void setStockStatus(StockStatus stockStatus) {
         this.stockStatus = stockStatus;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -18,6 +18,7 @@ import java.time.LocalDate;
  * Constructors:
  * - Default constructor.
  * - Parameterized constructor to initialize all fields.
+ * - Copy constructor.
  */
 public class Product {
     private Long id;
@@ -42,6 +43,11 @@ public class Product {
         this.dateUpdate = dateUpdate;
     }
 
+    // Copy constructor
+    public Product(Product other) {
+        this(other.id, other.name, other.category, other.price, other.expiryDate, other.dateCreate, other.dateUpdate);
+    }
+
     // Getters and setters are provided below.
     public Long getId() {
         return id;
@@ -0,0 +1,14 @@
+package com.breakabletoy.ima_backend.enums;
+
+/*
+ * BatchOperationType enum defines the kinds of operation accepted in a batch request.
+ *
+ * CREATE: Stores a new product (like POST /api/products).
+ * UPDATE: Replaces an existing product (like PUT /api/products/{id}).
+ * DELETE: Removes a product (like DELETE /api/products/{id}).
+ */
+public enum BatchOperationType {
+    CREATE,
+    UPDATE,
+    DELETE,
+}
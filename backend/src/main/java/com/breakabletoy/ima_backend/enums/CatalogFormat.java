@@ -0,0 +1,12 @@
+package com.breakabletoy.ima_backend.enums;
+
+/*
+ * CatalogFormat enum defines the formats of the catalog export and import.
+ *
+ * NDJSON: One JSON object per line, with the same fields as the product API.
+ * CSV: One header line followed by one comma-separated line per product.
+ */
+public enum CatalogFormat {
+    NDJSON,
+    CSV,
+}
@@ -0,0 +1,22 @@
+package com.breakabletoy.ima_backend.enums;
+
+/*
+ * InventoryChangeType enum defines the kinds of event published by the change feed.
+ *
+ * CREATED: A product was stored.
+ * UPDATED: A product was replaced without changing its stock status.
+ * OUT_OF_STOCK: A product was replaced and went out of stock.
+ * IN_STOCK: A product was replaced and came back in stock.
+ * DELETED: A product was removed.
+ * CLEARED: Every product was removed.
+ * RESYNC: Events were dropped for this subscriber; the client must reload its data.
+ */
+public enum InventoryChangeType {
+    CREATED,
+    UPDATED,
+    OUT_OF_STOCK,
+    IN_STOCK,
+    DELETED,
+    CLEARED,
+    RESYNC,
+}
@@ -0,0 +1,13 @@
+package com.breakabletoy.ima_backend.enums;
+
+/*
+ * SearchMode enum defines how the search text is matched against product names.
+ *
+ * CONTAINS: The search text may appear anywhere in the name (e.g., "hon" matches "iPhone").
+ * PREFIX: The search text must appear at the start of a word in the name
+ *         (e.g., "i" matches "iPhone" but not "Computer").
+ */
+public enum SearchMode {
+    CONTAINS,
+    PREFIX,
+}
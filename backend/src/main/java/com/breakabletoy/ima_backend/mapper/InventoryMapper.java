@@ -21,12 +21,14 @@ public class InventoryMapper {
      * @return An InventoryDTO representing the data from the Inventory entity.
      */
     public static InventoryDTO mapToInventoryDto(Inventory inventory) {
-        return new InventoryDTO(
+        InventoryDTO inventoryDTO = new InventoryDTO(
                 inventory.getId(),
                 ProductMapper.mapToProductDto(inventory.getProduct()),
                 inventory.getQuantity(),
                 inventory.getStockStatus()
         );
+        inventoryDTO.setVersion(inventory.getVersion());
+        return inventoryDTO;
     }
 
     /*
@@ -0,0 +1,49 @@
+package com.breakabletoy.ima_backend.repository;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.BatchOperationType;
+
+
+/*
+ * BatchOperation is one operation of a repository batch.
+ *
+ * Fields:
+ * - type: CREATE, UPDATE or DELETE.
+ * - id: The ID of the item to delete (the item carries its own ID for CREATE and UPDATE).
+ * - inventory: The item to create or update; null for DELETE.
+ */
+public class BatchOperation {
+    private final BatchOperationType type;
+    private final Long id;
+    private final Inventory inventory;
+
+    private BatchOperation(BatchOperationType type, Long id, Inventory inventory) {
+        this.type = type;
+        this.id = id;
+        this.inventory = inventory;
+    }
+
+    public static BatchOperation create(Inventory inventory) {
+        return new BatchOperation(BatchOperationType.CREATE, null, inventory);
+    }
+
+    public static BatchOperation update(Inventory inventory) {
+        return new BatchOperation(BatchOperationType.UPDATE, (inventory != null) ? inventory.getId() : null, inventory);
+    }
+
+    public static BatchOperation delete(Long id) {
+        return new BatchOperation(BatchOperationType.DELETE, id, null);
+    }
+
+    public BatchOperationType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+}
@@ -0,0 +1,65 @@
+package com.breakabletoy.ima_backend.repository;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.BatchOperationType;
+
+
+/*
+ * BatchResult is the outcome of one BatchOperation.
+ *
+ * Fields:
+ * - type: The type of the operation.
+ * - id: The ID of the affected item, if known.
+ * - inventory: A copy of the stored item after a successful CREATE or UPDATE; null otherwise.
+ * - error: The reason the operation failed; null if it succeeded.
+ */
+public class BatchResult {
+    private final BatchOperationType type;
+    private final Long id;
+    private final Inventory inventory;
+    private final String error;
+
+    private BatchResult(BatchOperationType type, Long id, Inventory inventory, String error) {
+        this.type = type;
+        this.id = id;
+        this.inventory = inventory;
+        this.error = error;
+    }
+
+    public static BatchResult success(BatchOperationType type, Long id, Inventory inventory) {
+        return new BatchResult(type, id, inventory, null);
+    }
+
+    public static BatchResult failure(BatchOperationType type, Long id, String error) {
+        return new BatchResult(type, id, null, error);
+    }
+
+    /*
+     * Returns the failure of an operation that threw the given exception. An exception without a
+     * message is reported by its type, so the result never reads as a success.
+     */
+    public static BatchResult failure(BatchOperationType type, Long id, RuntimeException exception) {
+        String error = (exception.getMessage() != null) ? exception.getMessage() : exception.getClass().getSimpleName();
+        return failure(type, id, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public BatchOperationType getType() {
+        return type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,75 @@
+package com.breakabletoy.ima_backend.repository;
+
+import java.util.List;
+
+
+/*
+ * ChangeSet is the answer to a "changes since version N" request.
+ *
+ * Fields:
+ * - upserts: The current state of every item created or updated after the requested version.
+ * - deletedIds: The IDs of the items deleted after the requested version.
+ * - version: The version to request next time; every change up to it is included.
+ * - hasMore: Whether more changes follow (the limit was reached); request again from version.
+ * - resetRequired: Whether the changes since the requested version are no longer known (their
+ *   tombstones left the retention window, the repository was cleared, or the version belongs to
+ *   an earlier run). The client must drop its copy and sync again from version 0.
+ *
+ * Instances are immutable, so a change set can be shared freely between threads.
+ */
+public class ChangeSet<T> {
+    private final List<T> upserts;
+    private final List<Long> deletedIds;
+    private final long version;
+    private final boolean hasMore;
+    private final boolean resetRequired;
+
+    /*
+     * Constructs a new ChangeSet.
+     *
+     * @param upserts the created or updated items.
+     * @param deletedIds the IDs of the deleted items.
+     * @param version the version to request next time.
+     * @param hasMore whether more changes follow.
+     */
+    public ChangeSet(List<T> upserts, List<Long> deletedIds, long version, boolean hasMore) {
+        this(upserts, deletedIds, version, hasMore, false);
+    }
+
+    private ChangeSet(List<T> upserts, List<Long> deletedIds, long version, boolean hasMore, boolean resetRequired) {
+        this.upserts = List.copyOf(upserts);
+        this.deletedIds = List.copyOf(deletedIds);
+        this.version = version;
+        this.hasMore = hasMore;
+        this.resetRequired = resetRequired;
+    }
+
+    /*
+     * Creates the answer telling the client to sync again from version 0.
+     *
+     * @param version the current version.
+     */
+    public static <T> ChangeSet<T> reset(long version) {
+        return new ChangeSet<>(List.of(), List.of(), version, false, true);
+    }
+
+    public List<T> getUpserts() {
+        return upserts;
+    }
+
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public boolean isResetRequired() {
+        return resetRequired;
+    }
+}
@@ -1,93 +1,429 @@
 package com.breakabletoy.ima_backend.repository;
 
 import com.breakabletoy.ima_backend.dto.CategoryMetric;
-import com.breakabletoy.ima_backend.dto.MetricsDTO;
 import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
 import com.breakabletoy.ima_backend.entity.Inventory;
 import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.SearchMode;
 import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.contention.HotRowDetector;
+import com.breakabletoy.ima_backend.repository.contention.StripedQuantity;
+import com.breakabletoy.ima_backend.repository.index.BitmapIndex;
+import com.breakabletoy.ima_backend.repository.index.CategoryDictionary;
+import com.breakabletoy.ima_backend.repository.index.CategoryStockAggregates;
+import com.breakabletoy.ima_backend.repository.index.ConcurrentBitmap;
+import com.breakabletoy.ima_backend.repository.index.InventorySortField;
+import com.breakabletoy.ima_backend.repository.index.PageCursor;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+import com.breakabletoy.ima_backend.repository.index.SortedIndex;
+import com.breakabletoy.ima_backend.repository.index.TopK;
+import com.breakabletoy.ima_backend.repository.index.TextIndex;
+import com.breakabletoy.ima_backend.repository.metrics.QueryPlan;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import com.breakabletoy.ima_backend.repository.persistence.InventoryJournal;
+import com.breakabletoy.ima_backend.repository.persistence.InventorySnapshot;
+import com.breakabletoy.ima_backend.repository.persistence.JournalRecord;
+import com.breakabletoy.ima_backend.repository.persistence.SnapshotStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /*
  * InMemoryInventoryRepository is an in-memory implementation of the InventoryRepository interface.
- * It uses a HashMap to store inventory items, an AtomicLong for generating unique IDs, and a Set
- * to keep track of unique product categories.
+ * It uses a ConcurrentHashMap to store inventory items, an AtomicLong for generating unique IDs, and a
+ * CategoryDictionary to keep track of the product categories.
+ *
+ * Thread safety (multi-version concurrency control):
+ * - Writes are serialized by the writer lock. Every save, update, delete, clear and batch is one commit,
+ *   published atomically as a new version once all of its changes are applied.
+ * - Reads never lock. Every read pins the latest published version in a ReadView and sees exactly the
+ *   commits up to it: no half-applied batch, no item of a later commit, however long the read runs.
+ * - Every ID maps to a chain of item versions, newest first; a view resolves an ID to the newest version
+ *   not newer than its own. The writer drops the versions no open view can reach anymore.
+ * - The secondary indexes are shared with the writer and always reflect its latest state. Every write
+ *   logs its ID before touching an index, so a view re-evaluates the few IDs written after its version
+ *   against their pinned versions instead of trusting the indexes for them.
+ * - The repository stores detached copies of the entities it receives and hands out copies from the
+ *   by-ID lookups, so callers can never mutate shared state outside of save, update and deleteById.
+ * - Every stored item carries a row version, the stamp of its last change. adjustStock compares it with
+ *   the version the caller expects and writes under the same writer lock hold, a compare-and-set on the
+ *   row that never loses a concurrent adjustment.
+ *
+ * Hot items (contention mode, inventory.stock.hot-row-threshold):
+ * - A HotRowDetector counts the stock adjustments of every item per second. While an item is hot, its
+ *   unversioned sales reserve their units from a StripedQuantity, a few cells of available units that
+ *   sellers update with a compare-and-set each, so they do not queue on the writer lock one by one.
+ *   A cell never goes below zero; a sale no cell can cover takes the exact path, so the stock stays
+ *   exactly non-negative.
+ * - A seller whose sale is not folded yet takes the writer lock and folds the pending sales of all
+ *   cells as one write of the item: a single commit, journal record and index update for many sales.
+ *   The others find their sale folded and return without the lock. Every sale is folded before it
+ *   returns, so findAll, findCategoryMetrics and the journal only ever see the single stored quantity.
+ * - Any other write to a hot item (update, delete, versioned or positive adjustment, clear) first
+ *   folds and drains its cells under the writer lock.
+ *
+ * Categories:
+ * - Every category is interned in the CategoryDictionary on write, so the stored items of a category
+ *   share one String, and is indexed by its int code.
+ * - The dictionary counts the items of every category, so a category disappears from
+ *   findAllCategories and findCategoryMetrics once no stored item uses it.
+ *
+ * Secondary indexes:
+ * - Category codes and stock status are indexed as value -> bitmap of IDs. The indexes are updated in the same
+ *   atomic step as the map entry, so they always reflect the stored item.
+ * - Product names are kept in an n-gram/word TextIndex, so the search filter is answered from posting
+ *   lists instead of lower-casing and scanning every name.
+ * - Every sortable field has a SortedIndex of (key, ID) pairs.
+ * - findAll intersects the relevant bitmaps first and only resolves the IDs that survive, instead of
+ *   scanning every stored item. Sorted pages are read by walking the sorted index of the first sort
+ *   field; when the filters leave only a small fraction of the catalog, a bounded top-k heap over the
+ *   candidates is used instead. Neither path sorts the whole catalog.
+ *
+ * Metrics:
+ * - The units and value in stock of every category are kept as running totals updated by the write
+ *   paths and published with every commit, so findCategoryMetrics costs O(categories) instead of a
+ *   scan of every item, and its categories and totals always belong to the same version.
+ * - Query latency, the number of candidates, scanned and returned rows, sort-key usage, write latency
+ *   and contended waits for the structure lock are reported to a RepositoryMetrics.
+ *
+ * Durability:
+ * - Every save, update, deleteById and clear is appended to an InventoryJournal (a write-ahead log when
+ *   persistence is enabled) under the writer lock, and the journal is replayed on construction.
+ * - Waiting for the journal to reach the disk happens after the writer lock is released, so the
+ *   flushes of concurrent writers are still grouped.
+ * - takeSnapshot holds the writer lock only to mark a journal checkpoint and pin the version it
+ *   matches; collecting, encoding and writing the items of that version happen afterwards, while
+ *   writes continue. Once the snapshot is stored, the journal before the checkpoint is truncated.
+ *   Startup loads the newest snapshot and replays only the journal after it.
+ *
+ * Change notification:
+ * - Every applied change is reported to an InventoryChangeListener under the writer lock, in order,
+ *   once the commit holding it is published: a listener that reads the repository on an event sees
+ *   that change, and the data version (the ETag) it produced.
+ * - Every change is also stamped in a change log ordered by stamp, holding one entry per item and per
+ *   retained tombstone, so findChangesSince lists the changes after a version without scanning the
+ *   catalog. Tombstones are kept for a configurable window; clear and startup move a floor below which
+ *   clients have to sync from scratch.
  */
 @Repository
+@ConditionalOnProperty(name = "inventory.repository.layout", havingValue = "object", matchIfMissing = true)
 public class InMemoryInventoryRepository implements InventoryRepository {
-    // Map to store inventory items by their unique ID.
-    private final Map<Long, Inventory> inventoryMap = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(InMemoryInventoryRepository.class);
+
+    // Map to store the version chain of every inventory item by its unique ID.
+    private final ConcurrentMap<Long, ItemVersion> inventoryMap = new ConcurrentHashMap<>();
     // Atomic counter for generating unique IDs.
     private final AtomicLong counter = new AtomicLong();
-    // Set to store unique product categories.
-    private final Set<String> categoriesSet = new HashSet<>();
+    // Category codes and canonical names, with the number of items of every category.
+    private final CategoryDictionary categoryDictionary = new CategoryDictionary();
+    // Secondary indexes used to narrow down findAll before touching any entity.
+    private final BitmapIndex<Integer> categoryIndex = new BitmapIndex<>();
+    private final BitmapIndex<StockStatus> stockStatusIndex = new BitmapIndex<>();
+    private final TextIndex nameIndex = new TextIndex();
+    private final Map<InventorySortField, SortedIndex> sortedIndexes = new EnumMap<>(InventorySortField.class);
+    // Bitmap of every stored ID, used to page through the catalog in ID order.
+    private final ConcurrentBitmap liveIds = new ConcurrentBitmap();
+    // Running stock totals per category.
+    private final CategoryStockAggregates stockAggregates = new CategoryStockAggregates();
+
+    // A sorted index is walked when the candidates are at least 1/INDEX_WALK_MIN_SELECTIVITY of the catalog.
+    private static final int INDEX_WALK_MIN_SELECTIVITY = 8;
+    // Walks of the sorted index that may be disturbed by concurrent writes before falling back to top-k.
+    private static final int SORTED_WALK_ATTEMPTS = 3;
+
+    // Journal of every mutation, replayed on startup.
+    private final InventoryJournal journal;
+    // Serializes the writes; readers never take it.
+    private final ReentrantLock writerLock = new ReentrantLock();
+    // Snapshots of the state, loaded on startup.
+    private final SnapshotStore snapshotStore;
+    // Number of journal records appended, used to skip snapshots when nothing changed.
+    private final LongAdder mutations = new LongAdder();
+    // Serializes the snapshots; a lock rather than a monitor, so a virtual thread writing the
+    // snapshot file does not pin its carrier thread.
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    // Guarded by snapshotLock.
+    private long mutationsAtLastSnapshot;
+
+    // The latest commit, read by every view; its version is the data version, see getVersion.
+    private volatile Commit published = new Commit(0, 0, 0, 0, List.of(), Map.of());
+    // Views pinned by the reads in progress.
+    private final Set<ReadView> openViews = ConcurrentHashMap.newKeySet();
+    // A view opened on a version below the horizon may have lost versions to pruning; see openView.
+    private volatile long pruneHorizon;
+    // Write log: position -> ID of every write, in order. A view lists the IDs written after its commit.
+    private final ConcurrentSkipListMap<Long, Long> writeLog = new ConcurrentSkipListMap<>();
+    // Guarded by the writer lock: the next write log position, the item versions whose older versions
+    // can be dropped once no view needs them, and the state of the commit being written.
+    private long nextLogPosition;
+    private final Queue<ItemVersion> replacedVersions = new ArrayDeque<>();
+    private int size;
+    private boolean categoriesChanged;
+    private boolean uncommitted;
+    // The listener calls of the commit being written, made once it is published.
+    private final List<Runnable> pendingChanges = new ArrayList<>();
+    // Receives the measurements of the hot paths.
+    private final RepositoryMetrics metrics;
+    // Told about every change, e.g. to publish it to the change feed.
+    private final InventoryChangeListener changeListener;
+
+    // Change log for delta sync: the stamp of the last change of every item and of every retained
+    // tombstone, ordered by stamp, and the reverse mapping.
+    private final ConcurrentSkipListMap<Long, Long> changeLog = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Long, Long> changeStamps = new ConcurrentHashMap<>();
+    // Tombstones of deleted items, in deletion order, until they leave the retention window.
+    private final Queue<Tombstone> tombstones = new ConcurrentLinkedQueue<>();
+    private final Duration tombstoneRetention;
+    // Source of the change stamps; starts from the wall clock so stamps of an earlier run are lower.
+    private final AtomicLong changeSequence = new AtomicLong();
+    // Changes since a stamp below the floor can no longer be listed.
+    private final AtomicLong changeFloor = new AtomicLong();
+
+    private static final Duration DEFAULT_TOMBSTONE_RETENTION = Duration.ofDays(7);
+
+    // Contention mode: the adjustment rate of every item, or null when disabled, and the striped
+    // cells of the hot items. The map is only changed under the writer lock.
+    private final HotRowDetector hotRows;
+    private final ConcurrentMap<Long, StripedQuantity> stripedStock = new ConcurrentHashMap<>();
+    // Cells per hot item: the number of processors, rounded up to a power of two.
+    private static final int STOCK_STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+    // Spins of a seller waiting for another seller's fold; spinning is pointless on a single processor.
+    private static final int FOLD_SPINS = (Runtime.getRuntime().availableProcessors() > 1) ? 256 : 0;
+
+    private record Tombstone(long stamp, long id, long deletedAtMillis) {
+    }
+
+    /*
+     * One version of a stored item: the item as written by a commit, or null once deleted, linked to
+     * the version it replaced. Only the writer creates versions and unlinks the old ones.
+     */
+    private static final class ItemVersion {
+        private final long id;
+        private final Inventory item;
+        private final long version;
+        private volatile ItemVersion previous;
+
+        private ItemVersion(long id, Inventory item, long version, ItemVersion previous) {
+            this.id = id;
+            this.item = item;
+            this.version = version;
+            this.previous = previous;
+        }
+    }
 
-    // Stores the current size of the filtered and sorted inventory list.
-    private long currentSizeOfListOfElements = 0;
+    /*
+     * A published commit: its version, the end of its writes in the write log, the next ID to assign
+     * (every item of the commit has a lower ID), and the item count, categories and stock totals as of
+     * that version.
+     */
+    private record Commit(long version, long logPosition, long nextId, int size, List<String> categories,
+                          Map<String, CategoryStockAggregates.Totals> totals) {
+    }
+
+    /*
+     * Creates an empty repository without persistence.
+     */
+    public InMemoryInventoryRepository() {
+        this(InventoryJournal.NONE);
+    }
 
     /*
-    * Returns an Optional containing the Inventory item with the given ID, if it exists.
+     * Creates a repository that records its mutations in the given journal and
+     * restores its state by replaying it.
+     */
+    public InMemoryInventoryRepository(InventoryJournal journal) {
+        this(journal, SnapshotStore.NONE);
+    }
+
+    /*
+     * Creates a repository that records its mutations in the given journal, can store snapshots
+     * in the given store, and restores its state from the newest snapshot and the journal after it.
+     */
+    public InMemoryInventoryRepository(InventoryJournal journal, SnapshotStore snapshotStore) {
+        this(journal, snapshotStore, RepositoryMetrics.NOOP);
+    }
+
+    /*
+     * Creates a repository like the constructor above that also reports its measurements
+     * to the given metrics.
+     */
+    public InMemoryInventoryRepository(InventoryJournal journal, SnapshotStore snapshotStore, RepositoryMetrics metrics) {
+        this(journal, snapshotStore, metrics, InventoryChangeListener.NONE);
+    }
+
+    /*
+     * Creates a repository like the constructor above that also tells the given listener
+     * about every change. Changes replayed on startup are not reported.
+     */
+    public InMemoryInventoryRepository(InventoryJournal journal, SnapshotStore snapshotStore, RepositoryMetrics metrics,
+                                       InventoryChangeListener changeListener) {
+        this(journal, snapshotStore, metrics, changeListener, DEFAULT_TOMBSTONE_RETENTION);
+    }
+
+    /*
+     * Creates a repository like the constructor above that keeps the tombstones of deleted items
+     * for delta sync during the given window.
+     */
+    public InMemoryInventoryRepository(InventoryJournal journal, SnapshotStore snapshotStore, RepositoryMetrics metrics,
+                                       InventoryChangeListener changeListener, Duration tombstoneRetention) {
+        this(journal, snapshotStore, metrics, changeListener, tombstoneRetention, 0);
+    }
+
+    /*
+     * Creates a repository like the constructor above that puts the stock of an item into contention
+     * mode while it is adjusted at least hotRowThreshold times per second; 0 disables contention mode.
+     */
+    @Autowired
+    public InMemoryInventoryRepository(InventoryJournal journal, SnapshotStore snapshotStore, RepositoryMetrics metrics,
+                                       InventoryChangeListener changeListener,
+                                       @Value("${inventory.sync.tombstone-retention:7d}") Duration tombstoneRetention,
+                                       @Value("${inventory.stock.hot-row-threshold:0}") int hotRowThreshold) {
+        for (InventorySortField field : InventorySortField.values()) {
+            sortedIndexes.put(field, new SortedIndex());
+        }
+        this.journal = journal;
+        this.snapshotStore = snapshotStore;
+        this.metrics = metrics;
+        this.changeListener = changeListener;
+        this.tombstoneRetention = tombstoneRetention;
+        this.hotRows = (hotRowThreshold > 0) ? new HotRowDetector(hotRowThreshold, Duration.ofSeconds(1)) : null;
+        changeSequence.set(System.currentTimeMillis() * 1000);
+        recover();
+        stampRecoveredItems();
+        published = new Commit(0, 0, counter.get(), size, List.copyOf(categoryDictionary.referencedNames()), stockAggregates.snapshot());
+        metrics.bindSizes(() -> published.size(), () -> published.categories().size());
+    }
+
+    /*
+    * Returns an Optional containing a copy of the Inventory item with the given ID, if it exists.
     */
     public Optional<Inventory> findById(Long id) {
-        return Optional.ofNullable(inventoryMap.get(id));
+        return Optional.ofNullable(getById(id));
     }
 
     /*
      * Saves a new Inventory item.
-     * Assigns a unique ID to the inventory and its product, stores it in the map,
-     * and adds its category to the categories set if not already present.
+     * Assigns a unique ID to the inventory and its product and stores a copy of it in the map,
+     * with its category interned in the category dictionary.
      *
      * @param inventory The inventory item to be saved.
      * @return The saved inventory item.
      */
     public Inventory save(Inventory inventory) {
-        inventory.setId(counter.get());
-        Product product = inventory.getProduct();
-        product.setId(counter.getAndIncrement());
-        inventoryMap.put(inventory.getId(), inventory);
-
-        // Check if the category exists
-        if(!categoriesSet.contains(inventory.getProduct().getCategory())) {
-            categoriesSet.add(inventory.getProduct().getCategory());
+        long start = System.nanoTime();
+        long[] journalPosition = new long[1];
+        lockWriter();
+        try {
+            insert(inventory, journalPosition);
+        } finally {
+            commitAndUnlock();
         }
+        journal.awaitDurable(journalPosition[0]);
+        metrics.recordWrite("save", 1, System.nanoTime() - start);
         return inventory;
     }
 
     /*
      * Updates an existing Inventory item.
      * Throws an exception if the inventory item is null or not found.
-     * Also adds the product category to the set if necessary.
+     * The stored copy has its category interned in the category dictionary.
      *
      * @param inventory The inventory item with updated data.
      * @return The updated inventory item.
      */
     public Inventory update(Inventory inventory) {
         // TODO: manage exceptions
-        if (inventory == null || !inventoryMap.containsKey(inventory.getId())) {
+        if (inventory == null) {
             throw new IllegalArgumentException("Inventory ID not found for update");
         }
-        inventoryMap.put(inventory.getId(), inventory);
-
-        if(!categoriesSet.contains(inventory.getProduct().getCategory())) {
-            categoriesSet.add(inventory.getProduct().getCategory());
+        long start = System.nanoTime();
+        long[] journalPosition = new long[1];
+        lockWriter();
+        try {
+            replace(inventory, journalPosition);
+        } finally {
+            commitAndUnlock();
         }
+        journal.awaitDurable(journalPosition[0]);
+        metrics.recordWrite("update", 1, System.nanoTime() - start);
         return inventory;
     }
 
     /*
-     * Retrieves the Inventory item with the given ID.
+     * Adds a delta to the quantity of an existing item and derives its stock status from the result,
+     * as one commit. The version check and the write both happen under the writer lock, so concurrent
+     * adjustments of the same item are applied one after the other and none of them is lost.
+     *
+     * When the contention mode is enabled, unversioned sales of a hot item reserve their units from its
+     * striped cells instead, and the first seller to get the writer lock folds the sales of every waiting
+     * seller into one commit (see StripedQuantity). Every sale is folded and journaled before it returns.
+     *
+     * @param id The ID of the item.
+     * @param delta The number of units to add, or to remove when negative.
+     * @param expectedVersion The row version the caller last read, or null to apply the delta unconditionally.
+     * @return A copy of the adjusted item, with its new version. After a striped sale, the item as of the
+     *         fold that included it, which may include other sales too.
+     * @throws StockConflictException if the item changed since expectedVersion or has fewer units than removed.
+     */
+    public Inventory adjustStock(Long id, int delta, Long expectedVersion) {
+        long start = System.nanoTime();
+        boolean hot = hotRows != null && id != null && hotRows.record(id);
+        // Integer.MIN_VALUE has no positive counterpart; it takes the exact path and fails there.
+        boolean striped = hot && delta < 0 && delta != Integer.MIN_VALUE && expectedVersion == null;
+        Inventory adjusted = striped ? sellStriped(id, -delta) : null;
+        if (adjusted == null) {
+            adjusted = adjustExactly(id, current -> StockAdjustment.apply(current, delta, expectedVersion), hot);
+        }
+        metrics.recordWrite("adjust", 1, System.nanoTime() - start);
+        return adjusted;
+    }
+
+    /*
+     * Replaces the quantity of an existing item and derives its stock status from it, as one commit.
+     * The write happens under the writer lock without a version check, so it needs no retry however
+     * often the item changes; pending striped sales are folded first and the quantity replaces them.
+     *
+     * @param id The ID of the item.
+     * @param quantity The new number of units.
+     * @return A copy of the adjusted item, with its new version.
+     */
+    public Inventory setStock(Long id, int quantity) {
+        long start = System.nanoTime();
+        Inventory adjusted = adjustExactly(id, current -> StockAdjustment.set(current, quantity), false);
+        metrics.recordWrite("adjust", 1, System.nanoTime() - start);
+        return adjusted;
+    }
+
+    /*
+     * Retrieves a copy of the Inventory item with the given ID.
      *
      * @param id The unique ID of the inventory item.
      * @return The Inventory item if found; otherwise, null.
      */
     public Inventory getById(Long id) {
-        return inventoryMap.get(id);
+        try (ReadView view = openView()) {
+            Inventory inventory = view.resolve(id);
+            return (inventory != null) ? new Inventory(inventory) : null;
+        }
     }
 
     /*
@@ -96,144 +432,1193 @@ public class InMemoryInventoryRepository implements InventoryRepository {
      * @param id The unique ID of the inventory item to delete.
      */
     public void deleteById(Long id) {
-        inventoryMap.remove(id);
+        long start = System.nanoTime();
+        long[] journalPosition = new long[1];
+        lockWriter();
+        try {
+            remove(id, journalPosition);
+        } finally {
+            commitAndUnlock();
+        }
+        journal.awaitDurable(journalPosition[0]);
+        metrics.recordWrite("delete", 1, System.nanoTime() - start);
+    }
+
+    /*
+     * Applies a list of create, update and delete operations in order, as a single commit: readers
+     * see either none or all of its operations. The journal is waited on once, after the last
+     * operation, so a batch costs a single log flush. A failing operation is reported in its result,
+     * whatever the exception, and does not stop the others.
+     *
+     * @param operations The operations to apply.
+     * @return One result per operation, in the same order.
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        long start = System.nanoTime();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        long[] journalPosition = new long[1];
+        long lastJournalPosition = 0;
+        lockWriter();
+        try {
+            for (BatchOperation operation : operations) {
+                try {
+                    switch (operation.getType()) {
+                        case CREATE -> {
+                            Inventory created = insert(operation.getInventory(), journalPosition);
+                            results.add(BatchResult.success(operation.getType(), created.getId(), new Inventory(created)));
+                        }
+                        case UPDATE -> {
+                            Inventory updated = replace(operation.getInventory(), journalPosition);
+                            results.add(BatchResult.success(operation.getType(), updated.getId(), new Inventory(updated)));
+                        }
+                        case DELETE -> {
+                            if (!remove(operation.getId(), journalPosition)) {
+                                throw new IllegalArgumentException("Inventory ID not found for delete");
+                            }
+                            results.add(BatchResult.success(operation.getType(), operation.getId(), null));
+                        }
+                    }
+                    lastJournalPosition = Math.max(lastJournalPosition, journalPosition[0]);
+                } catch (RuntimeException e) {
+                    results.add(BatchResult.failure(operation.getType(), operation.getId(), e));
+                }
+            }
+        } finally {
+            commitAndUnlock();
+        }
+        journal.awaitDurable(lastJournalPosition);
+        metrics.recordWrite("batch", operations.size(), System.nanoTime() - start);
+        return results;
     }
 
     /*
      * Retrieves a paginated, filtered, and sorted list of Inventory items.
-     * It first applies filtering based on search text, stock status, and categories,
-     * then sorts the filtered list, and finally applies pagination slicing.
+     * It first selects the candidate IDs from the secondary indexes (search text, stock status,
+     * and categories), then reads only the requested page in sort order:
+     * - Without sorting, the candidates are walked in ID order.
+     * - With sorting, the sorted index of the first sort field is walked, or a bounded top-k heap
+     *   is built over the candidates when the filters are very selective.
+     * The total is the number of candidates, so every request gets its own consistent count
+     * without any state shared between requests.
+     * The query runs on one pinned version: the total and the page always agree with each other.
+     * A page past the end returns the last page, as before.
+     *
+     * Keyset pagination: when the request carries a cursor, the page number is ignored and the page
+     * starts right after the item the cursor points at. Unsorted pages resume at the next candidate
+     * ID; sorted pages seek the sorted index to the cursor's primary key in O(log n), so a deep page
+     * costs the same as the first one. Whenever more items follow a full page, the result carries the
+     * cursor of the next page, in both modes.
      *
      * @param paginationRequestDTO Contains pagination, filtering, and sorting parameters.
-     * @return A list of Inventory items for the requested page.
+     * @return The Inventory items for the requested page and the total number of matching items.
      */
-    public List<Inventory> findAll(PaginationRequestDTO paginationRequestDTO) {
-        List<Inventory> filteredInventory = getFilteredInventory(paginationRequestDTO);
-        List<Inventory> sortedInventory = getSortedInventory(paginationRequestDTO, filteredInventory);
-        currentSizeOfListOfElements = sortedInventory.size();
-        // Pagination slicing
-        int page = paginationRequestDTO.getPage();
-        int size = paginationRequestDTO.getSize();
-        int fromIndex = Math.max(0, (page - 1) * size); // Adjusting page index
-        int toIndex = Math.min(fromIndex + size, sortedInventory.size());
+    public QueryResult<Inventory> findAll(PaginationRequestDTO paginationRequestDTO) {
+        long start = System.nanoTime();
+        SortSpec sortSpec = SortSpec.of(paginationRequestDTO);
+        PageCursor cursor = (paginationRequestDTO.getCursor() != null)
+                ? PageCursor.decode(paginationRequestDTO.getCursor(), sortSpec)
+                : null;
 
-        // In case is the last page available
-        if (fromIndex >= sortedInventory.size()) {
-            return sortedInventory.subList(Math.max(0, sortedInventory.size() - size), sortedInventory.size());
-        }
+        List<Inventory> items;
+        long totalItems;
+        QueryPlan plan;
+        long[] rowsScanned = new long[1];
+        int size = Math.max(0, paginationRequestDTO.getSize());
+        try (ReadView view = openView()) {
+            BitSet candidates = getIndexedCandidates(paginationRequestDTO);
+            if (candidates == null && !sortSpec.isSorted()) {
+                candidates = liveIds.toBitSet();
+            }
+            if (candidates != null) {
+                view.reconcile(paginationRequestDTO, candidates);
+            }
+            totalItems = (candidates != null) ? candidates.cardinality() : view.commit.size();
 
-        return sortedInventory.subList(fromIndex, toIndex);
+            // Pagination slicing
+            int page = paginationRequestDTO.getPage();
+            int offset = 0;
+            if (cursor == null) {
+                long fromIndex = Math.max(0, (long) (page - 1) * size); // Adjusting page index
+                // In case is the last page available
+                if (fromIndex >= totalItems) {
+                    fromIndex = Math.max(0, totalItems - size);
+                }
+                offset = (int) fromIndex;
+            }
+            // One extra item tells whether a next page exists.
+            int limit = (int) Math.min(Integer.MAX_VALUE, size + 1L);
+
+            if (!sortSpec.isSorted()) {
+                plan = QueryPlan.ID_ORDER;
+                items = getPageInIdOrder(view, candidates, cursor, offset, limit, rowsScanned);
+            } else if (candidates == null || totalItems * INDEX_WALK_MIN_SELECTIVITY >= view.commit.size()) {
+                plan = QueryPlan.SORTED_INDEX;
+                items = getPageFromSortedIndex(view, sortSpec, candidates, cursor, offset, limit, rowsScanned);
+                if (items == null) {
+                    // Writes kept landing on the walked range; select the page from the candidates instead.
+                    plan = QueryPlan.TOP_K;
+                    if (candidates == null) {
+                        candidates = liveIds.toBitSet();
+                        view.reconcile(paginationRequestDTO, candidates);
+                    }
+                    items = getPageFromTopK(view, sortSpec, candidates, cursor, offset, limit, rowsScanned);
+                }
+            } else {
+                plan = QueryPlan.TOP_K;
+                items = getPageFromTopK(view, sortSpec, candidates, cursor, offset, limit, rowsScanned);
+            }
+        }
+        String nextCursor = null;
+        if (size > 0 && items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = PageCursor.after(sortSpec, items.get(size - 1)).encode();
+        }
+        metrics.recordQuery(paginationRequestDTO, sortSpec, plan, System.nanoTime() - start,
+                totalItems, rowsScanned[0], items.size());
+        return new QueryResult<>(items, totalItems, nextCursor);
     }
 
     /*
-     * Retrieves all Inventory items without applying pagination.
+     * Retrieves all Inventory items without applying pagination, as of the latest version, in ID order.
+     * The returned items are the stored instances and must be treated as read-only.
      *
      * @return A list of all Inventory items.
      */
     public List<Inventory> findAllWithoutPagination() {
-        return inventoryMap.values().stream().collect(Collectors.toList());
+        try (ReadView view = openView()) {
+            return view.items();
+        }
+    }
+
+    /*
+     * Retrieves every Inventory item as of a single version, in ID order.
+     * The version is pinned without blocking writes; the items are the stored instances, which are
+     * replaced rather than mutated by writes, so the list costs one reference per item.
+     * It must be treated as read-only.
+     *
+     * @return An unmodifiable list of all Inventory items.
+     */
+    public List<Inventory> findAllSnapshot() {
+        try (ReadView view = openView()) {
+            return Collections.unmodifiableList(view.items());
+        }
     }
 
     /*
-     * Retrieves a sorted list of all unique product categories.
+     * Streams every Inventory item as of a single version, in ID order, reading one item at a time.
+     * The version stays pinned, without blocking writes, until the stream is closed; nothing is
+     * collected or sorted, so an export of any size holds one item at a time. The items are the
+     * stored instances and must be treated as read-only.
+     *
+     * @return A sequential stream of all Inventory items, to be closed by the caller.
+     */
+    public Stream<Inventory> streamSnapshot() {
+        ReadView view = openView();
+        Spliterator<Inventory> items = Spliterators.spliteratorUnknownSize(view.iterator(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+        return StreamSupport.stream(items, false).onClose(view::close);
+    }
+
+    /*
+     * Retrieves a sorted list of the product categories used by at least one stored item.
+     * A category no longer used by any item, e.g. after its last item was deleted, is not listed.
      *
      * @return A sorted list of category names.
      */
     public List<String> findAllCategories() {
-        List<String> categories = categoriesSet.stream().sorted().collect(Collectors.toList());
-        return categories;
+        return published.categories();
+    }
+
+    /*
+     * Retrieves the stock metrics of every category listed by findAllCategories, in the same order.
+     * The categories and the running totals are read from the same published commit, so every
+     * category is taken as of the same version.
+     * The average price is the value in stock divided by the units in stock.
+     *
+     * @return A list with one CategoryMetric per category.
+     */
+    public List<CategoryMetric> findCategoryMetrics() {
+        Commit commit = published;
+        Map<String, CategoryStockAggregates.Totals> totals = commit.totals();
+        List<CategoryMetric> categoryMetrics = new ArrayList<>();
+        for (String category : commit.categories()) {
+            CategoryStockAggregates.Totals categoryTotals = totals.getOrDefault(category, CategoryStockAggregates.Totals.ZERO);
+            long unitsInStock = categoryTotals.getUnitsInStock();
+            BigDecimal valueInStock = categoryTotals.getValueInStock();
+            BigDecimal averagePriceInStock = (unitsInStock > 0)
+                    ? valueInStock.divide(BigDecimal.valueOf(unitsInStock), RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+            categoryMetrics.add(new CategoryMetric(category, unitsInStock, valueInStock, averagePriceInStock));
+        }
+        return categoryMetrics;
     }
 
     /*
-     * Returns the total number of Inventory items after filtering and sorting.
+     * Lists the changes after the given version, in the order they were applied.
+     * The writer lock is taken only to read the current stamp and pin the version it belongs to, so
+     * every change up to it is already in the change log; the log is then read without blocking
+     * writers, and the items are read as of the pinned version. The cost is O(log n + changes),
+     * independent of the catalog size.
+     * An item changed again while the log is read may be reported at the next sync; applying the
+     * same upsert or delete twice is harmless.
      *
-     * @return The total number of items.
+     * @param since The version returned by the previous sync, or 0 for everything.
+     * @param limit The maximum number of changes to return.
+     * @return The changes, or a reset when the changes since that version are no longer known.
      */
-    public long totalItems() {
-        return currentSizeOfListOfElements;
+    public ChangeSet<Inventory> findChangesSince(long since, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        long current;
+        ReadView view;
+        lockWriter();
+        try {
+            purgeTombstones();
+            current = changeSequence.get();
+            view = openView();
+        } finally {
+            writerLock.unlock();
+        }
+        try (view) {
+            if (since < 0 || since > current || (since > 0 && since < changeFloor.get())) {
+                return ChangeSet.reset(current);
+            }
+
+            List<Inventory> upserts = new ArrayList<>();
+            List<Long> deletedIds = new ArrayList<>();
+            long last = since;
+            for (Map.Entry<Long, Long> change : changeLog.subMap(since, false, current, true).entrySet()) {
+                if (upserts.size() + deletedIds.size() == limit) {
+                    return new ChangeSet<>(upserts, deletedIds, last, true);
+                }
+                Inventory inventory = view.resolve(change.getValue());
+                if (inventory != null) {
+                    upserts.add(inventory);
+                } else {
+                    deletedIds.add(change.getValue());
+                }
+                last = change.getKey();
+            }
+            return new ChangeSet<>(upserts, deletedIds, current, false);
+        }
+    }
+
+    /*
+     * Returns the data version: the version of the latest published commit. It is bumped once every
+     * save, update, delete, clear and batch has been applied, so a result computed after reading
+     * version V reflects at least every change up to V, and two equal reads mean that no change
+     * completed in between.
+     */
+    @Override
+    public long getVersion() {
+        return published.version();
     }
 
     /*
      * Clears the inventory repository.
      * This removes all Inventory items and resets the counter.
+     * Every item gets a deleted version, so the views opened before the clear still see the items.
      */
     public void clear() {
-        inventoryMap.clear();
+        long start = System.nanoTime();
+        long journalPosition;
+        lockWriter();
+        try {
+            long[] foldPosition = new long[1];
+            for (Long id : new ArrayList<>(stripedStock.keySet())) {
+                settle(id, foldPosition);
+            }
+            journalPosition = appendToJournal(JournalRecord.clear());
+            BitSet ids = liveIds.toBitSet();
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                putVersion(id, null);
+            }
+            clearState();
+            pendingChanges.add(changeListener::onClear);
+            uncommitted = true;
+        } finally {
+            commitAndUnlock();
+        }
+        journal.awaitDurable(journalPosition);
+        metrics.recordWrite("clear", 0, System.nanoTime() - start);
+    }
+
+    /*
+     * Stores a snapshot of the current state and truncates the journal before it.
+     * Writes are blocked only while the checkpoint is marked and its version is pinned.
+     * Does nothing if snapshots are disabled or nothing changed since the previous snapshot.
+     *
+     * @return true if a snapshot was written.
+     */
+    public boolean takeSnapshot() {
+        if (!snapshotStore.isEnabled()) {
+            return false;
+        }
+        snapshotLock.lock();
+        try {
+            long checkpoint;
+            long nextId;
+            long mutationCount;
+            ReadView view;
+            lockWriter();
+            try {
+                mutationCount = mutations.sum();
+                if (mutationCount == mutationsAtLastSnapshot) {
+                    return false;
+                }
+                checkpoint = journal.checkpoint();
+                nextId = counter.get();
+                view = openView();
+            } finally {
+                writerLock.unlock();
+            }
+
+            // Ascending IDs let the load append to every posting list instead of inserting into it.
+            List<Inventory> items;
+            try (view) {
+                items = view.items();
+            }
+            snapshotStore.write(new InventorySnapshot(checkpoint, nextId, view.commit.categories(), items));
+            // Only up to the oldest snapshot kept, so a load falling back to it still finds the journal after it.
+            journal.truncateBefore(snapshotStore.oldestCheckpoint());
+            mutationsAtLastSnapshot = mutationCount;
+            log.info("Stored inventory snapshot of {} items at checkpoint {}", items.size(), checkpoint);
+            return true;
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /*
+     * Restores the state from the newest snapshot and the journal recorded after it.
+     * Called once, before the repository is shared.
+     */
+    private void recover() {
+        long fromCheckpoint = 0;
+        Optional<InventorySnapshot> snapshot = snapshotStore.loadLatest();
+        if (snapshot.isPresent()) {
+            loadSnapshot(snapshot.get());
+            fromCheckpoint = snapshot.get().getCheckpoint();
+            log.info("Loaded {} inventory items from snapshot at checkpoint {}", size, fromCheckpoint);
+        }
+        long[] records = new long[1];
+        journal.replay(fromCheckpoint, record -> {
+            switch (record.getType()) {
+                case SAVE, UPDATE -> {
+                    Inventory inventory = record.getInventory();
+                    internCategory(inventory);
+                    ItemVersion previous = inventoryMap.put(inventory.getId(), new ItemVersion(inventory.getId(), inventory, 0, null));
+                    reindexItem((previous != null) ? previous.item : null, inventory);
+                    counter.accumulateAndGet(inventory.getId() + 1, Math::max);
+                }
+                case DELETE -> {
+                    ItemVersion previous = inventoryMap.remove(record.getId());
+                    if (previous != null) {
+                        reindexItem(previous.item, null);
+                    }
+                }
+                case CLEAR -> {
+                    inventoryMap.clear();
+                    clearState();
+                }
+            }
+            records[0]++;
+        });
+        if (records[0] > 0) {
+            log.info("Recovered {} inventory items from {} journal records", size, records[0]);
+        }
+    }
+
+    /*
+     * Fills the empty repository from a snapshot. The items come in ascending ID order; the index
+     * families are independent of each other and are built in parallel.
+     * The categories are taken from the items; the category list of the snapshot is not needed.
+     */
+    private void loadSnapshot(InventorySnapshot snapshot) {
+        List<Inventory> items = snapshot.getItems();
+        for (Inventory item : items) {
+            internCategory(item);
+            inventoryMap.put(item.getId(), new ItemVersion(item.getId(), item, 0, null));
+        }
+        size = items.size();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        tasks.add(CompletableFuture.runAsync(() -> {
+            for (Inventory item : items) {
+                int id = Math.toIntExact(item.getId());
+                int category = categoryDictionary.lookup(item.getProduct().getCategory());
+                if (category != CategoryDictionary.NONE) {
+                    categoryIndex.add(category, id);
+                    categoryDictionary.retain(category);
+                }
+                stockStatusIndex.add(item.getStockStatus(), id);
+                liveIds.set(id);
+                stockAggregates.apply(null, item);
+            }
+        }));
+        tasks.add(CompletableFuture.runAsync(() -> {
+            for (Inventory item : items) {
+                nameIndex.add(Math.toIntExact(item.getId()), item.getProduct().getName());
+            }
+        }));
+        for (Map.Entry<InventorySortField, SortedIndex> entry : sortedIndexes.entrySet()) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (Inventory item : items) {
+                    entry.getValue().add(entry.getKey().keyOf(item), Math.toIntExact(item.getId()));
+                }
+            }));
+        }
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+        counter.set(snapshot.getNextId());
+    }
+
+    /*
+     * Stores a new item under the next ID. The caller holds the writer lock.
+     *
+     * @param inventory The item to store; its ID and its product ID are set to the new ID.
+     * @param journalPosition Receives the journal position of the write.
+     * @return The given item.
+     */
+    private Inventory insert(Inventory inventory, long[] journalPosition) {
+        requireProduct(inventory);
+        long id = counter.get();
+        inventory.setId(id);
+        Product product = inventory.getProduct();
+        product.setId(id);
+        Inventory stored = new Inventory(inventory);
+        internCategory(stored);
+        journalPosition[0] = appendToJournal(JournalRecord.save(stored));
+        counter.set(id + 1);
+        putVersion(id, stored);
+        reindexItem(null, stored);
+        stored.setVersion(recordChange(id));
+        inventory.setVersion(stored.getVersion());
+        pendingChanges.add(() -> changeListener.onChange(null, stored));
+        return inventory;
+    }
+
+    /*
+     * Replaces an existing item. The caller holds the writer lock.
+     *
+     * @param inventory The item with the updated data.
+     * @param journalPosition Receives the journal position of the write.
+     * @return The given item.
+     */
+    private Inventory replace(Inventory inventory, long[] journalPosition) {
+        requireProduct(inventory);
+        settle(inventory.getId(), journalPosition);
+        Inventory previous = newest(inventory.getId());
+        if (previous == null) {
+            throw new IllegalArgumentException("Inventory ID not found for update");
+        }
+        Inventory stored = new Inventory(inventory);
+        internCategory(stored);
+        write(previous, stored, journalPosition);
+        inventory.setVersion(stored.getVersion());
+        return inventory;
+    }
+
+    /*
+     * Applies a stock adjustment under the writer lock: pending striped sales of the item are folded
+     * first, then the adjustment is applied to the stored item (see StockAdjustment) and written. A hot
+     * item gets fresh cells holding its new quantity, which also rebalances cells too depleted for a sale.
+     */
+    private Inventory adjustExactly(Long id, UnaryOperator<Inventory> adjustment, boolean hot) {
+        long[] journalPosition = new long[1];
+        Inventory adjusted;
+        lockWriter();
+        try {
+            Inventory previous = null;
+            if (id != null) {
+                settle(id, journalPosition);
+                previous = newest(id);
+            }
+            try {
+                adjusted = adjustment.apply(previous);
+                write(previous, adjusted, journalPosition);
+            } finally {
+                Inventory current = hot ? newest(id) : null;
+                if (current != null) {
+                    stripedStock.put(id, new StripedQuantity(STOCK_STRIPES, current.getQuantity()));
+                }
+            }
+        } finally {
+            commitAndUnlock();
+        }
+        journal.awaitDurable(journalPosition[0]);
+        return new Inventory(adjusted);
+    }
+
+    /*
+     * Sells units of a hot item from its striped cells. The seller then waits for a fold that includes
+     * its sale: on a multiprocessor it first spins briefly while another seller holds the writer lock,
+     * since that seller's fold usually covers it, and only folds itself when the lock is free or the
+     * spin runs out. An item that cooled down leaves contention mode at its next exact adjustment.
+     *
+     * @return A copy of the item after the fold that included the sale, or null if the cells could not
+     *         cover the sale and it has to take the exact path (nothing was taken).
+     */
+    private Inventory sellStriped(long id, int units) {
+        StripedQuantity striped = stripedStock.get(id);
+        long ticket = (striped != null) ? striped.reserve(units) : -1;
+        if (ticket < 0) {
+            return null;
+        }
+        for (int spins = FOLD_SPINS; striped.lastFold().tickets() < ticket; spins--) {
+            if (spins > 0 && writerLock.isLocked()) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long[] journalPosition = new long[1];
+            lockWriter();
+            try {
+                if (striped.lastFold().tickets() < ticket) {
+                    fold(id, striped, false, journalPosition);
+                }
+            } finally {
+                commitAndUnlock();
+            }
+        }
+        StripedQuantity.Fold fold = striped.lastFold();
+        journal.awaitDurable(fold.journalPosition());
+        return new Inventory(fold.item());
+    }
+
+    /*
+     * Writes the pending deltas of the given cells to the item as one adjustment and publishes the fold.
+     * The caller holds the writer lock.
+     *
+     * @param drain Whether to empty the cells, so no further sale goes through them.
+     */
+    private void fold(long id, StripedQuantity striped, boolean drain, long[] journalPosition) {
+        long tickets = striped.tickets();
+        long net = drain ? striped.drain() : striped.takeDeltas();
+        StripedQuantity.Fold last = striped.lastFold();
+        Inventory current = newest(id);
+        long position = last.journalPosition();
+        if (net != 0) {
+            Inventory folded = StockAdjustment.apply(current, Math.toIntExact(net), null);
+            write(current, folded, journalPosition);
+            current = folded;
+            position = journalPosition[0];
+        }
+        striped.markFolded(tickets, position, (current != null) ? current : last.item());
+    }
+
+    /*
+     * Takes the given item out of contention mode, folding its pending sales, before any other write
+     * to it. The caller holds the writer lock.
+     */
+    private void settle(long id, long[] journalPosition) {
+        StripedQuantity striped = stripedStock.isEmpty() ? null : stripedStock.remove(id);
+        if (striped != null) {
+            fold(id, striped, true, journalPosition);
+        }
+    }
+
+    /*
+     * Makes the given copy the newest version of an existing item, journals it as an update and sets
+     * its row version to the stamp of the change. The caller holds the writer lock.
+     *
+     * @param previous The newest version of the item.
+     * @param stored The detached copy to store, with its category interned.
+     * @param journalPosition Receives the journal position of the write.
+     */
+    private void write(Inventory previous, Inventory stored, long[] journalPosition) {
+        journalPosition[0] = appendToJournal(JournalRecord.update(stored));
+        putVersion(stored.getId(), stored);
+        reindexItem(previous, stored);
+        stored.setVersion(recordChange(stored.getId()));
+        pendingChanges.add(() -> changeListener.onChange(previous, stored));
+    }
+
+    /*
+     * Removes an item if it exists. The caller holds the writer lock.
+     *
+     * @param id The ID of the item to remove.
+     * @param journalPosition Receives the journal position of the write.
+     * @return true if the item existed.
+     */
+    private boolean remove(Long id, long[] journalPosition) {
+        if (id != null) {
+            settle(id, journalPosition);
+        }
+        Inventory previous = (id != null) ? newest(id) : null;
+        if (previous == null) {
+            return false;
+        }
+        journalPosition[0] = appendToJournal(JournalRecord.delete(id));
+        putVersion(id, null);
+        reindexItem(previous, null);
+        tombstones.add(new Tombstone(recordChange(id), id, System.currentTimeMillis()));
+        pendingChanges.add(() -> changeListener.onChange(previous, null));
+        purgeTombstones();
+        return true;
+    }
+
+    private static void requireProduct(Inventory inventory) {
+        if (inventory == null || inventory.getProduct() == null) {
+            throw new IllegalArgumentException("Inventory product is required");
+        }
+    }
+
+    /*
+     * Returns the newest version of the item with the given ID, committed or not. The caller holds
+     * the writer lock.
+     */
+    private Inventory newest(long id) {
+        ItemVersion version = inventoryMap.get(id);
+        return (version != null) ? version.item : null;
+    }
+
+    /*
+     * Makes the given item, or null for a deletion, the newest version of the given ID, to be published
+     * by the next commit. The ID is logged before the caller touches any index, so a view that reads
+     * the index change also finds the ID in the write log. The caller holds the writer lock.
+     */
+    private void putVersion(long id, Inventory item) {
+        writeLog.put(nextLogPosition++, id);
+        ItemVersion previous = inventoryMap.get(id);
+        ItemVersion version = new ItemVersion(id, item, published.version() + 1, previous);
+        inventoryMap.put(id, version);
+        if (previous != null) {
+            replacedVersions.add(version);
+        }
+        uncommitted = true;
+    }
+
+    /*
+     * Takes the writer lock, reporting the wait when the lock is contended.
+     */
+    private void lockWriter() {
+        if (!writerLock.tryLock()) {
+            long start = System.nanoTime();
+            writerLock.lock();
+            metrics.recordLockWait(true, System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Publishes the changes made under the writer lock as one commit, reports them to the change
+     * listener, then releases the lock. The listener is called after the commit is published, so a
+     * reader it wakes up never gets the previous version, and still under the lock, so the calls of
+     * successive commits do not overtake each other.
+     */
+    private void commitAndUnlock() {
+        try {
+            if (uncommitted) {
+                publish();
+            }
+            for (Runnable change : pendingChanges) {
+                change.run();
+            }
+        } finally {
+            pendingChanges.clear();
+            writerLock.unlock();
+        }
+    }
+
+    /*
+     * Publishes a new version holding every change since the previous commit, then drops the item
+     * versions and write log entries that no open view can reach anymore.
+     */
+    private void publish() {
+        Commit previous = published;
+        List<String> categories = categoriesChanged
+                ? List.copyOf(categoryDictionary.referencedNames())
+                : previous.categories();
+        published = new Commit(previous.version() + 1, nextLogPosition, counter.get(), size, categories, stockAggregates.snapshot());
+        categoriesChanged = false;
+        uncommitted = false;
+        pruneVersions();
+    }
+
+    /*
+     * Drops what the oldest open view, or the latest commit when no view is open, no longer needs:
+     * the versions older than the newest one it sees, and the write log up to its commit.
+     * The horizon is raised before the open views are scanned; openView checks it after registering,
+     * so a view is either seen by the scan or reopened on a newer version.
+     */
+    private void pruneVersions() {
+        Commit oldest = published;
+        pruneHorizon = oldest.version();
+        for (ReadView view : openViews) {
+            if (view.commit.version() < oldest.version()) {
+                oldest = view.commit;
+            }
+        }
+        ItemVersion version;
+        while ((version = replacedVersions.peek()) != null && version.version <= oldest.version()) {
+            replacedVersions.poll();
+            version.previous = null;
+            if (version.item == null) {
+                inventoryMap.remove(version.id, version);
+            }
+        }
+        writeLog.headMap(oldest.logPosition()).clear();
+    }
+
+    /*
+     * Pins the latest published version for a read. The view must be closed when the read is done.
+     */
+    private ReadView openView() {
+        while (true) {
+            ReadView view = new ReadView(published);
+            openViews.add(view);
+            if (view.commit.version() >= pruneHorizon) {
+                return view;
+            }
+            // A newer commit may already have pruned versions this view needs.
+            openViews.remove(view);
+        }
+    }
+
+    /*
+     * Appends a record to the journal and counts it as a change since the last snapshot.
+     * Every write appends its record before it touches the versions or the indexes, so a write the
+     * journal rejects leaves nothing behind for the next commit to publish.
+     */
+    private long appendToJournal(JournalRecord record) {
+        long position = journal.append(record);
+        mutations.increment();
+        return position;
+    }
+
+    /*
+     * Removes every index entry and resets the counter and the change log. The item versions are
+     * left to the caller.
+     */
+    private void clearState() {
+        categoryIndex.clear();
+        categoryDictionary.clear();
+        stockStatusIndex.clear();
+        nameIndex.clear();
+        sortedIndexes.values().forEach(SortedIndex::clear);
+        liveIds.clearAll();
+        stockAggregates.clear();
+        size = 0;
+        categoriesChanged = true;
         counter.set(1); // Restart counter
+        // Nothing before the clear can be listed anymore.
+        changeLog.clear();
+        changeStamps.clear();
+        tombstones.clear();
+        changeFloor.set(changeSequence.incrementAndGet());
+    }
+
+    /*
+     * Stamps a change of the given item in the change log. Called while the item is locked.
+     *
+     * @return The stamp of the change.
+     */
+    private long recordChange(long id) {
+        long stamp = changeSequence.incrementAndGet();
+        Long previousStamp = changeStamps.put(id, stamp);
+        if (previousStamp != null) {
+            changeLog.remove(previousStamp);
+        }
+        changeLog.put(stamp, id);
+        return stamp;
+    }
+
+    /*
+     * Drops the tombstones older than the retention window. Clients that synced before a dropped
+     * tombstone can no longer be told about it, so the floor moves past it.
+     */
+    private void purgeTombstones() {
+        long expiredBefore = System.currentTimeMillis() - tombstoneRetention.toMillis();
+        Tombstone oldest;
+        while ((oldest = tombstones.peek()) != null && oldest.deletedAtMillis() < expiredBefore) {
+            if (tombstones.remove(oldest)) {
+                changeLog.remove(oldest.stamp(), oldest.id());
+                changeStamps.remove(oldest.id(), oldest.stamp());
+                changeFloor.accumulateAndGet(oldest.stamp(), Math::max);
+            }
+        }
+    }
+
+    /*
+     * Stamps every item restored on startup, in ID order, and makes the stamps their row versions.
+     * Versions handed out before the restart are below the new floor, so their clients sync again
+     * from scratch, and stock adjustments expecting them are rejected.
+     */
+    private void stampRecoveredItems() {
+        changeFloor.set(changeSequence.get());
+        List<Long> ids = new ArrayList<>(inventoryMap.keySet());
+        Collections.sort(ids);
+        for (Long id : ids) {
+            inventoryMap.get(id).item.setVersion(recordChange(id));
+        }
     }
 
-    // TODO: Fix the search of the word in the case the search keyword exist with the prefix or something
-    // problem example: product1 = iPhone product2 = Computer, if keyword = i, there will be coincidence for product1 and product2
+    /*
+     * Replaces the category of an item about to be stored by its canonical instance.
+     */
+    private void internCategory(Inventory inventory) {
+        Product product = inventory.getProduct();
+        product.setCategory(categoryDictionary.intern(product.getCategory()));
+    }
+
+    /*
+     * Moves an item from its previous entry to its current entry in the secondary indexes.
+     * Either side may be null (insert or delete). Fields whose value did not change are left
+     * untouched, so an update of the quantity alone never rewrites the name postings.
+     */
+    private void reindexItem(Inventory previous, Inventory current) {
+        Inventory any = (current != null) ? current : previous;
+        int id = Math.toIntExact(any.getId());
+        int previousCategory = (previous != null) ? categoryDictionary.lookup(previous.getProduct().getCategory()) : CategoryDictionary.NONE;
+        int currentCategory = (current != null) ? categoryDictionary.encode(current.getProduct().getCategory()) : CategoryDictionary.NONE;
+        if (previousCategory != currentCategory) {
+            if (previousCategory != CategoryDictionary.NONE) {
+                categoryIndex.remove(previousCategory, id);
+                categoriesChanged |= categoryDictionary.release(previousCategory);
+            }
+            if (currentCategory != CategoryDictionary.NONE) {
+                categoryIndex.add(currentCategory, id);
+                categoriesChanged |= categoryDictionary.retain(currentCategory);
+            }
+        }
+        StockStatus previousStatus = (previous != null) ? previous.getStockStatus() : null;
+        StockStatus currentStatus = (current != null) ? current.getStockStatus() : null;
+        if (previous == null || current == null || previousStatus != currentStatus) {
+            stockStatusIndex.remove(previousStatus, id);
+            stockStatusIndex.add(currentStatus, id);
+        }
+        String previousName = (previous != null) ? previous.getProduct().getName() : null;
+        String currentName = (current != null) ? current.getProduct().getName() : null;
+        if (previous == null || current == null || !Objects.equals(previousName, currentName)) {
+            nameIndex.remove(id, previousName);
+            nameIndex.add(id, currentName);
+        }
+        for (Map.Entry<InventorySortField, SortedIndex> entry : sortedIndexes.entrySet()) {
+            Comparable<Object> previousKey = (previous != null) ? entry.getKey().keyOf(previous) : null;
+            Comparable<Object> currentKey = (current != null) ? entry.getKey().keyOf(current) : null;
+            if (previous == null || current == null || !SortedIndex.sameKey(previousKey, currentKey)) {
+                if (previous != null) {
+                    entry.getValue().remove(previousKey, id);
+                }
+                if (current != null) {
+                    entry.getValue().add(currentKey, id);
+                }
+            }
+        }
+        if (previous == null) {
+            liveIds.set(id);
+            size++;
+        } else if (current == null) {
+            liveIds.clear(id);
+            size--;
+        }
+        stockAggregates.apply(previous, current);
+    }
 
     /*
-     * Filters the Inventory items based on search query, stock status, and categories.
+     * Checks an item against every filter of the given request, with the semantics of the indexes.
+     * Used for the IDs a view cannot take from the indexes, see ReadView.reconcile.
      *
      * @param paginationRequestDTO Contains filtering parameters.
-     * @return A list of Inventory items that match the filter criteria.
+     * @param inventory The item to check.
+     * @return true if the item matches the filters; otherwise, false.
      */
-    private List<Inventory> getFilteredInventory(PaginationRequestDTO paginationRequestDTO) {
-        String searchQuery = Optional.ofNullable(paginationRequestDTO.getSearch()).orElse("").toLowerCase();
+    private static boolean matchesFilters(PaginationRequestDTO paginationRequestDTO, Inventory inventory) {
         StockStatus stockStatus = paginationRequestDTO.getStockStatus();
         List<String> categories = paginationRequestDTO.getCategories();
+        String searchQuery = paginationRequestDTO.getSearch();
+        return (stockStatus == null || inventory.getStockStatus() == stockStatus)
+                && (categories == null || categories.isEmpty() || matchesCategory(categories, inventory.getProduct().getCategory()))
+                && (searchQuery == null || searchQuery.isEmpty() || TextIndex.matches(inventory.getProduct().getName(), searchQuery,
+                Optional.ofNullable(paginationRequestDTO.getSearchMode()).orElse(SearchMode.CONTAINS)));
+    }
 
-        return inventoryMap.values().stream()
-                .filter(inventory -> searchQuery.isEmpty() || inventory.getProduct().getName().toLowerCase().contains(searchQuery))
-                .filter(inventory -> stockStatus == null || inventory.getStockStatus() == stockStatus)
-                .filter(inventory -> categories == null || categories.isEmpty() ||  categories.contains(inventory.getProduct().getCategory()))
-                .collect(Collectors.toList());
+    /*
+     * Checks whether the given category is one of the requested ones, compared by normalized name like
+     * the category dictionary.
+     */
+    private static boolean matchesCategory(List<String> categories, String category) {
+        String key = CategoryDictionary.normalize(category);
+        for (String requested : categories) {
+            if (key != null && key.equals(CategoryDictionary.normalize(requested))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /*
-     * Sorts the provided list of Inventory items based on sorting parameters.
-     * Supports sorting by name, category, price, expiry date, creation date, and stock.
-     * If multiple sorting criteria are provided, they are combined.
+     * Intersects the secondary indexes for the filters of the given request.
+     * The text index is consulted first, since a search is usually the most selective filter.
      *
-     * @param paginationRequest The DTO containing sorting parameters.
-     * @param inventoryList The list of Inventory items to sort.
-     * @return The sorted list of Inventory items.
+     * @param paginationRequestDTO Contains filtering parameters.
+     * @return The candidate IDs, or null when no filter applies.
      */
-    private List<Inventory> getSortedInventory(PaginationRequestDTO paginationRequest, List<Inventory> inventoryList) {
-        List<String> sortByFields = paginationRequest.getSortBy();
-        List<String> sortOrders = paginationRequest.getSortOrder();
+    private BitSet getIndexedCandidates(PaginationRequestDTO paginationRequestDTO) {
+        String searchQuery = paginationRequestDTO.getSearch();
+        StockStatus stockStatus = paginationRequestDTO.getStockStatus();
+        List<String> categories = paginationRequestDTO.getCategories();
 
-        // In case there are only one SortOrders is minor, just add "asc"
-        while (sortOrders.size() < sortByFields.size()) {
-            sortOrders.add("asc");
+        BitSet candidates = null;
+        if (searchQuery != null && !searchQuery.isEmpty()) {
+            candidates = nameIndex.search(searchQuery, Optional.ofNullable(paginationRequestDTO.getSearchMode()).orElse(SearchMode.CONTAINS));
+        }
+        if (categories != null && !categories.isEmpty() && (candidates == null || !candidates.isEmpty())) {
+            List<Integer> categoryCodes = new ArrayList<>(categories.size());
+            for (String category : categories) {
+                int code = categoryDictionary.lookup(category);
+                if (code != CategoryDictionary.NONE) {
+                    categoryCodes.add(code);
+                }
+            }
+            candidates = intersect(candidates, categoryIndex.selectAny(categoryCodes));
         }
+        if (stockStatus != null && (candidates == null || !candidates.isEmpty())) {
+            candidates = intersect(candidates, stockStatusIndex.select(stockStatus));
+        }
+        return candidates;
+    }
 
-        Comparator<Inventory> comparator = null;
+    private static BitSet intersect(BitSet candidates, BitSet selected) {
+        if (candidates == null) {
+            return selected;
+        }
+        candidates.and(selected);
+        return candidates;
+    }
 
-        for(int i = 0; i < sortByFields.size(); i++) {
-            String sortBy = sortByFields.get(i);
-            boolean isDescending = "desc".equalsIgnoreCase(sortOrders.get(i));
+    /*
+     * Reads one page of the candidates in ID order (the order used when no sort is requested).
+     *
+     * @return The items of the page.
+     */
+    private List<Inventory> getPageInIdOrder(ReadView view, BitSet candidates, PageCursor cursor,
+                                             int offset, int size, long[] rowsScanned) {
+        List<Inventory> items = new ArrayList<>(Math.min(size, 1024));
+        int skipped = 0;
+        int from = (cursor != null) ? (int) cursor.getId() + 1 : 0;
+        for (int id = candidates.nextSetBit(from); id >= 0 && items.size() < size; id = candidates.nextSetBit(id + 1)) {
+            rowsScanned[0]++;
+            Inventory inventory = view.resolve(id);
+            if (inventory != null && skipped++ >= offset) {
+                items.add(inventory);
+            }
+        }
+        return items;
+    }
 
-            Comparator<Inventory> currentComparator = switch (sortBy.toLowerCase()) {
-                case "name" ->
-                        Comparator.comparing(inv -> inv.getProduct().getName(), Comparator.nullsLast(Comparator.naturalOrder()));
-                case "category" ->
-                        Comparator.comparing(inv -> inv.getProduct().getCategory(), Comparator.nullsLast(Comparator.naturalOrder()));
-                case "price" ->
-                        Comparator.comparing(inv -> inv.getProduct().getPrice(), Comparator.nullsLast(Comparator.naturalOrder()));
-                case "expirydate" ->
-                        Comparator.comparing(inv -> inv.getProduct().getExpiryDate(), Comparator.nullsLast(Comparator.naturalOrder()));
-                case "datecreated" ->
-                        Comparator.comparing(inv -> inv.getProduct().getDateCreate(), Comparator.nullsLast(Comparator.naturalOrder()));
-                case "stock" ->
-                        Comparator.comparing(inv -> inv.getQuantity(), Comparator.nullsLast(Comparator.naturalOrder()));
-                default -> throw new IllegalArgumentException("Invalid sortBy field: " + paginationRequest.getSortBy());
-            };
+    /*
+     * Reads one page by walking the sorted index of the first sort field (see walkSortedIndex).
+     * The IDs written after the version of the view may sit at the wrong place in the index, so the
+     * walk skips them and they are merged back with their pinned versions; the walk then has to
+     * start at the top of the ranking, so its cost grows with the offset. If more IDs are written
+     * during the walk, it is repeated; after SORTED_WALK_ATTEMPTS walks, null is returned and the
+     * caller selects the page from the candidates instead.
+     *
+     * @return The items of the page, or null.
+     */
+    private List<Inventory> getPageFromSortedIndex(ReadView view, SortSpec sortSpec, BitSet candidates,
+                                                   PageCursor cursor, int offset, int size, long[] rowsScanned) {
+        BitSet changed = view.changedIds();
+        for (int attempt = 0; attempt < SORTED_WALK_ATTEMPTS; attempt++) {
+            List<Inventory> changedItems = new ArrayList<>();
+            for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+                Inventory inventory = view.resolve(id);
+                if (inventory != null && (candidates == null || candidates.get(id)) && (cursor == null || cursor.precedes(inventory))) {
+                    changedItems.add(inventory);
+                }
+            }
+            int end = (int) Math.min(Integer.MAX_VALUE, (long) offset + size);
+            List<Inventory> items = changedItems.isEmpty()
+                    ? walkSortedIndex(view, sortSpec, candidates, changed, cursor, offset, size, rowsScanned)
+                    : walkSortedIndex(view, sortSpec, candidates, changed, cursor, 0, end, rowsScanned);
+            BitSet changedSinceWalk = view.changedIds();
+            if (changedSinceWalk.equals(changed)) {
+                if (changedItems.isEmpty()) {
+                    return items;
+                }
+                items.addAll(changedItems);
+                List<Inventory> top = TopK.select(items, sortSpec.getComparator(), end);
+                return new ArrayList<>(top.subList(Math.min(offset, top.size()), top.size()));
+            }
+            changed = changedSinceWalk;
+        }
+        return null;
+    }
+
+    /*
+     * Walks the sorted index of the first sort field, skipping the given IDs.
+     * Entries with the same primary key form a run: runs that fall entirely before the page are
+     * skipped without sorting, and the runs overlapping the page are ordered by the full comparator
+     * (remaining sort fields, then ID) with a heap bounded by what the page still needs.
+     * The walk stops as soon as the page is full, so its cost is about O(log n + offset + pageSize)
+     * on an unfiltered catalog.
+     * With a cursor, the walk starts at the run of the cursor's primary key and skips the items of
+     * that run up to the cursor, so the offset term disappears.
+     *
+     * @return The items of the page.
+     */
+    private List<Inventory> walkSortedIndex(ReadView view, SortSpec sortSpec, BitSet candidates, BitSet skipped,
+                                            PageCursor cursor, int offset, int size, long[] rowsScanned) {
+        InventorySortField primaryField = sortSpec.getPrimaryField();
+        SortedIndex sortedIndex = sortedIndexes.get(primaryField);
+        Iterator<SortedIndex.Entry> iterator = (cursor != null)
+                ? sortedIndex.iteratorFrom(cursor.getPrimaryKey(), sortSpec.isPrimaryDescending())
+                : sortedIndex.iterator(sortSpec.isPrimaryDescending());
+        List<Inventory> items = new ArrayList<>(Math.min(size, 1024));
+        List<Inventory> run = new ArrayList<>();
+        Comparable<Object> runKey = null;
+        int toSkip = offset;
+
+        while (items.size() < size) {
+            SortedIndex.Entry entry = iterator.hasNext() ? iterator.next() : null;
+            if (entry == null || run.isEmpty() || !SortedIndex.sameKey(entry.getKey(), runKey)) {
+                // The current run is complete: skip it or emit the part that lands on the page.
+                if (run.size() <= toSkip) {
+                    toSkip -= run.size();
+                } else {
+                    List<Inventory> ordered = TopK.select(run, sortSpec.getComparator(), toSkip + size - items.size());
+                    for (int i = toSkip; i < ordered.size(); i++) {
+                        items.add(ordered.get(i));
+                    }
+                    toSkip = 0;
+                }
+                run.clear();
+                if (entry == null) {
+                    break;
+                }
+                runKey = entry.getKey();
+            }
+            rowsScanned[0]++;
+            if (skipped.get(entry.getId()) || (candidates != null && !candidates.get(entry.getId()))) {
+                continue;
+            }
+            Inventory inventory = view.resolve(entry.getId());
+            if (inventory != null && (cursor == null || cursor.precedes(inventory))) {
+                run.add(inventory);
+            }
+        }
+        return items;
+    }
+
+    /*
+     * Reads one page from a small candidate set with a bounded top-k heap, used when the filters
+     * are so selective that walking the sorted index would mostly visit non-matching entries.
+     *
+     * @return The items of the page.
+     */
+    private List<Inventory> getPageFromTopK(ReadView view, SortSpec sortSpec, BitSet candidates,
+                                            PageCursor cursor, int offset, int size, long[] rowsScanned) {
+        List<Inventory> matching = new ArrayList<>(candidates.cardinality());
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            rowsScanned[0]++;
+            Inventory inventory = view.resolve(id);
+            if (inventory != null && (cursor == null || cursor.precedes(inventory))) {
+                matching.add(inventory);
+            }
+        }
+        List<Inventory> top = TopK.select(matching, sortSpec.getComparator(), (int) Math.min(Integer.MAX_VALUE, (long) offset + size));
+        return new ArrayList<>(top.subList(Math.min(offset, top.size()), top.size()));
+    }
+
+    /*
+     * A read pinned on one published commit. It resolves every ID to the newest version not newer
+     * than its commit, and lists the IDs written since, whose index entries it cannot trust.
+     */
+    private final class ReadView implements AutoCloseable {
+        private final Commit commit;
+
+        private ReadView(Commit commit) {
+            this.commit = commit;
+        }
+
+        /*
+         * Returns the item with the given ID as of the commit of this view, or null.
+         */
+        private Inventory resolve(long id) {
+            return resolve(inventoryMap.get(id));
+        }
 
-            if(isDescending){
-                currentComparator = currentComparator.reversed();
+        private Inventory resolve(ItemVersion newest) {
+            ItemVersion version = newest;
+            while (version != null && version.version > commit.version()) {
+                version = version.previous;
             }
-            // combining comparers
-            comparator = (comparator == null) ? currentComparator : comparator.thenComparing(currentComparator);
-        };
+            return (version != null) ? version.item : null;
+        }
+
+        /*
+         * Returns the IDs written after the commit of this view, published or not.
+         */
+        private BitSet changedIds() {
+            BitSet ids = new BitSet();
+            for (Long id : writeLog.tailMap(commit.logPosition()).values()) {
+                ids.set(Math.toIntExact(id));
+            }
+            return ids;
+        }
+
+        /*
+         * Corrects candidates read from the indexes: the IDs written since the commit of this view are
+         * set or cleared according to their pinned versions. The indexes must be read before, so every
+         * index change they saw is listed by changedIds.
+         */
+        private void reconcile(PaginationRequestDTO paginationRequestDTO, BitSet candidates) {
+            BitSet changed = changedIds();
+            for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+                Inventory inventory = resolve(id);
+                candidates.set(id, inventory != null && matchesFilters(paginationRequestDTO, inventory));
+            }
+        }
+
+        /*
+         * Returns every item as of the commit of this view, in ID order.
+         */
+        private List<Inventory> items() {
+            List<Inventory> items = new ArrayList<>(commit.size());
+            iterator().forEachRemaining(items::add);
+            return items;
+        }
+
+        /*
+         * Iterates the items as of the commit of this view in ID order, resolving one ID at a time.
+         * The walk covers every ID below the commit's next ID rather than the live-ID bitmap, which
+         * already misses the items deleted after the commit; their versions stay in the map while
+         * the view is open.
+         */
+        private Iterator<Inventory> iterator() {
+            return new Iterator<>() {
+                private long id;
+                private Inventory next = advance();
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Inventory next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Inventory current = next;
+                    next = advance();
+                    return current;
+                }
+
+                private Inventory advance() {
+                    while (id < commit.nextId()) {
+                        Inventory inventory = resolve(id++);
+                        if (inventory != null) {
+                            return inventory;
+                        }
+                    }
+                    return null;
+                }
+            };
+        }
 
-        // If there is not a defined sort, the list still the same
-        if (comparator != null) {
-            inventoryList.sort(comparator);
+        @Override
+        public void close() {
+            openViews.remove(this);
         }
-        return inventoryList;
     }
 }
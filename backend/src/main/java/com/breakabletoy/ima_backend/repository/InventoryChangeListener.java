@@ -0,0 +1,38 @@
+package com.breakabletoy.ima_backend.repository;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+
+/*
+ * InventoryChangeListener is told about every change applied to the repository.
+ *
+ * It is called while the changed item is still locked, so the calls for one item arrive in
+ * the order the changes were applied, and only once the change is visible: a read started after
+ * the call, on any thread, sees the change or a later one. Implementations must return quickly and must not call
+ * back into the repository. The items passed in are the stored instances and must be treated
+ * as read-only. NONE ignores every change.
+ */
+public interface InventoryChangeListener {
+    InventoryChangeListener NONE = new InventoryChangeListener() {
+        @Override
+        public void onChange(Inventory previous, Inventory current) {
+        }
+
+        @Override
+        public void onClear() {
+        }
+    };
+
+    /*
+     * Called after an item was stored, replaced or removed.
+     *
+     * @param previous the item before the change, or null when it was created.
+     * @param current the item after the change, or null when it was removed.
+     */
+    void onChange(Inventory previous, Inventory current);
+
+    /*
+     * Called after every item was removed.
+     */
+    void onClear();
+}
@@ -7,6 +7,7 @@ import com.breakabletoy.ima_backend.entity.Inventory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /*
  * InventoryRepository defines the operations for managing inventory data.
@@ -15,23 +16,40 @@ import java.util.Optional;
  * - findById: Retrieves an inventory item by its ID (wrapped in an Optional).
  * - save: Persists a new inventory item.
  * - update: Updates an existing inventory item.
+ * - adjustStock: Atomically adds a delta to the quantity of an item, optionally only if its version still
+ *   matches, deriving its stock status from the new quantity.
+ * - setStock: Atomically replaces the quantity of an item, deriving its stock status from it.
  * - deleteById: Deletes an inventory item by its ID.
  * - getById: Retrieves an inventory item by its ID (directly).
- * - findAll: Retrieves a paginated list of inventory items based on filtering, sorting, and pagination parameters.
+ * - findAll: Retrieves a page of inventory items based on filtering, sorting, and pagination parameters,
+ *   together with the total number of matching items.
  * - findAllWithoutPagination: Retrieves all inventory items without pagination.
+ * - findAllSnapshot: Retrieves all inventory items as of a single point in time, in ID order.
+ * - streamSnapshot: Streams all inventory items as of a single point in time, in ID order, for exports;
+ *   the stream must be closed.
  * - findAllCategories: Retrieves all unique product categories.
- * - totalItems: Returns the total number of inventory items after applying filters.
+ * - applyBatch: Applies a list of create, update and delete operations, returning one result per operation.
+ * - findCategoryMetrics: Retrieves the stock metrics of every category, maintained incrementally on write.
+ * - findChangesSince: Retrieves the items created, updated or deleted after a version, for delta sync.
+ * - getVersion: Returns a counter bumped after every change, used to tell whether derived results are still current.
  * - clear: Clears all inventory data from the repository.
  */
 public interface InventoryRepository {
     Optional<Inventory> findById(Long id);
     Inventory save(Inventory inventory);
     Inventory update(Inventory inventory);
+    Inventory adjustStock(Long id, int delta, Long expectedVersion);
+    Inventory setStock(Long id, int quantity);
     void deleteById(Long id);
+    List<BatchResult> applyBatch(List<BatchOperation> operations);
     Inventory getById(Long id);
-    List<Inventory> findAll(PaginationRequestDTO paginationRequestDTO);
+    QueryResult<Inventory> findAll(PaginationRequestDTO paginationRequestDTO);
     List<Inventory> findAllWithoutPagination();
+    List<Inventory> findAllSnapshot();
+    Stream<Inventory> streamSnapshot();
     List<String> findAllCategories();
-    long totalItems();
+    List<CategoryMetric> findCategoryMetrics();
+    ChangeSet<Inventory> findChangesSince(long since, int limit);
+    long getVersion();
     public void clear();
 }
\ No newline at end of file
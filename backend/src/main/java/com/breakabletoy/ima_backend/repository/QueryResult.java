@@ -0,0 +1,57 @@
+package com.breakabletoy.ima_backend.repository;
+
+import java.util.List;
+
+
+/*
+ * QueryResult is the outcome of a single paginated repository query.
+ * It holds the items of the requested page together with the total number of items
+ * that matched the filters, both taken from the same pass over the data.
+ *
+ * Fields:
+ * - items: The items of the requested page.
+ * - totalItems: Total number of items that matched the query before pagination.
+ * - nextCursor: The cursor of the next page, or null when no item follows this page.
+ *
+ * Instances are immutable, so a result can be shared freely between threads.
+ */
+public class QueryResult<T> {
+    private final List<T> items;
+    private final long totalItems;
+    private final String nextCursor;
+
+    /*
+     * Constructs a new QueryResult with the specified items and total count, without a next page.
+     *
+     * @param items the items of the requested page.
+     * @param totalItems the total number of matching items.
+     */
+    public QueryResult(List<T> items, long totalItems) {
+        this(items, totalItems, null);
+    }
+
+    /*
+     * Constructs a new QueryResult with the specified items, total count and next page cursor.
+     *
+     * @param items the items of the requested page.
+     * @param totalItems the total number of matching items.
+     * @param nextCursor the cursor of the next page, or null.
+     */
+    public QueryResult(List<T> items, long totalItems, String nextCursor) {
+        this.items = List.copyOf(items);
+        this.totalItems = totalItems;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public long getTotalItems() {
+        return totalItems;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,74 @@
+package com.breakabletoy.ima_backend.repository;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+
+
+/*
+ * StockAdjustment computes the result of adding a quantity delta to a stored item, with the checks
+ * every repository layout applies before writing it:
+ * - The expected version, when given, must still be the version of the stored item.
+ * - The quantity must stay between 0 and Integer.MAX_VALUE.
+ * The stock status is derived from the new quantity: IN_STOCK when positive, OUT_OF_STOCK at 0.
+ *
+ * The repositories call it while they hold their write lock, so the check and the write form one
+ * atomic compare-and-set on the row version. set replaces the quantity instead, with no check.
+ */
+public final class StockAdjustment {
+
+    private StockAdjustment() {
+    }
+
+    /*
+     * Returns a copy of the given stored item with the delta applied.
+     *
+     * @param current the stored item, or null if there is none.
+     * @param delta the number of units to add, or to remove when negative.
+     * @param expectedVersion the version the caller last read, or null to skip the check.
+     * @throws IllegalArgumentException if there is no item or the quantity would overflow.
+     * @throws StockConflictException if the item changed since expectedVersion or has fewer units than removed.
+     */
+    public static Inventory apply(Inventory current, int delta, Long expectedVersion) {
+        if (current == null) {
+            throw new IllegalArgumentException("Inventory ID not found for update");
+        }
+        if (expectedVersion != null && expectedVersion != current.getVersion()) {
+            throw new StockConflictException("Inventory item changed since version " + expectedVersion,
+                    StockConflictException.Reason.VERSION_MISMATCH, new Inventory(current));
+        }
+        long quantity = (long) current.getQuantity() + delta;
+        if (quantity < 0) {
+            throw new StockConflictException("Not enough stock: " + current.getQuantity() + " units left",
+                    StockConflictException.Reason.INSUFFICIENT_STOCK, new Inventory(current));
+        }
+        if (quantity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Quantity is out of range");
+        }
+        return withQuantity(current, (int) quantity);
+    }
+
+    /*
+     * Returns a copy of the given stored item with the given quantity, whatever its version and
+     * previous quantity.
+     *
+     * @param current the stored item, or null if there is none.
+     * @param quantity the new number of units.
+     * @throws IllegalArgumentException if there is no item or the quantity is negative.
+     */
+    public static Inventory set(Inventory current, int quantity) {
+        if (current == null) {
+            throw new IllegalArgumentException("Inventory ID not found for update");
+        }
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity is out of range");
+        }
+        return withQuantity(current, quantity);
+    }
+
+    private static Inventory withQuantity(Inventory current, int quantity) {
+        Inventory adjusted = new Inventory(current);
+        adjusted.setQuantity(quantity);
+        adjusted.setStockStatus((quantity > 0) ? StockStatus.IN_STOCK : StockStatus.OUT_OF_STOCK);
+        return adjusted;
+    }
+}
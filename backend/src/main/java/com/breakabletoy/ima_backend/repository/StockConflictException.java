@@ -0,0 +1,39 @@
+package com.breakabletoy.ima_backend.repository;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+
+/*
+ * StockConflictException is thrown when a stock adjustment does not apply to the stored item: the
+ * item changed since the version the client expected, or the adjustment would take its quantity
+ * below zero. Nothing is written.
+ *
+ * Fields:
+ * - reason: Which of the two checks failed. Retrying with the version of current makes sense after
+ *   VERSION_MISMATCH; after INSUFFICIENT_STOCK only with a smaller removal.
+ * - current: A copy of the stored item the adjustment was checked against, so the client can
+ *   retry with its version without reading it again.
+ */
+public class StockConflictException extends RuntimeException {
+    public enum Reason {
+        VERSION_MISMATCH,
+        INSUFFICIENT_STOCK
+    }
+
+    private final Reason reason;
+    private final Inventory current;
+
+    public StockConflictException(String message, Reason reason, Inventory current) {
+        super(message);
+        this.reason = reason;
+        this.current = current;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public Inventory getCurrent() {
+        return current;
+    }
+}
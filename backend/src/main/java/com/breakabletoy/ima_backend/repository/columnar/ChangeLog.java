@@ -0,0 +1,153 @@
+package com.breakabletoy.ima_backend.repository.columnar;
+
+import com.breakabletoy.ima_backend.repository.ChangeSet;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongFunction;
+
+
+/*
+ * ChangeLog is the delta sync bookkeeping of the columnar and the memory-mapped layouts, with the
+ * semantics of InMemoryInventoryRepository.findChangesSince.
+ *
+ * - Every change gets the next stamp. The log maps the stamp of the last change of every item to its
+ *   ID, so listing the changes after a version costs O(changes listed), not O(catalog).
+ * - A deletion leaves a tombstone, listed as a deleted ID until it leaves the retention window.
+ * - The floor is the oldest version the log can still answer; older versions get a reset.
+ *
+ * Thread safety: guarded by the lock of the repository. Writers hold it exclusively; changesSince
+ * takes it in shared mode, and only exclusively for a moment when an expired tombstone is purged.
+ */
+public final class ChangeLog {
+    private final MeteredReadWriteLock lock;
+    private final Duration tombstoneRetention;
+    private final NavigableMap<Long, Long> changeLog = new TreeMap<>();
+    private final Map<Long, Long> changeStamps = new HashMap<>();
+    private final Deque<Tombstone> tombstones = new ArrayDeque<>();
+    private long changeSequence = System.currentTimeMillis() * 1000;
+    private long changeFloor = changeSequence;
+
+    private record Tombstone(long stamp, long id, long deletedAtMillis) {
+    }
+
+    public ChangeLog(MeteredReadWriteLock lock, Duration tombstoneRetention) {
+        this.lock = lock;
+        this.tombstoneRetention = tombstoneRetention;
+    }
+
+    /*
+     * Stamps a change of the given item. The caller holds the lock exclusively.
+     *
+     * @return The stamp of the change.
+     */
+    public long record(long id) {
+        long stamp = ++changeSequence;
+        Long previousStamp = changeStamps.put(id, stamp);
+        if (previousStamp != null) {
+            changeLog.remove(previousStamp);
+        }
+        changeLog.put(stamp, id);
+        return stamp;
+    }
+
+    /*
+     * Stamps the deletion of the given item and keeps its tombstone, then drops the expired ones.
+     * The caller holds the lock exclusively.
+     */
+    public void recordDeletion(long id) {
+        tombstones.add(new Tombstone(record(id), id, System.currentTimeMillis()));
+        purgeTombstones();
+    }
+
+    /*
+     * Forgets every change: nothing before the clear can be listed anymore. The caller holds the lock exclusively.
+     */
+    public void clear() {
+        changeLog.clear();
+        changeStamps.clear();
+        tombstones.clear();
+        changeFloor = ++changeSequence;
+    }
+
+    /*
+     * Moves the sequence past the given stamp and raises the floor to it, so that no version handed
+     * out before is answered. Used when the items are restored from storage without their tombstones.
+     * The caller holds the lock exclusively.
+     */
+    public void restartAfter(long stamp) {
+        changeSequence = Math.max(changeSequence, stamp);
+        changeFloor = changeSequence;
+    }
+
+    /*
+     * Lists the changes after the given version, in the order they were applied.
+     *
+     * @param since The version returned by the previous sync, or 0 for everything.
+     * @param limit The maximum number of changes to return.
+     * @param reader Reads the current state of a live item, or returns null if the item is deleted.
+     *               Called under the shared lock.
+     * @return The changes, or a reset when the changes since that version are no longer known.
+     */
+    public <T> ChangeSet<T> changesSince(long since, int limit, LongFunction<T> reader) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        lock.lockShared();
+        try {
+            if (hasExpiredTombstones()) {
+                lock.readLock().unlock();
+                lock.lockExclusive();
+                try {
+                    purgeTombstones();
+                } finally {
+                    // Downgrade, so that no write comes between the purge and the listing.
+                    lock.readLock().lock();
+                    lock.writeLock().unlock();
+                }
+            }
+            long current = changeSequence;
+            if (since < 0 || since > current || (since > 0 && since < changeFloor)) {
+                return ChangeSet.reset(current);
+            }
+            List<T> upserts = new ArrayList<>();
+            List<Long> deletedIds = new ArrayList<>();
+            long last = since;
+            for (Map.Entry<Long, Long> change : changeLog.tailMap(since, false).entrySet()) {
+                if (upserts.size() + deletedIds.size() == limit) {
+                    return new ChangeSet<>(upserts, deletedIds, last, true);
+                }
+                T item = reader.apply(change.getValue());
+                if (item != null) {
+                    upserts.add(item);
+                } else {
+                    deletedIds.add(change.getValue());
+                }
+                last = change.getKey();
+            }
+            return new ChangeSet<>(upserts, deletedIds, current, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean hasExpiredTombstones() {
+        Tombstone oldest = tombstones.peek();
+        return oldest != null && oldest.deletedAtMillis() < System.currentTimeMillis() - tombstoneRetention.toMillis();
+    }
+
+    /*
+     * Drops the tombstones older than the retention window and moves the floor past them.
+     * The caller holds the lock exclusively.
+     */
+    private void purgeTombstones() {
+        long expiredBefore = System.currentTimeMillis() - tombstoneRetention.toMillis();
+        Tombstone oldest;
+        while ((oldest = tombstones.peek()) != null && oldest.deletedAtMillis() < expiredBefore) {
+            tombstones.poll();
+            changeLog.remove(oldest.stamp(), oldest.id());
+            changeStamps.remove(oldest.id(), oldest.stamp());
+            changeFloor = Math.max(changeFloor, oldest.stamp());
+        }
+    }
+}
@@ -0,0 +1,758 @@
+package com.breakabletoy.ima_backend.repository.columnar;
+
+import com.breakabletoy.ima_backend.dto.CategoryMetric;
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.SearchMode;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.BatchResult;
+import com.breakabletoy.ima_backend.repository.ChangeSet;
+import com.breakabletoy.ima_backend.repository.InventoryChangeListener;
+import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import com.breakabletoy.ima_backend.repository.QueryResult;
+import com.breakabletoy.ima_backend.repository.StockAdjustment;
+import com.breakabletoy.ima_backend.repository.index.CategoryDictionary;
+import com.breakabletoy.ima_backend.repository.index.InventorySortField;
+import com.breakabletoy.ima_backend.repository.index.PageCursor;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+import com.breakabletoy.ima_backend.repository.index.TextIndex;
+import com.breakabletoy.ima_backend.repository.metrics.QueryPlan;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * ColumnarInventoryRepository is an in-memory implementation of the InventoryRepository interface that
+ * stores the catalog column by column (see InventoryColumns) instead of one object graph per item.
+ * It is selected with inventory.repository.layout=columnar.
+ *
+ * Layout:
+ * - Every field is a primitive array indexed by row, and the row of an item is its ID. Categories are
+ *   dictionary-encoded ints, prices are longs at a fixed scale, dates are epoch days and the stock
+ *   status is a byte, so a stored item costs a few dozen bytes and no object headers besides its name.
+ * - Items are materialized as Inventory objects only when they are handed out.
+ *
+ * Queries:
+ * - findAll scans the filter columns of every row in a tight loop (status byte, category code, lower-cased
+ *   name) and collects the matching rows; sorted pages order the rows with a bounded heap that compares
+ *   the sort columns directly. There are no secondary indexes to maintain on write.
+ * - findCategoryMetrics folds the quantity, price and category columns in long arithmetic.
+ *
+ * Thread safety:
+ * - A single read-write lock: reads share it, writes take it exclusively.
+ *
+ * Change notification and delta sync follow InMemoryInventoryRepository: every change is reported to an
+ * InventoryChangeListener and stamped in a change log, with tombstones kept for a configurable window.
+ *
+ * Limitations:
+ * - Nothing is journaled or snapshotted; the write-ahead log and snapshots apply to the object layout only.
+ * - Prices are stored with at most InventoryColumns.PRICE_SCALE decimals; others are rejected.
+ */
+@Repository
+@ConditionalOnProperty(name = "inventory.repository.layout", havingValue = "columnar")
+public class ColumnarInventoryRepository implements InventoryRepository {
+    private static final Duration DEFAULT_TOMBSTONE_RETENTION = Duration.ofDays(7);
+
+    private final InventoryColumns columns = new InventoryColumns(new CategoryDictionary(), 1024);
+    // Guards the columns and the change log.
+    private final MeteredReadWriteLock lock;
+    // Next ID to assign.
+    private long counter;
+    // Number of stored items, readable without the lock.
+    private volatile int size;
+    // Data version, bumped after every completed change; see getVersion.
+    private final AtomicLong version = new AtomicLong();
+    // Receives the measurements of the hot paths.
+    private final RepositoryMetrics metrics;
+    // Told about every change, e.g. to publish it to the change feed.
+    private final InventoryChangeListener changeListener;
+
+    // Change log and tombstones for delta sync; guarded by the lock.
+    private final ChangeLog changes;
+
+    /*
+     * Creates an empty repository.
+     */
+    public ColumnarInventoryRepository() {
+        this(RepositoryMetrics.NOOP, InventoryChangeListener.NONE, DEFAULT_TOMBSTONE_RETENTION);
+    }
+
+    /*
+     * Creates an empty repository that reports its measurements to the given metrics, tells the given
+     * listener about every change and keeps the tombstones of deleted items during the given window.
+     */
+    @Autowired
+    public ColumnarInventoryRepository(RepositoryMetrics metrics, InventoryChangeListener changeListener,
+                                       @Value("${inventory.sync.tombstone-retention:7d}") Duration tombstoneRetention) {
+        this.metrics = metrics;
+        this.changeListener = changeListener;
+        this.lock = new MeteredReadWriteLock(metrics);
+        this.changes = new ChangeLog(lock, tombstoneRetention);
+        metrics.bindSizes(() -> size, this::categoryCount);
+    }
+
+    public Optional<Inventory> findById(Long id) {
+        return Optional.ofNullable(getById(id));
+    }
+
+    /*
+     * Retrieves the Inventory item with the given ID, materialized from the columns.
+     *
+     * @param id The unique ID of the inventory item.
+     * @return The Inventory item if found; otherwise, null.
+     */
+    public Inventory getById(Long id) {
+        lock.lockShared();
+        try {
+            int row = rowOf(id);
+            return (row >= 0) ? columns.read(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Saves a new Inventory item under the next ID.
+     *
+     * @param inventory The inventory item to be saved; its ID and its product ID are set to the new ID.
+     * @return The saved inventory item.
+     */
+    public Inventory save(Inventory inventory) {
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            insert(inventory);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("save", 1, System.nanoTime() - start);
+        return inventory;
+    }
+
+    /*
+     * Updates an existing Inventory item.
+     *
+     * @param inventory The inventory item with updated data.
+     * @return The updated inventory item.
+     */
+    public Inventory update(Inventory inventory) {
+        if (inventory == null) {
+            throw new IllegalArgumentException("Inventory ID not found for update");
+        }
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            replace(inventory);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("update", 1, System.nanoTime() - start);
+        return inventory;
+    }
+
+    /*
+     * Adds a delta to the quantity of an existing item and derives its stock status from the result.
+     * The version check and the write happen under one exclusive lock hold.
+     *
+     * @param id The ID of the item.
+     * @param delta The number of units to add, or to remove when negative.
+     * @param expectedVersion The row version the caller last read, or null to apply the delta unconditionally.
+     * @return The adjusted item, with its new version.
+     * @throws StockConflictException if the item changed since expectedVersion or has fewer units than removed.
+     */
+    public Inventory adjustStock(Long id, int delta, Long expectedVersion) {
+        long start = System.nanoTime();
+        Inventory adjusted;
+        lock.lockExclusive();
+        try {
+            int row = rowOf(id);
+            adjusted = replace(StockAdjustment.apply((row >= 0) ? columns.read(row) : null, delta, expectedVersion));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("adjust", 1, System.nanoTime() - start);
+        return adjusted;
+    }
+
+    /*
+     * Replaces the quantity of an existing item and derives its stock status from it, under one
+     * exclusive lock hold and without a version check.
+     *
+     * @param id The ID of the item.
+     * @param quantity The new number of units.
+     * @return The adjusted item, with its new version.
+     */
+    public Inventory setStock(Long id, int quantity) {
+        long start = System.nanoTime();
+        Inventory adjusted;
+        lock.lockExclusive();
+        try {
+            int row = rowOf(id);
+            adjusted = replace(StockAdjustment.set((row >= 0) ? columns.read(row) : null, quantity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("adjust", 1, System.nanoTime() - start);
+        return adjusted;
+    }
+
+    /*
+     * Deletes the Inventory item with the specified ID.
+     *
+     * @param id The unique ID of the inventory item to delete.
+     */
+    public void deleteById(Long id) {
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("delete", 1, System.nanoTime() - start);
+    }
+
+    /*
+     * Applies a list of create, update and delete operations in order, under a single lock acquisition.
+     * A failing operation is reported in its result, whatever the exception, and does not stop the others.
+     *
+     * @param operations The operations to apply.
+     * @return One result per operation, in the same order.
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        long start = System.nanoTime();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        lock.lockExclusive();
+        try {
+            for (BatchOperation operation : operations) {
+                try {
+                    switch (operation.getType()) {
+                        case CREATE -> {
+                            Inventory created = insert(operation.getInventory());
+                            results.add(BatchResult.success(operation.getType(), created.getId(), new Inventory(created)));
+                        }
+                        case UPDATE -> {
+                            Inventory updated = replace(operation.getInventory());
+                            results.add(BatchResult.success(operation.getType(), updated.getId(), new Inventory(updated)));
+                        }
+                        case DELETE -> {
+                            if (!remove(operation.getId())) {
+                                throw new IllegalArgumentException("Inventory ID not found for delete");
+                            }
+                            results.add(BatchResult.success(operation.getType(), operation.getId(), null));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    results.add(BatchResult.failure(operation.getType(), operation.getId(), e));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("batch", operations.size(), System.nanoTime() - start);
+        return results;
+    }
+
+    /*
+     * Retrieves a paginated, filtered, and sorted list of Inventory items.
+     * The filter columns of every stored row are scanned once to collect the matching rows, whose
+     * count is the total. Unsorted pages are read in ID order; sorted pages are selected with a heap
+     * bounded by the end of the page, comparing the sort columns without materializing any item.
+     * Only the items of the page are materialized.
+     * Paging, the last-page clamp and keyset cursors behave as in InMemoryInventoryRepository.
+     *
+     * @param paginationRequestDTO Contains pagination, filtering, and sorting parameters.
+     * @return The Inventory items for the requested page and the total number of matching items.
+     */
+    public QueryResult<Inventory> findAll(PaginationRequestDTO paginationRequestDTO) {
+        long start = System.nanoTime();
+        SortSpec sortSpec = SortSpec.of(paginationRequestDTO);
+        PageCursor cursor = (paginationRequestDTO.getCursor() != null)
+                ? PageCursor.decode(paginationRequestDTO.getCursor(), sortSpec)
+                : null;
+        int size = Math.max(0, paginationRequestDTO.getSize());
+        // One extra item tells whether a next page exists.
+        int limit = (int) Math.min(Integer.MAX_VALUE, size + 1L);
+
+        List<Inventory> items;
+        int totalItems;
+        long rowsScanned;
+        lock.lockShared();
+        try {
+            int[] matches = new int[this.size];
+            totalItems = 0;
+            rowsScanned = 0;
+            RowFilter filter = RowFilter.of(paginationRequestDTO, columns.dictionary);
+            if (filter != null) {
+                rowsScanned = this.size;
+                BitSet live = columns.live;
+                for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                    if (filter.matches(columns, row)) {
+                        matches[totalItems++] = row;
+                    }
+                }
+            }
+
+            int offset = 0;
+            if (cursor == null) {
+                long fromIndex = Math.max(0, (long) (paginationRequestDTO.getPage() - 1) * size);
+                // In case is the last page available
+                if (fromIndex >= totalItems) {
+                    fromIndex = Math.max(0, totalItems - size);
+                }
+                offset = (int) fromIndex;
+            }
+
+            int[] page;
+            int from;
+            if (!sortSpec.isSorted()) {
+                page = matches;
+                from = (cursor != null) ? firstRowAfter(matches, totalItems, cursor.getId()) : offset;
+            } else {
+                RowOrder order = new ColumnOrder(sortSpec, columns);
+                int count = totalItems;
+                if (cursor != null) {
+                    count = order.retainAfter(matches, count, cursor);
+                }
+                page = RowSort.select(matches, count, order, (int) Math.min(count, (long) offset + limit));
+                from = Math.min(offset, page.length);
+            }
+            int to = (int) Math.min((long) from + limit, sortSpec.isSorted() ? page.length : totalItems);
+            items = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                items.add(columns.read(page[i]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        String nextCursor = null;
+        if (size > 0 && items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = PageCursor.after(sortSpec, items.get(size - 1)).encode();
+        }
+        metrics.recordQuery(paginationRequestDTO, sortSpec, QueryPlan.COLUMN_SCAN, System.nanoTime() - start,
+                totalItems, rowsScanned, items.size());
+        return new QueryResult<>(items, totalItems, nextCursor);
+    }
+
+    /*
+     * Retrieves all Inventory items without applying pagination, materialized in ID order.
+     *
+     * @return A list of all Inventory items.
+     */
+    public List<Inventory> findAllWithoutPagination() {
+        lock.lockShared();
+        try {
+            List<Inventory> items = new ArrayList<>(size);
+            BitSet live = columns.live;
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                items.add(columns.read(row));
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Retrieves every Inventory item as of a single point in time, in ID order.
+     * The columns are copied under the lock (a few array copies) and the items are materialized from
+     * the copy only when the list is read, so a large export never holds the lock.
+     *
+     * @return An unmodifiable list of all Inventory items.
+     */
+    public List<Inventory> findAllSnapshot() {
+        InventoryColumns copy;
+        lock.lockShared();
+        try {
+            copy = columns.copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+        int[] rows = copy.live.stream().toArray();
+        return new AbstractList<>() {
+            @Override
+            public Inventory get(int index) {
+                return copy.read(rows[index]);
+            }
+
+            @Override
+            public int size() {
+                return rows.length;
+            }
+        };
+    }
+
+    /*
+     * Streams every Inventory item as of a single point in time, in ID order. The items are
+     * materialized from the copy of the columns one at a time, as the stream is read.
+     *
+     * @return A sequential stream of all Inventory items.
+     */
+    public Stream<Inventory> streamSnapshot() {
+        return findAllSnapshot().stream();
+    }
+
+    /*
+     * Retrieves a sorted list of the product categories used by at least one stored item.
+     *
+     * @return A sorted list of category names.
+     */
+    public List<String> findAllCategories() {
+        lock.lockShared();
+        try {
+            return columns.dictionary.referencedNames();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Retrieves the stock metrics of every category, in the same order as findAllCategories.
+     * The quantity and price columns of the in-stock rows are folded per category code in long
+     * arithmetic at the fixed price scale; a category whose value overflows a long continues in
+     * BigDecimal. The value keeps the largest scale of the prices it sums, like a BigDecimal sum.
+     *
+     * @return A list with one CategoryMetric per category.
+     */
+    public List<CategoryMetric> findCategoryMetrics() {
+        List<String> names;
+        int[] codes;
+        long[] units;
+        long[] values;
+        BigDecimal[] overflow;
+        int[] scales;
+        lock.lockShared();
+        try {
+            int categoryCount = columns.dictionary.size();
+            names = columns.dictionary.referencedNames();
+            codes = names.stream().mapToInt(columns.dictionary::lookup).toArray();
+            units = new long[categoryCount];
+            values = new long[categoryCount];
+            overflow = new BigDecimal[categoryCount];
+            scales = new int[categoryCount];
+            byte inStock = (byte) StockStatus.IN_STOCK.ordinal();
+            BitSet live = columns.live;
+            for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1)) {
+                int category = columns.categories[row];
+                if (columns.stockStatuses[row] != inStock || category == CategoryDictionary.NONE) {
+                    continue;
+                }
+                int quantity = columns.quantities[row];
+                long price = columns.prices[row];
+                units[category] += quantity;
+                if (price == InventoryColumns.NULL_LONG) {
+                    continue;
+                }
+                scales[category] = Math.max(scales[category], columns.priceScales[row]);
+                try {
+                    values[category] = Math.addExact(values[category], Math.multiplyExact(price, (long) quantity));
+                } catch (ArithmeticException e) {
+                    BigDecimal value = BigDecimal.valueOf(price, InventoryColumns.PRICE_SCALE).multiply(BigDecimal.valueOf(quantity));
+                    overflow[category] = (overflow[category] != null) ? overflow[category].add(value) : value;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<CategoryMetric> categoryMetrics = new ArrayList<>(codes.length);
+        for (int i = 0; i < codes.length; i++) {
+            int code = codes[i];
+            BigDecimal valueInStock = BigDecimal.ZERO;
+            if (values[code] != 0 || overflow[code] != null) {
+                valueInStock = BigDecimal.valueOf(values[code], InventoryColumns.PRICE_SCALE);
+                if (overflow[code] != null) {
+                    valueInStock = valueInStock.add(overflow[code]);
+                }
+                valueInStock = valueInStock.setScale(scales[code], RoundingMode.UNNECESSARY);
+            }
+            BigDecimal averagePriceInStock = (units[code] > 0)
+                    ? valueInStock.divide(BigDecimal.valueOf(units[code]), RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+            categoryMetrics.add(new CategoryMetric(names.get(i), units[code], valueInStock, averagePriceInStock));
+        }
+        return categoryMetrics;
+    }
+
+    /*
+     * Lists the changes after the given version, in the order they were applied.
+     * Semantics are those of InMemoryInventoryRepository.findChangesSince; the log is read under the
+     * shared lock (see ChangeLog), so the listed changes are exactly those up to the returned version.
+     *
+     * @param since The version returned by the previous sync, or 0 for everything.
+     * @param limit The maximum number of changes to return.
+     * @return The changes, or a reset when the changes since that version are no longer known.
+     */
+    public ChangeSet<Inventory> findChangesSince(long since, int limit) {
+        return changes.changesSince(since, limit, id -> {
+            int row = rowOf(id);
+            return (row >= 0) ? columns.read(row) : null;
+        });
+    }
+
+    /*
+     * Returns the data version, bumped after every save, update, delete and clear.
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /*
+     * Clears the inventory repository.
+     * This removes all Inventory items and resets the counter.
+     */
+    public void clear() {
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            columns.clear();
+            size = 0;
+            counter = 1; // Restart counter
+            // Nothing before the clear can be listed anymore.
+            changes.clear();
+            version.incrementAndGet();
+            changeListener.onClear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("clear", 0, System.nanoTime() - start);
+    }
+
+    /*
+     * Stores a new item under the next ID. The caller holds the lock exclusively.
+     */
+    private Inventory insert(Inventory inventory) {
+        requireProduct(inventory);
+        FieldEncoding.validate(inventory);
+        int row = Math.toIntExact(counter);
+        counter++;
+        inventory.setId(row);
+        inventory.getProduct().setId((long) row);
+        columns.write(row, inventory);
+        size++;
+        stamp(row, inventory);
+        version.incrementAndGet();
+        changeListener.onChange(null, new Inventory(inventory));
+        return inventory;
+    }
+
+    /*
+     * Replaces an existing item. The caller holds the lock exclusively.
+     */
+    private Inventory replace(Inventory inventory) {
+        requireProduct(inventory);
+        int row = rowOf(inventory.getId());
+        if (row < 0) {
+            throw new IllegalArgumentException("Inventory ID not found for update");
+        }
+        FieldEncoding.validate(inventory);
+        Inventory previous = columns.read(row);
+        columns.write(row, inventory);
+        stamp(row, inventory);
+        version.incrementAndGet();
+        changeListener.onChange(previous, new Inventory(inventory));
+        return inventory;
+    }
+
+    /*
+     * Stamps a write of the given row and makes the stamp the row version of the row and of the
+     * written item. The caller holds the lock exclusively.
+     */
+    private void stamp(int row, Inventory inventory) {
+        long stamp = changes.record(row);
+        columns.versions[row] = stamp;
+        inventory.setVersion(stamp);
+    }
+
+    /*
+     * Removes an item if it exists. The caller holds the lock exclusively.
+     *
+     * @return true if the item existed.
+     */
+    private boolean remove(Long id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return false;
+        }
+        Inventory previous = columns.read(row);
+        columns.delete(row);
+        size--;
+        changes.recordDeletion(row);
+        version.incrementAndGet();
+        changeListener.onChange(previous, null);
+        return true;
+    }
+
+    private static void requireProduct(Inventory inventory) {
+        if (inventory == null || inventory.getProduct() == null) {
+            throw new IllegalArgumentException("Inventory product is required");
+        }
+    }
+
+    /*
+     * Returns the row of the item with the given ID, or -1 if there is none. The caller holds the lock.
+     */
+    private int rowOf(Long id) {
+        if (id == null || id < 0 || id >= Integer.MAX_VALUE) {
+            return -1;
+        }
+        int row = id.intValue();
+        return columns.live.get(row) ? row : -1;
+    }
+
+    private int categoryCount() {
+        return columns.dictionary.referencedCount();
+    }
+
+    /*
+     * Returns the index of the first of the given ascending rows that is after the given ID.
+     */
+    private static int firstRowAfter(int[] rows, int count, long id) {
+        int index = Arrays.binarySearch(rows, 0, count, (int) id);
+        return (index >= 0) ? index + 1 : -index - 1;
+    }
+
+    /*
+     * The filters of a request, resolved against the columns: the stock status as its byte, the
+     * categories as a lookup table of codes, and the search text lower-cased like the name column.
+     */
+    private static final class RowFilter {
+        private final byte stockStatus;
+        private final boolean[] categories;
+        private final String search;
+        private final boolean prefix;
+
+        private RowFilter(byte stockStatus, boolean[] categories, String search, boolean prefix) {
+            this.stockStatus = stockStatus;
+            this.categories = categories;
+            this.search = search;
+            this.prefix = prefix;
+        }
+
+        /*
+         * Resolves the filters of the given request.
+         *
+         * @return the filter, or null when no row can match (e.g. only unknown categories).
+         */
+        static RowFilter of(PaginationRequestDTO paginationRequestDTO, CategoryDictionary dictionary) {
+            StockStatus stockStatus = paginationRequestDTO.getStockStatus();
+            boolean[] categories = null;
+            if (paginationRequestDTO.getCategories() != null && !paginationRequestDTO.getCategories().isEmpty()) {
+                categories = new boolean[dictionary.size()];
+                boolean any = false;
+                for (String category : paginationRequestDTO.getCategories()) {
+                    int code = dictionary.lookup(category);
+                    if (code != CategoryDictionary.NONE) {
+                        categories[code] = true;
+                        any = true;
+                    }
+                }
+                if (!any) {
+                    return null;
+                }
+            }
+            String search = paginationRequestDTO.getSearch();
+            boolean prefix = paginationRequestDTO.getSearchMode() == SearchMode.PREFIX;
+            if (search != null && !search.isEmpty()) {
+                search = search.toLowerCase(Locale.ROOT);
+                if (prefix) {
+                    search = search.trim();
+                }
+            } else {
+                search = null;
+            }
+            return new RowFilter((stockStatus != null) ? (byte) stockStatus.ordinal() : InventoryColumns.NULL_STATUS,
+                    categories, search, prefix);
+        }
+
+        boolean matches(InventoryColumns columns, int row) {
+            if (stockStatus != InventoryColumns.NULL_STATUS && columns.stockStatuses[row] != stockStatus) {
+                return false;
+            }
+            if (categories != null) {
+                int category = columns.categories[row];
+                if (category == CategoryDictionary.NONE || !categories[category]) {
+                    return false;
+                }
+            }
+            if (search != null) {
+                String name = columns.normalizedNames[row];
+                if (name == null) {
+                    return false;
+                }
+                return prefix ? TextIndex.startsAtWordBoundary(name, search) : name.contains(search);
+            }
+            return true;
+        }
+    }
+
+    /*
+     * The RowOrder of the columns: the keys of a row are read from its columns directly, and category
+     * codes are compared through their rank among the sorted category names.
+     */
+    private static final class ColumnOrder extends RowOrder {
+        private final InventoryColumns columns;
+        private final int[] categoryRanks;
+
+        ColumnOrder(SortSpec sortSpec, InventoryColumns columns) {
+            super(sortSpec);
+            this.columns = columns;
+            CategoryDictionary dictionary = columns.dictionary;
+            Integer[] codes = new Integer[dictionary.size()];
+            for (int code = 0; code < codes.length; code++) {
+                codes[code] = code;
+            }
+            Arrays.sort(codes, Comparator.comparing(dictionary::decode));
+            this.categoryRanks = new int[codes.length];
+            for (int rank = 0; rank < codes.length; rank++) {
+                categoryRanks[codes[rank]] = rank;
+            }
+        }
+
+        @Override
+        protected String text(InventorySortField field, int row) {
+            return (field == InventorySortField.NAME) ? columns.names[row] : columns.dictionary.decode(columns.categories[row]);
+        }
+
+        @Override
+        protected long numeric(InventorySortField field, int row) {
+            return switch (field) {
+                case PRICE -> columns.prices[row];
+                case EXPIRY_DATE -> columns.expiryDays[row];
+                case DATE_CREATED -> columns.createdDays[row];
+                case STOCK -> columns.quantities[row];
+                default -> throw new IllegalStateException("Not a numeric sort field: " + field);
+            };
+        }
+
+        @Override
+        protected long id(int row) {
+            return row;
+        }
+
+        @Override
+        protected int compareField(InventorySortField field, int a, int b) {
+            if (field == InventorySortField.CATEGORY) {
+                return Integer.compare(rank(columns.categories[a]), rank(columns.categories[b]));
+            }
+            return super.compareField(field, a, b);
+        }
+
+        private int rank(int category) {
+            return (category != CategoryDictionary.NONE) ? categoryRanks[category] : Integer.MAX_VALUE;
+        }
+    }
+}
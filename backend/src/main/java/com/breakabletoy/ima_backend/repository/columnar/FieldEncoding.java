@@ -0,0 +1,94 @@
+package com.breakabletoy.ima_backend.repository.columnar;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+
+/*
+ * FieldEncoding holds the primitive encodings shared by the columnar and the memory-mapped layouts:
+ * prices as longs scaled to PRICE_SCALE decimals, dates as int epoch days, and the sentinels that
+ * stand for null.
+ */
+public final class FieldEncoding {
+    public static final long NULL_LONG = Long.MIN_VALUE;
+    public static final int NULL_DAY = Integer.MIN_VALUE;
+    public static final byte NULL_STATUS = -1;
+    public static final int PRICE_SCALE = 4;
+
+    private FieldEncoding() {}
+
+    /*
+     * Checks the given item against the encodings, without storing anything.
+     *
+     * @throws IllegalArgumentException if a value cannot be encoded.
+     */
+    public static void validate(Inventory inventory) {
+        Product product = inventory.getProduct();
+        encodePrice(product.getPrice());
+        encodeDay(product.getExpiryDate());
+        encodeDay(product.getDateCreate());
+        encodeDay(product.getDateUpdate());
+    }
+
+    /*
+     * Encodes a price as a long scaled to PRICE_SCALE decimals.
+     *
+     * @return the scaled price, or NULL_LONG for null.
+     * @throws IllegalArgumentException if the price has more decimals or does not fit a long.
+     */
+    public static long encodePrice(BigDecimal price) {
+        if (price == null) {
+            return NULL_LONG;
+        }
+        if (price.scale() > PRICE_SCALE || price.scale() < Byte.MIN_VALUE) {
+            throw new IllegalArgumentException("Price must have at most " + PRICE_SCALE + " decimal places");
+        }
+        try {
+            long scaled = price.setScale(PRICE_SCALE).unscaledValue().longValueExact();
+            if (scaled == NULL_LONG) {
+                throw new ArithmeticException();
+            }
+            return scaled;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Price is out of range");
+        }
+    }
+
+    /*
+     * Decodes a price encoded by encodePrice, with the scale it was given with.
+     *
+     * @return the price, or null for NULL_LONG.
+     */
+    public static BigDecimal decodePrice(long scaled, int scale) {
+        return (scaled != NULL_LONG) ? BigDecimal.valueOf(scaled, PRICE_SCALE).setScale(scale) : null;
+    }
+
+    /*
+     * Encodes a date as an int epoch day.
+     *
+     * @return the epoch day, or NULL_DAY for null.
+     * @throws IllegalArgumentException if the date is outside the int range.
+     */
+    public static int encodeDay(LocalDate date) {
+        if (date == null) {
+            return NULL_DAY;
+        }
+        long epochDay = date.toEpochDay();
+        if (epochDay <= NULL_DAY || epochDay > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Date is out of range: " + date);
+        }
+        return (int) epochDay;
+    }
+
+    /*
+     * Decodes a date encoded by encodeDay.
+     *
+     * @return the date, or null for NULL_DAY.
+     */
+    public static LocalDate decodeDay(int epochDay) {
+        return (epochDay != NULL_DAY) ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
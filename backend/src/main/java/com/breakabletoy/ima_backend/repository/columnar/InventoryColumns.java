@@ -0,0 +1,179 @@
+package com.breakabletoy.ima_backend.repository.columnar;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.index.CategoryDictionary;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+
+/*
+ * InventoryColumns stores the catalog one primitive array per field, indexed by row; the row of an
+ * item is its ID, so lookups need no map.
+ *
+ * Encodings:
+ * - productIds: long, NULL_LONG for a null product ID.
+ * - names: the name as given, and normalizedNames: lower-cased (Locale.ROOT) for the search filter.
+ * - categories: int code from the CategoryDictionary, CategoryDictionary.NONE for null. The dictionary
+ *   counts the live rows of every code.
+ * - prices: long scaled to PRICE_SCALE decimals, NULL_LONG for null; priceScales keeps the scale the
+ *   price was given with, so it is read back exactly as stored.
+ * - expiryDays, createdDays, updatedDays: int epoch day, NULL_DAY for null.
+ * - quantities: int.
+ * - stockStatuses: byte ordinal of StockStatus, NULL_STATUS for null.
+ * - versions: long row version, the change stamp set by the repository after every write of the row.
+ * - live: the rows holding an item.
+ *
+ * Values that do not fit the encoding (see FieldEncoding) are rejected with IllegalArgumentException
+ * before anything is written.
+ * Not thread-safe: the columnar repository guards it with its lock.
+ */
+class InventoryColumns {
+    static final long NULL_LONG = FieldEncoding.NULL_LONG;
+    static final int NULL_DAY = FieldEncoding.NULL_DAY;
+    static final byte NULL_STATUS = FieldEncoding.NULL_STATUS;
+    static final int PRICE_SCALE = FieldEncoding.PRICE_SCALE;
+
+    private static final StockStatus[] STATUSES = StockStatus.values();
+
+    final CategoryDictionary dictionary;
+    final BitSet live = new BitSet();
+    long[] productIds;
+    String[] names;
+    String[] normalizedNames;
+    int[] categories;
+    long[] prices;
+    byte[] priceScales;
+    int[] expiryDays;
+    int[] createdDays;
+    int[] updatedDays;
+    int[] quantities;
+    byte[] stockStatuses;
+    long[] versions;
+
+    InventoryColumns(CategoryDictionary dictionary, int capacity) {
+        this.dictionary = dictionary;
+        allocate(Math.max(16, capacity));
+    }
+
+    /*
+     * Returns the number of rows the arrays can hold.
+     */
+    int capacity() {
+        return quantities.length;
+    }
+
+    /*
+     * Stores the given item in the given row, growing the arrays when needed.
+     * The item must have passed FieldEncoding.validate.
+     */
+    void write(int row, Inventory inventory) {
+        if (row >= capacity()) {
+            allocate(Math.max(row + 1, capacity() * 2));
+        }
+        Product product = inventory.getProduct();
+        productIds[row] = (product.getId() != null) ? product.getId() : NULL_LONG;
+        names[row] = product.getName();
+        normalizedNames[row] = (product.getName() != null) ? product.getName().toLowerCase(Locale.ROOT) : null;
+        int category = dictionary.encode(product.getCategory());
+        if (live.get(row)) {
+            dictionary.release(categories[row]);
+        }
+        dictionary.retain(category);
+        categories[row] = category;
+        prices[row] = FieldEncoding.encodePrice(product.getPrice());
+        priceScales[row] = (product.getPrice() != null) ? (byte) product.getPrice().scale() : 0;
+        expiryDays[row] = FieldEncoding.encodeDay(product.getExpiryDate());
+        createdDays[row] = FieldEncoding.encodeDay(product.getDateCreate());
+        updatedDays[row] = FieldEncoding.encodeDay(product.getDateUpdate());
+        quantities[row] = inventory.getQuantity();
+        stockStatuses[row] = (inventory.getStockStatus() != null) ? (byte) inventory.getStockStatus().ordinal() : NULL_STATUS;
+        live.set(row);
+    }
+
+    /*
+     * Removes the item of the given row. The strings are released; the primitives stay until reused.
+     */
+    void delete(int row) {
+        dictionary.release(categories[row]);
+        live.clear(row);
+        names[row] = null;
+        normalizedNames[row] = null;
+    }
+
+    /*
+     * Materializes the item of the given row as a new object.
+     */
+    Inventory read(int row) {
+        Product product = new Product(
+                (productIds[row] != NULL_LONG) ? productIds[row] : null,
+                names[row],
+                dictionary.decode(categories[row]),
+                price(row),
+                FieldEncoding.decodeDay(expiryDays[row]),
+                FieldEncoding.decodeDay(createdDays[row]),
+                FieldEncoding.decodeDay(updatedDays[row]));
+        StockStatus stockStatus = (stockStatuses[row] != NULL_STATUS) ? STATUSES[stockStatuses[row]] : null;
+        Inventory inventory = new Inventory(row, product, quantities[row], stockStatus);
+        inventory.setVersion(versions[row]);
+        return inventory;
+    }
+
+    /*
+     * Returns the price of the given row with the scale it was stored with, or null.
+     */
+    BigDecimal price(int row) {
+        return FieldEncoding.decodePrice(prices[row], priceScales[row]);
+    }
+
+    /*
+     * Returns an independent copy of the columns and of the dictionary, for reading without the lock.
+     */
+    InventoryColumns copy() {
+        InventoryColumns copy = new InventoryColumns(new CategoryDictionary(dictionary), 0);
+        copy.live.or(live);
+        int length = live.length();
+        copy.productIds = Arrays.copyOf(productIds, length);
+        copy.names = Arrays.copyOf(names, length);
+        copy.normalizedNames = Arrays.copyOf(normalizedNames, length);
+        copy.categories = Arrays.copyOf(categories, length);
+        copy.prices = Arrays.copyOf(prices, length);
+        copy.priceScales = Arrays.copyOf(priceScales, length);
+        copy.expiryDays = Arrays.copyOf(expiryDays, length);
+        copy.createdDays = Arrays.copyOf(createdDays, length);
+        copy.updatedDays = Arrays.copyOf(updatedDays, length);
+        copy.quantities = Arrays.copyOf(quantities, length);
+        copy.stockStatuses = Arrays.copyOf(stockStatuses, length);
+        copy.versions = Arrays.copyOf(versions, length);
+        return copy;
+    }
+
+    /*
+     * Removes every row.
+     */
+    void clear() {
+        live.clear();
+        Arrays.fill(names, null);
+        Arrays.fill(normalizedNames, null);
+        dictionary.clear();
+    }
+
+    private void allocate(int capacity) {
+        productIds = (productIds != null) ? Arrays.copyOf(productIds, capacity) : new long[capacity];
+        names = (names != null) ? Arrays.copyOf(names, capacity) : new String[capacity];
+        normalizedNames = (normalizedNames != null) ? Arrays.copyOf(normalizedNames, capacity) : new String[capacity];
+        categories = (categories != null) ? Arrays.copyOf(categories, capacity) : new int[capacity];
+        prices = (prices != null) ? Arrays.copyOf(prices, capacity) : new long[capacity];
+        priceScales = (priceScales != null) ? Arrays.copyOf(priceScales, capacity) : new byte[capacity];
+        expiryDays = (expiryDays != null) ? Arrays.copyOf(expiryDays, capacity) : new int[capacity];
+        createdDays = (createdDays != null) ? Arrays.copyOf(createdDays, capacity) : new int[capacity];
+        updatedDays = (updatedDays != null) ? Arrays.copyOf(updatedDays, capacity) : new int[capacity];
+        quantities = (quantities != null) ? Arrays.copyOf(quantities, capacity) : new int[capacity];
+        stockStatuses = (stockStatuses != null) ? Arrays.copyOf(stockStatuses, capacity) : new byte[capacity];
+        versions = (versions != null) ? Arrays.copyOf(versions, capacity) : new long[capacity];
+    }
+}
@@ -0,0 +1,40 @@
+package com.breakabletoy.ima_backend.repository.columnar;
+
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/*
+ * MeteredReadWriteLock is the single read-write lock of the columnar and the memory-mapped layouts:
+ * reads share it, writes take it exclusively, and a contended acquisition reports its wait.
+ */
+public final class MeteredReadWriteLock extends ReentrantReadWriteLock {
+    private final transient RepositoryMetrics metrics;
+
+    public MeteredReadWriteLock(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /*
+     * Takes the lock in shared mode, reporting the wait when the lock is contended.
+     */
+    public void lockShared() {
+        if (!readLock().tryLock()) {
+            long start = System.nanoTime();
+            readLock().lock();
+            metrics.recordLockWait(false, System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Takes the lock exclusively, reporting the wait when the lock is contended.
+     */
+    public void lockExclusive() {
+        if (!writeLock().tryLock()) {
+            long start = System.nanoTime();
+            writeLock().lock();
+            metrics.recordLockWait(true, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.breakabletoy.ima_backend.repository.columnar;
+
+import com.breakabletoy.ima_backend.repository.index.InventorySortField;
+import com.breakabletoy.ima_backend.repository.index.PageCursor;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+
+/*
+ * RowOrder is the order of a SortSpec over rows, shared by the columnar and the memory-mapped layouts:
+ * each sort field compares its key (nulls last, reversed when descending), and ties are broken by
+ * ascending ID. The layouts supply the keys of a row: the name and the category as text, the other
+ * fields encoded as longs with FieldEncoding.
+ */
+public abstract class RowOrder implements RowSort.RowComparator {
+    private final InventorySortField[] fields;
+    private final boolean[] descending;
+
+    protected RowOrder(SortSpec sortSpec) {
+        this.fields = sortSpec.getFields().toArray(new InventorySortField[0]);
+        this.descending = new boolean[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            descending[i] = sortSpec.getDescending().get(i);
+        }
+    }
+
+    /*
+     * Returns the key of a NAME or CATEGORY sort field of the given row, or null.
+     */
+    protected abstract String text(InventorySortField field, int row);
+
+    /*
+     * Returns the encoded key of a PRICE, EXPIRY_DATE, DATE_CREATED or STOCK sort field of the given row.
+     */
+    protected abstract long numeric(InventorySortField field, int row);
+
+    /*
+     * Returns the ID of the given row.
+     */
+    protected abstract long id(int row);
+
+    /*
+     * Compares the key of a sort field of two rows, in ascending order.
+     */
+    protected int compareField(InventorySortField field, int a, int b) {
+        return isText(field)
+                ? compareText(text(field, a), text(field, b))
+                : compareNullable(numeric(field, a), numeric(field, b), nullKey(field));
+    }
+
+    @Override
+    public final int compare(int a, int b) {
+        for (int i = 0; i < fields.length; i++) {
+            int order = compareField(fields[i], a, b);
+            if (order != 0) {
+                return descending[i] ? -order : order;
+            }
+        }
+        return Long.compare(id(a), id(b));
+    }
+
+    /*
+     * Keeps the rows that come after the cursor, compacting them at the start of the array.
+     *
+     * @return the number of rows kept.
+     * @throws IllegalArgumentException if a key of the cursor cannot be encoded.
+     */
+    public int retainAfter(int[] rows, int count, PageCursor cursor) {
+        String[] textKeys = new String[fields.length];
+        long[] numericKeys = new long[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            Comparable<Object> key = cursor.getKey(i);
+            try {
+                switch (fields[i]) {
+                    case NAME, CATEGORY -> textKeys[i] = (String) (Object) key;
+                    case PRICE -> numericKeys[i] = FieldEncoding.encodePrice((BigDecimal) (Object) key);
+                    case EXPIRY_DATE, DATE_CREATED -> numericKeys[i] = FieldEncoding.encodeDay((LocalDate) (Object) key);
+                    case STOCK -> numericKeys[i] = (key != null) ? (Integer) (Object) key : Long.MAX_VALUE;
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (isAfter(row, textKeys, numericKeys, cursor.getId())) {
+                rows[kept++] = row;
+            }
+        }
+        return kept;
+    }
+
+    private boolean isAfter(int row, String[] textKeys, long[] numericKeys, long id) {
+        for (int i = 0; i < fields.length; i++) {
+            InventorySortField field = fields[i];
+            int order = isText(field)
+                    ? compareText(text(field, row), textKeys[i])
+                    : compareNullable(numeric(field, row), numericKeys[i], nullKey(field));
+            if (order != 0) {
+                return descending[i] ? order < 0 : order > 0;
+            }
+        }
+        return id(row) > id;
+    }
+
+    protected static boolean isText(InventorySortField field) {
+        return field == InventorySortField.NAME || field == InventorySortField.CATEGORY;
+    }
+
+    private static long nullKey(InventorySortField field) {
+        return switch (field) {
+            case PRICE -> FieldEncoding.NULL_LONG;
+            case EXPIRY_DATE, DATE_CREATED -> FieldEncoding.NULL_DAY;
+            default -> Long.MAX_VALUE;
+        };
+    }
+
+    private static int compareText(String a, String b) {
+        if (a == null || b == null) {
+            return (a == null) ? ((b == null) ? 0 : 1) : -1;
+        }
+        return a.compareTo(b);
+    }
+
+    private static int compareNullable(long a, long b, long nullValue) {
+        if (a == nullValue || b == nullValue) {
+            return (a == nullValue) ? ((b == nullValue) ? 0 : 1) : -1;
+        }
+        return Long.compare(a, b);
+    }
+}
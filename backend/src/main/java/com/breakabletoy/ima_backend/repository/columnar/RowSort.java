@@ -0,0 +1,87 @@
+package com.breakabletoy.ima_backend.repository.columnar;
+
+
+/*
+ * RowSort orders row numbers with a comparator over the columns, without boxing them.
+ * Selecting the first k of n rows costs O(n log k) with a bounded max-heap, like TopK does for objects.
+ */
+public final class RowSort {
+    private RowSort() {}
+
+    /*
+     * Order of two rows.
+     */
+    @FunctionalInterface
+    public interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    /*
+     * Returns the k first rows of the given ones, in order.
+     *
+     * @param rows the rows to select from; the array is not modified.
+     * @param count the number of valid entries in rows.
+     * @param comparator the order of the rows.
+     * @param k the maximum number of rows to return.
+     * @return the selected rows, sorted by the comparator.
+     */
+    public static int[] select(int[] rows, int count, RowComparator comparator, int k) {
+        int size = Math.min(k, count);
+        if (size <= 0) {
+            return new int[0];
+        }
+        // Max-heap of the size smallest rows seen so far.
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (heapSize < size) {
+                heap[heapSize] = row;
+                siftUp(heap, heapSize++, comparator);
+            } else if (comparator.compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, 0, heapSize, comparator);
+            }
+        }
+        // Heap sort in place: repeatedly move the largest to the end.
+        for (int end = heapSize - 1; end > 0; end--) {
+            int largest = heap[0];
+            heap[0] = heap[end];
+            heap[end] = largest;
+            siftDown(heap, 0, end, comparator);
+        }
+        return heap;
+    }
+
+    private static void siftUp(int[] heap, int index, RowComparator comparator) {
+        int row = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (comparator.compare(row, heap[parent]) <= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = row;
+    }
+
+    private static void siftDown(int[] heap, int index, int size, RowComparator comparator) {
+        int row = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && comparator.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (comparator.compare(heap[child], row) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = row;
+    }
+}
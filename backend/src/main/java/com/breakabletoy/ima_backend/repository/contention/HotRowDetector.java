@@ -0,0 +1,93 @@
+package com.breakabletoy.ima_backend.repository.contention;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+
+/*
+ * HotRowDetector measures the stock-adjustment rate of every item over fixed windows and tells which
+ * items are hot: adjusted at least threshold times in the current window or in the one before it.
+ * Looking back one window keeps an item hot across the window boundary, so a steady stream of sales
+ * does not flip it in and out of contention mode.
+ *
+ * Only the items adjusted during the last two windows are counted, so memory follows the write
+ * traffic, not the catalog. Counting is a map lookup and a LongAdder increment; windows roll over
+ * lazily on the next call.
+ */
+public final class HotRowDetector {
+    private final long threshold;
+    private final long windowNanos;
+    private final LongSupplier clock;
+    private final AtomicReference<Window> window;
+
+    private record Window(long start, ConcurrentMap<Long, LongAdder> counts, Map<Long, LongAdder> previous) {
+    }
+
+    /*
+     * Creates a detector on the system clock.
+     *
+     * @param threshold the number of adjustments per window from which an item is hot; positive.
+     * @param window the length of a window.
+     */
+    public HotRowDetector(long threshold, Duration window) {
+        this(threshold, window, System::nanoTime);
+    }
+
+    /*
+     * Creates a detector on the given clock.
+     *
+     * @param clock returns the current time in nanoseconds.
+     */
+    public HotRowDetector(long threshold, Duration window, LongSupplier clock) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Hot row threshold must be positive");
+        }
+        this.threshold = threshold;
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+        this.window = new AtomicReference<>(new Window(clock.getAsLong(), new ConcurrentHashMap<>(), Map.of()));
+    }
+
+    /*
+     * Counts one adjustment of the given item.
+     *
+     * @return true if the item is hot, counting this adjustment.
+     */
+    public boolean record(long id) {
+        Window current = current();
+        LongAdder count = current.counts().get(id);
+        if (count == null) {
+            count = current.counts().computeIfAbsent(id, key -> new LongAdder());
+        }
+        count.increment();
+        return count.sum() >= threshold || count(current.previous(), id) >= threshold;
+    }
+
+    /*
+     * Returns the current window, starting a new one when it has expired. The counts of the expired
+     * window are kept as the previous ones only if it ended less than a window ago.
+     */
+    private Window current() {
+        Window current = window.get();
+        long now = clock.getAsLong();
+        while (now - current.start() >= windowNanos) {
+            Map<Long, LongAdder> previous = (now - current.start() < 2 * windowNanos) ? current.counts() : Map.of();
+            Window next = new Window(now, new ConcurrentHashMap<>(), previous);
+            if (window.compareAndSet(current, next)) {
+                return next;
+            }
+            current = window.get();
+        }
+        return current;
+    }
+
+    private static long count(Map<Long, LongAdder> counts, long id) {
+        LongAdder count = counts.get(id);
+        return (count != null) ? count.sum() : 0;
+    }
+}
@@ -0,0 +1,165 @@
+package com.breakabletoy.ima_backend.repository.contention;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/*
+ * StripedQuantity takes the sales of one hot item without a lock, in the spirit of a LongAdder, while
+ * keeping the stock exactly non-negative.
+ *
+ * The available units of the item are split across cells, each on its own cache line. A sale reserves
+ * its units from one cell with a single compare-and-set and records them as that cell's pending delta,
+ * so threads selling the same item mostly touch different cells. A cell never goes below zero: when no
+ * single cell holds enough units, the sale is refused here and takes the exact path under the writer
+ * lock instead, which drains the cells and rebalances them.
+ *
+ * A cell packs the units still available (high 32 bits, non-negative) and the delta not yet folded into
+ * the stored item (low 32 bits, signed) into one long, so a reservation, a fold and a drain each see
+ * a cell either entirely before or entirely after any other of them.
+ *
+ * Folding: the owner repository takes the pending deltas of all cells under its writer lock and stores
+ * them as one write. Every reservation gets a ticket; a fold publishes the tickets it covers, so a seller
+ * can tell whether its units were already folded by another thread and skip the lock altogether.
+ *
+ * Invariant, between folds: available units of all cells = stored quantity + pending deltas of all cells.
+ */
+public final class StripedQuantity {
+    // 8 longs = 64 bytes between two cells, so they never share a cache line.
+    private static final int PADDING = 8;
+
+    private final int stripes;
+    private final AtomicLongArray cells;
+    private final AtomicLong tickets = new AtomicLong();
+    private volatile Fold lastFold = new Fold(0, 0, null);
+
+    /*
+     * The last fold: the tickets it covered, the journal position of its write and the item it left.
+     */
+    public record Fold(long tickets, long journalPosition, Inventory item) {
+    }
+
+    /*
+     * Creates the cells of a hot item.
+     *
+     * @param stripes the number of cells; a power of two.
+     * @param quantity the stored quantity of the item, split evenly across the cells.
+     */
+    public StripedQuantity(int stripes, int quantity) {
+        if (Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * PADDING);
+        int share = Math.max(quantity, 0) / stripes;
+        int remainder = Math.max(quantity, 0) % stripes;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.set(stripe * PADDING, pack(share + ((stripe < remainder) ? 1 : 0), 0));
+        }
+    }
+
+    /*
+     * Reserves units from the cell of the calling thread, or from the first other cell that holds enough.
+     *
+     * @param units the number of units to take; positive.
+     * @return the ticket of the reservation, or -1 if no cell holds enough units (nothing is taken).
+     * @throws IllegalArgumentException if units is not positive.
+     */
+    public long reserve(int units) {
+        if (units <= 0) {
+            throw new IllegalArgumentException("Units must be positive: " + units);
+        }
+        int home = (int) mix(Thread.currentThread().threadId()) & (stripes - 1);
+        for (int probe = 0; probe < stripes; probe++) {
+            int index = ((home + probe) & (stripes - 1)) * PADDING;
+            long cell;
+            do {
+                cell = cells.get(index);
+                if (available(cell) < units) {
+                    break;
+                }
+            } while (!cells.compareAndSet(index, cell, pack(available(cell) - units, delta(cell) - units)));
+            if (available(cell) >= units) {
+                return tickets.incrementAndGet();
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Returns the number of tickets handed out so far. A fold reads it before taking the deltas, so every
+     * ticket it returns belongs to a reservation whose delta the fold takes.
+     */
+    public long tickets() {
+        return tickets.get();
+    }
+
+    /*
+     * Takes the pending deltas of every cell and leaves their available units in place.
+     *
+     * @return the sum of the deltas taken.
+     */
+    public long takeDeltas() {
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            int index = stripe * PADDING;
+            long cell;
+            do {
+                cell = cells.get(index);
+            } while (delta(cell) != 0 && !cells.compareAndSet(index, cell, pack(available(cell), 0)));
+            sum += delta(cell);
+        }
+        return sum;
+    }
+
+    /*
+     * Empties every cell, so no later reservation succeeds.
+     *
+     * @return the sum of the pending deltas taken.
+     */
+    public long drain() {
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            sum += delta(cells.getAndSet(stripe * PADDING, 0));
+        }
+        return sum;
+    }
+
+    /*
+     * Publishes a fold. Called by the writer after the folded item is written.
+     *
+     * @param tickets the value of tickets() read before the deltas were taken.
+     * @param journalPosition the journal position of the write, or of the previous fold if nothing was written.
+     * @param item the stored item after the fold; never modified, callers hand out copies of it.
+     */
+    public void markFolded(long tickets, long journalPosition, Inventory item) {
+        lastFold = new Fold(tickets, journalPosition, item);
+    }
+
+    /*
+     * Returns the last fold.
+     */
+    public Fold lastFold() {
+        return lastFold;
+    }
+
+    private static long pack(int available, int delta) {
+        return ((long) available << 32) | (delta & 0xFFFFFFFFL);
+    }
+
+    private static int available(long cell) {
+        return (int) (cell >>> 32);
+    }
+
+    private static int delta(long cell) {
+        return (int) cell;
+    }
+
+    // Spreads the thread IDs, which are often consecutive, over the cells.
+    private static long mix(long value) {
+        value *= 0x9E3779B97F4A7C15L;
+        return value ^ (value >>> 32);
+    }
+}
@@ -0,0 +1,74 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+
+/*
+ * BitmapIndex maps each distinct value of an attribute to the bitmap of IDs holding that value.
+ * It is maintained incrementally by the repository write paths and lets queries select the
+ * matching IDs without touching any entities. Null values are not indexed.
+ *
+ * @param <K> the type of the indexed attribute.
+ */
+public class BitmapIndex<K> {
+    private final ConcurrentMap<K, ConcurrentBitmap> bitmaps = new ConcurrentHashMap<>();
+
+    /*
+     * Records that the item with the given ID holds the given value.
+     */
+    public void add(K value, int id) {
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, key -> new ConcurrentBitmap()).set(id);
+        }
+    }
+
+    /*
+     * Records that the item with the given ID no longer holds the given value.
+     */
+    public void remove(K value, int id) {
+        if (value != null) {
+            ConcurrentBitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.clear(id);
+            }
+        }
+    }
+
+    /*
+     * Returns the IDs holding the given value.
+     *
+     * @param value the value to look up.
+     * @return a private BitSet with the matching IDs (empty if the value is unknown).
+     */
+    public BitSet select(K value) {
+        ConcurrentBitmap bitmap = (value != null) ? bitmaps.get(value) : null;
+        return (bitmap != null) ? bitmap.toBitSet() : new BitSet();
+    }
+
+    /*
+     * Returns the IDs holding any of the given values.
+     *
+     * @param values the values to look up.
+     * @return a private BitSet with the union of the matching IDs.
+     */
+    public BitSet selectAny(Collection<K> values) {
+        BitSet result = new BitSet();
+        for (K value : values) {
+            ConcurrentBitmap bitmap = (value != null) ? bitmaps.get(value) : null;
+            if (bitmap != null) {
+                result.or(bitmap.toBitSet());
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Removes every entry from the index.
+     */
+    public void clear() {
+        bitmaps.clear();
+    }
+}
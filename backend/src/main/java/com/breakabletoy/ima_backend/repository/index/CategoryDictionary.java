@@ -0,0 +1,213 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/*
+ * CategoryDictionary maps every distinct category name to a small int code and keeps one canonical
+ * String instance per category, so stored items share it instead of each holding its own copy, and
+ * indexes, filters and aggregations can work on ints.
+ *
+ * Categories are keyed by their normalized name (see normalize: trimmed and lower-cased), so "Food",
+ * "food" and "Food " are one category with one code, bitmap and aggregate bucket, and filters match
+ * categories case-insensitively. The canonical name of a category is the spelling it was first seen
+ * with; intern and decode return it for every spelling.
+ *
+ * Codes are assigned in order of first appearance and never reused until clear; NONE stands for a
+ * null category. Every code also has a reference count, maintained by the repository write paths,
+ * so the categories no stored item uses anymore can be left out of the listings.
+ *
+ * Thread safety: lookups are lock-free; assigning a new code is synchronized, which only happens
+ * the first time a category is seen.
+ */
+public class CategoryDictionary {
+    public static final int NONE = -1;
+
+    private static final class Entry {
+        private final String name;
+        private final AtomicInteger references = new AtomicInteger();
+
+        private Entry(String name) {
+            this.name = name;
+        }
+    }
+
+    private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Entries indexed by code; slots past size are empty. Replaced by a larger copy when full.
+    private volatile Entry[] entries = new Entry[16];
+    private volatile int size;
+    // Number of codes with a positive reference count.
+    private final AtomicInteger referenced = new AtomicInteger();
+
+    public CategoryDictionary() {
+    }
+
+    /*
+     * Returns the key two category names must share to be the same category: the name without
+     * leading and trailing white space, lower-cased (Locale.ROOT).
+     *
+     * @param name the category name, or null.
+     * @return the key, or null for null.
+     */
+    public static String normalize(String name) {
+        return (name != null) ? name.strip().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /*
+     * Creates an independent copy of the given dictionary, with the same codes and reference counts.
+     */
+    public CategoryDictionary(CategoryDictionary other) {
+        synchronized (other) {
+            Entry[] source = other.entries;
+            Entry[] copy = new Entry[source.length];
+            for (int code = 0; code < other.size; code++) {
+                copy[code] = new Entry(source[code].name);
+                copy[code].references.set(source[code].references.get());
+            }
+            codes.putAll(other.codes);
+            entries = copy;
+            size = other.size;
+            referenced.set(other.referenced.get());
+        }
+    }
+
+    /*
+     * Returns the code of the given category, assigning a new one the first time it is seen in any spelling.
+     *
+     * @param name the category name, or null.
+     * @return the code, or NONE for null.
+     */
+    public int encode(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        String key = normalize(name);
+        Integer code = codes.get(key);
+        return (code != null) ? code : assign(key, name);
+    }
+
+    /*
+     * Returns the code of the given category without assigning one.
+     *
+     * @return the code, or NONE if the category was never seen.
+     */
+    public int lookup(String name) {
+        Integer code = (name != null) ? codes.get(normalize(name)) : null;
+        return (code != null) ? code : NONE;
+    }
+
+    /*
+     * Returns the canonical instance of the given category name, assigning it a code if needed.
+     *
+     * @param name the category name, or null.
+     * @return the name the category was first seen with, shared by every item of that category, or null.
+     */
+    public String intern(String name) {
+        return decode(encode(name));
+    }
+
+    /*
+     * Returns the name of the given code, or null for NONE.
+     */
+    public String decode(int code) {
+        return (code == NONE) ? null : entries[code].name;
+    }
+
+    /*
+     * Records that one more stored item uses the given code. NONE is ignored.
+     *
+     * @return true if no stored item used the code before.
+     */
+    public boolean retain(int code) {
+        if (code != NONE && entries[code].references.incrementAndGet() == 1) {
+            referenced.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Records that one stored item no longer uses the given code. NONE is ignored.
+     *
+     * @return true if no stored item uses the code anymore.
+     */
+    public boolean release(int code) {
+        if (code != NONE && entries[code].references.decrementAndGet() == 0) {
+            referenced.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /*
+     * Checks whether any stored item uses the given code.
+     */
+    public boolean isReferenced(int code) {
+        return code != NONE && entries[code].references.get() > 0;
+    }
+
+    /*
+     * Returns the names of the categories used by at least one stored item, sorted.
+     * Not atomic with respect to concurrent writes.
+     */
+    public List<String> referencedNames() {
+        int count = size;
+        Entry[] current = entries;
+        List<String> names = new ArrayList<>(referenced.get());
+        for (int code = 0; code < count; code++) {
+            if (current[code].references.get() > 0) {
+                names.add(current[code].name);
+            }
+        }
+        names.sort(null);
+        return names;
+    }
+
+    /*
+     * Returns the number of categories used by at least one stored item.
+     */
+    public int referencedCount() {
+        return referenced.get();
+    }
+
+    /*
+     * Returns the number of codes assigned so far, referenced or not.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Forgets every code. Must not run concurrently with any other method.
+     */
+    public synchronized void clear() {
+        codes.clear();
+        entries = new Entry[16];
+        size = 0;
+        referenced.set(0);
+    }
+
+    private synchronized int assign(String key, String name) {
+        Integer code = codes.get(key);
+        if (code != null) {
+            return code;
+        }
+        int assigned = size;
+        Entry[] current = entries;
+        if (assigned == current.length) {
+            current = Arrays.copyOf(current, assigned * 2);
+        }
+        current[assigned] = new Entry(name);
+        // Publish the entry before the code, so a reader that sees the code can decode it.
+        entries = current;
+        size = assigned + 1;
+        codes.put(key, assigned);
+        return assigned;
+    }
+}
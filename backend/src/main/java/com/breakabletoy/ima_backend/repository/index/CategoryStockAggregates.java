@@ -0,0 +1,120 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/*
+ * CategoryStockAggregates keeps running totals of the stock of every category:
+ * - unitsInStock: the sum of the quantities of the IN_STOCK items.
+ * - valueInStock: the sum of quantity * price of the IN_STOCK items.
+ *
+ * The repository write paths hand every change (previous item, current item) to apply, which folds
+ * the difference into the totals. The totals are published as one immutable map swapped with a
+ * compare-and-set, so a reader always sees every category as of the same write, never a mix.
+ * Each write copies the map, which costs O(categories), not O(items).
+ */
+public class CategoryStockAggregates {
+    /*
+     * Immutable totals of one category.
+     */
+    public static final class Totals {
+        public static final Totals ZERO = new Totals(0, BigDecimal.ZERO);
+
+        private final long unitsInStock;
+        private final BigDecimal valueInStock;
+
+        public Totals(long unitsInStock, BigDecimal valueInStock) {
+            this.unitsInStock = unitsInStock;
+            this.valueInStock = valueInStock;
+        }
+
+        public long getUnitsInStock() {
+            return unitsInStock;
+        }
+
+        public BigDecimal getValueInStock() {
+            return valueInStock;
+        }
+
+        private Totals plus(long units, BigDecimal value) {
+            return new Totals(unitsInStock + units, valueInStock.add(value));
+        }
+    }
+
+    private final AtomicReference<Map<String, Totals>> totals = new AtomicReference<>(Map.of());
+
+    /*
+     * Folds a change of one item into the totals.
+     *
+     * @param previous the item before the change, or null if it was created.
+     * @param current the item after the change, or null if it was deleted.
+     */
+    public void apply(Inventory previous, Inventory current) {
+        if (sameContribution(previous, current)) {
+            return;
+        }
+        Map<String, long[]> unitDeltas = new HashMap<>(2);
+        Map<String, BigDecimal> valueDeltas = new HashMap<>(2);
+        collect(previous, -1, unitDeltas, valueDeltas);
+        collect(current, 1, unitDeltas, valueDeltas);
+        if (unitDeltas.isEmpty()) {
+            return;
+        }
+
+        totals.updateAndGet(currentTotals -> {
+            Map<String, Totals> updated = new HashMap<>(currentTotals);
+            unitDeltas.forEach((category, units) -> updated.put(category,
+                    updated.getOrDefault(category, Totals.ZERO).plus(units[0], valueDeltas.get(category))));
+            return Map.copyOf(updated);
+        });
+    }
+
+    /*
+     * Returns the totals of every category, all taken as of the same write.
+     */
+    public Map<String, Totals> snapshot() {
+        return totals.get();
+    }
+
+    /*
+     * Resets every total.
+     */
+    public void clear() {
+        totals.set(Map.of());
+    }
+
+    private static boolean sameContribution(Inventory previous, Inventory current) {
+        if (previous == null || current == null) {
+            return false;
+        }
+        boolean previousInStock = previous.getStockStatus() == StockStatus.IN_STOCK;
+        boolean currentInStock = current.getStockStatus() == StockStatus.IN_STOCK;
+        if (!previousInStock && !currentInStock) {
+            return true;
+        }
+        BigDecimal previousPrice = previous.getProduct().getPrice();
+        BigDecimal currentPrice = current.getProduct().getPrice();
+        return previousInStock == currentInStock
+                && previous.getQuantity() == current.getQuantity()
+                && Objects.equals(previous.getProduct().getCategory(), current.getProduct().getCategory())
+                && (previousPrice == null ? currentPrice == null : currentPrice != null && previousPrice.compareTo(currentPrice) == 0);
+    }
+
+    private static void collect(Inventory inventory, int sign, Map<String, long[]> unitDeltas, Map<String, BigDecimal> valueDeltas) {
+        if (inventory == null || inventory.getStockStatus() != StockStatus.IN_STOCK || inventory.getProduct().getCategory() == null) {
+            return;
+        }
+        String category = inventory.getProduct().getCategory();
+        BigDecimal price = (inventory.getProduct().getPrice() != null) ? inventory.getProduct().getPrice() : BigDecimal.ZERO;
+        BigDecimal value = BigDecimal.valueOf(inventory.getQuantity()).multiply(price);
+        unitDeltas.computeIfAbsent(category, key -> new long[1])[0] += (long) sign * inventory.getQuantity();
+        valueDeltas.merge(category, (sign < 0) ? value.negate() : value, BigDecimal::add);
+    }
+}
@@ -0,0 +1,149 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/*
+ * ConcurrentBitmap is a growable set of non-negative int IDs stored as bits.
+ *
+ * The bits live in fixed-size pages of atomic words. Setting or clearing a bit is a single
+ * compare-and-set on one word, so writers on different IDs never block each other and
+ * readers never take a lock. Pages are allocated on demand the first time a bit inside
+ * them is set, which keeps sparse bitmaps small.
+ *
+ * Reads that span many bits (toBitSet, cardinality) are not atomic with respect to
+ * concurrent writers; callers must recheck the entities they resolve from the result.
+ */
+public class ConcurrentBitmap {
+    private static final int WORDS_PER_PAGE = 64;
+    private static final int BITS_PER_PAGE = WORDS_PER_PAGE * Long.SIZE;
+
+    // Directory of pages. It is replaced (never modified in place) when it grows.
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+
+    /*
+     * Adds the given ID to the bitmap.
+     *
+     * @param id the ID to add.
+     */
+    public void set(int id) {
+        AtomicLongArray page = pageFor(id, true);
+        int wordIndex = (id % BITS_PER_PAGE) >>> 6;
+        long mask = 1L << id;
+        long word;
+        do {
+            word = page.get(wordIndex);
+            if ((word & mask) != 0) {
+                return;
+            }
+        } while (!page.compareAndSet(wordIndex, word, word | mask));
+    }
+
+    /*
+     * Removes the given ID from the bitmap.
+     *
+     * @param id the ID to remove.
+     */
+    public void clear(int id) {
+        AtomicLongArray page = pageFor(id, false);
+        if (page == null) {
+            return;
+        }
+        int wordIndex = (id % BITS_PER_PAGE) >>> 6;
+        long mask = 1L << id;
+        long word;
+        do {
+            word = page.get(wordIndex);
+            if ((word & mask) == 0) {
+                return;
+            }
+        } while (!page.compareAndSet(wordIndex, word, word & ~mask));
+    }
+
+    /*
+     * Checks whether the given ID is present in the bitmap.
+     *
+     * @param id the ID to check.
+     * @return true if the ID is present; otherwise, false.
+     */
+    public boolean get(int id) {
+        AtomicLongArray page = pageFor(id, false);
+        return page != null && (page.get((id % BITS_PER_PAGE) >>> 6) & (1L << id)) != 0;
+    }
+
+    /*
+     * Counts the IDs present in the bitmap.
+     *
+     * @return the number of IDs in the bitmap.
+     */
+    public long cardinality() {
+        long count = 0;
+        for (AtomicLongArray page : pages) {
+            if (page != null) {
+                for (int i = 0; i < WORDS_PER_PAGE; i++) {
+                    count += Long.bitCount(page.get(i));
+                }
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Copies the current contents into a private BitSet that the caller can combine freely.
+     *
+     * @return a BitSet with the IDs present in the bitmap.
+     */
+    public BitSet toBitSet() {
+        AtomicLongArray[] current = pages;
+        long[] words = new long[current.length * WORDS_PER_PAGE];
+        for (int p = 0; p < current.length; p++) {
+            AtomicLongArray page = current[p];
+            if (page != null) {
+                for (int i = 0; i < WORDS_PER_PAGE; i++) {
+                    words[p * WORDS_PER_PAGE + i] = page.get(i);
+                }
+            }
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /*
+     * Removes every ID from the bitmap.
+     */
+    public synchronized void clearAll() {
+        pages = new AtomicLongArray[0];
+    }
+
+    /*
+     * Returns the page holding the given ID, optionally allocating it.
+     */
+    private AtomicLongArray pageFor(int id, boolean create) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Bitmap IDs must be non-negative: " + id);
+        }
+        int pageIndex = id / BITS_PER_PAGE;
+        AtomicLongArray[] current = pages;
+        if (pageIndex < current.length && current[pageIndex] != null) {
+            return current[pageIndex];
+        }
+        return create ? allocatePage(pageIndex) : null;
+    }
+
+    private synchronized AtomicLongArray allocatePage(int pageIndex) {
+        AtomicLongArray[] current = pages;
+        if (pageIndex >= current.length) {
+            AtomicLongArray[] grown = new AtomicLongArray[Math.max(pageIndex + 1, current.length * 2)];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        if (current[pageIndex] == null) {
+            if (current == pages) {
+                current = current.clone();
+            }
+            current[pageIndex] = new AtomicLongArray(WORDS_PER_PAGE);
+        }
+        pages = current;
+        return current[pageIndex];
+    }
+}
@@ -0,0 +1,90 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.function.Function;
+
+
+/*
+ * InventorySortField enumerates the fields findAll can sort by, together with the
+ * sortBy parameter that selects each one and the way its key is read from an item.
+ *
+ * Keys are compared in their natural order with nulls last, for both the sorted
+ * indexes and the in-memory comparators, so the two always agree.
+ */
+public enum InventorySortField {
+    NAME("name", inventory -> inventory.getProduct().getName(), text -> text),
+    CATEGORY("category", inventory -> inventory.getProduct().getCategory(), text -> text),
+    PRICE("price", inventory -> inventory.getProduct().getPrice(), BigDecimal::new),
+    EXPIRY_DATE("expirydate", inventory -> inventory.getProduct().getExpiryDate(), LocalDate::parse),
+    DATE_CREATED("datecreated", inventory -> inventory.getProduct().getDateCreate(), LocalDate::parse),
+    STOCK("stock", Inventory::getQuantity, Integer::valueOf);
+
+    // Order shared by every sort key: natural order, nulls last.
+    public static final Comparator<Comparable<Object>> KEY_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+
+    private final String param;
+    private final Function<Inventory, ? extends Comparable<?>> keyExtractor;
+    private final Function<String, ? extends Comparable<?>> keyParser;
+
+    InventorySortField(String param, Function<Inventory, ? extends Comparable<?>> keyExtractor,
+                       Function<String, ? extends Comparable<?>> keyParser) {
+        this.param = param;
+        this.keyExtractor = keyExtractor;
+        this.keyParser = keyParser;
+    }
+
+    /*
+     * Returns the sortBy parameter value that selects this field.
+     */
+    public String getParam() {
+        return param;
+    }
+
+    /*
+     * Reads the sort key of this field from the given item.
+     */
+    @SuppressWarnings("unchecked")
+    public Comparable<Object> keyOf(Inventory inventory) {
+        return (Comparable<Object>) keyExtractor.apply(inventory);
+    }
+
+    /*
+     * Parses a key of this field from its toString form, as written in a page cursor.
+     *
+     * @throws RuntimeException if the text is not a valid key of this field.
+     */
+    @SuppressWarnings("unchecked")
+    public Comparable<Object> parseKey(String text) {
+        return (Comparable<Object>) keyParser.apply(text);
+    }
+
+    /*
+     * Returns a comparator ordering items by this field.
+     *
+     * @param descending whether the order is reversed.
+     */
+    public Comparator<Inventory> comparator(boolean descending) {
+        Comparator<Inventory> comparator = Comparator.comparing(this::keyOf, KEY_ORDER);
+        return descending ? comparator.reversed() : comparator;
+    }
+
+    /*
+     * Resolves a sortBy parameter (case-insensitive) to its field.
+     *
+     * @param param the sortBy parameter value.
+     * @return the matching field.
+     * @throws IllegalArgumentException if the value does not name a sortable field.
+     */
+    public static InventorySortField fromParam(String param) {
+        for (InventorySortField field : values()) {
+            if (field.param.equalsIgnoreCase(param)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Invalid sortBy field: " + param);
+    }
+}
@@ -0,0 +1,148 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+
+/*
+ * PageCursor is the position after the last item of a page, used for keyset pagination.
+ *
+ * It holds the sort keys of that item for every field of the sort, and its ID as the final
+ * tie-breaker, so the next page starts right after it in the full sort order no matter how
+ * deep it is, and inserts or deletes before it do not shift the following pages.
+ *
+ * Cursors are exchanged as opaque URL-safe Base64 tokens. A token also records the sort it was
+ * issued for, and decoding it against a different sort is rejected.
+ */
+public final class PageCursor {
+    private static final byte FORMAT_VERSION = 1;
+
+    private final SortSpec sortSpec;
+    private final List<Comparable<Object>> keys;
+    private final long id;
+
+    private PageCursor(SortSpec sortSpec, List<Comparable<Object>> keys, long id) {
+        this.sortSpec = sortSpec;
+        this.keys = keys;
+        this.id = id;
+    }
+
+    /*
+     * Creates the cursor positioned after the given item.
+     *
+     * @param sortSpec the sort of the page.
+     * @param last the last item of the page.
+     */
+    public static PageCursor after(SortSpec sortSpec, Inventory last) {
+        List<Comparable<Object>> keys = new ArrayList<>(sortSpec.getFields().size());
+        for (InventorySortField field : sortSpec.getFields()) {
+            keys.add(field.keyOf(last));
+        }
+        return new PageCursor(sortSpec, keys, last.getId());
+    }
+
+    /*
+     * Decodes a cursor token issued for the given sort.
+     *
+     * @param token the token returned with a previous page.
+     * @param sortSpec the sort of the requested page.
+     * @return the decoded cursor.
+     * @throws IllegalArgumentException if the token is malformed or was issued for another sort.
+     */
+    public static PageCursor decode(String token, SortSpec sortSpec) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if (in.readByte() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int fieldCount = in.readUnsignedByte();
+            if (fieldCount != sortSpec.getFields().size()) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort");
+            }
+            List<Comparable<Object>> keys = new ArrayList<>(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                InventorySortField field = sortSpec.getFields().get(i);
+                if (in.readUnsignedByte() != field.ordinal() || in.readBoolean() != sortSpec.getDescending().get(i)) {
+                    throw new IllegalArgumentException("Cursor does not match the requested sort");
+                }
+                keys.add(in.readBoolean() ? field.parseKey(in.readUTF()) : null);
+            }
+            long id = in.readLong();
+            if (id < 0 || id >= Integer.MAX_VALUE || in.read() != -1) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new PageCursor(sortSpec, keys, id);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /*
+     * Encodes the cursor as an opaque URL-safe token.
+     */
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeByte(keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                out.writeByte(sortSpec.getFields().get(i).ordinal());
+                out.writeBoolean(sortSpec.getDescending().get(i));
+                Comparable<Object> key = keys.get(i);
+                out.writeBoolean(key != null);
+                if (key != null) {
+                    out.writeUTF(key.toString());
+                }
+            }
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /*
+     * Checks whether the given item comes after the cursor in the sort order.
+     */
+    public boolean precedes(Inventory inventory) {
+        List<InventorySortField> fields = sortSpec.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            int order = InventorySortField.KEY_ORDER.compare(fields.get(i).keyOf(inventory), keys.get(i));
+            if (order != 0) {
+                return sortSpec.getDescending().get(i) ? order < 0 : order > 0;
+            }
+        }
+        return inventory.getId() > id;
+    }
+
+    /*
+     * Returns the key of the first sort field, where a walk of its sorted index resumes.
+     */
+    public Comparable<Object> getPrimaryKey() {
+        return keys.get(0);
+    }
+
+    /*
+     * Returns the key of the sort field at the given position.
+     */
+    public Comparable<Object> getKey(int index) {
+        return keys.get(index);
+    }
+
+    /*
+     * Returns the ID of the item the cursor is positioned after.
+     */
+    public long getId() {
+        return id;
+    }
+}
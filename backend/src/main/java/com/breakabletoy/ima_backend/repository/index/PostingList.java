@@ -0,0 +1,330 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/*
+ * PostingList is a sorted set of non-negative int IDs, split like a roaring bitmap into chunks of
+ * 65536 consecutive IDs (the high 16 bits of an ID select its chunk).
+ *
+ * It is meant for postings such as the IDs of the products whose name contains a given n-gram. Most
+ * of them are sparse, but short grams like "a" or "e" hold most of the catalog, so a chunk is a
+ * sorted int array while it holds at most ARRAY_LIMIT IDs and a bitmap beyond that. A write touches
+ * a single chunk, so its cost is bounded by the chunk and does not grow with the catalog:
+ * - Array chunk: copied on write (at most ARRAY_LIMIT ints). Appending an ID larger than every ID
+ *   in the chunk (the common case, since new IDs only grow) writes into spare capacity instead.
+ * - Bitmap chunk: the bit is set or cleared in place with one compare-and-set.
+ * A bitmap chunk that drops below half the limit turns back into an array.
+ *
+ * Writers are serialized on the list itself; readers never lock. A published array chunk never
+ * changes and a bitmap word changes atomically, so a reader sees every ID that is not being written,
+ * and the ID being written either before or after the write.
+ */
+public class PostingList {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+
+    private interface Chunk {
+        boolean contains(int id);
+
+        void addTo(BitSet target);
+
+        /*
+         * Keeps the IDs of this chunk that every other chunk contains.
+         */
+        void intersect(Chunk[] others, BitSet result);
+    }
+
+    /*
+     * The first size entries of ids, sorted. Immutable once published: only slots past size are written.
+     */
+    private static final class ArrayChunk implements Chunk {
+        private final int[] ids;
+        private final int size;
+
+        private ArrayChunk(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        private int search(int id) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+
+        private ArrayChunk with(int insertAt, int id) {
+            if (insertAt == size && size < ids.length) {
+                // Slots past size are not visible to any reader, so they can be written in place.
+                ids[insertAt] = id;
+                return new ArrayChunk(ids, size + 1);
+            }
+            int[] grown = new int[Math.min(ARRAY_LIMIT, Math.max(4, size + (size >> 1) + 1))];
+            System.arraycopy(ids, 0, grown, 0, insertAt);
+            grown[insertAt] = id;
+            System.arraycopy(ids, insertAt, grown, insertAt + 1, size - insertAt);
+            return new ArrayChunk(grown, size + 1);
+        }
+
+        private ArrayChunk without(int position) {
+            int[] shrunk = new int[Math.max(4, size - 1)];
+            System.arraycopy(ids, 0, shrunk, 0, position);
+            System.arraycopy(ids, position + 1, shrunk, position, size - position - 1);
+            return new ArrayChunk(shrunk, size - 1);
+        }
+
+        @Override
+        public boolean contains(int id) {
+            return search(id) >= 0;
+        }
+
+        @Override
+        public void addTo(BitSet target) {
+            for (int i = 0; i < size; i++) {
+                target.set(ids[i]);
+            }
+        }
+
+        @Override
+        public void intersect(Chunk[] others, BitSet result) {
+            for (int i = 0; i < size; i++) {
+                if (containedInAll(others, ids[i])) {
+                    result.set(ids[i]);
+                }
+            }
+        }
+    }
+
+    /*
+     * One bit per ID of the chunk. count is only read and written by the writers.
+     */
+    private static final class BitmapChunk implements Chunk {
+        private final int base;
+        private final AtomicLongArray words = new AtomicLongArray(BITMAP_WORDS);
+        private int count;
+
+        private BitmapChunk(int base) {
+            this.base = base;
+        }
+
+        private static BitmapChunk of(ArrayChunk array, int base) {
+            BitmapChunk bitmap = new BitmapChunk(base);
+            for (int i = 0; i < array.size; i++) {
+                bitmap.set(array.ids[i]);
+            }
+            return bitmap;
+        }
+
+        private ArrayChunk toArray() {
+            int[] ids = new int[Math.max(4, count)];
+            int size = 0;
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                for (long bits = words.get(word); bits != 0; bits &= bits - 1) {
+                    ids[size++] = base + word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            return new ArrayChunk(ids, size);
+        }
+
+        private boolean set(int id) {
+            int word = (id & CHUNK_MASK) >>> 6;
+            long mask = 1L << id;
+            long bits = words.get(word);
+            if ((bits & mask) != 0) {
+                return false;
+            }
+            // Writers are serialized, so only readers race with this write.
+            words.set(word, bits | mask);
+            count++;
+            return true;
+        }
+
+        private boolean clear(int id) {
+            int word = (id & CHUNK_MASK) >>> 6;
+            long mask = 1L << id;
+            long bits = words.get(word);
+            if ((bits & mask) == 0) {
+                return false;
+            }
+            words.set(word, bits & ~mask);
+            count--;
+            return true;
+        }
+
+        @Override
+        public boolean contains(int id) {
+            return (words.get((id & CHUNK_MASK) >>> 6) & (1L << id)) != 0;
+        }
+
+        @Override
+        public void addTo(BitSet target) {
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                for (long bits = words.get(word); bits != 0; bits &= bits - 1) {
+                    target.set(base + word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+
+        @Override
+        public void intersect(Chunk[] others, BitSet result) {
+            for (int word = 0; word < BITMAP_WORDS; word++) {
+                for (long bits = words.get(word); bits != 0; bits &= bits - 1) {
+                    int id = base + word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    if (containedInAll(others, id)) {
+                        result.set(id);
+                    }
+                }
+            }
+        }
+    }
+
+    // Chunk of every 65536 IDs, null when it holds none. Replaced (never modified in place) when a
+    // chunk is replaced; it has one entry per 65536 IDs, so copying it is cheap.
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int size;
+
+    /*
+     * Adds the given ID to the list.
+     *
+     * @throws IllegalArgumentException if the ID is negative.
+     */
+    public synchronized void add(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Posting IDs must not be negative: " + id);
+        }
+        int index = id >>> CHUNK_BITS;
+        Chunk chunk = chunkAt(chunks, index);
+        if (chunk instanceof BitmapChunk bitmap) {
+            if (bitmap.set(id)) {
+                size++;
+            }
+            return;
+        }
+        ArrayChunk array = (chunk != null) ? (ArrayChunk) chunk : new ArrayChunk(new int[4], 0);
+        int position = array.search(id);
+        if (position >= 0) {
+            return;
+        }
+        Chunk replacement;
+        if (array.size == ARRAY_LIMIT) {
+            BitmapChunk bitmap = BitmapChunk.of(array, index << CHUNK_BITS);
+            bitmap.set(id);
+            replacement = bitmap;
+        } else {
+            replacement = array.with(-position - 1, id);
+        }
+        publish(index, replacement);
+        size++;
+    }
+
+    /*
+     * Removes the given ID from the list.
+     */
+    public synchronized void remove(int id) {
+        if (id < 0) {
+            return;
+        }
+        int index = id >>> CHUNK_BITS;
+        Chunk chunk = chunkAt(chunks, index);
+        if (chunk instanceof BitmapChunk bitmap) {
+            if (bitmap.clear(id)) {
+                size--;
+                if (bitmap.count < ARRAY_LIMIT / 2) {
+                    publish(index, bitmap.toArray());
+                }
+            }
+            return;
+        }
+        if (chunk == null) {
+            return;
+        }
+        ArrayChunk array = (ArrayChunk) chunk;
+        int position = array.search(id);
+        if (position < 0) {
+            return;
+        }
+        publish(index, (array.size > 1) ? array.without(position) : null);
+        size--;
+    }
+
+    /*
+     * Returns the number of IDs in the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /*
+     * Checks whether the list is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /*
+     * Sets the bit of every ID in the list on the given BitSet.
+     *
+     * @param target the BitSet to add the IDs to.
+     */
+    public void addTo(BitSet target) {
+        for (Chunk chunk : chunks) {
+            if (chunk != null) {
+                chunk.addTo(target);
+            }
+        }
+    }
+
+    /*
+     * Intersects the given lists, walking the smallest one chunk by chunk and probing the same chunk
+     * of the others; a chunk missing from any list is skipped as a whole. The cost grows with the size
+     * of the smallest list, not with the size of the catalog.
+     *
+     * @param lists the lists to intersect; must not be empty.
+     * @return a BitSet with the IDs present in every list.
+     */
+    public static BitSet intersect(PostingList... lists) {
+        PostingList[] bySize = lists.clone();
+        Arrays.sort(bySize, (a, b) -> Integer.compare(a.size, b.size));
+        Chunk[][] directories = new Chunk[bySize.length][];
+        for (int i = 0; i < bySize.length; i++) {
+            directories[i] = bySize[i].chunks;
+        }
+
+        BitSet result = new BitSet();
+        Chunk[] others = new Chunk[bySize.length - 1];
+        for (int index = 0; index < directories[0].length; index++) {
+            Chunk smallest = directories[0][index];
+            boolean inAll = smallest != null;
+            for (int j = 1; j < directories.length && inAll; j++) {
+                others[j - 1] = chunkAt(directories[j], index);
+                inAll = others[j - 1] != null;
+            }
+            if (inAll) {
+                smallest.intersect(others, result);
+            }
+        }
+        return result;
+    }
+
+    private static boolean containedInAll(Chunk[] chunks, int id) {
+        for (Chunk chunk : chunks) {
+            if (!chunk.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Chunk chunkAt(Chunk[] directory, int index) {
+        return (index < directory.length) ? directory[index] : null;
+    }
+
+    private void publish(int index, Chunk chunk) {
+        Chunk[] current = chunks;
+        Chunk[] next = Arrays.copyOf(current, Math.max(current.length, index + 1));
+        next[index] = chunk;
+        chunks = next;
+    }
+}
@@ -0,0 +1,93 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/*
+ * SortSpec is the parsed form of the sortBy/sortOrder parameters of a request.
+ *
+ * Each sortBy value is resolved to an InventorySortField; a missing sortOrder entry means "asc".
+ * The resulting comparator chains the fields in order and breaks remaining ties by ascending ID,
+ * so every sort produces one deterministic order no matter which access path served it.
+ */
+public class SortSpec {
+    private static final Comparator<Inventory> BY_ID = Comparator.comparingLong(Inventory::getId);
+
+    private final List<InventorySortField> fields;
+    private final List<Boolean> descending;
+    private final Comparator<Inventory> comparator;
+
+    private SortSpec(List<InventorySortField> fields, List<Boolean> descending) {
+        this.fields = Collections.unmodifiableList(fields);
+        this.descending = Collections.unmodifiableList(descending);
+        Comparator<Inventory> chained = null;
+        for (int i = 0; i < fields.size(); i++) {
+            Comparator<Inventory> current = fields.get(i).comparator(descending.get(i));
+            chained = (chained == null) ? current : chained.thenComparing(current);
+        }
+        this.comparator = (chained == null) ? BY_ID : chained.thenComparing(BY_ID);
+    }
+
+    /*
+     * Parses the sort parameters of the given request. The request itself is not modified.
+     *
+     * @param paginationRequestDTO the request holding sortBy and sortOrder.
+     * @return the parsed sort specification.
+     * @throws IllegalArgumentException if a sortBy value does not name a sortable field.
+     */
+    public static SortSpec of(PaginationRequestDTO paginationRequestDTO) {
+        List<String> sortByFields = (paginationRequestDTO.getSortBy() != null) ? paginationRequestDTO.getSortBy() : List.of();
+        List<String> sortOrders = (paginationRequestDTO.getSortOrder() != null) ? paginationRequestDTO.getSortOrder() : List.of();
+
+        List<InventorySortField> fields = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        for (int i = 0; i < sortByFields.size(); i++) {
+            fields.add(InventorySortField.fromParam(sortByFields.get(i)));
+            // In case there are fewer sortOrders than sortBy fields, the missing ones are "asc"
+            descending.add(i < sortOrders.size() && "desc".equalsIgnoreCase(sortOrders.get(i)));
+        }
+        return new SortSpec(fields, descending);
+    }
+
+    /*
+     * Checks whether any sort field was requested.
+     */
+    public boolean isSorted() {
+        return !fields.isEmpty();
+    }
+
+    /*
+     * Returns the first (most significant) sort field.
+     */
+    public InventorySortField getPrimaryField() {
+        return fields.get(0);
+    }
+
+    /*
+     * Checks whether the first sort field is in descending order.
+     */
+    public boolean isPrimaryDescending() {
+        return descending.get(0);
+    }
+
+    public List<InventorySortField> getFields() {
+        return fields;
+    }
+
+    public List<Boolean> getDescending() {
+        return descending;
+    }
+
+    /*
+     * Returns the comparator for the full sort, with ties broken by ascending ID.
+     */
+    public Comparator<Inventory> getComparator() {
+        return comparator;
+    }
+}
@@ -0,0 +1,94 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+
+/*
+ * SortedIndex keeps the (key, ID) pairs of one sortable field in order, so a sorted page can be
+ * read by walking the index from its start instead of sorting the whole catalog.
+ *
+ * The entries live in a ConcurrentSkipListSet: inserts and removals are O(log n), readers iterate
+ * without locking and never block writers. Entries are ordered by key (natural order, nulls last)
+ * and then by ID, so equal keys never collapse into one entry.
+ */
+public class SortedIndex {
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator
+            .comparing(Entry::getKey, InventorySortField.KEY_ORDER)
+            .thenComparingInt(Entry::getId);
+
+    private final NavigableSet<Entry> entries = new ConcurrentSkipListSet<>(ENTRY_ORDER);
+
+    /*
+     * Entry of the index: the sort key of an item and its ID.
+     */
+    public static final class Entry {
+        private final Comparable<Object> key;
+        private final int id;
+
+        public Entry(Comparable<Object> key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+
+        public Comparable<Object> getKey() {
+            return key;
+        }
+
+        public int getId() {
+            return id;
+        }
+    }
+
+    /*
+     * Adds the given key for the item with the given ID.
+     */
+    public void add(Comparable<Object> key, int id) {
+        entries.add(new Entry(key, id));
+    }
+
+    /*
+     * Removes the given key for the item with the given ID.
+     */
+    public void remove(Comparable<Object> key, int id) {
+        entries.remove(new Entry(key, id));
+    }
+
+    /*
+     * Iterates over the entries in key order.
+     *
+     * @param descending whether to iterate from the largest key to the smallest.
+     */
+    public Iterator<Entry> iterator(boolean descending) {
+        return descending ? entries.descendingIterator() : entries.iterator();
+    }
+
+    /*
+     * Iterates over the entries in key order, starting at the first entry whose key equals the
+     * given key (or the first one after it when there is none), in O(log n).
+     *
+     * @param key the key to start from.
+     * @param descending whether to iterate from the largest key to the smallest.
+     */
+    public Iterator<Entry> iteratorFrom(Comparable<Object> key, boolean descending) {
+        return descending
+                ? entries.headSet(new Entry(key, Integer.MAX_VALUE), true).descendingIterator()
+                : entries.tailSet(new Entry(key, Integer.MIN_VALUE), true).iterator();
+    }
+
+    /*
+     * Removes every entry from the index.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /*
+     * Checks whether two keys are equal in the index order.
+     */
+    public static boolean sameKey(Comparable<Object> a, Comparable<Object> b) {
+        return InventorySortField.KEY_ORDER.compare(a, b) == 0;
+    }
+}
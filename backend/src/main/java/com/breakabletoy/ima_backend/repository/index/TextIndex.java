@@ -0,0 +1,251 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import com.breakabletoy.ima_backend.enums.SearchMode;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+
+/*
+ * TextIndex is an inverted index over product names, maintained on every write.
+ *
+ * Structures:
+ * - gramIndex: every distinct substring of length 1 to 3 of the lower-cased name -> posting list of IDs.
+ *   A query of up to 3 characters is answered by a single posting list; a longer query intersects the
+ *   posting lists of its trigrams and verifies the few survivors.
+ * - tokenIndex: every word of the lower-cased name, in sorted order -> posting list of IDs.
+ *   A prefix query is a range scan over the words starting with the query.
+ * - normalizedNames: the lower-cased name of every ID, so verification never lower-cases a name again.
+ *
+ * Names are normalized with Locale.ROOT so the index does not depend on the server locale.
+ */
+public class TextIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final ConcurrentMap<String, PostingList> gramIndex = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<String, PostingList> tokenIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<Integer, String> normalizedNames = new ConcurrentHashMap<>();
+
+    /*
+     * Indexes the name of the item with the given ID.
+     *
+     * @param id the ID of the item.
+     * @param name the product name; null names are not indexed.
+     */
+    public void add(int id, String name) {
+        if (name == null) {
+            return;
+        }
+        String normalized = normalize(name);
+        normalizedNames.put(id, normalized);
+        for (String gram : grams(normalized)) {
+            gramIndex.computeIfAbsent(gram, key -> new PostingList()).add(id);
+        }
+        for (String token : tokens(normalized)) {
+            tokenIndex.computeIfAbsent(token, key -> new PostingList()).add(id);
+        }
+    }
+
+    /*
+     * Removes the name of the item with the given ID from the index.
+     *
+     * @param id the ID of the item.
+     * @param name the product name that was indexed for this ID.
+     */
+    public void remove(int id, String name) {
+        if (name == null) {
+            return;
+        }
+        String normalized = normalize(name);
+        normalizedNames.remove(id, normalized);
+        for (String gram : grams(normalized)) {
+            PostingList postings = gramIndex.get(gram);
+            if (postings != null) {
+                postings.remove(id);
+            }
+        }
+        for (String token : tokens(normalized)) {
+            PostingList postings = tokenIndex.get(token);
+            if (postings != null) {
+                postings.remove(id);
+            }
+        }
+    }
+
+    /*
+     * Finds the IDs whose name matches the given query.
+     *
+     * @param query the search text; it is lower-cased before matching.
+     * @param mode whether the text may appear anywhere in the name or only at the start of a word.
+     * @return a private BitSet with the matching IDs.
+     */
+    public BitSet search(String query, SearchMode mode) {
+        String normalized = normalize(query);
+        return (mode == SearchMode.PREFIX) ? searchPrefix(normalized.trim()) : searchContains(normalized);
+    }
+
+    /*
+     * Checks a single name against the given query, with the same semantics as search.
+     * Used to evaluate names that are not (or no longer) in the index.
+     *
+     * @param name the product name, or null.
+     * @param query the search text.
+     * @param mode the search mode.
+     * @return true if search would return the ID of an item with that name.
+     */
+    public static boolean matches(String name, String query, SearchMode mode) {
+        if (name == null) {
+            return false;
+        }
+        String normalizedName = normalize(name);
+        String normalizedQuery = normalize(query);
+        if (mode == SearchMode.PREFIX) {
+            normalizedQuery = normalizedQuery.trim();
+            return normalizedQuery.isEmpty() || startsAtWordBoundary(normalizedName, normalizedQuery);
+        }
+        return normalizedName.contains(normalizedQuery);
+    }
+
+    /*
+     * Removes every entry from the index.
+     */
+    public void clear() {
+        gramIndex.clear();
+        tokenIndex.clear();
+        normalizedNames.clear();
+    }
+
+    /*
+     * Substring search. Short queries are a direct posting list lookup; longer ones intersect
+     * their trigrams and verify the candidates against the stored normalized names.
+     */
+    private BitSet searchContains(String query) {
+        if (query.isEmpty()) {
+            return allIds();
+        }
+        if (query.length() <= GRAM_LENGTH) {
+            PostingList postings = gramIndex.get(query);
+            BitSet result = new BitSet();
+            if (postings != null) {
+                postings.addTo(result);
+            }
+            return result;
+        }
+
+        Set<String> queryGrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            queryGrams.add(query.substring(i, i + GRAM_LENGTH));
+        }
+        List<PostingList> lists = new ArrayList<>();
+        for (String gram : queryGrams) {
+            PostingList postings = gramIndex.get(gram);
+            if (postings == null || postings.isEmpty()) {
+                return new BitSet();
+            }
+            lists.add(postings);
+        }
+
+        BitSet candidates = PostingList.intersect(lists.toArray(new PostingList[0]));
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            String name = normalizedNames.get(id);
+            if (name == null || !name.contains(query)) {
+                candidates.clear(id);
+            }
+        }
+        return candidates;
+    }
+
+    /*
+     * Word-prefix search. The first word of the query selects the candidates through a range scan
+     * of the token index; multi-word queries are then verified against the stored normalized names.
+     */
+    private BitSet searchPrefix(String query) {
+        if (query.isEmpty()) {
+            return allIds();
+        }
+        List<String> queryTokens = tokens(query);
+        if (queryTokens.isEmpty()) {
+            // Only separators were typed, fall back to a word-boundary scan.
+            BitSet result = new BitSet();
+            normalizedNames.forEach((id, name) -> {
+                if (startsAtWordBoundary(name, query)) {
+                    result.set(id);
+                }
+            });
+            return result;
+        }
+
+        String firstToken = queryTokens.get(0);
+        BitSet candidates = new BitSet();
+        for (PostingList postings : tokenIndex.subMap(firstToken, true, firstToken + Character.MAX_VALUE, false).values()) {
+            postings.addTo(candidates);
+        }
+        boolean singleWord = queryTokens.size() == 1 && firstToken.equals(query);
+        if (!singleWord) {
+            for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+                String name = normalizedNames.get(id);
+                if (name == null || !startsAtWordBoundary(name, query)) {
+                    candidates.clear(id);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private BitSet allIds() {
+        BitSet result = new BitSet();
+        normalizedNames.keySet().forEach(result::set);
+        return result;
+    }
+
+    /*
+     * Checks whether the query appears in the name at the start of a word. Both are expected to be
+     * lower-cased already; the columnar and the memory-mapped layouts filter their names with it.
+     */
+    public static boolean startsAtWordBoundary(String name, String query) {
+        for (int from = name.indexOf(query); from >= 0; from = name.indexOf(query, from + 1)) {
+            if (from == 0 || !Character.isLetterOrDigit(name.charAt(from - 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    /*
+     * Returns the distinct substrings of length 1 to GRAM_LENGTH of the given text.
+     */
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM_LENGTH; length++) {
+            for (int i = 0; i + length <= text.length(); i++) {
+                grams.add(text.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    /*
+     * Splits the given text into words made of letters and digits.
+     */
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,49 @@
+package com.breakabletoy.ima_backend.repository.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+
+/*
+ * TopK selects the k smallest elements of a collection with a bounded heap.
+ * It costs O(n log k) time and O(k) extra memory, instead of the O(n log n) of a full sort,
+ * which matters when only the first pages of a large result are requested.
+ */
+public final class TopK {
+    private TopK() {}
+
+    /*
+     * Returns the k smallest elements of the given collection, in order.
+     *
+     * @param items the elements to select from.
+     * @param comparator the order of the elements.
+     * @param k the maximum number of elements to return.
+     * @return the selected elements, sorted by the comparator.
+     */
+    public static <T> List<T> select(Collection<T> items, Comparator<? super T> comparator, int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        if (items.size() <= k) {
+            List<T> sorted = new ArrayList<>(items);
+            sorted.sort(comparator);
+            return sorted;
+        }
+        // Max-heap of the k smallest elements seen so far.
+        PriorityQueue<T> heap = new PriorityQueue<>(k + 1, comparator.reversed());
+        for (T item : items) {
+            if (heap.size() < k) {
+                heap.add(item);
+            } else if (comparator.compare(item, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        List<T> selected = new ArrayList<>(heap);
+        selected.sort(comparator);
+        return selected;
+    }
+}
@@ -0,0 +1,148 @@
+package com.breakabletoy.ima_backend.repository.mapped;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/*
+ * MappedFile is a file mapped into memory in fixed-size chunks, addressed by long positions.
+ *
+ * A single MappedByteBuffer is limited to 2 GB, so the file is mapped as a list of chunks of
+ * chunkBytes each; the file grows one chunk at a time. Values never straddle two chunks: callers
+ * align fixed-width records on the chunk size and keep variable-length values within one chunk
+ * (see chunkRemaining).
+ *
+ * The mapped pages live outside the Java heap and are cached by the OS page cache. Writes reach the
+ * file when the OS writes the pages back, or on force.
+ * Not thread-safe for growth: the repository only grows the file while it holds its lock exclusively.
+ */
+class MappedFile implements AutoCloseable {
+    private final Path path;
+    private final FileChannel channel;
+    private final int chunkBytes;
+    private final int chunkShift;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+
+    /*
+     * Opens or creates the file and maps its current content.
+     *
+     * @param path the file.
+     * @param chunkBytes the size of one mapped chunk; a power of two.
+     */
+    MappedFile(Path path, int chunkBytes) {
+        if (Integer.bitCount(chunkBytes) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two");
+        }
+        this.path = path;
+        this.chunkBytes = chunkBytes;
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkBytes);
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ensureCapacity(channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map " + path, e);
+        }
+    }
+
+    /*
+     * Grows the mapping, and the file, to hold at least the given number of bytes.
+     */
+    void ensureCapacity(long bytes) {
+        try {
+            while (capacity() < bytes) {
+                chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, capacity(), chunkBytes));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow " + path, e);
+        }
+    }
+
+    /*
+     * Returns the number of mapped bytes.
+     */
+    long capacity() {
+        return (long) chunks.size() * chunkBytes;
+    }
+
+    int chunkBytes() {
+        return chunkBytes;
+    }
+
+    /*
+     * Returns the number of bytes from the given position to the end of its chunk.
+     */
+    int chunkRemaining(long position) {
+        return chunkBytes - offset(position);
+    }
+
+    byte getByte(long position) {
+        return chunk(position).get(offset(position));
+    }
+
+    void putByte(long position, byte value) {
+        chunk(position).put(offset(position), value);
+    }
+
+    int getInt(long position) {
+        return chunk(position).getInt(offset(position));
+    }
+
+    void putInt(long position, int value) {
+        chunk(position).putInt(offset(position), value);
+    }
+
+    long getLong(long position) {
+        return chunk(position).getLong(offset(position));
+    }
+
+    void putLong(long position, long value) {
+        chunk(position).putLong(offset(position), value);
+    }
+
+    /*
+     * Reads bytes that lie within one chunk.
+     */
+    void get(long position, byte[] destination) {
+        chunk(position).get(offset(position), destination);
+    }
+
+    /*
+     * Writes bytes that lie within one chunk.
+     */
+    void put(long position, byte[] source) {
+        chunk(position).put(offset(position), source);
+    }
+
+    /*
+     * Writes the modified pages to the storage device.
+     */
+    void force() {
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            force();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close " + path, e);
+        }
+    }
+
+    private MappedByteBuffer chunk(long position) {
+        return chunks.get((int) (position >>> chunkShift));
+    }
+
+    private int offset(long position) {
+        return (int) (position & (chunkBytes - 1));
+    }
+}
@@ -0,0 +1,815 @@
+package com.breakabletoy.ima_backend.repository.mapped;
+
+import com.breakabletoy.ima_backend.dto.CategoryMetric;
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.SearchMode;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.BatchResult;
+import com.breakabletoy.ima_backend.repository.ChangeSet;
+import com.breakabletoy.ima_backend.repository.InventoryChangeListener;
+import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import com.breakabletoy.ima_backend.repository.QueryResult;
+import com.breakabletoy.ima_backend.repository.StockAdjustment;
+import com.breakabletoy.ima_backend.repository.columnar.ChangeLog;
+import com.breakabletoy.ima_backend.repository.columnar.FieldEncoding;
+import com.breakabletoy.ima_backend.repository.columnar.MeteredReadWriteLock;
+import com.breakabletoy.ima_backend.repository.columnar.RowOrder;
+import com.breakabletoy.ima_backend.repository.columnar.RowSort;
+import com.breakabletoy.ima_backend.repository.index.BitmapIndex;
+import com.breakabletoy.ima_backend.repository.index.CategoryDictionary;
+import com.breakabletoy.ima_backend.repository.index.InventorySortField;
+import com.breakabletoy.ima_backend.repository.index.PageCursor;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+import com.breakabletoy.ima_backend.repository.index.TextIndex;
+import com.breakabletoy.ima_backend.repository.metrics.QueryPlan;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * MappedInventoryRepository is an InventoryRepository that keeps the catalog off the Java heap, in
+ * memory-mapped files (see MappedRecordStore), for catalogs larger than the heap.
+ * It is selected with inventory.repository.layout=mapped.
+ *
+ * Storage:
+ * - Every item is a fixed-width record in a mapped record file, at a position given by its ID; names and
+ *   categories are in a mapped, append-only string heap. The OS page cache caches the pages, and the
+ *   heap only holds the indexes below, so GC work no longer grows with the catalog.
+ * - Items are materialized as Inventory objects only when they are handed out.
+ *
+ * Indexes kept on the heap:
+ * - A bitmap of the live IDs, and bitmaps of the IDs of every category code and stock status.
+ * - The CategoryDictionary, with the heap offset of every category name.
+ * They are rebuilt on startup by one sequential pass over the record file, without replaying anything.
+ *
+ * Queries:
+ * - Category and stock status filters intersect bitmaps; the search filter reads the names of the
+ *   remaining candidates from the string heap.
+ * - Sorted pages extract the sort keys of the candidates once and select the page with a bounded heap.
+ * - Category metrics read the quantity and price of the in-stock IDs of every category.
+ *
+ * Thread safety: a single read-write lock; reads share it, writes take it exclusively.
+ *
+ * Durability: the records are written in place and reach the disk when the OS writes the pages back,
+ * or when the repository is closed. A write interrupted by a crash of the machine may be lost; use the
+ * object layout with the write-ahead log when every write has to be durable.
+ *
+ * Change notification and delta sync follow InMemoryInventoryRepository. Every record keeps the stamp
+ * of its last change, used as its row version. As in the other layouts, a change log on the heap maps
+ * the stamp of the last change of every live item and of every tombstone to its ID, so findChangesSince
+ * reads the changes after a version without scanning the record file. On startup the log is rebuilt
+ * from the records, in the order of their stamps, with new stamps above the floor.
+ */
+@Repository
+@ConditionalOnProperty(name = "inventory.repository.layout", havingValue = "mapped")
+public class MappedInventoryRepository implements InventoryRepository, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(MappedInventoryRepository.class);
+
+    private static final Duration DEFAULT_TOMBSTONE_RETENTION = Duration.ofDays(7);
+    private static final int DEFAULT_CHUNK_BYTES = 1 << 26;
+
+    private final MappedRecordStore store;
+    // Guards the store, every index and the change log.
+    private final MeteredReadWriteLock lock;
+    private final BitSet liveIds = new BitSet();
+    private final CategoryDictionary categoryDictionary = new CategoryDictionary();
+    // Heap offset of the name of every category code, and the reverse mapping.
+    private long[] categoryOffsets = new long[16];
+    private final Map<Long, Integer> categoryCodes = new HashMap<>();
+    private final BitmapIndex<Integer> categoryIndex = new BitmapIndex<>();
+    private final BitmapIndex<StockStatus> stockStatusIndex = new BitmapIndex<>();
+    // Number of stored items, readable without the lock.
+    private volatile int size;
+    // Data version, bumped after every completed change; see getVersion.
+    private final AtomicLong version = new AtomicLong();
+    // Receives the measurements of the hot paths.
+    private final RepositoryMetrics metrics;
+    // Told about every change, e.g. to publish it to the change feed.
+    private final InventoryChangeListener changeListener;
+
+    // Change log and tombstones for delta sync; guarded by the lock.
+    private final ChangeLog changes;
+
+    /*
+     * Opens the repository stored in the given directory, creating it if needed.
+     */
+    public MappedInventoryRepository(Path directory) {
+        this(directory, DEFAULT_CHUNK_BYTES, RepositoryMetrics.NOOP, InventoryChangeListener.NONE, DEFAULT_TOMBSTONE_RETENTION);
+    }
+
+    /*
+     * Opens the repository stored in the given directory, reporting its measurements to the given metrics,
+     * telling the given listener about every change and keeping the tombstones of deleted items during
+     * the given window.
+     */
+    @Autowired
+    public MappedInventoryRepository(@Value("${inventory.mapped.directory:data/mapped}") String directory,
+                                     RepositoryMetrics metrics, InventoryChangeListener changeListener,
+                                     @Value("${inventory.sync.tombstone-retention:7d}") Duration tombstoneRetention) {
+        this(Path.of(directory), DEFAULT_CHUNK_BYTES, metrics, changeListener, tombstoneRetention);
+    }
+
+    /*
+     * Opens the repository like the constructor above, mapping the files in chunks of the given size
+     * (a power of two of at least 64 bytes).
+     */
+    public MappedInventoryRepository(Path directory, int chunkBytes, RepositoryMetrics metrics,
+                                     InventoryChangeListener changeListener, Duration tombstoneRetention) {
+        this.store = new MappedRecordStore(directory, chunkBytes);
+        this.metrics = metrics;
+        this.changeListener = changeListener;
+        this.lock = new MeteredReadWriteLock(metrics);
+        this.changes = new ChangeLog(lock, tombstoneRetention);
+        loadIndexes();
+        metrics.bindSizes(() -> size, categoryDictionary::referencedCount);
+    }
+
+    public Optional<Inventory> findById(Long id) {
+        return Optional.ofNullable(getById(id));
+    }
+
+    /*
+     * Retrieves the Inventory item with the given ID, materialized from its record.
+     *
+     * @param id The unique ID of the inventory item.
+     * @return The Inventory item if found; otherwise, null.
+     */
+    public Inventory getById(Long id) {
+        lock.lockShared();
+        try {
+            int row = rowOf(id);
+            return (row >= 0) ? read(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Saves a new Inventory item under the next ID.
+     *
+     * @param inventory The inventory item to be saved; its ID and its product ID are set to the new ID.
+     * @return The saved inventory item.
+     */
+    public Inventory save(Inventory inventory) {
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            insert(inventory);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("save", 1, System.nanoTime() - start);
+        return inventory;
+    }
+
+    /*
+     * Updates an existing Inventory item.
+     *
+     * @param inventory The inventory item with updated data.
+     * @return The updated inventory item.
+     */
+    public Inventory update(Inventory inventory) {
+        if (inventory == null) {
+            throw new IllegalArgumentException("Inventory ID not found for update");
+        }
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            replace(inventory);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("update", 1, System.nanoTime() - start);
+        return inventory;
+    }
+
+    /*
+     * Adds a delta to the quantity of an existing item and derives its stock status from the result.
+     * The row version is the change stamp kept in the record, so the version check and the write
+     * happen under one exclusive lock hold and survive a restart.
+     *
+     * @param id The ID of the item.
+     * @param delta The number of units to add, or to remove when negative.
+     * @param expectedVersion The row version the caller last read, or null to apply the delta unconditionally.
+     * @return The adjusted item, with its new version.
+     * @throws StockConflictException if the item changed since expectedVersion or has fewer units than removed.
+     */
+    public Inventory adjustStock(Long id, int delta, Long expectedVersion) {
+        long start = System.nanoTime();
+        Inventory adjusted;
+        lock.lockExclusive();
+        try {
+            int row = rowOf(id);
+            adjusted = replace(StockAdjustment.apply((row >= 0) ? read(row) : null, delta, expectedVersion));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("adjust", 1, System.nanoTime() - start);
+        return adjusted;
+    }
+
+    /*
+     * Replaces the quantity of an existing item and derives its stock status from it, under one
+     * exclusive lock hold and without a version check.
+     *
+     * @param id The ID of the item.
+     * @param quantity The new number of units.
+     * @return The adjusted item, with its new version.
+     */
+    public Inventory setStock(Long id, int quantity) {
+        long start = System.nanoTime();
+        Inventory adjusted;
+        lock.lockExclusive();
+        try {
+            int row = rowOf(id);
+            adjusted = replace(StockAdjustment.set((row >= 0) ? read(row) : null, quantity));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("adjust", 1, System.nanoTime() - start);
+        return adjusted;
+    }
+
+    /*
+     * Deletes the Inventory item with the specified ID.
+     *
+     * @param id The unique ID of the inventory item to delete.
+     */
+    public void deleteById(Long id) {
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("delete", 1, System.nanoTime() - start);
+    }
+
+    /*
+     * Applies a list of create, update and delete operations in order, under a single lock acquisition.
+     * A failing operation is reported in its result, whatever the exception, and does not stop the others.
+     *
+     * @param operations The operations to apply.
+     * @return One result per operation, in the same order.
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        long start = System.nanoTime();
+        List<BatchResult> results = new ArrayList<>(operations.size());
+        lock.lockExclusive();
+        try {
+            for (BatchOperation operation : operations) {
+                try {
+                    switch (operation.getType()) {
+                        case CREATE -> {
+                            Inventory created = insert(operation.getInventory());
+                            results.add(BatchResult.success(operation.getType(), created.getId(), new Inventory(created)));
+                        }
+                        case UPDATE -> {
+                            Inventory updated = replace(operation.getInventory());
+                            results.add(BatchResult.success(operation.getType(), updated.getId(), new Inventory(updated)));
+                        }
+                        case DELETE -> {
+                            if (!remove(operation.getId())) {
+                                throw new IllegalArgumentException("Inventory ID not found for delete");
+                            }
+                            results.add(BatchResult.success(operation.getType(), operation.getId(), null));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    results.add(BatchResult.failure(operation.getType(), operation.getId(), e));
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("batch", operations.size(), System.nanoTime() - start);
+        return results;
+    }
+
+    /*
+     * Retrieves a paginated, filtered, and sorted list of Inventory items.
+     * The candidates are the intersection of the category and stock status bitmaps; a search then
+     * reads the names of the candidates. Unsorted pages are read in ID order; sorted pages extract
+     * the sort keys of the candidates and select the page with a heap bounded by its end.
+     * Only the items of the page are materialized.
+     * Paging, the last-page clamp and keyset cursors behave as in InMemoryInventoryRepository.
+     *
+     * @param paginationRequestDTO Contains pagination, filtering, and sorting parameters.
+     * @return The Inventory items for the requested page and the total number of matching items.
+     */
+    public QueryResult<Inventory> findAll(PaginationRequestDTO paginationRequestDTO) {
+        long start = System.nanoTime();
+        SortSpec sortSpec = SortSpec.of(paginationRequestDTO);
+        PageCursor cursor = (paginationRequestDTO.getCursor() != null)
+                ? PageCursor.decode(paginationRequestDTO.getCursor(), sortSpec)
+                : null;
+        int size = Math.max(0, paginationRequestDTO.getSize());
+        // One extra item tells whether a next page exists.
+        int limit = (int) Math.min(Integer.MAX_VALUE, size + 1L);
+
+        List<Inventory> items = new ArrayList<>();
+        int totalItems;
+        long[] rowsScanned = new long[1];
+        lock.lockShared();
+        try {
+            BitSet candidates = getCandidates(paginationRequestDTO, rowsScanned);
+            totalItems = candidates.cardinality();
+
+            int offset = 0;
+            if (cursor == null) {
+                long fromIndex = Math.max(0, (long) (paginationRequestDTO.getPage() - 1) * size);
+                // In case is the last page available
+                if (fromIndex >= totalItems) {
+                    fromIndex = Math.max(0, totalItems - size);
+                }
+                offset = (int) fromIndex;
+            }
+
+            if (!sortSpec.isSorted()) {
+                int skipped = 0;
+                int from = (cursor != null) ? (int) cursor.getId() + 1 : 0;
+                for (int row = candidates.nextSetBit(from); row >= 0 && items.size() < limit; row = candidates.nextSetBit(row + 1)) {
+                    if (skipped++ >= offset) {
+                        items.add(read(row));
+                    }
+                }
+            } else {
+                SortKeys keys = new SortKeys(sortSpec, candidates.stream().toArray());
+                int count = (cursor != null) ? keys.retainAfter(keys.positions, keys.rows.length, cursor) : keys.rows.length;
+                int[] page = RowSort.select(keys.positions, count, keys, (int) Math.min(count, (long) offset + limit));
+                for (int i = Math.min(offset, page.length); i < page.length; i++) {
+                    items.add(read(keys.rows[page[i]]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        String nextCursor = null;
+        if (size > 0 && items.size() > size) {
+            items = items.subList(0, size);
+            nextCursor = PageCursor.after(sortSpec, items.get(size - 1)).encode();
+        }
+        metrics.recordQuery(paginationRequestDTO, sortSpec, QueryPlan.COLUMN_SCAN, System.nanoTime() - start,
+                totalItems, rowsScanned[0], items.size());
+        return new QueryResult<>(items, totalItems, nextCursor);
+    }
+
+    /*
+     * Retrieves all Inventory items without applying pagination, materialized in ID order.
+     *
+     * @return A list of all Inventory items.
+     */
+    public List<Inventory> findAllWithoutPagination() {
+        lock.lockShared();
+        try {
+            List<Inventory> items = new ArrayList<>(size);
+            for (int row = liveIds.nextSetBit(0); row >= 0; row = liveIds.nextSetBit(row + 1)) {
+                items.add(read(row));
+            }
+            return items;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Retrieves every Inventory item as of a single point in time, in ID order.
+     * The records are updated in place, so the items are materialized while writes are blocked.
+     *
+     * @return An unmodifiable list of all Inventory items.
+     */
+    public List<Inventory> findAllSnapshot() {
+        return Collections.unmodifiableList(findAllWithoutPagination());
+    }
+
+    /*
+     * Streams every Inventory item as of a single point in time, in ID order. The records are updated
+     * in place, so the items are materialized up front, like findAllSnapshot, rather than holding the
+     * lock for the whole stream.
+     *
+     * @return A sequential stream of all Inventory items.
+     */
+    public Stream<Inventory> streamSnapshot() {
+        return findAllSnapshot().stream();
+    }
+
+    /*
+     * Retrieves a sorted list of the product categories used by at least one stored item.
+     *
+     * @return A sorted list of category names.
+     */
+    public List<String> findAllCategories() {
+        return categoryDictionary.referencedNames();
+    }
+
+    /*
+     * Retrieves the stock metrics of every category listed by findAllCategories, in the same order.
+     * For every category, the in-stock IDs are the intersection of two bitmaps; only their quantity
+     * and price are read, and folded in long arithmetic at the fixed price scale (BigDecimal on overflow).
+     *
+     * @return A list with one CategoryMetric per category.
+     */
+    public List<CategoryMetric> findCategoryMetrics() {
+        List<CategoryMetric> categoryMetrics = new ArrayList<>();
+        lock.lockShared();
+        try {
+            BitSet inStock = stockStatusIndex.select(StockStatus.IN_STOCK);
+            for (String category : categoryDictionary.referencedNames()) {
+                BitSet rows = categoryIndex.select(categoryDictionary.lookup(category));
+                rows.and(inStock);
+                long units = 0;
+                long value = 0;
+                BigDecimal overflow = null;
+                int scale = 0;
+                for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+                    int quantity = store.quantity(row);
+                    long price = store.price(row);
+                    units += quantity;
+                    if (price == FieldEncoding.NULL_LONG) {
+                        continue;
+                    }
+                    scale = Math.max(scale, store.priceScale(row));
+                    try {
+                        value = Math.addExact(value, Math.multiplyExact(price, (long) quantity));
+                    } catch (ArithmeticException e) {
+                        BigDecimal rowValue = BigDecimal.valueOf(price, FieldEncoding.PRICE_SCALE).multiply(BigDecimal.valueOf(quantity));
+                        overflow = (overflow != null) ? overflow.add(rowValue) : rowValue;
+                    }
+                }
+                BigDecimal valueInStock = BigDecimal.ZERO;
+                if (value != 0 || overflow != null) {
+                    valueInStock = BigDecimal.valueOf(value, FieldEncoding.PRICE_SCALE);
+                    if (overflow != null) {
+                        valueInStock = valueInStock.add(overflow);
+                    }
+                    valueInStock = valueInStock.setScale(scale, RoundingMode.UNNECESSARY);
+                }
+                BigDecimal averagePriceInStock = (units > 0)
+                        ? valueInStock.divide(BigDecimal.valueOf(units), RoundingMode.HALF_UP)
+                        : BigDecimal.ZERO;
+                categoryMetrics.add(new CategoryMetric(category, units, valueInStock, averagePriceInStock));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return categoryMetrics;
+    }
+
+    /*
+     * Lists the changes after the given version, in the order they were applied.
+     * Semantics are those of InMemoryInventoryRepository.findChangesSince. The changes are read from the
+     * change log under the shared lock (see ChangeLog), so the cost grows with the number of changes
+     * returned, not with the size of the record file.
+     *
+     * @param since The version returned by the previous sync, or 0 for everything.
+     * @param limit The maximum number of changes to return.
+     * @return The changes, or a reset when the changes since that version are no longer known.
+     */
+    public ChangeSet<Inventory> findChangesSince(long since, int limit) {
+        return changes.changesSince(since, limit, id -> {
+            int row = rowOf(id);
+            return (row >= 0) ? read(row) : null;
+        });
+    }
+
+    /*
+     * Returns the data version, bumped after every save, update, delete and clear.
+     */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /*
+     * Clears the inventory repository.
+     * This removes all Inventory items and resets the counter.
+     */
+    public void clear() {
+        long start = System.nanoTime();
+        lock.lockExclusive();
+        try {
+            store.clear(1); // Restart counter
+            liveIds.clear();
+            categoryDictionary.clear();
+            categoryCodes.clear();
+            categoryIndex.clear();
+            stockStatusIndex.clear();
+            size = 0;
+            // Nothing before the clear can be listed anymore.
+            changes.clear();
+            version.incrementAndGet();
+            changeListener.onClear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        metrics.recordWrite("clear", 0, System.nanoTime() - start);
+    }
+
+    /*
+     * Writes the modified pages to the storage device.
+     */
+    public void flush() {
+        lock.lockShared();
+        try {
+            store.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Flushes and unmaps the files. The repository must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        lock.lockExclusive();
+        try {
+            store.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Rebuilds the heap indexes with one pass over the records. Called once, before the repository is shared.
+     * Versions handed out before the restart are below the new floor, since the tombstones were not kept.
+     * The live items are logged again above the floor, in the order of their last change, so that a
+     * sync from 0 can page through them; their records keep their stamps as row versions.
+     */
+    private void loadIndexes() {
+        long nextId = store.getNextId();
+        // Stamp in the record -> ID.
+        TreeMap<Long, Long> lastChanges = new TreeMap<>();
+        for (int row = 0; row < nextId; row++) {
+            if (store.isLive(row)) {
+                int category = categoryCode(store.categoryOffset(row));
+                index(row, category, store.stockStatus(row));
+                lastChanges.put(store.stamp(row), (long) row);
+            }
+        }
+        changes.restartAfter(lastChanges.isEmpty() ? 0 : lastChanges.lastKey());
+        for (long id : lastChanges.values()) {
+            changes.record(id);
+        }
+        if (size > 0) {
+            log.info("Opened {} mapped inventory items", size);
+        }
+    }
+
+    /*
+     * Stores a new item under the next ID. The caller holds the lock exclusively.
+     */
+    private Inventory insert(Inventory inventory) {
+        requireProduct(inventory);
+        FieldEncoding.validate(inventory);
+        int row = Math.toIntExact(store.getNextId());
+        long categoryOffset = internCategory(inventory.getProduct().getCategory());
+        inventory.setId(row);
+        inventory.getProduct().setId((long) row);
+        long stamp = changes.record(row);
+        store.write(row, inventory, categoryOffset, stamp);
+        inventory.setVersion(stamp);
+        index(row, categoryCodes.getOrDefault(categoryOffset, CategoryDictionary.NONE), inventory.getStockStatus());
+        version.incrementAndGet();
+        changeListener.onChange(null, new Inventory(inventory));
+        return inventory;
+    }
+
+    /*
+     * Replaces an existing item. The caller holds the lock exclusively.
+     */
+    private Inventory replace(Inventory inventory) {
+        requireProduct(inventory);
+        int row = rowOf(inventory.getId());
+        if (row < 0) {
+            throw new IllegalArgumentException("Inventory ID not found for update");
+        }
+        FieldEncoding.validate(inventory);
+        Inventory previous = read(row);
+        unindex(row);
+        long categoryOffset = internCategory(inventory.getProduct().getCategory());
+        long stamp = changes.record(row);
+        store.write(row, inventory, categoryOffset, stamp);
+        inventory.setVersion(stamp);
+        index(row, categoryCodes.getOrDefault(categoryOffset, CategoryDictionary.NONE), inventory.getStockStatus());
+        version.incrementAndGet();
+        changeListener.onChange(previous, new Inventory(inventory));
+        return inventory;
+    }
+
+    /*
+     * Removes an item if it exists. The caller holds the lock exclusively.
+     *
+     * @return true if the item existed.
+     */
+    private boolean remove(Long id) {
+        int row = rowOf(id);
+        if (row < 0) {
+            return false;
+        }
+        Inventory previous = read(row);
+        unindex(row);
+        store.delete(row);
+        changes.recordDeletion(row);
+        version.incrementAndGet();
+        changeListener.onChange(previous, null);
+        return true;
+    }
+
+    private static void requireProduct(Inventory inventory) {
+        if (inventory == null || inventory.getProduct() == null) {
+            throw new IllegalArgumentException("Inventory product is required");
+        }
+    }
+
+    /*
+     * Returns the row of the item with the given ID, or -1 if there is none. The caller holds the lock.
+     */
+    private int rowOf(Long id) {
+        if (id == null || id < 0 || id >= Integer.MAX_VALUE) {
+            return -1;
+        }
+        int row = id.intValue();
+        return liveIds.get(row) ? row : -1;
+    }
+
+    private Inventory read(int row) {
+        return store.read(row, categoryDictionary.decode(categoryCode(store.categoryOffset(row))));
+    }
+
+    /*
+     * Returns the heap offset of the given category name, appending it the first time it is seen.
+     */
+    private long internCategory(String category) {
+        if (category == null) {
+            return MappedRecordStore.NO_STRING;
+        }
+        int code = categoryDictionary.lookup(category);
+        if (code != CategoryDictionary.NONE) {
+            return categoryOffsets[code];
+        }
+        long offset = store.appendString(category);
+        register(categoryDictionary.encode(category), offset);
+        return offset;
+    }
+
+    /*
+     * Returns the code of the category stored at the given heap offset, reading its name the first time.
+     */
+    private int categoryCode(long offset) {
+        if (offset == MappedRecordStore.NO_STRING) {
+            return CategoryDictionary.NONE;
+        }
+        Integer code = categoryCodes.get(offset);
+        if (code == null) {
+            code = categoryDictionary.encode(store.readString(offset));
+            register(code, offset);
+        }
+        return code;
+    }
+
+    private void register(int code, long offset) {
+        if (code >= categoryOffsets.length) {
+            categoryOffsets = Arrays.copyOf(categoryOffsets, Math.max(code + 1, categoryOffsets.length * 2));
+        }
+        categoryOffsets[code] = offset;
+        categoryCodes.put(offset, code);
+    }
+
+    private void index(int row, int category, StockStatus stockStatus) {
+        liveIds.set(row);
+        if (category != CategoryDictionary.NONE) {
+            categoryIndex.add(category, row);
+            categoryDictionary.retain(category);
+        }
+        stockStatusIndex.add(stockStatus, row);
+        size++;
+    }
+
+    private void unindex(int row) {
+        int category = categoryCode(store.categoryOffset(row));
+        liveIds.clear(row);
+        if (category != CategoryDictionary.NONE) {
+            categoryIndex.remove(category, row);
+            categoryDictionary.release(category);
+        }
+        stockStatusIndex.remove(store.stockStatus(row), row);
+        size--;
+    }
+
+    /*
+     * Selects the IDs matching the filters of the given request.
+     *
+     * @return a private BitSet of the matching IDs.
+     */
+    private BitSet getCandidates(PaginationRequestDTO paginationRequestDTO, long[] rowsScanned) {
+        BitSet candidates = (BitSet) liveIds.clone();
+        List<String> categories = paginationRequestDTO.getCategories();
+        if (categories != null && !categories.isEmpty()) {
+            List<Integer> codes = new ArrayList<>(categories.size());
+            for (String category : categories) {
+                int code = categoryDictionary.lookup(category);
+                if (code != CategoryDictionary.NONE) {
+                    codes.add(code);
+                }
+            }
+            candidates.and(categoryIndex.selectAny(codes));
+        }
+        if (paginationRequestDTO.getStockStatus() != null) {
+            candidates.and(stockStatusIndex.select(paginationRequestDTO.getStockStatus()));
+        }
+        String search = paginationRequestDTO.getSearch();
+        if (search != null && !search.isEmpty()) {
+            boolean prefix = paginationRequestDTO.getSearchMode() == SearchMode.PREFIX;
+            String query = prefix ? search.toLowerCase(Locale.ROOT).trim() : search.toLowerCase(Locale.ROOT);
+            for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                rowsScanned[0]++;
+                String name = store.readString(store.nameOffset(row));
+                if (name == null) {
+                    candidates.clear(row);
+                    continue;
+                }
+                // Matched as TextIndex does: anywhere in the name, or only at the start of a word.
+                name = name.toLowerCase(Locale.ROOT);
+                if (!(prefix ? TextIndex.startsAtWordBoundary(name, query) : name.contains(query))) {
+                    candidates.clear(row);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /*
+     * The sort keys of the candidates of one query, extracted once so that the heap compares
+     * positions in primitive arrays instead of reading records. The ordered ints are positions in rows.
+     */
+    private final class SortKeys extends RowOrder {
+        private final int[] rows;
+        private final int[] positions;
+        private final Map<InventorySortField, long[]> numericKeys = new EnumMap<>(InventorySortField.class);
+        private final Map<InventorySortField, String[]> textKeys = new EnumMap<>(InventorySortField.class);
+
+        SortKeys(SortSpec sortSpec, int[] rows) {
+            super(sortSpec);
+            this.rows = rows;
+            this.positions = new int[rows.length];
+            for (int i = 0; i < rows.length; i++) {
+                positions[i] = i;
+            }
+            for (InventorySortField field : sortSpec.getFields()) {
+                if (isText(field)) {
+                    String[] keys = new String[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        keys[i] = (field == InventorySortField.NAME)
+                                ? store.readString(store.nameOffset(rows[i]))
+                                : categoryDictionary.decode(categoryCode(store.categoryOffset(rows[i])));
+                    }
+                    textKeys.put(field, keys);
+                } else {
+                    long[] keys = new long[rows.length];
+                    for (int i = 0; i < rows.length; i++) {
+                        keys[i] = switch (field) {
+                            case PRICE -> store.price(rows[i]);
+                            case EXPIRY_DATE -> store.expiryDay(rows[i]);
+                            case DATE_CREATED -> store.createdDay(rows[i]);
+                            case STOCK -> store.quantity(rows[i]);
+                            default -> throw new IllegalStateException("Not a numeric sort field: " + field);
+                        };
+                    }
+                    numericKeys.put(field, keys);
+                }
+            }
+        }
+
+        @Override
+        protected String text(InventorySortField field, int position) {
+            return textKeys.get(field)[position];
+        }
+
+        @Override
+        protected long numeric(InventorySortField field, int position) {
+            return numericKeys.get(field)[position];
+        }
+
+        @Override
+        protected long id(int position) {
+            return rows[position];
+        }
+    }
+}
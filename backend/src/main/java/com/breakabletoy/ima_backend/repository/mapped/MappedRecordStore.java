@@ -0,0 +1,274 @@
+package com.breakabletoy.ima_backend.repository.mapped;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.columnar.FieldEncoding;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+
+/*
+ * MappedRecordStore keeps inventory items as fixed-width records in a memory-mapped file, and their
+ * names and categories in a second mapped file used as an append-only string heap.
+ *
+ * Record file (inventory.records):
+ * - A 64-byte header: magic, format version, the next ID to assign and the used length of the
+ *   string heap.
+ * - One 64-byte record per ID, at HEADER_BYTES + id * RECORD_BYTES:
+ *     0 flags (1 = live)        1 stock status ordinal     2 price scale         4 quantity (int)
+ *     8 product ID (long)      16 price (long, scaled)    24 expiry day (int)   28 created day (int)
+ *    32 updated day (int)      40 name offset (long)      48 category offset (long)
+ *    56 change stamp (long)
+ *   Prices and dates use FieldEncoding; a null string has offset -1. The change stamp is also the
+ *   row version of the item.
+ *
+ * String heap (inventory.strings): every string is its UTF-8 length (int) followed by its bytes,
+ * never straddling a chunk. Strings are only appended; a replaced name stays in the heap until clear.
+ *
+ * Not thread-safe: the mapped repository guards it with its lock.
+ */
+class MappedRecordStore implements AutoCloseable {
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 64;
+    static final long NO_STRING = -1;
+
+    private static final int MAGIC = 0x494D4152;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_NEXT_ID = 8;
+    private static final int HEADER_STRINGS_LENGTH = 16;
+
+    private static final int FLAGS = 0;
+    private static final int STATUS = 1;
+    private static final int PRICE_SCALE = 2;
+    private static final int QUANTITY = 4;
+    private static final int PRODUCT_ID = 8;
+    private static final int PRICE = 16;
+    private static final int EXPIRY_DAY = 24;
+    private static final int CREATED_DAY = 28;
+    private static final int UPDATED_DAY = 32;
+    private static final int NAME = 40;
+    private static final int CATEGORY = 48;
+    private static final int STAMP = 56;
+
+    private static final byte LIVE = 1;
+    private static final StockStatus[] STATUSES = StockStatus.values();
+
+    private final MappedFile records;
+    private final MappedFile strings;
+
+    /*
+     * Opens the store in the given directory, creating it if needed.
+     *
+     * @param directory the directory holding the two files.
+     * @param chunkBytes the mapping chunk size, a power of two and a multiple of RECORD_BYTES.
+     * @throws IllegalStateException if the directory holds files of another format.
+     */
+    MappedRecordStore(Path directory, int chunkBytes) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create directory " + directory, e);
+        }
+        records = new MappedFile(directory.resolve("inventory.records"), chunkBytes);
+        strings = new MappedFile(directory.resolve("inventory.strings"), chunkBytes);
+        records.ensureCapacity(HEADER_BYTES);
+        if (records.getInt(HEADER_MAGIC) == 0) {
+            records.putInt(HEADER_VERSION, FORMAT_VERSION);
+            records.putInt(HEADER_MAGIC, MAGIC);
+        } else if (records.getInt(HEADER_MAGIC) != MAGIC || records.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+            throw new IllegalStateException("Not an inventory record file: " + directory.resolve("inventory.records"));
+        }
+    }
+
+    /*
+     * Returns the next ID to assign; every record below it has been written at least once.
+     */
+    long getNextId() {
+        return records.getLong(HEADER_NEXT_ID);
+    }
+
+    void setNextId(long nextId) {
+        records.putLong(HEADER_NEXT_ID, nextId);
+    }
+
+    boolean isLive(int row) {
+        return row < getNextId() && records.getByte(position(row) + FLAGS) == LIVE;
+    }
+
+    /*
+     * Writes the given item to its row, appending its name to the string heap unless the row
+     * already holds the same name. The item must have passed FieldEncoding.validate.
+     *
+     * @param row the row, i.e. the ID of the item.
+     * @param inventory the item.
+     * @param categoryOffset the heap offset of the category name, or NO_STRING.
+     * @param stamp the change stamp of the write.
+     */
+    void write(int row, Inventory inventory, long categoryOffset, long stamp) {
+        Product product = inventory.getProduct();
+        long nameOffset = NO_STRING;
+        if (product.getName() != null) {
+            boolean sameName = isLive(row) && product.getName().equals(readString(nameOffset(row)));
+            nameOffset = sameName ? nameOffset(row) : appendString(product.getName());
+        }
+        long position = position(row);
+        records.ensureCapacity(position + RECORD_BYTES);
+        records.putByte(position + STATUS, (inventory.getStockStatus() != null)
+                ? (byte) inventory.getStockStatus().ordinal() : FieldEncoding.NULL_STATUS);
+        records.putByte(position + PRICE_SCALE, (product.getPrice() != null) ? (byte) product.getPrice().scale() : 0);
+        records.putInt(position + QUANTITY, inventory.getQuantity());
+        records.putLong(position + PRODUCT_ID, (product.getId() != null) ? product.getId() : FieldEncoding.NULL_LONG);
+        records.putLong(position + PRICE, FieldEncoding.encodePrice(product.getPrice()));
+        records.putInt(position + EXPIRY_DAY, FieldEncoding.encodeDay(product.getExpiryDate()));
+        records.putInt(position + CREATED_DAY, FieldEncoding.encodeDay(product.getDateCreate()));
+        records.putInt(position + UPDATED_DAY, FieldEncoding.encodeDay(product.getDateUpdate()));
+        records.putLong(position + NAME, nameOffset);
+        records.putLong(position + CATEGORY, categoryOffset);
+        records.putLong(position + STAMP, stamp);
+        records.putByte(position + FLAGS, LIVE);
+        if (row >= getNextId()) {
+            setNextId(row + 1L);
+        }
+    }
+
+    /*
+     * Marks the record of the given row as deleted.
+     */
+    void delete(int row) {
+        records.putByte(position(row) + FLAGS, (byte) 0);
+    }
+
+    /*
+     * Materializes the record of the given row.
+     *
+     * @param row a live row.
+     * @param category the category name of the row, resolved by the caller.
+     */
+    Inventory read(int row, String category) {
+        long position = position(row);
+        long productId = records.getLong(position + PRODUCT_ID);
+        Product product = new Product(
+                (productId != FieldEncoding.NULL_LONG) ? productId : null,
+                readString(nameOffset(row)),
+                category,
+                FieldEncoding.decodePrice(price(row), records.getByte(position + PRICE_SCALE)),
+                FieldEncoding.decodeDay(expiryDay(row)),
+                FieldEncoding.decodeDay(createdDay(row)),
+                FieldEncoding.decodeDay(records.getInt(position + UPDATED_DAY)));
+        byte status = records.getByte(position + STATUS);
+        Inventory inventory = new Inventory(row, product, quantity(row), (status != FieldEncoding.NULL_STATUS) ? STATUSES[status] : null);
+        inventory.setVersion(stamp(row));
+        return inventory;
+    }
+
+    StockStatus stockStatus(int row) {
+        byte status = records.getByte(position(row) + STATUS);
+        return (status != FieldEncoding.NULL_STATUS) ? STATUSES[status] : null;
+    }
+
+    int quantity(int row) {
+        return records.getInt(position(row) + QUANTITY);
+    }
+
+    long price(int row) {
+        return records.getLong(position(row) + PRICE);
+    }
+
+    int priceScale(int row) {
+        return records.getByte(position(row) + PRICE_SCALE);
+    }
+
+    int expiryDay(int row) {
+        return records.getInt(position(row) + EXPIRY_DAY);
+    }
+
+    int createdDay(int row) {
+        return records.getInt(position(row) + CREATED_DAY);
+    }
+
+    long nameOffset(int row) {
+        return records.getLong(position(row) + NAME);
+    }
+
+    long categoryOffset(int row) {
+        return records.getLong(position(row) + CATEGORY);
+    }
+
+    long stamp(int row) {
+        return records.getLong(position(row) + STAMP);
+    }
+
+    /*
+     * Reads the string at the given heap offset.
+     *
+     * @return the string, or null for NO_STRING.
+     */
+    String readString(long offset) {
+        if (offset == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[strings.getInt(offset)];
+        strings.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Appends a string to the heap.
+     *
+     * @return its offset.
+     * @throws IllegalArgumentException if the string does not fit in one chunk.
+     */
+    long appendString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = Integer.BYTES + bytes.length;
+        if (length > strings.chunkBytes()) {
+            throw new IllegalArgumentException("Text is too long to store");
+        }
+        long offset = records.getLong(HEADER_STRINGS_LENGTH);
+        if (strings.chunkRemaining(offset) < length) {
+            offset += strings.chunkRemaining(offset);
+        }
+        strings.ensureCapacity(offset + length);
+        strings.putInt(offset, bytes.length);
+        strings.put(offset + Integer.BYTES, bytes);
+        records.putLong(HEADER_STRINGS_LENGTH, offset + length);
+        return offset;
+    }
+
+    /*
+     * Deletes every record and empties the string heap; IDs restart at the given value.
+     */
+    void clear(long nextId) {
+        long end = getNextId();
+        for (int row = 0; row < end; row++) {
+            delete(row);
+        }
+        records.putLong(HEADER_STRINGS_LENGTH, 0);
+        setNextId(nextId);
+    }
+
+    /*
+     * Writes the modified pages of both files to the storage device.
+     */
+    void force() {
+        strings.force();
+        records.force();
+    }
+
+    @Override
+    public void close() {
+        strings.close();
+        records.close();
+    }
+
+    private static long position(int row) {
+        return HEADER_BYTES + (long) row * RECORD_BYTES;
+    }
+}
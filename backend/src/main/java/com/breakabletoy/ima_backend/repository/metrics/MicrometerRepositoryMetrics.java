@@ -0,0 +1,123 @@
+package com.breakabletoy.ima_backend.repository.metrics;
+
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.enums.SearchMode;
+import com.breakabletoy.ima_backend.repository.index.InventorySortField;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+
+/*
+ * MicrometerRepositoryMetrics publishes the repository measurements to a Micrometer registry.
+ *
+ * Meters:
+ * - inventory.catalog.size, inventory.catalog.categories: gauges of the stored items and categories.
+ * - inventory.repository.query: latency histogram of findAll, tagged with the plan, the search mode,
+ *   whether categories or a stock status were filtered, and the first sort field.
+ * - inventory.repository.query.candidates / .rows.scanned / .rows.returned: distributions per plan,
+ *   comparing how many items the filters kept, how many were looked at and how many were returned.
+ * - inventory.repository.query.sort.keys: counter of the sort fields used, tagged with field,
+ *   direction and position (primary or secondary).
+ * - inventory.repository.write: latency histogram of the writes, tagged with the operation; its count
+ *   is the write rate. inventory.repository.write.items counts the items written.
+ * - inventory.repository.lock.wait: time spent waiting for the structure lock, tagged with the mode.
+ */
+public class MicrometerRepositoryMetrics implements RepositoryMetrics {
+    private final MeterRegistry registry;
+    private final Meter.MeterProvider<Timer> queryTimers;
+    private final Meter.MeterProvider<DistributionSummary> candidates;
+    private final Meter.MeterProvider<DistributionSummary> rowsScanned;
+    private final Meter.MeterProvider<DistributionSummary> rowsReturned;
+    private final Meter.MeterProvider<Counter> sortKeys;
+    private final Meter.MeterProvider<Timer> writeTimers;
+    private final Meter.MeterProvider<Counter> writeItems;
+    private final Timer sharedLockWait;
+    private final Timer exclusiveLockWait;
+
+    public MicrometerRepositoryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        queryTimers = Timer.builder("inventory.repository.query")
+                .description("Latency of paginated inventory queries")
+                .publishPercentileHistogram()
+                .withRegistry(registry);
+        candidates = DistributionSummary.builder("inventory.repository.query.candidates")
+                .description("Items left after the index filters")
+                .withRegistry(registry);
+        rowsScanned = DistributionSummary.builder("inventory.repository.query.rows.scanned")
+                .description("Items looked at to build a page")
+                .withRegistry(registry);
+        rowsReturned = DistributionSummary.builder("inventory.repository.query.rows.returned")
+                .description("Items returned in a page")
+                .withRegistry(registry);
+        sortKeys = Counter.builder("inventory.repository.query.sort.keys")
+                .description("Sort fields used by queries")
+                .withRegistry(registry);
+        writeTimers = Timer.builder("inventory.repository.write")
+                .description("Latency of inventory writes, including the journal")
+                .publishPercentileHistogram()
+                .withRegistry(registry);
+        writeItems = Counter.builder("inventory.repository.write.items")
+                .description("Items written")
+                .withRegistry(registry);
+        sharedLockWait = Timer.builder("inventory.repository.lock.wait")
+                .description("Time spent waiting for the repository structure lock")
+                .tag("mode", "shared")
+                .register(registry);
+        exclusiveLockWait = Timer.builder("inventory.repository.lock.wait")
+                .description("Time spent waiting for the repository structure lock")
+                .tag("mode", "exclusive")
+                .register(registry);
+    }
+
+    @Override
+    public void bindSizes(Supplier<Number> catalogSize, Supplier<Number> categoryCount) {
+        Gauge.builder("inventory.catalog.size", catalogSize).description("Stored inventory items").register(registry);
+        Gauge.builder("inventory.catalog.categories", categoryCount).description("Known categories").register(registry);
+    }
+
+    @Override
+    public void recordQuery(PaginationRequestDTO request, SortSpec sortSpec, QueryPlan plan, long nanos,
+                            long candidateCount, long scanned, int returned) {
+        String planTag = plan.name().toLowerCase(Locale.ROOT);
+        String search = (request.getSearch() == null) ? "none"
+                : (request.getSearchMode() == SearchMode.PREFIX) ? "prefix" : "contains";
+        String sort = sortSpec.isSorted() ? sortSpec.getPrimaryField().getParam() : "none";
+        queryTimers.withTags("plan", planTag, "search", search,
+                        "categories", Boolean.toString(request.getCategories() != null && !request.getCategories().isEmpty()),
+                        "stockStatus", Boolean.toString(request.getStockStatus() != null),
+                        "sort", sort)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        candidates.withTags("plan", planTag).record(candidateCount);
+        rowsScanned.withTags("plan", planTag).record(scanned);
+        rowsReturned.withTags("plan", planTag).record(returned);
+
+        List<InventorySortField> fields = sortSpec.getFields();
+        for (int i = 0; i < fields.size(); i++) {
+            sortKeys.withTags("field", fields.get(i).getParam(),
+                            "order", sortSpec.getDescending().get(i) ? "desc" : "asc",
+                            "position", (i == 0) ? "primary" : "secondary")
+                    .increment();
+        }
+    }
+
+    @Override
+    public void recordWrite(String operation, int items, long nanos) {
+        writeTimers.withTags("operation", operation).record(nanos, TimeUnit.NANOSECONDS);
+        writeItems.withTags("operation", operation).increment(items);
+    }
+
+    @Override
+    public void recordLockWait(boolean exclusive, long nanos) {
+        (exclusive ? exclusiveLockWait : sharedLockWait).record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,16 @@
+package com.breakabletoy.ima_backend.repository.metrics;
+
+/*
+ * QueryPlan enum names the strategies findAll uses to read a page.
+ *
+ * ID_ORDER: Unsorted; the candidates are walked in ID order.
+ * SORTED_INDEX: The sorted index of the first sort field is walked.
+ * TOP_K: A bounded heap is built over a small candidate set.
+ * COLUMN_SCAN: The columns of every stored row are scanned (columnar layout).
+ */
+public enum QueryPlan {
+    ID_ORDER,
+    SORTED_INDEX,
+    TOP_K,
+    COLUMN_SCAN,
+}
@@ -0,0 +1,69 @@
+package com.breakabletoy.ima_backend.repository.metrics;
+
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+
+import java.util.function.Supplier;
+
+
+/*
+ * RepositoryMetrics receives the measurements of the repository hot paths.
+ * The repository only reports numbers; how they are published is up to the implementation.
+ * NOOP discards everything and is used when no metrics registry is available (e.g. in unit tests).
+ */
+public interface RepositoryMetrics {
+    RepositoryMetrics NOOP = new RepositoryMetrics() {
+        @Override
+        public void bindSizes(Supplier<Number> catalogSize, Supplier<Number> categoryCount) {
+        }
+
+        @Override
+        public void recordQuery(PaginationRequestDTO request, SortSpec sortSpec, QueryPlan plan, long nanos,
+                                long candidates, long rowsScanned, int rowsReturned) {
+        }
+
+        @Override
+        public void recordWrite(String operation, int items, long nanos) {
+        }
+
+        @Override
+        public void recordLockWait(boolean exclusive, long nanos) {
+        }
+    };
+
+    /*
+     * Publishes the number of stored items and of known categories, read on demand.
+     */
+    void bindSizes(Supplier<Number> catalogSize, Supplier<Number> categoryCount);
+
+    /*
+     * Records one findAll call.
+     *
+     * @param request the query.
+     * @param sortSpec the parsed sort fields of the query.
+     * @param plan how the page was read.
+     * @param nanos the time spent.
+     * @param candidates the number of items that passed the index filters.
+     * @param rowsScanned the number of items looked at to build the page.
+     * @param rowsReturned the number of items on the page.
+     */
+    void recordQuery(PaginationRequestDTO request, SortSpec sortSpec, QueryPlan plan, long nanos,
+                     long candidates, long rowsScanned, int rowsReturned);
+
+    /*
+     * Records one write call.
+     *
+     * @param operation save, update, adjust, delete, batch or clear.
+     * @param items the number of items written (the batch size for batches).
+     * @param nanos the time spent, including the wait for the journal.
+     */
+    void recordWrite(String operation, int items, long nanos);
+
+    /*
+     * Records a wait for the structure lock. Only contended acquisitions are reported.
+     *
+     * @param exclusive whether the lock was taken exclusively.
+     * @param nanos the time spent waiting.
+     */
+    void recordLockWait(boolean exclusive, long nanos);
+}
@@ -0,0 +1,282 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+
+/*
+ * FileSnapshotStore keeps snapshots as binary files named after their checkpoint
+ * (snapshot-00000000000000000001.bin, ...).
+ *
+ * Layout (big-endian):
+ * - int magic, int version, long checkpoint, long nextId
+ * - int category count, then every category as an int length and UTF-8 bytes
+ * - int item count, then every item as an int length and its InventoryCodec bytes
+ * - long CRC32 of everything before it
+ *
+ * A snapshot is written to a temporary file, forced and then renamed, so a crash while writing leaves
+ * the previous snapshot in place. Loading maps the file into memory and decodes the items straight
+ * from the mapping, without copying the file into the heap first; files larger than one mapping
+ * (mappingBytes, at most 2 GB) are mapped one region after the other.
+ *
+ * Only the newest snapshots are kept. A snapshot that fails its checksum is skipped in favour of the
+ * previous one, which is why the journal is only truncated up to the oldest snapshot kept (see
+ * oldestCheckpoint). When no snapshot can be read at all, loading fails instead of starting empty.
+ */
+public class FileSnapshotStore implements SnapshotStore {
+    private static final Logger log = LoggerFactory.getLogger(FileSnapshotStore.class);
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x494D5331; // "IMS1"
+    private static final int VERSION = 1;
+    // The previous snapshot is kept as a fallback in case the newest one turns out to be corrupt.
+    private static final int RETAINED_SNAPSHOTS = 2;
+    private static final int DEFAULT_MAPPING_BYTES = 1 << 30;
+
+    private final Path directory;
+    private final int mappingBytes;
+
+    /*
+     * @param directory the directory holding the snapshot files.
+     */
+    public FileSnapshotStore(Path directory) {
+        this(directory, DEFAULT_MAPPING_BYTES);
+    }
+
+    /*
+     * @param directory the directory holding the snapshot files.
+     * @param mappingBytes the largest region of a snapshot file mapped at once while loading.
+     */
+    public FileSnapshotStore(Path directory, int mappingBytes) {
+        if (mappingBytes < Long.BYTES) {
+            throw new IllegalArgumentException("Mapping size is too small: " + mappingBytes);
+        }
+        this.directory = directory;
+        this.mappingBytes = mappingBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open snapshot directory " + directory, e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void write(InventorySnapshot snapshot) {
+        Path target = snapshotPath(snapshot.getCheckpoint());
+        Path temp = directory.resolve(target.getFileName() + TEMP_SUFFIX);
+        try {
+            try (FileChannel file = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(file), 1 << 16), crc));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(snapshot.getCheckpoint());
+                out.writeLong(snapshot.getNextId());
+                out.writeInt(snapshot.getCategories().size());
+                for (String category : snapshot.getCategories()) {
+                    byte[] bytes = category.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.writeInt(snapshot.getItems().size());
+                for (Inventory item : snapshot.getItems()) {
+                    byte[] bytes = InventoryCodec.encode(item);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+                out.flush();
+                // The checksum is written outside of the checked stream.
+                DataOutputStream trailer = new DataOutputStream(Channels.newOutputStream(file));
+                trailer.writeLong(crc.getValue());
+                trailer.flush();
+                file.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            forceDirectory();
+            deleteOldSnapshots();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + target, e);
+        }
+    }
+
+    @Override
+    public Optional<InventorySnapshot> loadLatest() {
+        try {
+            List<Path> snapshots = listSnapshots();
+            for (int i = snapshots.size() - 1; i >= 0; i--) {
+                Optional<InventorySnapshot> snapshot = read(snapshots.get(i));
+                if (snapshot.isPresent()) {
+                    return snapshot;
+                }
+                log.warn("Skipping corrupt snapshot {}", snapshots.get(i));
+            }
+            if (!snapshots.isEmpty()) {
+                // The journal before the oldest of them is gone, so starting empty would lose the catalog.
+                throw new IllegalStateException("No readable snapshot in " + directory);
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load snapshot from " + directory, e);
+        }
+    }
+
+    @Override
+    public long oldestCheckpoint() {
+        try {
+            List<Path> snapshots = listSnapshots();
+            return snapshots.isEmpty() ? 0 : checkpointOf(snapshots.get(0));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list snapshots in " + directory, e);
+        }
+    }
+
+    /*
+     * Reads one snapshot file, or returns empty if it is incomplete or corrupt.
+     */
+    private Optional<InventorySnapshot> read(Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = file.size();
+            if (size < 4 * Long.BYTES) {
+                return Optional.empty();
+            }
+            long contentBytes = size - Long.BYTES;
+            CRC32 crc = new CRC32();
+            for (long offset = 0; offset < contentBytes; offset += mappingBytes) {
+                crc.update(file.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(mappingBytes, contentBytes - offset)));
+            }
+            MappedRegions regions = new MappedRegions(file, contentBytes, mappingBytes);
+            if (crc.getValue() != file.map(FileChannel.MapMode.READ_ONLY, contentBytes, Long.BYTES).getLong()
+                    || regions.buffer(Integer.BYTES).getInt() != MAGIC || regions.buffer(Integer.BYTES).getInt() != VERSION) {
+                return Optional.empty();
+            }
+            long checkpoint = regions.buffer(Long.BYTES).getLong();
+            long nextId = regions.buffer(Long.BYTES).getLong();
+            int categoryCount = regions.buffer(Integer.BYTES).getInt();
+            List<String> categories = new ArrayList<>(categoryCount);
+            for (int i = 0; i < categoryCount; i++) {
+                byte[] bytes = new byte[regions.buffer(Integer.BYTES).getInt()];
+                regions.buffer(bytes.length).get(bytes);
+                categories.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            int itemCount = regions.buffer(Integer.BYTES).getInt();
+            List<Inventory> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                int length = regions.buffer(Integer.BYTES).getInt();
+                ByteBuffer buffer = regions.buffer(length);
+                items.add(InventoryCodec.decode(buffer.slice(buffer.position(), length)));
+                buffer.position(buffer.position() + length);
+            }
+            return Optional.of(new InventorySnapshot(checkpoint, nextId, categories, items));
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return Optional.empty();
+        }
+    }
+
+    /*
+     * Walks the content of a snapshot file through mappings of at most mappingBytes each. A value
+     * never spans two mappings: when the current one has fewer bytes left than the next value needs,
+     * the file is mapped again from that value on.
+     */
+    private static final class MappedRegions {
+        private final FileChannel file;
+        private final long end;
+        private final int mappingBytes;
+        private long start;
+        private MappedByteBuffer buffer;
+
+        MappedRegions(FileChannel file, long end, int mappingBytes) {
+            this.file = file;
+            this.end = end;
+            this.mappingBytes = mappingBytes;
+        }
+
+        /*
+         * Returns the current mapping, positioned at the next value, with at least the given number
+         * of bytes remaining.
+         *
+         * @throws BufferUnderflowException if the content ends first or the value exceeds a mapping.
+         */
+        ByteBuffer buffer(int bytes) throws IOException {
+            if (buffer != null && buffer.remaining() >= bytes) {
+                return buffer;
+            }
+            long position = (buffer != null) ? start + buffer.position() : 0;
+            if (bytes < 0 || bytes > mappingBytes || end - position < bytes) {
+                throw new BufferUnderflowException();
+            }
+            start = position;
+            buffer = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(mappingBytes, end - position));
+            return buffer;
+        }
+    }
+
+    private void deleteOldSnapshots() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - RETAINED_SNAPSHOTS; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+    }
+
+    /*
+     * Makes the rename durable. Not every platform allows opening a directory, in which case the
+     * rename is left to the file system.
+     */
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Cannot force snapshot directory {}", directory, e);
+        }
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> snapshots = new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+                            && path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .toList());
+            snapshots.sort((a, b) -> Long.compare(checkpointOf(a), checkpointOf(b)));
+            return snapshots;
+        }
+    }
+
+    private Path snapshotPath(long checkpoint) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, checkpoint, SNAPSHOT_SUFFIX));
+    }
+
+    private static long checkpointOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+}
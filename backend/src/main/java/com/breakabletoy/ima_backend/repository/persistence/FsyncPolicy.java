@@ -0,0 +1,16 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+/*
+ * FsyncPolicy defines when the write-ahead log forces its data to disk.
+ *
+ * ALWAYS: Every write waits until its record is on disk. Concurrent writers share one fsync (group commit).
+ * INTERVAL: Records are written right away and forced to disk every configured number of milliseconds;
+ *           a crash can lose the writes of the last interval.
+ * OS: Records are written right away and the operating system decides when to flush them;
+ *     a crash of the machine (not just the process) can lose recent writes.
+ */
+public enum FsyncPolicy {
+    ALWAYS,
+    INTERVAL,
+    OS,
+}
@@ -0,0 +1,141 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+
+/*
+ * InventoryCodec converts Inventory items to and from a compact binary form.
+ * It is shared by every on-disk format of the repository, so an item is always written the same way.
+ *
+ * Layout (big-endian):
+ * - long id, int quantity, byte stockStatus (ordinal, -1 for null), byte hasProduct
+ * - if hasProduct: long productId (Long.MIN_VALUE for null), string name, string category,
+ *   decimal price, date expiryDate, date dateCreate, date dateUpdate
+ *
+ * Strings are an int length (-1 for null) followed by UTF-8 bytes. Decimals are an int scale
+ * (Integer.MIN_VALUE for null), an int length and the unscaled value bytes. Dates are a long epoch day
+ * (Long.MIN_VALUE for null).
+ */
+public final class InventoryCodec {
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_SCALE = Integer.MIN_VALUE;
+
+    private InventoryCodec() {}
+
+    /*
+     * Encodes the given item.
+     *
+     * @param inventory the item to encode.
+     * @return the encoded bytes.
+     */
+    public static byte[] encode(Inventory inventory) {
+        Product product = inventory.getProduct();
+        byte[] name = null;
+        byte[] category = null;
+        byte[] unscaledPrice = null;
+        int size = Long.BYTES + Integer.BYTES + 2;
+        if (product != null) {
+            name = utf8(product.getName());
+            category = utf8(product.getCategory());
+            unscaledPrice = (product.getPrice() != null) ? product.getPrice().unscaledValue().toByteArray() : null;
+            size += Long.BYTES + stringSize(name) + stringSize(category)
+                    + Integer.BYTES + ((unscaledPrice != null) ? Integer.BYTES + unscaledPrice.length : 0)
+                    + 3 * Long.BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(inventory.getId());
+        buffer.putInt(inventory.getQuantity());
+        buffer.put((byte) ((inventory.getStockStatus() != null) ? inventory.getStockStatus().ordinal() : -1));
+        buffer.put((byte) ((product != null) ? 1 : 0));
+        if (product != null) {
+            buffer.putLong((product.getId() != null) ? product.getId() : NULL_LONG);
+            putString(buffer, name);
+            putString(buffer, category);
+            if (unscaledPrice == null) {
+                buffer.putInt(NULL_SCALE);
+            } else {
+                buffer.putInt(product.getPrice().scale());
+                buffer.putInt(unscaledPrice.length);
+                buffer.put(unscaledPrice);
+            }
+            putDate(buffer, product.getExpiryDate());
+            putDate(buffer, product.getDateCreate());
+            putDate(buffer, product.getDateUpdate());
+        }
+        return buffer.array();
+    }
+
+    /*
+     * Decodes one item from the current position of the given buffer and advances past it.
+     *
+     * @param buffer the buffer to read from.
+     * @return the decoded item.
+     */
+    public static Inventory decode(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        int quantity = buffer.getInt();
+        byte status = buffer.get();
+        boolean hasProduct = buffer.get() != 0;
+        Product product = null;
+        if (hasProduct) {
+            long productId = buffer.getLong();
+            String name = getString(buffer);
+            String category = getString(buffer);
+            BigDecimal price = null;
+            int scale = buffer.getInt();
+            if (scale != NULL_SCALE) {
+                byte[] unscaled = new byte[buffer.getInt()];
+                buffer.get(unscaled);
+                price = new BigDecimal(new BigInteger(unscaled), scale);
+            }
+            product = new Product((productId != NULL_LONG) ? productId : null, name, category, price,
+                    getDate(buffer), getDate(buffer), getDate(buffer));
+        }
+        return new Inventory(id, product, quantity, (status >= 0) ? StockStatus.values()[status] : null);
+    }
+
+    private static byte[] utf8(String value) {
+        return (value != null) ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] value) {
+        return Integer.BYTES + ((value != null) ? value.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void putDate(ByteBuffer buffer, LocalDate date) {
+        buffer.putLong((date != null) ? date.toEpochDay() : NULL_LONG);
+    }
+
+    private static LocalDate getDate(ByteBuffer buffer) {
+        long epochDay = buffer.getLong();
+        return (epochDay != NULL_LONG) ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import java.util.function.Consumer;
+
+
+/*
+ * InventoryJournal records the mutations of the repository so they can be replayed after a restart.
+ *
+ * Writers call append while they hold the lock of the item they change, which fixes the order of the
+ * records, and then call awaitDurable after releasing it, so waiting for the disk never blocks other
+ * writers of the same item. NONE keeps nothing and is used when persistence is disabled.
+ *
+ * Checkpoints split the journal for snapshots: a snapshot taken at a checkpoint contains every record
+ * appended before it, so recovery loads the snapshot and replays the journal from that checkpoint on,
+ * and the records before it can be truncated.
+ */
+public interface InventoryJournal extends AutoCloseable {
+    InventoryJournal NONE = new InventoryJournal() {
+        @Override
+        public long append(JournalRecord record) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+
+        @Override
+        public long checkpoint() {
+            return 0;
+        }
+
+        @Override
+        public void truncateBefore(long checkpoint) {
+        }
+
+        @Override
+        public void replay(long fromCheckpoint, Consumer<JournalRecord> consumer) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /*
+     * Appends a record and returns its position in the journal.
+     */
+    long append(JournalRecord record);
+
+    /*
+     * Blocks until the record at the given position is as durable as the journal's policy requires.
+     */
+    void awaitDurable(long position);
+
+    /*
+     * Marks a checkpoint: records appended before this call are replayed only from earlier checkpoints.
+     * Must be called while no append is in progress.
+     *
+     * @return the checkpoint to replay from once a snapshot of the current state is stored.
+     */
+    long checkpoint();
+
+    /*
+     * Discards the records appended before the given checkpoint.
+     */
+    void truncateBefore(long checkpoint);
+
+    /*
+     * Passes every valid record from the given checkpoint on, oldest first, to the given consumer.
+     */
+    void replay(long fromCheckpoint, Consumer<JournalRecord> consumer);
+
+    /*
+     * Flushes pending records and releases the journal's resources.
+     */
+    @Override
+    void close();
+}
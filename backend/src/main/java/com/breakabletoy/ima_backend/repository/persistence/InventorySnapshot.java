@@ -0,0 +1,45 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+import java.util.List;
+
+
+/*
+ * InventorySnapshot is the complete state of the repository at one journal checkpoint.
+ *
+ * Fields:
+ * - checkpoint: the journal checkpoint the snapshot was taken at; replay resumes from it.
+ * - nextId: the value of the ID counter.
+ * - categories: the categories used by the items (informational; recovery derives them from the items).
+ * - items: the stored items, in ascending ID order.
+ */
+public class InventorySnapshot {
+    private final long checkpoint;
+    private final long nextId;
+    private final List<String> categories;
+    private final List<Inventory> items;
+
+    public InventorySnapshot(long checkpoint, long nextId, List<String> categories, List<Inventory> items) {
+        this.checkpoint = checkpoint;
+        this.nextId = nextId;
+        this.categories = categories;
+        this.items = items;
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getNextId() {
+        return nextId;
+    }
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public List<Inventory> getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,90 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+
+import java.nio.ByteBuffer;
+
+
+/*
+ * JournalRecord is one mutation of the repository, as written to the write-ahead log.
+ *
+ * Types:
+ * - SAVE: a new item was stored (carries the item).
+ * - UPDATE: an existing item was replaced (carries the item).
+ * - DELETE: an item was removed (carries its ID).
+ * - CLEAR: every item was removed and the ID counter was reset.
+ */
+public class JournalRecord {
+    public enum Type {
+        SAVE,
+        UPDATE,
+        DELETE,
+        CLEAR,
+    }
+
+    private final Type type;
+    private final long id;
+    private final Inventory inventory;
+
+    private JournalRecord(Type type, long id, Inventory inventory) {
+        this.type = type;
+        this.id = id;
+        this.inventory = inventory;
+    }
+
+    public static JournalRecord save(Inventory inventory) {
+        return new JournalRecord(Type.SAVE, inventory.getId(), inventory);
+    }
+
+    public static JournalRecord update(Inventory inventory) {
+        return new JournalRecord(Type.UPDATE, inventory.getId(), inventory);
+    }
+
+    public static JournalRecord delete(long id) {
+        return new JournalRecord(Type.DELETE, id, null);
+    }
+
+    public static JournalRecord clear() {
+        return new JournalRecord(Type.CLEAR, 0, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Inventory getInventory() {
+        return inventory;
+    }
+
+    /*
+     * Encodes the record payload: a type byte followed by the item or the ID.
+     */
+    public byte[] encode() {
+        byte[] body = switch (type) {
+            case SAVE, UPDATE -> InventoryCodec.encode(inventory);
+            case DELETE -> ByteBuffer.allocate(Long.BYTES).putLong(id).array();
+            case CLEAR -> new byte[0];
+        };
+        byte[] payload = new byte[body.length + 1];
+        payload[0] = (byte) type.ordinal();
+        System.arraycopy(body, 0, payload, 1, body.length);
+        return payload;
+    }
+
+    /*
+     * Decodes a record payload written by encode.
+     */
+    public static JournalRecord decode(ByteBuffer payload) {
+        Type type = Type.values()[payload.get()];
+        return switch (type) {
+            case SAVE -> save(InventoryCodec.decode(payload));
+            case UPDATE -> update(InventoryCodec.decode(payload));
+            case DELETE -> delete(payload.getLong());
+            case CLEAR -> clear();
+        };
+    }
+}
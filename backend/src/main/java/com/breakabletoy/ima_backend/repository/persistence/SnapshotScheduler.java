@@ -0,0 +1,51 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+
+/*
+ * SnapshotScheduler runs a snapshot task at a fixed delay on a single background thread. Like the
+ * write-ahead log flusher it is a long-lived loop, so it keeps its own platform daemon thread in the
+ * virtual-thread mode too (see BackgroundThreads).
+ * A failed snapshot is logged and retried at the next run; the journal still holds every record.
+ */
+public class SnapshotScheduler implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SnapshotScheduler.class);
+
+    private final ScheduledExecutorService executor;
+
+    /*
+     * @param task takes one snapshot and returns whether anything was written.
+     * @param intervalSeconds the delay between the end of one run and the start of the next.
+     */
+    public SnapshotScheduler(BooleanSupplier task, long intervalSeconds) {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                task.getAsBoolean();
+            } catch (RuntimeException e) {
+                log.error("Inventory snapshot failed", e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
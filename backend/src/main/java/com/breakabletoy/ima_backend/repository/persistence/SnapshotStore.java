@@ -0,0 +1,54 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import java.util.Optional;
+
+
+/*
+ * SnapshotStore keeps snapshots of the repository state, so startup loads the newest snapshot and only
+ * replays the journal written after it. NONE keeps nothing and is used when snapshots are disabled.
+ */
+public interface SnapshotStore {
+    SnapshotStore NONE = new SnapshotStore() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void write(InventorySnapshot snapshot) {
+        }
+
+        @Override
+        public Optional<InventorySnapshot> loadLatest() {
+            return Optional.empty();
+        }
+
+        @Override
+        public long oldestCheckpoint() {
+            return 0;
+        }
+    };
+
+    /*
+     * Returns whether snapshots are kept at all.
+     */
+    boolean isEnabled();
+
+    /*
+     * Stores the given snapshot. It replaces the previous one only once it is completely on disk.
+     */
+    void write(InventorySnapshot snapshot);
+
+    /*
+     * Loads the newest complete snapshot, if any.
+     *
+     * @throws IllegalStateException if snapshots exist but none of them can be read.
+     */
+    Optional<InventorySnapshot> loadLatest();
+
+    /*
+     * Returns the checkpoint of the oldest snapshot still kept, or 0 if there is none. loadLatest may
+     * fall back to that snapshot, so the journal must be kept from this checkpoint on.
+     */
+    long oldestCheckpoint();
+}
@@ -0,0 +1,428 @@
+package com.breakabletoy.ima_backend.repository.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+
+/*
+ * WriteAheadLog is an append-only, file-based InventoryJournal.
+ *
+ * Records are framed as [int payload length][int CRC32 of the payload][payload] and written to numbered
+ * segment files (wal-00000000000000000001.log, ...). A new segment is started when the current one
+ * grows past the configured size, or at a checkpoint: every record appended before checkpoint() returns
+ * lands in an older segment than every record appended after it, so a snapshot taken at a checkpoint
+ * makes the older segments redundant and truncateBefore can delete them.
+ *
+ * Writers only copy their record into an in-memory buffer; a single flusher thread writes whole buffers
+ * to the current segment and forces them to disk according to the FsyncPolicy. With ALWAYS, every writer
+ * that arrived while the previous fsync was running is made durable by the next one (group commit), so
+ * the number of fsyncs does not grow with the number of writers.
+ *
+ * On startup a torn or corrupt record at the end of the newest segment (an interrupted write) is cut off;
+ * corruption anywhere else stops the replay with an exception instead of silently dropping data.
+ */
+public class WriteAheadLog implements InventoryJournal {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    // Appends wait for the flusher once this many bytes are pending, so a slow disk cannot exhaust the heap.
+    private static final int MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalNanos;
+    private final long segmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition dataAvailable = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+
+    // Guarded by lock.
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long appendedPosition;
+    private boolean running = true;
+    // Highest segment number handed out so far.
+    private long lastAssignedSegment;
+    // Checkpoint waiting for the flusher: byte offset in pending where the new segment starts, or -1.
+    private int checkpointAt = -1;
+    private long checkpointSegment;
+
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+    private volatile IOException failure;
+
+    // Owned by the flusher thread once it is started.
+    private FileChannel channel;
+    private volatile long segmentNumber;
+
+    private final Thread flusher;
+
+    /*
+     * Opens (or creates) the log in the given directory and starts the flusher thread.
+     *
+     * @param directory the directory holding the segment files.
+     * @param policy when records are forced to disk.
+     * @param fsyncIntervalMillis the force interval used by FsyncPolicy.INTERVAL.
+     * @param segmentBytes the size after which a new segment is started.
+     */
+    public WriteAheadLog(Path directory, FsyncPolicy policy, long fsyncIntervalMillis, long segmentBytes) {
+        this.directory = directory;
+        this.policy = policy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMillis));
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments();
+            if (segments.isEmpty()) {
+                segmentNumber = 1;
+            } else {
+                Path newest = segments.get(segments.size() - 1);
+                segmentNumber = segmentNumberOf(newest);
+                long validBytes = scanSegment(newest, null);
+                if (validBytes < Files.size(newest)) {
+                    log.warn("Truncating torn write-ahead log tail of {} at byte {}", newest, validBytes);
+                    try (FileChannel truncate = FileChannel.open(newest, StandardOpenOption.WRITE)) {
+                        truncate.truncate(validBytes);
+                    }
+                }
+            }
+            lastAssignedSegment = segmentNumber;
+            channel = openSegment(segmentNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+        }
+        flusher = new Thread(this::flushLoop, "inventory-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public long append(JournalRecord record) {
+        byte[] payload = record.encode();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        lock.lock();
+        try {
+            while (running && failure == null && pending.position() > MAX_PENDING_BYTES) {
+                flushed.awaitUninterruptibly();
+            }
+            checkHealthy();
+            if (pending.remaining() < HEADER_BYTES + payload.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + HEADER_BYTES + payload.length));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            pending.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            dataAvailable.signal();
+            return ++appendedPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (policy != FsyncPolicy.ALWAYS) {
+            checkHealthy();
+            return;
+        }
+        if (durablePosition >= position) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durablePosition < position && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            checkHealthy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long checkpoint() {
+        lock.lock();
+        try {
+            while (checkpointAt >= 0 && failure == null && running) {
+                flushed.awaitUninterruptibly();
+            }
+            checkHealthy();
+            checkpointAt = pending.position();
+            checkpointSegment = ++lastAssignedSegment;
+            dataAvailable.signal();
+            return checkpointSegment;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void truncateBefore(long checkpoint) {
+        lock.lock();
+        try {
+            // The flusher must have moved past the older segments before they can be deleted.
+            while (segmentNumber < checkpoint && failure == null && running) {
+                flushed.awaitUninterruptibly();
+            }
+            checkHealthy();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            for (Path segment : listSegments()) {
+                if (segmentNumberOf(segment) < checkpoint) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot truncate write-ahead log in " + directory, e);
+        }
+    }
+
+    @Override
+    public void replay(long fromCheckpoint, Consumer<JournalRecord> consumer) {
+        try {
+            List<Path> segments = listSegments();
+            segments.removeIf(segment -> segmentNumberOf(segment) < fromCheckpoint);
+            for (Path segment : segments) {
+                long validBytes = scanSegment(segment, consumer);
+                if (validBytes < Files.size(segment)) {
+                    throw new IllegalStateException("Corrupt write-ahead log record in " + segment + " at byte " + validBytes);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay write-ahead log in " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            dataAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Body of the flusher thread: takes the pending buffer, writes it and forces it as the policy requires.
+     * Segment changes are decided while holding the lock, together with taking the batch, so segment
+     * numbers always follow the order of the records.
+     */
+    private void flushLoop() {
+        long lastForce = System.nanoTime();
+        boolean dirty = false;
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            boolean stopping;
+            long sizeRotation = 0;
+            int batchCheckpointAt;
+            long batchCheckpointSegment;
+            lock.lock();
+            try {
+                while (running && pending.position() == 0 && checkpointAt < 0 && !(dirty && policy == FsyncPolicy.INTERVAL)) {
+                    dataAvailable.awaitUninterruptibly();
+                }
+                if (running && policy == FsyncPolicy.INTERVAL && pending.position() == 0 && checkpointAt < 0) {
+                    long wait = fsyncIntervalNanos - (System.nanoTime() - lastForce);
+                    if (wait > 0) {
+                        try {
+                            dataAvailable.awaitNanos(wait);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+                stopping = !running;
+                batch = pending;
+                pending = (spare != null) ? spare : ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+                spare = null;
+                batchEnd = appendedPosition;
+                batchCheckpointAt = checkpointAt;
+                batchCheckpointSegment = checkpointSegment;
+                checkpointAt = -1;
+                if (batchCheckpointAt < 0 && batch.position() > 0 && channel.size() >= segmentBytes) {
+                    sizeRotation = ++lastAssignedSegment;
+                }
+            } catch (IOException e) {
+                log.error("Write-ahead log failure", e);
+                failure = e;
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            boolean forced = false;
+            try {
+                if (sizeRotation > 0) {
+                    rotate(sizeRotation);
+                    dirty = false;
+                }
+                batch.flip();
+                if (batchCheckpointAt >= 0) {
+                    // Records before the checkpoint go to the current segment, the rest to the new one.
+                    ByteBuffer beforeCheckpoint = batch.duplicate().limit(batchCheckpointAt);
+                    dirty |= writeFully(beforeCheckpoint);
+                    rotate(batchCheckpointSegment);
+                    dirty = false;
+                    batch.position(batchCheckpointAt);
+                }
+                dirty |= writeFully(batch);
+                long now = System.nanoTime();
+                if (dirty && (policy == FsyncPolicy.ALWAYS || stopping
+                        || (policy == FsyncPolicy.INTERVAL && now - lastForce >= fsyncIntervalNanos))) {
+                    channel.force(false);
+                    lastForce = now;
+                    dirty = false;
+                    forced = true;
+                }
+                if (stopping) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                log.error("Write-ahead log failure", e);
+                failure = e;
+            }
+
+            lock.lock();
+            try {
+                batch.clear();
+                if (batch.capacity() <= MAX_PENDING_BYTES) {
+                    spare = batch;
+                }
+                writtenPosition = batchEnd;
+                if (forced || !dirty) {
+                    durablePosition = batchEnd;
+                }
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (stopping || failure != null) {
+                return;
+            }
+        }
+    }
+
+    private boolean writeFully(ByteBuffer buffer) throws IOException {
+        boolean wrote = buffer.hasRemaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return wrote;
+    }
+
+    /*
+     * Forces and closes the current segment and starts the next one. Called by the flusher thread only.
+     */
+    private void rotate(long nextSegment) throws IOException {
+        channel.force(false);
+        channel.close();
+        channel = openSegment(nextSegment);
+        segmentNumber = nextSegment;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        FileChannel segment = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segment.position(segment.size());
+        return segment;
+    }
+
+    /*
+     * Reads the records of a segment, verifying their checksums.
+     *
+     * @param segment the segment file.
+     * @param consumer receives every valid record, or null to only validate.
+     * @return the number of bytes covered by valid records.
+     */
+    private long scanSegment(Path segment, Consumer<JournalRecord> consumer) throws IOException {
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = file.size();
+            if (size == 0) {
+                return 0;
+            }
+            MappedByteBuffer buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    return start;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                if (consumer != null) {
+                    consumer.accept(JournalRecord.decode(payload));
+                }
+                buffer.position(buffer.position() + length);
+            }
+            return buffer.position();
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX)
+                            && path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .toList());
+            segments.sort((a, b) -> Long.compare(segmentNumberOf(a), segmentNumberOf(b)));
+            return segments;
+        }
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private static long segmentNumberOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void checkHealthy() {
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failure", failure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.breakabletoy.ima_backend.response;
+
+import com.breakabletoy.ima_backend.dto.BatchResultDTO;
+
+import java.util.List;
+
+
+/*
+ * BatchResponse is the response of a batch request.
+ *
+ * Fields:
+ * - results: One result per operation, in request order.
+ * - succeeded: Number of operations that were applied.
+ * - failed: Number of operations that were rejected.
+ */
+public class BatchResponse {
+    private List<BatchResultDTO> results;
+    private int succeeded;
+    private int failed;
+
+    /*
+     * Constructs a new BatchResponse from the per-operation results and counts them.
+     *
+     * @param results the results of every operation.
+     */
+    public BatchResponse(List<BatchResultDTO> results) {
+        this.results = results;
+        for (BatchResultDTO result : results) {
+            if (result.isSuccess()) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+        }
+    }
+
+    public List<BatchResultDTO> getResults() {
+        return results;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,61 @@
+package com.breakabletoy.ima_backend.response;
+
+import com.breakabletoy.ima_backend.dto.InventoryDTO;
+
+import java.util.List;
+
+
+/*
+ * ChangesResponse is the response of a delta sync request.
+ *
+ * Fields:
+ * - upserts: The current state of every product created or updated since the requested version.
+ * - deletedIds: The IDs of the products deleted since the requested version.
+ * - version: The version to pass on the next sync.
+ * - hasMore: Whether more changes are waiting; sync again right away from version.
+ * - resetRequired: Whether the client must drop its copy and sync again from version 0.
+ */
+public class ChangesResponse {
+    private List<InventoryDTO> upserts;
+    private List<Long> deletedIds;
+    private long version;
+    private boolean hasMore;
+    private boolean resetRequired;
+
+    /*
+     * Constructs a new ChangesResponse with the given parameters.
+     *
+     * @param upserts the created or updated products.
+     * @param deletedIds the IDs of the deleted products.
+     * @param version the version to pass on the next sync.
+     * @param hasMore whether more changes are waiting.
+     * @param resetRequired whether the client must sync again from version 0.
+     */
+    public ChangesResponse(List<InventoryDTO> upserts, List<Long> deletedIds, long version, boolean hasMore, boolean resetRequired) {
+        this.upserts = upserts;
+        this.deletedIds = deletedIds;
+        this.version = version;
+        this.hasMore = hasMore;
+        this.resetRequired = resetRequired;
+    }
+
+    public List<InventoryDTO> getUpserts() {
+        return upserts;
+    }
+
+    public List<Long> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+
+    public boolean isResetRequired() {
+        return resetRequired;
+    }
+}
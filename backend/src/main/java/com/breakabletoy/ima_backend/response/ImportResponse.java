@@ -0,0 +1,60 @@
+package com.breakabletoy.ima_backend.response;
+
+import com.breakabletoy.ima_backend.dto.ImportErrorDTO;
+
+import java.util.List;
+
+
+/*
+ * ImportResponse is the summary of a bulk import.
+ *
+ * Fields:
+ * - rowsRead: Number of data rows read from the body.
+ * - imported: Number of rows stored.
+ * - failed: Number of rows rejected.
+ * - errors: The rejected rows with their reasons, in line order, up to a fixed limit.
+ * - errorsTruncated: Whether more rows were rejected than listed in errors.
+ */
+public class ImportResponse {
+    private long rowsRead;
+    private long imported;
+    private long failed;
+    private List<ImportErrorDTO> errors;
+    private boolean errorsTruncated;
+
+    /*
+     * Constructs a new ImportResponse.
+     *
+     * @param rowsRead the number of data rows read.
+     * @param imported the number of rows stored.
+     * @param failed the number of rows rejected.
+     * @param errors the listed rejected rows.
+     */
+    public ImportResponse(long rowsRead, long imported, long failed, List<ImportErrorDTO> errors) {
+        this.rowsRead = rowsRead;
+        this.imported = imported;
+        this.failed = failed;
+        this.errors = errors;
+        this.errorsTruncated = failed > errors.size();
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public List<ImportErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+}
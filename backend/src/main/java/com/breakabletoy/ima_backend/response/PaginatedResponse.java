@@ -10,13 +10,15 @@ import java.util.List;
  * Fields:
  * - items: List of items of type T.
  * - totalItems: Total number of items available.
+ * - nextCursor: Opaque cursor to pass back for the next page, or null when this is the last page.
  *
  * Constructor:
- * - Initializes the items list and the total item count.
+ * - Initializes the items list, the total item count and, optionally, the next page cursor.
  */
 public class PaginatedResponse<T>{
     private List<T> items;
     private long totalItems;
+    private String nextCursor;
 
     /*
      * Constructs a new PaginatedResponse with the specified items and total count.
@@ -25,8 +27,20 @@ public class PaginatedResponse<T>{
      * @param totalItems the total number of items available.
      */
     public PaginatedResponse(List<T> items, long totalItems) {
+        this(items, totalItems, null);
+    }
+
+    /*
+     * Constructs a new PaginatedResponse with the specified items, total count and next page cursor.
+     *
+     * @param items the list of items for the current page.
+     * @param totalItems the total number of items available.
+     * @param nextCursor the cursor of the next page, or null.
+     */
+    public PaginatedResponse(List<T> items, long totalItems, String nextCursor) {
         this.items = items;
         this.totalItems = totalItems;
+        this.nextCursor = nextCursor;
     }
 
     public List<T> getItems() {
@@ -36,4 +50,8 @@ public class PaginatedResponse<T>{
     public long getTotalItems() {
         return totalItems;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
 }
@@ -0,0 +1,80 @@
+package com.breakabletoy.ima_backend.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+
+/*
+ * BackgroundThreads creates the threads of the background jobs (change feed senders, import parsing),
+ * either as platform threads or as virtual threads.
+ *
+ * - Platform: daemon threads named "<name>-<n>"; pools are fixed-size and imports parse on the common
+ *   fork-join pool.
+ * - Virtual: one virtual thread per task, named "<name>-<n>"; a task blocked on I/O releases its carrier,
+ *   so the pool sizes no longer cap the number of blocked tasks. CPU-bound work still runs on as many
+ *   carriers as there are cores.
+ *
+ * Long-lived loops (the write-ahead log flusher, the change feed dispatcher, the snapshot scheduler) keep
+ * their own platform thread.
+ */
+public class BackgroundThreads implements AutoCloseable {
+    public static final BackgroundThreads PLATFORM = new BackgroundThreads(false);
+
+    private final boolean virtual;
+    // Runs the import chunks in virtual mode; the common pool is used (and never closed) otherwise.
+    private final ExecutorService importExecutor;
+
+    /*
+     * @param virtual whether the background jobs run on virtual threads.
+     */
+    public BackgroundThreads(boolean virtual) {
+        this.virtual = virtual;
+        this.importExecutor = virtual ? Executors.newThreadPerTaskExecutor(factory("inventory-import")) : ForkJoinPool.commonPool();
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /*
+     * Returns a factory of threads named after the given job.
+     */
+    public ThreadFactory factory(String name) {
+        return virtual
+                ? Thread.ofVirtual().name(name + "-", 1).factory()
+                : Thread.ofPlatform().name(name + "-", 1).daemon(true).factory();
+    }
+
+    /*
+     * Returns an executor for the given job: a fixed pool of the given size on platform threads,
+     * one virtual thread per task otherwise. The caller shuts it down.
+     */
+    public ExecutorService pool(String name, int platformThreads) {
+        return virtual
+                ? Executors.newThreadPerTaskExecutor(factory(name))
+                : Executors.newFixedThreadPool(platformThreads, factory(name));
+    }
+
+    /*
+     * Returns the executor the import chunks are parsed on.
+     */
+    public ExecutorService importExecutor() {
+        return importExecutor;
+    }
+
+    /*
+     * Returns the number of import chunks parsed at the same time.
+     */
+    public int importParallelism() {
+        return ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    @Override
+    public void close() {
+        if (virtual) {
+            importExecutor.shutdownNow();
+        }
+    }
+}
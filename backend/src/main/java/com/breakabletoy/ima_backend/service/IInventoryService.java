@@ -1,9 +1,19 @@
 package com.breakabletoy.ima_backend.service;
 
+import com.breakabletoy.ima_backend.dto.BatchOperationDTO;
 import com.breakabletoy.ima_backend.dto.InventoryDTO;
 import com.breakabletoy.ima_backend.dto.MetricsDTO;
 import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.dto.StockAdjustmentDTO;
+import com.breakabletoy.ima_backend.enums.CatalogFormat;
+import com.breakabletoy.ima_backend.response.BatchResponse;
+import com.breakabletoy.ima_backend.response.ChangesResponse;
+import com.breakabletoy.ima_backend.response.ImportResponse;
+import com.breakabletoy.ima_backend.response.PaginatedResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 /*
@@ -11,16 +21,27 @@ import java.util.List;
  *
  * It includes methods for creating, retrieving, updating, and deleting products,
  * as well as methods for managing product stock status, retrieving categories,
- * obtaining total item count, and calculating overall inventory metrics.
+ * and calculating overall inventory metrics. Stock is adjusted by atomic deltas, optionally
+ * guarded by the version of the product the client last read. Paginated queries return the page
+ * together with its total item count. Batches of mixed create, update and delete
+ * operations are applied in one call and report a result per operation. The whole
+ * catalog can be exported as a stream. The data version changes after every write,
+ * so clients can tell whether a previous response is still current. Replicas can
+ * pull only the changes since the version of their last sync.
  */
 public interface IInventoryService {
     InventoryDTO createProduct(InventoryDTO inventoryDTO);
-    List<InventoryDTO> getInventory(PaginationRequestDTO paginationRequestDTO);
+    PaginatedResponse<InventoryDTO> getInventory(PaginationRequestDTO paginationRequestDTO);
     InventoryDTO updateProduct(Long id, InventoryDTO inventoryDTO);
+    InventoryDTO adjustStock(Long id, StockAdjustmentDTO stockAdjustmentDTO);
     InventoryDTO updateProductOutOfStock(Long id);
     InventoryDTO updateProductInStock(Long id);
     void deleteProduct(Long id);
+    BatchResponse applyBatch(List<BatchOperationDTO> operations);
+    void exportInventory(CatalogFormat format, OutputStream outputStream) throws IOException;
+    ImportResponse importInventory(CatalogFormat format, InputStream inputStream) throws IOException;
     List<String> getCategories();
-    long getTotalItems();
     MetricsDTO calculateMetrics();
+    long getDataVersion();
+    ChangesResponse getChangesSince(long since, int limit);
 }
@@ -0,0 +1,380 @@
+package com.breakabletoy.ima_backend.service;
+
+import com.breakabletoy.ima_backend.dto.InventoryChangeEventDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.InventoryChangeType;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InventoryChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+
+/*
+ * InventoryChangeFeed publishes every change of the repository to its subscribers, as Server-Sent Events.
+ *
+ * Publishing:
+ * - The repository reports each change while the item is locked. The feed only numbers the event and
+ *   stores it in a bounded history ring, so writers never wait for subscribers.
+ * - A dispatcher thread copies new events from the history to the buffer of every subscriber, and a
+ *   sender task per subscriber writes its buffer to the connection, on the given executor.
+ *
+ * Slow consumers:
+ * - Every subscriber has a bounded buffer. When it is full, the buffered events are coalesced: events
+ *   before the last CLEARED or RESYNC are dropped and only the newest event of every product is kept.
+ *   The type of a kept event reflects the last change, so clients should treat every type except
+ *   DELETED, CLEARED and RESYNC as an upsert.
+ * - When coalescing does not free any room (more distinct products are pending than the buffer holds),
+ *   the buffer is replaced by a single RESYNC event and the client reloads its data.
+ *
+ * Resuming:
+ * - Every event carries its sequence number as the SSE event ID. A client reconnecting with
+ *   Last-Event-ID (or an explicit sequence) receives the events after it from the history, or a
+ *   RESYNC when they are no longer available or the sequence belongs to another run.
+ * - Sequences restart on every start, so every run numbers its events after its own start stamp, the
+ *   wall clock in microseconds (like the change stamps of the repository). A sequence not above the
+ *   start stamp, or above the last event of this run, was issued by another run and gets a RESYNC;
+ *   an earlier run could only reach into this run's range by averaging over 1000 events per millisecond.
+ *
+ * Idle connections get a comment every heartbeat interval, which also detects closed clients.
+ */
+public class InventoryChangeFeed implements InventoryChangeListener, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(InventoryChangeFeed.class);
+
+    /*
+     * Destination of the events of one subscriber.
+     */
+    public interface EventSink {
+        void send(InventoryChangeEventDTO event) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        void close();
+    }
+
+    private final int bufferSize;
+    private final ExecutorService senders;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Sequence before the first event of this run; every sequence of this run is above it.
+    private final long runStart = System.currentTimeMillis() * 1000;
+    // Ring of the most recent events, indexed by sequence; guarded by this.
+    private final InventoryChangeEventDTO[] history;
+    private long lastSequence = runStart;
+
+    // Held while events are handed to the subscribers, so a new subscriber sees each event exactly once.
+    private final Object dispatchLock = new Object();
+    // The last sequence handed to the subscribers; written by the dispatcher under dispatchLock.
+    private volatile long dispatchedSequence = runStart;
+
+    private final Thread dispatcher;
+    private final ScheduledExecutorService heartbeats;
+    private volatile boolean closed;
+
+    /*
+     * @param historySize the number of recent events kept for resuming subscribers.
+     * @param bufferSize the number of pending events kept per subscriber before coalescing.
+     * @param heartbeatSeconds the interval between two heartbeats on every connection.
+     * @param senders runs the tasks that write to the subscriber connections; shut down on close.
+     */
+    public InventoryChangeFeed(int historySize, int bufferSize, long heartbeatSeconds, ExecutorService senders) {
+        if (historySize <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("Change feed history and buffer sizes must be positive");
+        }
+        this.history = new InventoryChangeEventDTO[historySize];
+        this.bufferSize = bufferSize;
+        this.senders = senders;
+        this.dispatcher = new Thread(this::dispatchLoop, "inventory-change-feed");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-change-feed-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void onChange(Inventory previous, Inventory current) {
+        if (current == null) {
+            publish(InventoryChangeType.DELETED, previous.getId(), previous.getProduct().getCategory(), null, null);
+            return;
+        }
+        InventoryChangeType type = InventoryChangeType.UPDATED;
+        if (previous == null) {
+            type = InventoryChangeType.CREATED;
+        } else if (previous.getStockStatus() != current.getStockStatus()) {
+            type = (current.getStockStatus() == StockStatus.OUT_OF_STOCK) ? InventoryChangeType.OUT_OF_STOCK : InventoryChangeType.IN_STOCK;
+        }
+        publish(type, current.getId(), current.getProduct().getCategory(), current.getStockStatus(), current.getQuantity());
+    }
+
+    @Override
+    public void onClear() {
+        publish(InventoryChangeType.CLEARED, null, null, null, null);
+    }
+
+    /*
+     * Opens an SSE stream of the changes.
+     *
+     * @param lastEventId the sequence of the last event the client received, or null to start with the next change.
+     * @return the emitter to return from the controller.
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        AutoCloseable subscription = subscribe(new EventSink() {
+            @Override
+            public void send(InventoryChangeEventDTO event) throws IOException {
+                emitter.send(SseEmitter.event().id(Long.toString(event.getSequence())).data(event, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        }, lastEventId);
+        Runnable unsubscribe = () -> closeQuietly(subscription);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+        return emitter;
+    }
+
+    /*
+     * Registers a subscriber.
+     *
+     * @param sink receives the events.
+     * @param lastEventId the sequence of the last event the subscriber received, or null to start with the next change.
+     * @return closes the subscription.
+     */
+    public AutoCloseable subscribe(EventSink sink, Long lastEventId) {
+        Subscriber subscriber = new Subscriber(sink);
+        synchronized (dispatchLock) {
+            long dispatched = dispatchedSequence;
+            boolean upToDate = lastEventId != null && lastEventId == dispatched && lastEventId > runStart;
+            if (lastEventId != null && !upToDate) {
+                boolean thisRun = lastEventId > runStart && lastEventId < dispatched;
+                List<InventoryChangeEventDTO> missed = thisRun ? readHistory(lastEventId + 1, dispatched) : null;
+                subscriber.offer((missed != null) ? missed : List.of(resync(dispatched)));
+            }
+            subscribers.add(subscriber);
+        }
+        schedule(subscriber);
+        return () -> remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        heartbeats.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            remove(subscriber);
+        }
+        senders.shutdownNow();
+    }
+
+    private synchronized void publish(InventoryChangeType type, Long id, String category, StockStatus stockStatus, Integer quantity) {
+        long sequence = ++lastSequence;
+        history[(int) (sequence % history.length)] = new InventoryChangeEventDTO(sequence, type, id, category, stockStatus, quantity);
+        notifyAll();
+    }
+
+    /*
+     * Returns the events from one sequence to another, or null when some of them left the history.
+     */
+    private synchronized List<InventoryChangeEventDTO> readHistory(long from, long to) {
+        if (to - from + 1 > history.length) {
+            return null;
+        }
+        List<InventoryChangeEventDTO> events = new ArrayList<>((int) (to - from + 1));
+        for (long sequence = from; sequence <= to; sequence++) {
+            InventoryChangeEventDTO event = history[(int) (sequence % history.length)];
+            if (event == null || event.getSequence() != sequence) {
+                return null;
+            }
+            events.add(event);
+        }
+        return events;
+    }
+
+    private void dispatchLoop() {
+        while (!closed) {
+            long target;
+            synchronized (this) {
+                while (lastSequence == dispatchedSequence && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                target = lastSequence;
+            }
+            synchronized (dispatchLock) {
+                List<InventoryChangeEventDTO> events = readHistory(dispatchedSequence + 1, target);
+                if (events == null) {
+                    // The dispatcher fell behind the whole history: nobody can be brought up to date.
+                    events = List.of(resync(target));
+                }
+                for (Subscriber subscriber : subscribers) {
+                    subscriber.offer(events);
+                }
+                dispatchedSequence = target;
+            }
+            for (Subscriber subscriber : subscribers) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.sink.heartbeat();
+            } catch (IOException | RuntimeException e) {
+                remove(subscriber);
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.markScheduled()) {
+            senders.execute(subscriber::drain);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            try {
+                subscriber.sink.close();
+            } catch (RuntimeException e) {
+                log.debug("Failed to close a change feed subscriber", e);
+            }
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            log.debug("Failed to close a change feed subscription", e);
+        }
+    }
+
+    private static InventoryChangeEventDTO resync(long sequence) {
+        return new InventoryChangeEventDTO(sequence, InventoryChangeType.RESYNC, null, null, null, null);
+    }
+
+    private static boolean isBoundary(InventoryChangeEventDTO event) {
+        return event.getType() == InventoryChangeType.CLEARED || event.getType() == InventoryChangeType.RESYNC;
+    }
+
+    /*
+     * One open stream: its pending events and whether a sender task is running for it.
+     */
+    private final class Subscriber {
+        private final EventSink sink;
+        // Guarded by this.
+        private final ArrayDeque<InventoryChangeEventDTO> buffer = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private Subscriber(EventSink sink) {
+            this.sink = sink;
+        }
+
+        private synchronized void offer(List<InventoryChangeEventDTO> events) {
+            for (InventoryChangeEventDTO event : events) {
+                if (buffer.size() >= bufferSize) {
+                    coalesce();
+                }
+                if (buffer.size() >= bufferSize) {
+                    long sequence = buffer.peekLast().getSequence();
+                    buffer.clear();
+                    buffer.add(resync(sequence));
+                }
+                buffer.add(event);
+            }
+        }
+
+        /*
+         * Drops the events before the last CLEARED or RESYNC and keeps only the newest event of every product.
+         */
+        private void coalesce() {
+            List<InventoryChangeEventDTO> pending = new ArrayList<>(buffer);
+            buffer.clear();
+            int start = 0;
+            for (int i = 0; i < pending.size(); i++) {
+                if (isBoundary(pending.get(i))) {
+                    start = i;
+                }
+            }
+            Map<Long, InventoryChangeEventDTO> newest = new LinkedHashMap<>();
+            for (int i = start; i < pending.size(); i++) {
+                InventoryChangeEventDTO event = pending.get(i);
+                if (isBoundary(event)) {
+                    buffer.add(event);
+                } else {
+                    // Re-inserting moves the product to the position of its newest event.
+                    newest.remove(event.getId());
+                    newest.put(event.getId(), event);
+                }
+            }
+            buffer.addAll(newest.values());
+        }
+
+        private synchronized boolean markScheduled() {
+            if (scheduled || buffer.isEmpty()) {
+                return false;
+            }
+            scheduled = true;
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                InventoryChangeEventDTO event;
+                synchronized (this) {
+                    event = buffer.poll();
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    sink.send(event);
+                } catch (IOException | RuntimeException e) {
+                    remove(this);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.breakabletoy.ima_backend.service;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+
+/*
+ * InventoryExportWriter writes Inventory entities straight to an output stream, one line per item,
+ * without creating DTOs or holding more than one item in memory.
+ *
+ * It contains two static methods:
+ * - writeNdjson: Writes every item as a JSON object on its own line, with the same fields as the product API.
+ * - writeCsv: Writes a header line and every item as a comma-separated line.
+ */
+public class InventoryExportWriter {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String CSV_HEADER = "id,productId,name,category,price,expiryDate,dateCreated,dateUpdated,quantity,stockStatus";
+
+    /*
+     * Writes the given items as newline-delimited JSON.
+     *
+     * @param items The items to write, in output order.
+     * @param outputStream The stream to write to; it is flushed but not closed.
+     */
+    public static void writeNdjson(Iterable<Inventory> items, OutputStream outputStream) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            for (Inventory inventory : items) {
+                generator.writeStartObject();
+                generator.writeNumberField("id", inventory.getId());
+                Product product = inventory.getProduct();
+                if (product == null) {
+                    generator.writeNullField("product");
+                } else {
+                    generator.writeObjectFieldStart("product");
+                    if (product.getId() != null) {
+                        generator.writeNumberField("id", product.getId());
+                    } else {
+                        generator.writeNullField("id");
+                    }
+                    generator.writeStringField("name", product.getName());
+                    generator.writeStringField("category", product.getCategory());
+                    if (product.getPrice() != null) {
+                        generator.writeNumberField("price", product.getPrice());
+                    } else {
+                        generator.writeNullField("price");
+                    }
+                    generator.writeStringField("expiryDate", dateToString(product.getExpiryDate()));
+                    generator.writeStringField("dateCreated", dateToString(product.getDateCreate()));
+                    generator.writeStringField("dateUpdated", dateToString(product.getDateUpdate()));
+                    generator.writeEndObject();
+                }
+                generator.writeNumberField("quantity", inventory.getQuantity());
+                generator.writeStringField("stockStatus", (inventory.getStockStatus() != null) ? inventory.getStockStatus().name() : null);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
+    }
+
+    /*
+     * Writes the given items as CSV (RFC 4180 quoting), preceded by a header line.
+     *
+     * @param items The items to write, in output order.
+     * @param outputStream The stream to write to; it is flushed but not closed.
+     */
+    public static void writeCsv(Iterable<Inventory> items, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), 1 << 16);
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        for (Inventory inventory : items) {
+            Product product = inventory.getProduct();
+            writer.write(Long.toString(inventory.getId()));
+            writer.write(',');
+            if (product != null) {
+                writer.write((product.getId() != null) ? product.getId().toString() : "");
+                writer.write(',');
+                writeCsvField(writer, product.getName());
+                writer.write(',');
+                writeCsvField(writer, product.getCategory());
+                writer.write(',');
+                writer.write((product.getPrice() != null) ? product.getPrice().toPlainString() : "");
+                writer.write(',');
+                writer.write(nullToEmpty(dateToString(product.getExpiryDate())));
+                writer.write(',');
+                writer.write(nullToEmpty(dateToString(product.getDateCreate())));
+                writer.write(',');
+                writer.write(nullToEmpty(dateToString(product.getDateUpdate())));
+            } else {
+                writer.write(",,,,,,");
+            }
+            writer.write(',');
+            writer.write(Integer.toString(inventory.getQuantity()));
+            writer.write(',');
+            writer.write((inventory.getStockStatus() != null) ? inventory.getStockStatus().name() : "");
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String dateToString(LocalDate date) {
+        return (date != null) ? date.toString() : null;
+    }
+
+    private static String nullToEmpty(String value) {
+        return (value != null) ? value : "";
+    }
+}
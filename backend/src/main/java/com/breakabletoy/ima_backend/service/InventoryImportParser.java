@@ -0,0 +1,260 @@
+package com.breakabletoy.ima_backend.service;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+
+/*
+ * InventoryImportParser turns the rows of an import file directly into Inventory entities.
+ * It reads the same formats InventoryExportWriter writes, so an export can be imported again.
+ *
+ * Every parse method throws IllegalArgumentException with a readable message when the row is
+ * invalid; the methods are stateless and may be called from several threads at once.
+ *
+ * Row rules:
+ * - name and category are required and must not be blank.
+ * - price is required and must be a non-negative decimal.
+ * - quantity must be a non-negative integer (0 when missing).
+ * - stockStatus is IN_STOCK or OUT_OF_STOCK; when missing it follows the quantity.
+ * - dates are ISO dates (yyyy-MM-dd); dateCreated defaults to today.
+ * - id and productId are ignored, since every imported row becomes a new product.
+ */
+public class InventoryImportParser {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /*
+     * CsvColumns maps the import fields to their positions in a CSV header.
+     * A position of -1 means the column is absent.
+     */
+    public static class CsvColumns {
+        private final int name;
+        private final int category;
+        private final int price;
+        private final int expiryDate;
+        private final int dateCreated;
+        private final int dateUpdated;
+        private final int quantity;
+        private final int stockStatus;
+
+        private CsvColumns(List<String> header) {
+            List<String> normalized = header.stream().map(column -> column.trim().toLowerCase(Locale.ROOT)).toList();
+            name = normalized.indexOf("name");
+            category = normalized.indexOf("category");
+            price = normalized.indexOf("price");
+            expiryDate = normalized.indexOf("expirydate");
+            dateCreated = normalized.indexOf("datecreated");
+            dateUpdated = normalized.indexOf("dateupdated");
+            quantity = normalized.indexOf("quantity");
+            stockStatus = normalized.indexOf("stockstatus");
+        }
+    }
+
+    /*
+     * Reads a CSV header line. The columns may come in any order.
+     *
+     * @param header The first line of the file.
+     * @return The positions of the import fields.
+     */
+    public static CsvColumns parseCsvHeader(String header) {
+        CsvColumns columns = new CsvColumns(splitCsv(header));
+        if (columns.name < 0 || columns.category < 0 || columns.price < 0) {
+            throw new IllegalArgumentException("CSV header must contain the name, category and price columns");
+        }
+        return columns;
+    }
+
+    /*
+     * Parses one CSV record (which may span several lines when a quoted field contains line breaks).
+     *
+     * @param record The record text, without the trailing line break.
+     * @param columns The positions read from the header.
+     * @return The new, unsaved Inventory item.
+     */
+    public static Inventory parseCsvRecord(String record, CsvColumns columns) {
+        List<String> fields = splitCsv(record);
+        return toInventory(field(fields, columns.name), field(fields, columns.category), field(fields, columns.price),
+                field(fields, columns.expiryDate), field(fields, columns.dateCreated), field(fields, columns.dateUpdated),
+                field(fields, columns.quantity), field(fields, columns.stockStatus));
+    }
+
+    /*
+     * Parses one NDJSON line with the same fields as the product API:
+     * {"product":{"name":..,"category":..,"price":..,"expiryDate":..,"dateCreated":..,"dateUpdated":..},"quantity":..,"stockStatus":..}
+     * Unknown fields are ignored; anything after the object is rejected.
+     *
+     * @param line The JSON object.
+     * @return The new, unsaved Inventory item.
+     */
+    public static Inventory parseJsonLine(String line) {
+        String name = null;
+        String category = null;
+        String price = null;
+        String expiryDate = null;
+        String dateCreated = null;
+        String dateUpdated = null;
+        String quantity = null;
+        String stockStatus = null;
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("product".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String productField = parser.currentName();
+                        parser.nextToken();
+                        switch (productField) {
+                            case "name" -> name = scalar(parser);
+                            case "category" -> category = scalar(parser);
+                            case "price" -> price = scalar(parser);
+                            case "expiryDate" -> expiryDate = scalar(parser);
+                            case "dateCreated" -> dateCreated = scalar(parser);
+                            case "dateUpdated" -> dateUpdated = scalar(parser);
+                            default -> parser.skipChildren();
+                        }
+                    }
+                } else if ("quantity".equals(field)) {
+                    quantity = scalar(parser);
+                } else if ("stockStatus".equals(field)) {
+                    stockStatus = scalar(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (parser.nextToken() != null) {
+                throw new IllegalArgumentException("Unexpected content after the JSON object");
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return toInventory(name, category, price, expiryDate, dateCreated, dateUpdated, quantity, stockStatus);
+    }
+
+    /*
+     * Splits a CSV record into its fields, removing RFC 4180 quoting.
+     */
+    static List<String> splitCsv(String record) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return (index >= 0 && index < fields.size()) ? fields.get(index) : null;
+    }
+
+    private static String scalar(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!parser.currentToken().isScalarValue()) {
+            throw new IllegalArgumentException("Field " + parser.currentName() + " must be a single value");
+        }
+        return parser.getText();
+    }
+
+    private static Inventory toInventory(String name, String category, String price, String expiryDate,
+                                         String dateCreated, String dateUpdated, String quantity, String stockStatus) {
+        if (isBlank(name)) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (isBlank(category)) {
+            throw new IllegalArgumentException("category is required");
+        }
+        BigDecimal parsedPrice;
+        try {
+            parsedPrice = new BigDecimal(price.trim());
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException("price must be a decimal number");
+        }
+        if (parsedPrice.signum() < 0) {
+            throw new IllegalArgumentException("price must not be negative");
+        }
+        int parsedQuantity = 0;
+        if (!isBlank(quantity)) {
+            try {
+                parsedQuantity = Integer.parseInt(quantity.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("quantity must be an integer");
+            }
+            if (parsedQuantity < 0) {
+                throw new IllegalArgumentException("quantity must not be negative");
+            }
+        }
+        StockStatus parsedStatus;
+        if (isBlank(stockStatus)) {
+            parsedStatus = (parsedQuantity > 0) ? StockStatus.IN_STOCK : StockStatus.OUT_OF_STOCK;
+        } else {
+            try {
+                parsedStatus = StockStatus.valueOf(stockStatus.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid stockStatus: " + stockStatus);
+            }
+        }
+        LocalDate created = parseDate("dateCreated", dateCreated);
+        Product product = new Product(null, name.trim(), category.trim(), parsedPrice,
+                parseDate("expiryDate", expiryDate), (created != null) ? created : LocalDate.now(),
+                parseDate("dateUpdated", dateUpdated));
+        return new Inventory(0L, product, parsedQuantity, parsedStatus);
+    }
+
+    private static LocalDate parseDate(String field, String value) {
+        if (isBlank(value)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " must be an ISO date (yyyy-MM-dd)");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
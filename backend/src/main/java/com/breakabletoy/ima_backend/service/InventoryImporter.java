@@ -0,0 +1,257 @@
+package com.breakabletoy.ima_backend.service;
+
+import com.breakabletoy.ima_backend.dto.ImportErrorDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.enums.CatalogFormat;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.BatchResult;
+import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import com.breakabletoy.ima_backend.response.ImportResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/*
+ * InventoryImporter loads a CSV or NDJSON stream into the repository.
+ *
+ * Pipeline:
+ * - The calling thread reads the body line by line and cuts it into chunks of CHUNK_ROWS rows.
+ * - Every chunk is parsed and validated on the executor, so parsing runs on all cores while the
+ *   body is still being read. At most maxInFlight chunks are queued, so a large body never sits
+ *   in memory at once.
+ * - Parsed chunks are taken back in file order and their items are committed to the repository
+ *   with applyBatch every BATCH_ROWS rows, which takes one lock acquisition and one log flush per
+ *   batch. IDs are therefore assigned in file order.
+ * - Rejected rows are reported with their line number, up to MAX_REPORTED_ERRORS; progress is logged
+ *   after every batch.
+ */
+public class InventoryImporter {
+    private static final Logger log = LoggerFactory.getLogger(InventoryImporter.class);
+
+    private static final int CHUNK_ROWS = 1_000;
+    private static final int BATCH_ROWS = 10_000;
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+
+    private final InventoryRepository inventoryRepository;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    /*
+     * @param inventoryRepository The repository the rows are committed to.
+     * @param executor The executor the chunks are parsed on.
+     * @param parallelism The number of chunks parsed at the same time.
+     */
+    public InventoryImporter(InventoryRepository inventoryRepository, ExecutorService executor, int parallelism) {
+        this.inventoryRepository = inventoryRepository;
+        this.executor = executor;
+        this.maxInFlight = Math.max(1, parallelism) * 2;
+    }
+
+    /*
+     * Imports every row of the given stream.
+     *
+     * @param inputStream The UTF-8 body to read.
+     * @param format The format of the body.
+     * @return The number of rows read, stored and rejected, and the rejected rows.
+     */
+    public ImportResponse importFrom(InputStream inputStream, CatalogFormat format) throws IOException {
+        Run run = new Run();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), 1 << 16);
+        Deque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try {
+            InventoryImportParser.CsvColumns columns = null;
+            if (format == CatalogFormat.CSV) {
+                String header = readRecord(reader, format, run);
+                if (header == null) {
+                    return run.toResponse();
+                }
+                columns = InventoryImportParser.parseCsvHeader(header);
+            }
+            InventoryImportParser.CsvColumns csvColumns = columns;
+
+            List<String> records = new ArrayList<>(CHUNK_ROWS);
+            long[] lines = new long[CHUNK_ROWS];
+            String record;
+            while ((record = readRecord(reader, format, run)) != null) {
+                if (record.isBlank()) {
+                    continue;
+                }
+                lines[records.size()] = run.recordLine;
+                records.add(record);
+                if (records.size() == CHUNK_ROWS) {
+                    submit(inFlight, records, lines, csvColumns, run);
+                    records = new ArrayList<>(CHUNK_ROWS);
+                    lines = new long[CHUNK_ROWS];
+                }
+            }
+            if (!records.isEmpty()) {
+                submit(inFlight, records, lines, csvColumns, run);
+            }
+            while (!inFlight.isEmpty()) {
+                collect(inFlight.poll(), run);
+            }
+            commit(run);
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        log.info("Import finished: {} rows read, {} imported, {} failed", run.rowsRead, run.imported, run.failed);
+        return run.toResponse();
+    }
+
+    private void submit(Deque<Future<ParsedChunk>> inFlight, List<String> records, long[] lines,
+                        InventoryImportParser.CsvColumns columns, Run run) {
+        run.rowsRead += records.size();
+        inFlight.add(executor.submit(() -> parseChunk(records, lines, columns)));
+        while (inFlight.size() >= maxInFlight) {
+            collect(inFlight.poll(), run);
+        }
+    }
+
+    private void collect(Future<ParsedChunk> future, Run run) {
+        ParsedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import failed", e.getCause());
+        }
+        chunk.errors.forEach(run::addError);
+        run.pendingItems.addAll(chunk.items);
+        for (int i = 0; i < chunk.itemCount; i++) {
+            run.pendingLines.add(chunk.itemLines[i]);
+        }
+        if (run.pendingItems.size() >= BATCH_ROWS) {
+            commit(run);
+        }
+    }
+
+    private void commit(Run run) {
+        if (run.pendingItems.isEmpty()) {
+            return;
+        }
+        List<BatchOperation> operations = new ArrayList<>(run.pendingItems.size());
+        for (Inventory item : run.pendingItems) {
+            operations.add(BatchOperation.create(item));
+        }
+        List<BatchResult> results = inventoryRepository.applyBatch(operations);
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i).isSuccess()) {
+                run.imported++;
+            } else {
+                run.addError(new ImportErrorDTO(run.pendingLines.get(i), results.get(i).getError()));
+            }
+        }
+        run.pendingItems.clear();
+        run.pendingLines.clear();
+        log.info("Import progress: {} rows read, {} imported, {} failed", run.rowsRead, run.imported, run.failed);
+    }
+
+    private static ParsedChunk parseChunk(List<String> records, long[] lines, InventoryImportParser.CsvColumns columns) {
+        ParsedChunk chunk = new ParsedChunk(records.size());
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                Inventory item = (columns != null)
+                        ? InventoryImportParser.parseCsvRecord(records.get(i), columns)
+                        : InventoryImportParser.parseJsonLine(records.get(i));
+                chunk.items.add(item);
+                chunk.itemLines[chunk.itemCount++] = lines[i];
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add(new ImportErrorDTO(lines[i], e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    /*
+     * Reads the next record. For CSV a quoted field may contain line breaks, so physical lines are
+     * joined until the quotes are balanced. An NDJSON record is always one line: JSON escapes line
+     * breaks, and its quotes need not balance (an escaped \" inside a string). Sets run.recordLine
+     * to the line the record starts on.
+     */
+    private static String readRecord(BufferedReader reader, CatalogFormat format, Run run) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+        run.line++;
+        run.recordLine = run.line;
+        if (format != CatalogFormat.CSV || countQuotes(line) % 2 == 0) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        int quotes = countQuotes(line);
+        while (quotes % 2 != 0 && (line = reader.readLine()) != null) {
+            run.line++;
+            record.append('\n').append(line);
+            quotes += countQuotes(line);
+        }
+        return record.toString();
+    }
+
+    private static int countQuotes(String line) {
+        int quotes = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    /*
+     * The rows of one chunk that passed validation, with their line numbers, and the rejected rows.
+     */
+    private static class ParsedChunk {
+        private final List<Inventory> items;
+        private final long[] itemLines;
+        private int itemCount;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        private ParsedChunk(int size) {
+            items = new ArrayList<>(size);
+            itemLines = new long[size];
+        }
+    }
+
+    /*
+     * The state of one import, owned by the calling thread.
+     */
+    private static class Run {
+        private long line;
+        private long recordLine;
+        private long rowsRead;
+        private long imported;
+        private long failed;
+        private final List<Inventory> pendingItems = new ArrayList<>();
+        private final List<Long> pendingLines = new ArrayList<>();
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+
+        private void addError(ImportErrorDTO error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(error);
+            }
+        }
+
+        private ImportResponse toResponse() {
+            errors.sort(Comparator.comparingLong(ImportErrorDTO::getLine));
+            return new ImportResponse(rowsRead, imported, failed, errors);
+        }
+    }
+}
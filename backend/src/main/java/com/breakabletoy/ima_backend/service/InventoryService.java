@@ -1,34 +1,69 @@
 package com.breakabletoy.ima_backend.service;
 
+import com.breakabletoy.ima_backend.dto.BatchOperationDTO;
+import com.breakabletoy.ima_backend.dto.BatchResultDTO;
 import com.breakabletoy.ima_backend.dto.CategoryMetric;
 import com.breakabletoy.ima_backend.dto.InventoryDTO;
 import com.breakabletoy.ima_backend.dto.MetricsDTO;
 import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.dto.StockAdjustmentDTO;
 import com.breakabletoy.ima_backend.entity.Inventory;
-import com.breakabletoy.ima_backend.entity.Product;
-import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.enums.CatalogFormat;
 import com.breakabletoy.ima_backend.mapper.InventoryMapper;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.BatchResult;
+import com.breakabletoy.ima_backend.repository.ChangeSet;
 import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import com.breakabletoy.ima_backend.repository.QueryResult;
+import com.breakabletoy.ima_backend.response.BatchResponse;
+import com.breakabletoy.ima_backend.response.ChangesResponse;
+import com.breakabletoy.ima_backend.response.ImportResponse;
+import com.breakabletoy.ima_backend.response.PaginatedResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class InventoryService implements IInventoryService {
     private final InventoryRepository inventoryRepository;
+    private final InventoryImporter inventoryImporter;
+    private final QueryResultCache queryResultCache;
+
+    /*
+     * Constructor for InventoryService without a query result cache.
+     */
+    public InventoryService(InventoryRepository inventoryRepository) {
+        this(inventoryRepository, QueryResultCache.DISABLED);
+    }
+
+    /*
+     * Constructor for InventoryService with imports parsed on the common fork-join pool.
+     */
+    public InventoryService(InventoryRepository inventoryRepository, QueryResultCache queryResultCache) {
+        this(inventoryRepository, queryResultCache, BackgroundThreads.PLATFORM);
+    }
 
     /*
      * Constructor for InventoryService.
-     * Receives an InventoryRepository via dependency injection.
+     * Receives an InventoryRepository, the cache of query results and the threads imports parse
+     * their rows on via dependency injection.
      */
     @Autowired
-    public InventoryService(InventoryRepository inventoryRepository) {
+    public InventoryService(InventoryRepository inventoryRepository, QueryResultCache queryResultCache,
+                            BackgroundThreads backgroundThreads) {
         this.inventoryRepository = inventoryRepository;
+        this.inventoryImporter = new InventoryImporter(inventoryRepository, backgroundThreads.importExecutor(),
+                backgroundThreads.importParallelism());
+        this.queryResultCache = queryResultCache;
     }
 
     /*
@@ -49,15 +84,23 @@ public class InventoryService implements IInventoryService {
     /*
      * Retrieves a paginated list of inventory items.
      * Fetches inventory items from the repository using the provided pagination request,
-     * then maps each Inventory entity to an InventoryDTO.
+     * then maps each Inventory entity to an InventoryDTO. The total item count comes from
+     * the same repository query as the page.
+     * Responses are cached per normalized request and reused until the next write to the repository.
      *
      * @param paginationRequestDTO the pagination, filtering, and sorting parameters
-     * @return a list of InventoryDTOs
+     * @return the page of InventoryDTOs and the total number of matching items
      */
     @Override
-    public List<InventoryDTO> getInventory(PaginationRequestDTO paginationRequestDTO) {
-        List<Inventory> inventory =  inventoryRepository.findAll(paginationRequestDTO);
-        return inventory.stream().map((inventoryItem) -> InventoryMapper.mapToInventoryDto(inventoryItem)).collect(Collectors.toList());
+    public PaginatedResponse<InventoryDTO> getInventory(PaginationRequestDTO paginationRequestDTO) {
+        long version = inventoryRepository.getVersion();
+        return queryResultCache.get(paginationRequestDTO, version, () -> findInventory(paginationRequestDTO));
+    }
+
+    private PaginatedResponse<InventoryDTO> findInventory(PaginationRequestDTO paginationRequestDTO) {
+        QueryResult<Inventory> result = inventoryRepository.findAll(paginationRequestDTO);
+        List<InventoryDTO> items = result.getItems().stream().map((inventoryItem) -> InventoryMapper.mapToInventoryDto(inventoryItem)).collect(Collectors.toList());
+        return new PaginatedResponse<>(items, result.getTotalItems(), result.getNextCursor());
     }
 
     /*
@@ -76,38 +119,47 @@ public class InventoryService implements IInventoryService {
         return InventoryMapper.mapToInventoryDto(updatedInventoryItem);
     }
 
+    /*
+     * Adjusts the stock of a product by a number of units.
+     * The repository applies the delta atomically and derives the stock status from the new quantity,
+     * so concurrent adjustments of the same product never overwrite each other. When the adjustment
+     * carries an expected version, it is only applied if the product is still at that version.
+     *
+     * @param id the ID of the product to adjust
+     * @param stockAdjustmentDTO the delta and the optional expected version
+     * @return the adjusted InventoryDTO, with its new version
+     * @throws StockConflictException if the product changed since the expected version or has fewer units than removed
+     */
+    @Override
+    public InventoryDTO adjustStock(Long id, StockAdjustmentDTO stockAdjustmentDTO) {
+        Inventory adjustedInventoryItem = inventoryRepository.adjustStock(id, stockAdjustmentDTO.getDelta(), stockAdjustmentDTO.getExpectedVersion());
+        return InventoryMapper.mapToInventoryDto(adjustedInventoryItem);
+    }
+
     /*
      * Marks a product as out of stock.
-     * Retrieves the product by its ID, sets its stock status to OUT_OF_STOCK and quantity to 0,
-     * updates it using the repository, and returns the updated InventoryDTO.
+     * Sets its quantity to 0 in the repository, which also sets its stock status to OUT_OF_STOCK,
+     * and returns the updated InventoryDTO.
      *
      * @param id the ID of the product to update
      * @return the updated InventoryDTO with the product marked as out of stock
      */
     @Override
     public InventoryDTO updateProductOutOfStock(Long id) {
-        Inventory inventoryItem = inventoryRepository.getById(id);
-        inventoryItem.setStockStatus(StockStatus.OUT_OF_STOCK);
-        inventoryItem.setQuantity(0);
-        Inventory updatedInventoryItem = inventoryRepository.update(inventoryItem);
-        return InventoryMapper.mapToInventoryDto(updatedInventoryItem);
+        return InventoryMapper.mapToInventoryDto(inventoryRepository.setStock(id, 0));
     }
 
     /*
      * Marks a product as in stock.
-     * Retrieves the product by its ID, sets its stock status to IN_STOCK and quantity to 10,
-     * updates it using the repository, and returns the updated InventoryDTO.
+     * Sets its quantity to 10 in the repository, which also sets its stock status to IN_STOCK,
+     * and returns the updated InventoryDTO.
      *
      * @param id the ID of the product to update
      * @return the updated InventoryDTO with the product marked as in stock
      */
     @Override
     public InventoryDTO updateProductInStock(Long id) {
-        Inventory inventoryItem = inventoryRepository.getById(id);
-        inventoryItem.setStockStatus(StockStatus.IN_STOCK);
-        inventoryItem.setQuantity(10);
-        Inventory updatedInventoryItem = inventoryRepository.update(inventoryItem);
-        return InventoryMapper.mapToInventoryDto(updatedInventoryItem);
+        return InventoryMapper.mapToInventoryDto(inventoryRepository.setStock(id, 10));
     }
 
     /*
@@ -122,74 +174,116 @@ public class InventoryService implements IInventoryService {
     }
 
     /*
-     * Retrieves a list of all product categories.
+     * Applies a batch of create, update and delete operations.
+     * Every operation is mapped to its repository form and the whole batch is handed to the
+     * repository in one call, which applies it under a single lock acquisition and a single
+     * log flush. An UPDATE takes its ID from the operation, or from the item when omitted.
      *
-     * @return a list of category names
+     * @param operations the operations to apply, in order
+     * @return the result of every operation and the success and failure counts
      */
     @Override
-    public List<String> getCategories() {
-        List<String> categories = inventoryRepository.findAllCategories();
-        return categories;
+    public BatchResponse applyBatch(List<BatchOperationDTO> operations) {
+        List<BatchOperation> batch = new ArrayList<>(operations.size());
+        for (BatchOperationDTO operation : operations) {
+            batch.add(toBatchOperation(operation));
+        }
+        List<BatchResult> results = inventoryRepository.applyBatch(batch);
+
+        List<BatchResultDTO> resultDTOs = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            InventoryDTO item = (result.getInventory() != null) ? InventoryMapper.mapToInventoryDto(result.getInventory()) : null;
+            resultDTOs.add(new BatchResultDTO(i, result.getType(), result.getId(), result.isSuccess(), item, result.getError()));
+        }
+        return new BatchResponse(resultDTOs);
+    }
+
+    private static BatchOperation toBatchOperation(BatchOperationDTO operation) {
+        if (operation.getType() == null) {
+            throw new IllegalArgumentException("Batch operation type is required");
+        }
+        Inventory item = (operation.getItem() != null) ? InventoryMapper.mapToInventory(operation.getItem()) : null;
+        return switch (operation.getType()) {
+            case CREATE -> BatchOperation.create(item);
+            case UPDATE -> {
+                if (item != null && operation.getId() != null) {
+                    item.setId(operation.getId());
+                }
+                yield BatchOperation.update(item);
+            }
+            case DELETE -> BatchOperation.delete(operation.getId());
+        };
     }
 
     /*
-     * Retrieves the total number of inventory items.
+     * Exports the whole catalog to the given stream.
+     * The items are streamed from a point-in-time snapshot of the repository and written one by one
+     * as they are read, without mapping them to DTOs, so memory use does not grow with the size of
+     * the export (object layout), and writers are not blocked while the export runs.
      *
-     * @return the total number of items
+     * @param format the output format (NDJSON or CSV)
+     * @param outputStream the stream to write to
      */
     @Override
-    public long getTotalItems() {
-        return inventoryRepository.totalItems();
+    public void exportInventory(CatalogFormat format, OutputStream outputStream) throws IOException {
+        try (Stream<Inventory> stream = inventoryRepository.streamSnapshot()) {
+            Iterable<Inventory> items = stream::iterator;
+            if (format == CatalogFormat.CSV) {
+                InventoryExportWriter.writeCsv(items, outputStream);
+            } else {
+                InventoryExportWriter.writeNdjson(items, outputStream);
+            }
+        }
+    }
+
+    /*
+     * Imports every row of a CSV or NDJSON stream as a new product.
+     * Rows are parsed and validated in parallel straight into entities and committed to the
+     * repository in large batches; rejected rows are reported with their line numbers.
+     *
+     * @param format the format of the stream (NDJSON or CSV)
+     * @param inputStream the stream to read
+     * @return the number of rows read, imported and rejected, and the rejected rows
+     */
+    @Override
+    public ImportResponse importInventory(CatalogFormat format, InputStream inputStream) throws IOException {
+        return inventoryImporter.importFrom(inputStream, format);
+    }
+
+    /*
+     * Retrieves a list of all product categories.
+     *
+     * @return a list of category names
+     */
+    @Override
+    public List<String> getCategories() {
+        List<String> categories = inventoryRepository.findAllCategories();
+        return categories;
     }
 
     /*
      * Calculates overall inventory metrics.
-     * Iterates over all inventory items and categories to compute:
+     * The per-category metrics come from the running totals maintained by the repository,
+     * and the global metrics are derived from them:
      * - Total monetary value in stock
      * - Global and per-category average price in stock
      * - Total number of products in stock
-     * Returns these metrics encapsulated in a MetricsDTO.
+     * Returns these metrics encapsulated in a MetricsDTO. The cost is O(categories).
      *
      * @return a MetricsDTO containing global metrics and category-specific metrics
      */
     @Override
     public MetricsDTO calculateMetrics() {
-        List<CategoryMetric> categoryMetrics = new ArrayList<>();
-        List<String> categories = inventoryRepository.findAllCategories();
-        List<Inventory> inventoryItems = inventoryRepository.findAllWithoutPagination();
+        List<CategoryMetric> categoryMetrics = inventoryRepository.findCategoryMetrics();
 
         BigDecimal totalValueInStock = BigDecimal.ZERO;
-        int totalProductsInStockGlobal = 0;
-
-        // Calculate metrics for each category
-        for (String category : categories) {
-            int totalProductsInStock = 0;
-            BigDecimal totalValueInStockByCategory = BigDecimal.ZERO;
-
-            for (Inventory inventory : inventoryItems) {
-                Product product = inventory.getProduct();
-
-                if (product.getCategory().equalsIgnoreCase(category) && inventory.getStockStatus() == StockStatus.IN_STOCK) {
-                    totalProductsInStock += inventory.getQuantity();
-                    totalValueInStockByCategory = totalValueInStockByCategory.add(
-                            BigDecimal.valueOf(inventory.getQuantity()).multiply(product.getPrice())
-                    );
-
-                    // Global stats
-                    totalProductsInStockGlobal += inventory.getQuantity();
-                    totalValueInStock = totalValueInStock.add(
-                            BigDecimal.valueOf(inventory.getQuantity()).multiply(product.getPrice())
-                    );
-                }
-            }
+        long totalProductsInStockGlobal = 0;
 
-            BigDecimal averagePriceInStockByCategory = (totalProductsInStock > 0)
-                    ? totalValueInStockByCategory.divide(BigDecimal.valueOf(totalProductsInStock), RoundingMode.HALF_UP)
-                    : BigDecimal.ZERO;
-
-            CategoryMetric categoryMetric = new CategoryMetric(category, totalProductsInStock, totalValueInStockByCategory, averagePriceInStockByCategory);
-            // Add a new categoryMetric
-            categoryMetrics.add(categoryMetric);
+        // Global stats
+        for (CategoryMetric categoryMetric : categoryMetrics) {
+            totalProductsInStockGlobal += categoryMetric.getTotalProductsInStock();
+            totalValueInStock = totalValueInStock.add(categoryMetric.getTotalValueInStock());
         }
 
         // Computing average price
@@ -199,4 +293,34 @@ public class InventoryService implements IInventoryService {
 
         return new MetricsDTO(totalValueInStock, averagePriceInStockGlobal, categoryMetrics);
     }
+
+    /*
+     * Returns the data version of the inventory. It changes after every write, so two equal
+     * values mean that products, categories and metrics are unchanged in between.
+     *
+     * @return the current data version
+     */
+    @Override
+    public long getDataVersion() {
+        return inventoryRepository.getVersion();
+    }
+
+    /*
+     * Retrieves the products created, updated or deleted after the given version, for replicas
+     * and offline clients that keep their own copy of the catalog.
+     * The cost grows with the number of changes, not with the size of the catalog.
+     *
+     * @param since the version returned by the previous sync, or 0 for the whole catalog
+     * @param limit the maximum number of changes to return
+     * @return the upserted products, the deleted IDs and the version to sync from next time
+     */
+    @Override
+    public ChangesResponse getChangesSince(long since, int limit) {
+        ChangeSet<Inventory> changes = inventoryRepository.findChangesSince(since, limit);
+        List<InventoryDTO> upserts = new ArrayList<>(changes.getUpserts().size());
+        for (Inventory inventory : changes.getUpserts()) {
+            upserts.add(InventoryMapper.mapToInventoryDto(inventory));
+        }
+        return new ChangesResponse(upserts, changes.getDeletedIds(), changes.getVersion(), changes.isHasMore(), changes.isResetRequired());
+    }
 }
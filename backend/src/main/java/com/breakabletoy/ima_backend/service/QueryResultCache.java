@@ -0,0 +1,188 @@
+package com.breakabletoy.ima_backend.service;
+
+import com.breakabletoy.ima_backend.dto.InventoryDTO;
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.enums.SearchMode;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.index.CategoryDictionary;
+import com.breakabletoy.ima_backend.repository.index.InventorySortField;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+import com.breakabletoy.ima_backend.response.PaginatedResponse;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+
+/*
+ * QueryResultCache keeps recent paginated query responses, so repeated query shapes (the default
+ * page, common category filters) skip the repository and the DTO mapping.
+ *
+ * Keys are normalized requests: the sort parameters are parsed into fields and directions, the
+ * categories become a sorted set of normalized names (see CategoryDictionary.normalize), the search
+ * text is lower-cased (the name index is case-insensitive) and a missing search mode means CONTAINS,
+ * so equivalent requests share one entry.
+ *
+ * Every entry records the repository data version it was computed at. A lookup only hits when the
+ * version is still current, so a write invalidates every cached response at once without touching
+ * the cache. The version is read before the query runs; a response computed while a write was in
+ * progress is stored under the older version and can never be served after the write completes.
+ *
+ * The cache is bounded by weight, one unit per item in the response plus one per entry. The entries
+ * are kept in a LinkedHashMap in access order, so the least recently used one is always the eldest:
+ * storing a response evicts from the eldest end until the cache is back within its budget, in O(1) per
+ * evicted entry. The map and the weight are only touched under one short lock (the loader runs outside
+ * of it), so the weight is exact and never overshoots the budget once a store returns.
+ * Versions only grow: the first response stored at a newer version drops every entry of the older ones
+ * at once, and a response computed at an older version than the newest cached one is not stored.
+ * Cached responses are shared between callers and must not be modified.
+ */
+public class QueryResultCache {
+    public static final QueryResultCache DISABLED = new QueryResultCache(0);
+
+    private final long maxWeight;
+    // Guards entries, weight and newestVersion.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+    private long newestVersion = Long.MIN_VALUE;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /*
+     * @param maxWeight the total number of cached items allowed; 0 disables the cache.
+     */
+    public QueryResultCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    /*
+     * Returns the cached response for the request at the given data version, or computes and caches it.
+     *
+     * @param request the query.
+     * @param version the current repository data version, read before the query runs.
+     * @param loader computes the response on a miss.
+     * @return the response.
+     */
+    public PaginatedResponse<InventoryDTO> get(PaginationRequestDTO request, long version,
+                                               Supplier<PaginatedResponse<InventoryDTO>> loader) {
+        if (maxWeight <= 0) {
+            return loader.get();
+        }
+        Key key = Key.of(request);
+        lock.lock();
+        try {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version == version) {
+                hits.increment();
+                return entry.response;
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.increment();
+        PaginatedResponse<InventoryDTO> response = loader.get();
+        Entry created = new Entry(version, response, response.getItems().size() + 1L);
+        if (created.weight <= maxWeight) {
+            put(key, created);
+        }
+        return response;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long weight() {
+        lock.lock();
+        try {
+            return weight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Stores an entry, then evicts the least recently used entries until the cache is within its budget.
+     * An entry of a newer version first drops every cached entry, all of older versions.
+     */
+    private void put(Key key, Entry created) {
+        lock.lock();
+        try {
+            if (created.version < newestVersion) {
+                return;
+            }
+            if (created.version > newestVersion) {
+                newestVersion = created.version;
+                evictions.add(entries.size());
+                entries.clear();
+                weight = 0;
+            }
+            Entry previous = entries.put(key, created);
+            weight += created.weight - ((previous != null) ? previous.weight : 0);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (weight > maxWeight) {
+                Entry evicted = eldest.next();
+                eldest.remove();
+                weight -= evicted.weight;
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Entry {
+        private final long version;
+        private final PaginatedResponse<InventoryDTO> response;
+        private final long weight;
+
+        private Entry(long version, PaginatedResponse<InventoryDTO> response, long weight) {
+            this.version = version;
+            this.response = response;
+            this.weight = weight;
+        }
+    }
+
+    /*
+     * Normalized form of a PaginationRequestDTO.
+     */
+    private record Key(int page, int size, List<InventorySortField> sortFields, List<Boolean> descending,
+                       StockStatus stockStatus, TreeSet<String> categories, String search, SearchMode searchMode,
+                       String cursor) {
+        private static Key of(PaginationRequestDTO request) {
+            SortSpec sortSpec = SortSpec.of(request);
+            TreeSet<String> categories = (request.getCategories() != null)
+                    ? new TreeSet<>(request.getCategories().stream().filter(Objects::nonNull).map(CategoryDictionary::normalize).toList())
+                    : new TreeSet<>();
+            String search = (request.getSearch() != null) ? request.getSearch().toLowerCase(Locale.ROOT) : null;
+            SearchMode searchMode = (request.getSearchMode() != null) ? request.getSearchMode() : SearchMode.CONTAINS;
+            return new Key(request.getPage(), request.getSize(), sortSpec.getFields(), sortSpec.getDescending(),
+                    request.getStockStatus(), categories, search, searchMode, request.getCursor());
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
@@ -24,6 +25,7 @@ import static org.hamcrest.Matchers.*;
 
 @SpringBootTest
 @AutoConfigureMockMvc
+@AutoConfigureObservability
 class InventoryIntegrationTest {
 
     // Used to perform HTTP requests in tests.
@@ -112,5 +114,20 @@ class InventoryIntegrationTest {
                 .andExpect(jsonPath("$.items", hasSize(0)))
                 .andExpect(jsonPath("$.totalItems").value(0));
     }
-}
 
+    @Test
+    void testPrometheusEndpointExposesInventoryMetrics() throws Exception {
+        mockMvc.perform(post("/api/products")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(inventoryDTO)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/products").param("sortBy", "price"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("inventory_catalog_size")))
+                .andExpect(content().string(containsString("inventory_repository_query_seconds_bucket")))
+                .andExpect(content().string(containsString("inventory_repository_write_seconds_count{operation=\"save\"")));
+    }
+}
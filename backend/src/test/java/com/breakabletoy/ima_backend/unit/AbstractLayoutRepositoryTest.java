@@ -0,0 +1,167 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.dto.CategoryMetric;
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.SearchMode;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.InventoryRepository;
+import com.breakabletoy.ima_backend.repository.QueryResult;
+import com.breakabletoy.ima_backend.repository.StockConflictException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * AbstractLayoutRepositoryTest checks a storage layout against the object layout: both repositories
+ * receive the same writes and must answer every query the same way. The tests of the columnar and the
+ * memory-mapped layouts extend it with the checks specific to their layout.
+ */
+abstract class AbstractLayoutRepositoryTest<R extends InventoryRepository> {
+
+    protected R repository;
+    protected InMemoryInventoryRepository objectRepository;
+
+    /*
+     * Creates the repository of the layout under test.
+     */
+    protected abstract R createRepository();
+
+    /*
+     * Fills both repositories with the same 400 random items, then updates and deletes some of them.
+     * Names, categories, prices and dates are sometimes null to cover the null encodings.
+     */
+    @BeforeEach
+    void setUp() {
+        repository = createRepository();
+        objectRepository = new InMemoryInventoryRepository();
+        Random random = new Random(11);
+        String[] categories = {"Food", "Toys", "Tools", "Garden", null};
+        for (int i = 0; i < 400; i++) {
+            Inventory inventory = randomItem(random, categories);
+            repository.save(new Inventory(inventory));
+            objectRepository.save(inventory);
+        }
+        for (int i = 0; i < 60; i++) {
+            Inventory inventory = randomItem(random, categories);
+            inventory.setId(random.nextInt(400));
+            inventory.getProduct().setId(inventory.getId());
+            if (random.nextBoolean()) {
+                repository.deleteById(inventory.getId());
+                objectRepository.deleteById(inventory.getId());
+            } else if (objectRepository.findById(inventory.getId()).isPresent()) {
+                repository.update(new Inventory(inventory));
+                objectRepository.update(inventory);
+            }
+        }
+    }
+
+    @Test
+    void testFindAll_MatchesObjectLayout() {
+        List<List<String>> sorts = List.of(List.of(), List.of("name"), List.of("category", "price"),
+                List.of("expirydate", "stock"), List.of("datecreated"), List.of("price"));
+        for (List<String> sortBy : sorts) {
+            for (String order : List.of("asc", "desc")) {
+                for (List<String> filter : List.of(List.<String>of(), List.of("Toys", "Garden"), List.of("Unknown"))) {
+                    for (String search : new String[]{null, "item1", " it"}) {
+                        for (SearchMode mode : SearchMode.values()) {
+                            for (StockStatus status : new StockStatus[]{null, StockStatus.IN_STOCK}) {
+                                String description = sortBy + " " + order + " " + filter + " " + search + " " + mode + " " + status;
+                                PaginationRequestDTO request = new PaginationRequestDTO(2, 6, sortBy, List.of(order), status, filter, search);
+                                request.setSearchMode(mode);
+                                QueryResult<Inventory> expected = objectRepository.findAll(request);
+                                QueryResult<Inventory> actual = repository.findAll(request);
+                                assertEquals(expected.getTotalItems(), actual.getTotalItems(), description);
+                                assertEquals(describe(expected.getItems()), describe(actual.getItems()), description);
+                                assertEquals(walk(objectRepository, request), walk(repository, request), description);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFindCategoryMetrics_MatchObjectLayout() {
+        assertSameCatalog();
+    }
+
+    @Test
+    void testAdjustStock_ComparesRowVersion() {
+        Inventory item = repository.findAllWithoutPagination().get(0);
+        Inventory adjusted = repository.adjustStock(item.getId(), 2, item.getVersion());
+        assertEquals(item.getQuantity() + 2, adjusted.getQuantity());
+        assertEquals(StockStatus.IN_STOCK, adjusted.getStockStatus());
+        assertEquals(adjusted.getVersion(), repository.getById(item.getId()).getVersion());
+
+        assertThrows(StockConflictException.class, () -> repository.adjustStock(item.getId(), 1, item.getVersion()));
+        assertThrows(StockConflictException.class, () -> repository.adjustStock(item.getId(), -adjusted.getQuantity() - 1, null));
+        assertEquals(StockStatus.OUT_OF_STOCK, repository.adjustStock(item.getId(), -adjusted.getQuantity(), adjusted.getVersion()).getStockStatus());
+        assertEquals(0, repository.findAllSnapshot().get(0).getQuantity());
+
+        Inventory restocked = repository.setStock(item.getId(), 10);
+        assertEquals(StockStatus.IN_STOCK, restocked.getStockStatus());
+        assertEquals(restocked.getVersion(), repository.getById(item.getId()).getVersion());
+    }
+
+    /*
+     * Checks that the categories, the category metrics and the snapshot match the object layout.
+     */
+    protected void assertSameCatalog() {
+        assertEquals(objectRepository.findAllCategories(), repository.findAllCategories());
+        List<CategoryMetric> expected = objectRepository.findCategoryMetrics();
+        List<CategoryMetric> actual = repository.findCategoryMetrics();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory());
+            assertEquals(expected.get(i).getTotalProductsInStock(), actual.get(i).getTotalProductsInStock());
+            assertEquals(0, expected.get(i).getTotalValueInStock().compareTo(actual.get(i).getTotalValueInStock()));
+            assertEquals(0, expected.get(i).getAveragePriceInStock().compareTo(actual.get(i).getAveragePriceInStock()));
+        }
+        assertEquals(describe(objectRepository.findAllSnapshot()), describe(repository.findAllSnapshot()));
+    }
+
+    protected static List<Long> ids(List<Inventory> items) {
+        return items.stream().map(Inventory::getId).toList();
+    }
+
+    private static Inventory randomItem(Random random, String[] categories) {
+        Product product = new Product(null,
+                random.nextInt(20) == 0 ? null : "Item" + random.nextInt(60) + (random.nextBoolean() ? " Item" + random.nextInt(9) : ""),
+                categories[random.nextInt(categories.length)],
+                random.nextInt(15) == 0 ? null : BigDecimal.valueOf(random.nextInt(5000), 2),
+                random.nextBoolean() ? null : LocalDate.of(2026, 1, 1).plusDays(random.nextInt(20)),
+                LocalDate.of(2025, 1, 1).plusDays(random.nextInt(5)), null);
+        return new Inventory(0L, product, random.nextInt(20),
+                random.nextBoolean() ? StockStatus.IN_STOCK : StockStatus.OUT_OF_STOCK);
+    }
+
+    private static List<Long> walk(InventoryRepository repository, PaginationRequestDTO request) {
+        PaginationRequestDTO copy = new PaginationRequestDTO(1, 7, request.getSortBy(), request.getSortOrder(),
+                request.getStockStatus(), request.getCategories(), request.getSearch());
+        copy.setSearchMode(request.getSearchMode());
+        List<Long> walked = new ArrayList<>();
+        QueryResult<Inventory> result;
+        do {
+            result = repository.findAll(copy);
+            result.getItems().forEach(inventory -> walked.add(inventory.getId()));
+            copy.setCursor(result.getNextCursor());
+        } while (result.getNextCursor() != null);
+        return walked;
+    }
+
+    private static List<String> describe(List<Inventory> items) {
+        return items.stream().map(inventory -> inventory.getId() + " " + inventory.getProduct() + " "
+                + inventory.getProduct().getDateCreate() + " " + inventory.getQuantity() + " " + inventory.getStockStatus()).toList();
+    }
+}
@@ -0,0 +1,85 @@
+package com.breakabletoy.ima_backend.unit;
+import static org.junit.jupiter.api.Assertions.*;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.BatchResult;
+import com.breakabletoy.ima_backend.repository.ChangeSet;
+import com.breakabletoy.ima_backend.repository.InventoryChangeListener;
+import com.breakabletoy.ima_backend.repository.columnar.ColumnarInventoryRepository;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+ * ColumnarInventoryRepositoryTest checks the columnar layout against the object layout (see
+ * AbstractLayoutRepositoryTest), and that the columns read back exactly what was written.
+ */
+class ColumnarInventoryRepositoryTest extends AbstractLayoutRepositoryTest<ColumnarInventoryRepository> {
+
+    @Override
+    protected ColumnarInventoryRepository createRepository() {
+        return new ColumnarInventoryRepository();
+    }
+
+    @Test
+    void testWritesRoundTripExactly() {
+        repository.clear();
+        Product product = new Product(null, "Tablet", "Electronics", new BigDecimal("300.50"),
+                null, LocalDate.of(2025, 1, 2), null);
+        Inventory saved = repository.save(new Inventory(0L, product, 4, null));
+        assertEquals(1L, saved.getId());
+
+        Inventory read = repository.getById(1L);
+        assertEquals(new BigDecimal("300.50"), read.getProduct().getPrice());
+        assertEquals(1L, read.getProduct().getId());
+        assertNull(read.getProduct().getExpiryDate());
+        assertEquals(LocalDate.of(2025, 1, 2), read.getProduct().getDateCreate());
+        assertNull(read.getStockStatus());
+        assertEquals(4, read.getQuantity());
+
+        // Prices with more decimals than the column keeps are rejected without storing anything.
+        Product tooPrecise = new Product(null, "Scale", "Tools", new BigDecimal("1.23456"), null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> repository.save(new Inventory(0L, tooPrecise, 1, StockStatus.IN_STOCK)));
+        assertEquals(1, repository.findAllWithoutPagination().size());
+        assertThrows(IllegalArgumentException.class, () -> repository.update(new Inventory(9L, product, 1, StockStatus.IN_STOCK)));
+
+        List<Inventory> snapshot = repository.findAllSnapshot();
+        List<BatchResult> results = repository.applyBatch(List.of(
+                BatchOperation.create(new Inventory(0L, new Product(null, "Pen", "Office", BigDecimal.ONE, null, null, null), 3, StockStatus.IN_STOCK)),
+                BatchOperation.delete(1L),
+                BatchOperation.delete(1L)));
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(List.of("Pen"), repository.findAllWithoutPagination().stream().map(inventory -> inventory.getProduct().getName()).toList());
+        // The snapshot still shows the state it was taken at.
+        assertEquals(List.of("Tablet"), snapshot.stream().map(inventory -> inventory.getProduct().getName()).toList());
+
+        ChangeSet<Inventory> changes = repository.findChangesSince(0, 10);
+        assertEquals(List.of(2L), ids(changes.getUpserts()));
+        assertEquals(List.of(1L), changes.getDeletedIds());
+    }
+
+    @Test
+    void testChangesSince_PurgesExpiredTombstones() throws InterruptedException {
+        ColumnarInventoryRepository shortLived = new ColumnarInventoryRepository(RepositoryMetrics.NOOP,
+                InventoryChangeListener.NONE, Duration.ofMillis(1));
+        Inventory kept = shortLived.save(new Inventory(0L, new Product(null, "Pen", "Office", BigDecimal.ONE, null, null, null), 3, StockStatus.IN_STOCK));
+        Inventory deleted = shortLived.save(new Inventory(0L, new Product(null, "Ink", "Office", BigDecimal.ONE, null, null, null), 1, StockStatus.IN_STOCK));
+        long version = shortLived.findChangesSince(0, 10).getVersion();
+        shortLived.deleteById(deleted.getId());
+        Thread.sleep(5);
+
+        // The sync drops the expired tombstone, so a version from before the deletion is below the floor.
+        assertTrue(shortLived.findChangesSince(version, 10).isResetRequired());
+        ChangeSet<Inventory> changes = shortLived.findChangesSince(0, 10);
+        assertEquals(List.of(kept.getId()), ids(changes.getUpserts()));
+        assertTrue(changes.getDeletedIds().isEmpty());
+    }
+}
@@ -1,16 +1,43 @@
 package com.breakabletoy.ima_backend.unit;
 import static org.junit.jupiter.api.Assertions.*;
+import com.breakabletoy.ima_backend.dto.CategoryMetric;
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
 import com.breakabletoy.ima_backend.entity.Inventory;
 import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.SearchMode;
 import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.BatchOperation;
+import com.breakabletoy.ima_backend.repository.BatchResult;
+import com.breakabletoy.ima_backend.repository.ChangeSet;
+import com.breakabletoy.ima_backend.repository.InventoryChangeListener;
 import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.QueryResult;
+import com.breakabletoy.ima_backend.repository.StockConflictException;
+import com.breakabletoy.ima_backend.repository.contention.StripedQuantity;
+import com.breakabletoy.ima_backend.repository.index.SortSpec;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import com.breakabletoy.ima_backend.repository.persistence.InventoryJournal;
+import com.breakabletoy.ima_backend.repository.persistence.JournalRecord;
+import com.breakabletoy.ima_backend.repository.persistence.SnapshotStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Iterator;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /*
  * InMemoryInventoryRepositoryTest sets up test data for the InMemoryInventoryRepository.
@@ -127,4 +154,672 @@ class InMemoryInventoryRepositoryTest {
         assertTrue(categories.contains("Electronics"));
         assertTrue(categories.contains("Clothing"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindAllCategories_DropsUnreferencedCategories() {
+        Inventory shirt = inventoryRepository.getById(2L);
+        Product sock = new Product(null, "Sock", new String("Clothing"), new BigDecimal("2.00"), null, LocalDate.now(), LocalDate.now());
+        inventoryRepository.save(new Inventory(0L, sock, 3, StockStatus.IN_STOCK));
+        // Items of the same category share one interned name.
+        assertSame(shirt.getProduct().getCategory(), inventoryRepository.getById(3L).getProduct().getCategory());
+
+        inventoryRepository.deleteById(2L);
+        assertEquals(List.of("Clothing", "Electronics"), inventoryRepository.findAllCategories());
+        Inventory moved = inventoryRepository.getById(3L);
+        moved.getProduct().setCategory("Garden");
+        inventoryRepository.update(moved);
+        assertEquals(List.of("Electronics", "Garden"), inventoryRepository.findAllCategories());
+
+        PaginationRequestDTO request = new PaginationRequestDTO(1, 10, null, null, null, List.of("Clothing", "Garden"), null);
+        assertEquals(List.of(3L), inventoryRepository.findAll(request).getItems().stream().map(Inventory::getId).toList());
+    }
+
+    @Test
+    void testFindAllCategories_SpellingsOfOneCategoryAreMerged() {
+        for (String spelling : List.of("clothing", " CLOTHING ", "Clothing\t")) {
+            inventoryRepository.save(new Inventory(0L, new Product(null, "Sock", spelling, new BigDecimal("2.00"),
+                    null, LocalDate.now(), LocalDate.now()), 1, StockStatus.IN_STOCK));
+        }
+
+        // Every item carries the spelling the category was first seen with.
+        assertEquals(List.of("Clothing", "Electronics"), inventoryRepository.findAllCategories());
+        assertEquals("Clothing", inventoryRepository.getById(5L).getProduct().getCategory());
+        CategoryMetric clothing = inventoryRepository.findCategoryMetrics().get(0);
+        assertEquals("Clothing", clothing.getCategory());
+        assertEquals(18, clothing.getTotalProductsInStock());
+
+        PaginationRequestDTO request = new PaginationRequestDTO(1, 10, null, null, null, List.of(" clothing"), null);
+        assertEquals(List.of(2L, 3L, 4L, 5L), inventoryRepository.findAll(request).getItems().stream().map(Inventory::getId).toList());
+    }
+
+    @Test
+    void testConcurrentSaves_AssignUniqueIds() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            final int n = i;
+            futures.add(executor.submit(() -> inventoryRepository.save(new Inventory(0L,
+                    new Product(null, "Item" + n, "Bulk", BigDecimal.ONE, null, LocalDate.now(), LocalDate.now()),
+                    1, StockStatus.IN_STOCK))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(1003, inventoryRepository.findAllWithoutPagination().size());
+    }
+
+    @Test
+    void testAdjustStock_ComparesRowVersion() {
+        long version = inventoryRepository.getById(1L).getVersion();
+
+        Inventory adjusted = inventoryRepository.adjustStock(1L, 3, version);
+        assertEquals(8, adjusted.getQuantity());
+        assertEquals(StockStatus.IN_STOCK, adjusted.getStockStatus());
+        assertNotEquals(version, adjusted.getVersion());
+        assertEquals(adjusted.getVersion(), inventoryRepository.getById(1L).getVersion());
+
+        // The version read before the adjustment is stale now; nothing is written.
+        StockConflictException conflict = assertThrows(StockConflictException.class,
+                () -> inventoryRepository.adjustStock(1L, -1, version));
+        assertEquals(StockConflictException.Reason.VERSION_MISMATCH, conflict.getReason());
+        assertEquals(8, conflict.getCurrent().getQuantity());
+        assertEquals(adjusted.getVersion(), conflict.getCurrent().getVersion());
+        assertEquals(StockConflictException.Reason.INSUFFICIENT_STOCK,
+                assertThrows(StockConflictException.class, () -> inventoryRepository.adjustStock(1L, -9, null)).getReason());
+        assertEquals(8, inventoryRepository.getById(1L).getQuantity());
+
+        assertEquals(StockStatus.OUT_OF_STOCK, inventoryRepository.adjustStock(1L, -8, null).getStockStatus());
+        assertThrows(IllegalArgumentException.class, () -> inventoryRepository.adjustStock(42L, 1, null));
+    }
+
+    @Test
+    void testAdjustStock_HotItemRejectsUnrepresentableSale() {
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(InventoryJournal.NONE, SnapshotStore.NONE,
+                RepositoryMetrics.NOOP, InventoryChangeListener.NONE, Duration.ofDays(7), 1);
+        long id = repository.save(new Inventory(0L,
+                new Product(null, "Hot item", "Bulk", BigDecimal.ONE, null, LocalDate.now(), LocalDate.now()),
+                100, StockStatus.IN_STOCK)).getId();
+        repository.adjustStock(id, -1, null);
+
+        // -Integer.MIN_VALUE overflows, so the sale must not reach the striped cells.
+        StockConflictException conflict = assertThrows(StockConflictException.class,
+                () -> repository.adjustStock(id, Integer.MIN_VALUE, null));
+        assertEquals(StockConflictException.Reason.INSUFFICIENT_STOCK, conflict.getReason());
+        assertEquals(97, repository.adjustStock(id, -2, null).getQuantity());
+        assertEquals(97, repository.getById(id).getQuantity());
+
+        StripedQuantity cells = new StripedQuantity(4, 100);
+        assertThrows(IllegalArgumentException.class, () -> cells.reserve(Integer.MIN_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> cells.reserve(0));
+        assertEquals(0, cells.takeDeltas());
+    }
+
+    @Test
+    void testSetStock_ReplacesQuantityWhileSalesGoOn() throws Exception {
+        // A threshold of 1 makes the item hot, so the sales go through the striped cells the set folds.
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(InventoryJournal.NONE, SnapshotStore.NONE,
+                RepositoryMetrics.NOOP, InventoryChangeListener.NONE, Duration.ofDays(7), 1);
+        long id = repository.save(new Inventory(0L,
+                new Product(null, "Hot item", "Bulk", BigDecimal.ONE, null, LocalDate.now(), LocalDate.now()),
+                1_000_000, StockStatus.IN_STOCK)).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                for (int n = 0; n < 1000; n++) {
+                    repository.adjustStock(id, -1, null);
+                }
+            }));
+        }
+        Inventory restocked = repository.setStock(id, 10_000_000);
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // The set lands between two sales: the ones after it are taken from the new quantity.
+        assertEquals(10_000_000, restocked.getQuantity());
+        assertTrue(repository.getById(id).getQuantity() >= 10_000_000 - 4000);
+        assertEquals(StockStatus.OUT_OF_STOCK, repository.setStock(id, 0).getStockStatus());
+        assertEquals(0, repository.getById(id).getQuantity());
+        assertThrows(IllegalArgumentException.class, () -> repository.setStock(id, -1));
+        assertThrows(IllegalArgumentException.class, () -> repository.setStock(42L, 1));
+    }
+
+    @Test
+    void testAdjustStock_ConcurrentSalesLoseNoUnits() throws Exception {
+        Inventory stock = inventoryRepository.save(new Inventory(0L,
+                new Product(null, "Hot item", "Bulk", BigDecimal.ONE, null, LocalDate.now(), LocalDate.now()),
+                4000, StockStatus.IN_STOCK));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final boolean versioned = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int sale = 0; sale < 500; sale++) {
+                    if (!versioned) {
+                        inventoryRepository.adjustStock(stock.getId(), -1, null);
+                        continue;
+                    }
+                    while (true) {
+                        try {
+                            long version = inventoryRepository.getById(stock.getId()).getVersion();
+                            inventoryRepository.adjustStock(stock.getId(), -1, version);
+                            break;
+                        } catch (StockConflictException e) {
+                            // Another sale came first: read again and retry.
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Inventory soldOut = inventoryRepository.getById(stock.getId());
+        assertEquals(0, soldOut.getQuantity());
+        assertEquals(StockStatus.OUT_OF_STOCK, soldOut.getStockStatus());
+        assertEquals(0, inventoryRepository.findCategoryMetrics().stream()
+                .filter(metric -> metric.getCategory().equals("Bulk")).findFirst().orElseThrow().getTotalProductsInStock());
+    }
+
+    @Test
+    void testAdjustStock_HotItemNeverOversells() throws Exception {
+        // A threshold of 1 makes every adjusted item hot, so all sales go through the striped cells.
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(InventoryJournal.NONE, SnapshotStore.NONE,
+                RepositoryMetrics.NOOP, InventoryChangeListener.NONE, Duration.ofDays(7), 1);
+        long id = repository.save(new Inventory(0L,
+                new Product(null, "Hot item", "Bulk", BigDecimal.ONE, null, LocalDate.now(), LocalDate.now()),
+                3000, StockStatus.IN_STOCK)).getId();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            final int units = 1 + i % 3;
+            futures.add(executor.submit(() -> {
+                int sold = 0;
+                while (true) {
+                    try {
+                        assertTrue(repository.adjustStock(id, -units, null).getQuantity() >= 0);
+                        sold += units;
+                    } catch (StockConflictException e) {
+                        // Fewer units left than this seller takes at once.
+                        return sold;
+                    }
+                }
+            }));
+        }
+        int sold = 0;
+        for (Future<Integer> future : futures) {
+            sold += future.get();
+        }
+        executor.shutdown();
+
+        Inventory stored = repository.getById(id);
+        assertEquals(3000, sold + stored.getQuantity());
+        assertTrue(stored.getQuantity() < 3);
+        assertEquals(stored.getQuantity(), repository.findCategoryMetrics().stream()
+                .filter(metric -> metric.getCategory().equals("Bulk")).findFirst().orElseThrow().getTotalProductsInStock());
+
+        // Other writes fold the cells first and reset them to the new quantity.
+        stored.setQuantity(10);
+        repository.update(stored);
+        assertEquals(7, repository.adjustStock(id, -3, null).getQuantity());
+        assertEquals(9, repository.adjustStock(id, 2, null).getQuantity());
+        assertEquals(StockStatus.OUT_OF_STOCK, repository.adjustStock(id, -9, null).getStockStatus());
+    }
+
+    @Test
+    void testStreamSnapshot_KeepsItsVersionWhileWritesGoOn() {
+        try (Stream<Inventory> stream = inventoryRepository.streamSnapshot()) {
+            Iterator<Inventory> items = stream.iterator();
+            assertEquals("Laptop", items.next().getProduct().getName());
+
+            // Writes made while the stream is read are not seen by it, including deletes of items not read yet.
+            inventoryRepository.deleteById(1L);
+            Inventory shirt = inventoryRepository.getById(2L);
+            shirt.setQuantity(99);
+            inventoryRepository.update(shirt);
+            inventoryRepository.save(new Inventory(0L, new Product(null, "Tablet", "Electronics", BigDecimal.TEN,
+                    null, LocalDate.now(), LocalDate.now()), 1, StockStatus.IN_STOCK));
+
+            assertEquals("Phone", items.next().getProduct().getName());
+            assertEquals(15, items.next().getQuantity());
+            assertFalse(items.hasNext());
+        }
+        // Once the stream is closed, the versions it pinned can go.
+        assertEquals(List.of(0L, 2L, 3L), inventoryRepository.findAllSnapshot().stream().map(Inventory::getId).toList());
+    }
+
+    @Test
+    void testGetById_ReturnsDetachedCopy() {
+        Inventory inventory = inventoryRepository.getById(0L);
+        inventory.setQuantity(0);
+
+        assertEquals(10, inventoryRepository.getById(0L).getQuantity());
+    }
+
+    @Test
+    void testFindAll_ReturnsPageWithItsOwnTotal() {
+        QueryResult<Inventory> electronics = inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 1, null, null, null, List.of("Electronics"), null));
+        QueryResult<Inventory> inStock = inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, null, null, StockStatus.IN_STOCK, null, null));
+
+        assertEquals(1, electronics.getItems().size());
+        assertEquals(2, electronics.getTotalItems());
+        assertEquals(2, inStock.getItems().size());
+        assertEquals(2, inStock.getTotalItems());
+    }
+
+    @Test
+    void testFindAll_IndexesFollowUpdatesAndDeletes() {
+        Inventory shirt = inventoryRepository.getById(2L);
+        shirt.getProduct().setCategory("Electronics");
+        shirt.setStockStatus(StockStatus.OUT_OF_STOCK);
+        inventoryRepository.update(shirt);
+        inventoryRepository.deleteById(1L);
+
+        QueryResult<Inventory> outOfStockElectronics = inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, null, null, StockStatus.OUT_OF_STOCK, List.of("Electronics"), null));
+        QueryResult<Inventory> clothing = inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, null, null, null, List.of("Clothing"), null));
+
+        assertEquals(1, outOfStockElectronics.getTotalItems());
+        assertEquals("Shirt", outOfStockElectronics.getItems().get(0).getProduct().getName());
+        assertEquals(0, clothing.getTotalItems());
+    }
+
+    @Test
+    void testFindAll_SearchContainsAndPrefix() {
+        assertEquals(2, inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, null, null, null, null, "H", SearchMode.CONTAINS)).getTotalItems());
+        assertEquals(1, inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, null, null, null, null, "aptO", SearchMode.CONTAINS)).getTotalItems());
+        assertEquals(0, inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, null, null, null, null, "h", SearchMode.PREFIX)).getTotalItems());
+
+        QueryResult<Inventory> prefix = inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, null, null, null, null, "ph", SearchMode.PREFIX));
+        assertEquals(1, prefix.getTotalItems());
+        assertEquals("Phone", prefix.getItems().get(0).getProduct().getName());
+    }
+
+    @Test
+    void testFindAll_SortsWithoutSortOrder() {
+        QueryResult<Inventory> byPrice = inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 2, List.of("price"), null, null, null, null));
+
+        assertEquals(3, byPrice.getTotalItems());
+        assertEquals("Shirt", byPrice.getItems().get(0).getProduct().getName());
+        assertEquals("Phone", byPrice.getItems().get(1).getProduct().getName());
+    }
+
+    @Test
+    void testFindAll_SortedPagesMatchFullSort() {
+        Random random = new Random(42);
+        String[] categories = {"Food", "Toys", "Tools", "Garden"};
+        for (int i = 0; i < 500; i++) {
+            Product product = new Product(null, "Item" + random.nextInt(100), categories[random.nextInt(categories.length)],
+                    BigDecimal.valueOf(random.nextInt(50)), random.nextBoolean() ? null : LocalDate.of(2026, 1, 1).plusDays(random.nextInt(30)),
+                    LocalDate.now(), LocalDate.now());
+            inventoryRepository.save(new Inventory(0L, product, random.nextInt(20),
+                    random.nextBoolean() ? StockStatus.IN_STOCK : StockStatus.OUT_OF_STOCK));
+        }
+
+        List<List<String>> sorts = List.of(List.of("price"), List.of("category", "price"), List.of("expirydate", "name"), List.of("stock"));
+        for (List<String> sortBy : sorts) {
+            for (String order : List.of("asc", "desc")) {
+                for (List<String> filter : List.of(List.<String>of(), List.of("Toys"))) {
+                    // The "Toys" + search combination is selective enough to use the top-k path.
+                    for (String search : new String[]{null, "item1"}) {
+                        PaginationRequestDTO request = new PaginationRequestDTO(1, 5, sortBy, List.of(order), null, filter, search);
+                        request.setPage(search == null ? 3 : 2);
+                        QueryResult<Inventory> result = inventoryRepository.findAll(request);
+
+                        List<Inventory> expected = new ArrayList<>(inventoryRepository.findAllWithoutPagination());
+                        expected.removeIf(inventory -> !filter.isEmpty() && !filter.contains(inventory.getProduct().getCategory()));
+                        expected.removeIf(inventory -> search != null && !inventory.getProduct().getName().toLowerCase().contains(search));
+                        expected.sort(SortSpec.of(request).getComparator());
+                        int from = (request.getPage() - 1) * 5;
+
+                        assertEquals(expected.size(), result.getTotalItems());
+                        assertEquals(expected.subList(from, from + 5).stream().map(Inventory::getId).toList(),
+                                result.getItems().stream().map(Inventory::getId).toList(), sortBy + " " + order + " " + filter + " " + search);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFindAll_CursorPagesMatchFullSort() {
+        Random random = new Random(7);
+        String[] categories = {"Food", "Toys", "Tools", "Garden"};
+        for (int i = 0; i < 300; i++) {
+            Product product = new Product(null, "Item" + random.nextInt(50), categories[random.nextInt(categories.length)],
+                    BigDecimal.valueOf(random.nextInt(20)), random.nextBoolean() ? null : LocalDate.of(2026, 1, 1).plusDays(random.nextInt(10)),
+                    LocalDate.now(), LocalDate.now());
+            inventoryRepository.save(new Inventory(0L, product, random.nextInt(20),
+                    random.nextBoolean() ? StockStatus.IN_STOCK : StockStatus.OUT_OF_STOCK));
+        }
+
+        List<List<String>> sorts = List.of(List.of(), List.of("price", "name"), List.of("expirydate"));
+        for (List<String> sortBy : sorts) {
+            for (String order : List.of("asc", "desc")) {
+                // "Toys" + search is selective enough to use the top-k path.
+                for (String search : new String[]{null, "item1"}) {
+                    List<String> filter = (search == null) ? List.of() : List.of("Toys");
+                    PaginationRequestDTO request = new PaginationRequestDTO(1, 7, sortBy, List.of(order), null, filter, search);
+                    List<Inventory> expected = new ArrayList<>(inventoryRepository.findAllWithoutPagination());
+                    expected.removeIf(inventory -> !filter.isEmpty() && !filter.contains(inventory.getProduct().getCategory()));
+                    expected.removeIf(inventory -> search != null && !inventory.getProduct().getName().toLowerCase().contains(search));
+                    expected.sort(SortSpec.of(request).getComparator());
+
+                    List<Long> walked = new ArrayList<>();
+                    QueryResult<Inventory> result;
+                    do {
+                        result = inventoryRepository.findAll(request);
+                        result.getItems().forEach(inventory -> walked.add(inventory.getId()));
+                        request.setCursor(result.getNextCursor());
+                    } while (result.getNextCursor() != null);
+
+                    assertEquals(expected.stream().map(Inventory::getId).toList(), walked, sortBy + " " + order + " " + search);
+                }
+            }
+        }
+
+        // A cursor only continues the sort it was issued for.
+        PaginationRequestDTO byPrice = new PaginationRequestDTO(1, 5, List.of("price"), null, null, null, null);
+        PaginationRequestDTO byName = new PaginationRequestDTO(1, 5, List.of("name"), null, null, null, null);
+        byName.setCursor(inventoryRepository.findAll(byPrice).getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> inventoryRepository.findAll(byName));
+        byName.setCursor("not-a-cursor");
+        assertThrows(IllegalArgumentException.class, () -> inventoryRepository.findAll(byName));
+    }
+
+    @Test
+    void testFindChangesSince() throws Exception {
+        ChangeSet<Inventory> initial = inventoryRepository.findChangesSince(0, 10);
+        assertEquals(List.of(0L, 1L, 2L), initial.getUpserts().stream().map(Inventory::getId).toList());
+        assertFalse(initial.isHasMore());
+
+        Inventory laptop = inventoryRepository.getById(0L);
+        laptop.setQuantity(3);
+        inventoryRepository.update(laptop);
+        inventoryRepository.deleteById(1L);
+        inventoryRepository.update(laptop);
+
+        // Paging through the changes one at a time.
+        ChangeSet<Inventory> first = inventoryRepository.findChangesSince(initial.getVersion(), 1);
+        assertTrue(first.isHasMore());
+        assertEquals(List.of(1L), first.getDeletedIds());
+        ChangeSet<Inventory> second = inventoryRepository.findChangesSince(first.getVersion(), 1);
+        assertFalse(second.isHasMore());
+        assertEquals(3, second.getUpserts().get(0).getQuantity());
+        assertTrue(inventoryRepository.findChangesSince(second.getVersion(), 1).getUpserts().isEmpty());
+
+        // Once its tombstone is dropped, a client that missed the delete must start over.
+        InMemoryInventoryRepository shortRetention = new InMemoryInventoryRepository(InventoryJournal.NONE, SnapshotStore.NONE,
+                RepositoryMetrics.NOOP, InventoryChangeListener.NONE, Duration.ZERO);
+        shortRetention.save(new Inventory(0L, new Product(null, "Pen", "Office", BigDecimal.ONE, null, LocalDate.now(), null),
+                1, StockStatus.IN_STOCK));
+        long synced = shortRetention.findChangesSince(0, 10).getVersion();
+        shortRetention.deleteById(0L);
+        Thread.sleep(2);
+        assertTrue(shortRetention.findChangesSince(synced, 10).isResetRequired());
+
+        inventoryRepository.clear();
+        assertTrue(inventoryRepository.findChangesSince(second.getVersion(), 10).isResetRequired());
+    }
+
+    @Test
+    void testChangeListener_ReadsSeeTheChange() {
+        // Every event is checked by a reader on another thread, as the change feed's subscribers would.
+        List<String> seen = new ArrayList<>();
+        InMemoryInventoryRepository[] holder = new InMemoryInventoryRepository[1];
+        InventoryChangeListener listener = new InventoryChangeListener() {
+            @Override
+            public void onChange(Inventory previous, Inventory current) {
+                long id = (current != null) ? current.getId() : previous.getId();
+                seen.add(CompletableFuture.supplyAsync(() -> {
+                    Inventory read = holder[0].getById(id);
+                    return holder[0].getVersion() + ":" + ((read != null) ? read.getQuantity() : "deleted");
+                }).join());
+            }
+
+            @Override
+            public void onClear() {
+            }
+        };
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(InventoryJournal.NONE, SnapshotStore.NONE,
+                RepositoryMetrics.NOOP, listener);
+        holder[0] = repository;
+
+        Inventory pen = repository.save(new Inventory(0L, new Product(null, "Pen", "Office", BigDecimal.ONE, null,
+                LocalDate.now(), null), 1, StockStatus.IN_STOCK));
+        pen.setQuantity(7);
+        repository.update(pen);
+        repository.adjustStock(pen.getId(), -2, null);
+        repository.deleteById(pen.getId());
+
+        assertEquals(List.of("1:1", "2:7", "3:5", "4:deleted"), seen);
+    }
+
+    @Test
+    void testWrites_RejectedByTheJournalLeaveNothingBehind() {
+        boolean[] failing = new boolean[1];
+        InventoryJournal journal = new InventoryJournal() {
+            @Override
+            public long append(JournalRecord record) {
+                if (failing[0]) {
+                    throw new UncheckedIOException("Write-ahead log failure", new IOException("No space left on device"));
+                }
+                return 0;
+            }
+
+            @Override
+            public void awaitDurable(long position) {
+            }
+
+            @Override
+            public long checkpoint() {
+                return 0;
+            }
+
+            @Override
+            public void truncateBefore(long checkpoint) {
+            }
+
+            @Override
+            public void replay(long fromCheckpoint, Consumer<JournalRecord> consumer) {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(journal, SnapshotStore.NONE, RepositoryMetrics.NOOP);
+        Inventory pen = repository.save(new Inventory(0L, new Product(null, "Pen", "Office", BigDecimal.ONE, null,
+                LocalDate.now(), null), 5, StockStatus.IN_STOCK));
+        long version = repository.getVersion();
+
+        failing[0] = true;
+        assertThrows(UncheckedIOException.class, () -> repository.save(new Inventory(0L, new Product(null, "Ink", "Office",
+                BigDecimal.ONE, null, LocalDate.now(), null), 1, StockStatus.IN_STOCK)));
+        Inventory renamed = repository.getById(pen.getId());
+        renamed.getProduct().setName("Marker");
+        assertThrows(UncheckedIOException.class, () -> repository.update(renamed));
+        assertThrows(UncheckedIOException.class, () -> repository.adjustStock(pen.getId(), -1, null));
+        assertThrows(UncheckedIOException.class, () -> repository.deleteById(pen.getId()));
+
+        assertEquals(version, repository.getVersion());
+        Inventory stored = repository.getById(pen.getId());
+        assertEquals("Pen", stored.getProduct().getName());
+        assertEquals(5, stored.getQuantity());
+        assertEquals(pen.getVersion(), stored.getVersion());
+        assertEquals(0, repository.findAll(new PaginationRequestDTO(1, 10, null, null, null, null, "marker")).getTotalItems());
+        assertEquals(1, repository.findAll(new PaginationRequestDTO(1, 10, null, null, null, null, "pen")).getTotalItems());
+        assertEquals(List.of("Office"), repository.findAllCategories());
+
+        // No ID was used up by the rejected save.
+        failing[0] = false;
+        assertEquals(pen.getId() + 1, repository.save(new Inventory(0L, new Product(null, "Ink", "Office",
+                BigDecimal.ONE, null, LocalDate.now(), null), 1, StockStatus.IN_STOCK)).getId());
+    }
+
+    @Test
+    void testFindAll_InvalidSortField() {
+        assertThrows(IllegalArgumentException.class, () -> inventoryRepository.findAll(
+                new PaginationRequestDTO(1, 10, List.of("color"), null, null, null, null)));
+    }
+
+    @Test
+    void testFindCategoryMetrics_FollowWrites() {
+        List<CategoryMetric> metrics = inventoryRepository.findCategoryMetrics();
+        assertEquals("Clothing", metrics.get(0).getCategory());
+        assertEquals(15, metrics.get(0).getTotalProductsInStock());
+        assertEquals(0, new BigDecimal("300").compareTo(metrics.get(0).getTotalValueInStock()));
+        assertEquals(10, metrics.get(1).getTotalProductsInStock());
+        assertEquals(0, new BigDecimal("10000").compareTo(metrics.get(1).getTotalValueInStock()));
+
+        Inventory laptop = inventoryRepository.getById(0L);
+        laptop.setQuantity(4);
+        inventoryRepository.update(laptop);
+        Inventory phone = inventoryRepository.getById(1L);
+        phone.setStockStatus(StockStatus.IN_STOCK);
+        inventoryRepository.update(phone);
+        inventoryRepository.deleteById(2L);
+
+        // Clothing lost its only item, so it is no longer listed.
+        metrics = inventoryRepository.findCategoryMetrics();
+        assertEquals(1, metrics.size());
+        assertEquals("Electronics", metrics.get(0).getCategory());
+        assertEquals(9, metrics.get(0).getTotalProductsInStock());
+        assertEquals(0, new BigDecimal("6500").compareTo(metrics.get(0).getTotalValueInStock()));
+        assertEquals(0, new BigDecimal("722.22").compareTo(metrics.get(0).getAveragePriceInStock()));
+    }
+
+    @Test
+    void testFindCategoryMetrics_UnitsBeyondIntRange() {
+        for (int i = 0; i < 2; i++) {
+            inventoryRepository.save(new Inventory(0L, new Product(null, "Pallet " + i, "Bulk", new BigDecimal("1.00"),
+                    null, LocalDate.now(), LocalDate.now()), Integer.MAX_VALUE, StockStatus.IN_STOCK));
+        }
+
+        CategoryMetric bulk = inventoryRepository.findCategoryMetrics().stream()
+                .filter(metric -> metric.getCategory().equals("Bulk")).findFirst().orElseThrow();
+        assertEquals(2L * Integer.MAX_VALUE, bulk.getTotalProductsInStock());
+    }
+
+    @Test
+    void testApplyBatch() {
+        Product tablet = new Product(null, "Tablet", "Electronics", new BigDecimal("300.00"),
+                null, LocalDate.now(), LocalDate.now());
+        Inventory laptop = inventoryRepository.getById(0L);
+        laptop.setQuantity(42);
+        Inventory missing = new Inventory(999L, new Product(null, "Ghost", "Other", BigDecimal.ONE, null, null, null), 1, StockStatus.IN_STOCK);
+        long version = inventoryRepository.getVersion();
+
+        List<BatchResult> results = inventoryRepository.applyBatch(List.of(
+                BatchOperation.create(new Inventory(0L, tablet, 4, StockStatus.IN_STOCK)),
+                BatchOperation.update(laptop),
+                BatchOperation.update(missing),
+                BatchOperation.delete(2L),
+                BatchOperation.delete(2L)));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(3L, results.get(0).getId());
+        assertEquals("Tablet", inventoryRepository.getById(3L).getProduct().getName());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(42, inventoryRepository.getById(0L).getQuantity());
+        // A failing operation is reported and does not stop the rest of the batch.
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("Inventory ID not found for update", results.get(2).getError());
+        assertTrue(results.get(3).isSuccess());
+        assertFalse(inventoryRepository.findById(2L).isPresent());
+        assertFalse(results.get(4).isSuccess());
+        assertEquals(3, inventoryRepository.findAllWithoutPagination().size());
+        // The whole batch is published as one version.
+        assertEquals(version + 1, inventoryRepository.getVersion());
+    }
+
+    @Test
+    void testApplyBatch_MalformedOperationsAreReported() {
+        // An item that cannot be read, standing in for any operation failing with an unexpected exception.
+        Inventory unreadable = new Inventory(0L, null, 1, StockStatus.IN_STOCK) {
+            @Override
+            public Product getProduct() {
+                throw new NullPointerException();
+            }
+        };
+        Product tablet = new Product(null, "Tablet", "Electronics", new BigDecimal("300.00"),
+                null, LocalDate.now(), LocalDate.now());
+
+        List<BatchResult> results = inventoryRepository.applyBatch(List.of(
+                BatchOperation.create(unreadable),
+                BatchOperation.create(new Inventory(0L, tablet, 4, StockStatus.IN_STOCK))));
+
+        // The exception fails its own operation only, with an error, instead of the whole request.
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("NullPointerException", results.get(0).getError());
+        assertTrue(results.get(1).isSuccess());
+        assertEquals("Tablet", inventoryRepository.getById(results.get(1).getId()).getProduct().getName());
+    }
+
+    @Test
+    void testReads_NeverSeeHalfAppliedBatches() throws Exception {
+        long first = inventoryRepository.save(new Inventory(0L, new Product(null, "Batch 0 A", "Food", BigDecimal.ONE,
+                null, LocalDate.now(), LocalDate.now()), 50, StockStatus.IN_STOCK)).getId();
+        long second = inventoryRepository.save(new Inventory(0L, new Product(null, "Batch 0 B", "Food", BigDecimal.ONE,
+                null, LocalDate.now(), LocalDate.now()), 50, StockStatus.IN_STOCK)).getId();
+
+        // Every batch moves stock between the two items and renames both, so any consistent read
+        // finds 100 units and the same batch number in both names.
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Future<?> writer = executor.submit(() -> {
+            Random random = new Random(5);
+            for (int n = 1; n <= 2000; n++) {
+                int quantity = random.nextInt(101);
+                Inventory a = inventoryRepository.getById(first);
+                Inventory b = inventoryRepository.getById(second);
+                a.setQuantity(quantity);
+                a.getProduct().setName("Batch " + n + " A");
+                b.setQuantity(100 - quantity);
+                b.getProduct().setName("Batch " + n + " B");
+                inventoryRepository.applyBatch(List.of(BatchOperation.update(a), BatchOperation.update(b)));
+            }
+        });
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(executor.submit(() -> {
+                PaginationRequestDTO byStock = new PaginationRequestDTO(1, 10, List.of("stock"), List.of("asc"), null, List.of("Food"), null);
+                PaginationRequestDTO bySearch = new PaginationRequestDTO(1, 10, List.of("name"), List.of("asc"), null, null, "batch");
+                bySearch.setSearchMode(SearchMode.PREFIX);
+                while (!writer.isDone()) {
+                    CategoryMetric food = inventoryRepository.findCategoryMetrics().stream()
+                            .filter(metric -> metric.getCategory().equals("Food")).findFirst().orElseThrow();
+                    assertEquals(100, food.getTotalProductsInStock());
+
+                    QueryResult<Inventory> page = inventoryRepository.findAll(byStock);
+                    assertEquals(2, page.getTotalItems());
+                    assertEquals(100, page.getItems().stream().mapToInt(Inventory::getQuantity).sum());
+
+                    List<String> names = inventoryRepository.findAll(bySearch).getItems().stream()
+                            .map(inventory -> inventory.getProduct().getName()).toList();
+                    assertEquals(2, names.size());
+                    assertEquals(names.get(0).replace(" A", ""), names.get(1).replace(" B", ""));
+                }
+            }));
+        }
+        writer.get();
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,186 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.dto.InventoryChangeEventDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.InventoryChangeType;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.persistence.InventoryJournal;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import com.breakabletoy.ima_backend.repository.persistence.SnapshotStore;
+import com.breakabletoy.ima_backend.service.InventoryChangeFeed;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * InventoryChangeFeedTest checks that repository changes reach the subscribers in order,
+ * that a subscriber can resume from a sequence, and that a slow subscriber gets coalesced events.
+ */
+class InventoryChangeFeedTest {
+
+    private final InventoryChangeFeed feed = new InventoryChangeFeed(100, 4, 60, Executors.newSingleThreadExecutor());
+    private final InMemoryInventoryRepository repository = new InMemoryInventoryRepository(
+            InventoryJournal.NONE, SnapshotStore.NONE, RepositoryMetrics.NOOP, feed);
+
+    /*
+     * Records the events it receives; blocks on the first one until released.
+     */
+    private static class RecordingSink implements InventoryChangeFeed.EventSink {
+        private final List<InventoryChangeEventDTO> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch firstSent = new CountDownLatch(1);
+        private final CountDownLatch release;
+
+        RecordingSink(boolean blocked) {
+            this.release = new CountDownLatch(blocked ? 1 : 0);
+        }
+
+        @Override
+        public void send(InventoryChangeEventDTO event) {
+            firstSent.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            events.add(event);
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        List<InventoryChangeType> awaitTypes(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (events.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            return events.stream().map(InventoryChangeEventDTO::getType).toList();
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    private Inventory save(String name, int quantity) {
+        return repository.save(new Inventory(0L, new Product(null, name, "Misc", new BigDecimal("1.00"),
+                null, LocalDate.now(), null), quantity, StockStatus.IN_STOCK));
+    }
+
+    @Test
+    void testPublishesChangesAndResumes() throws Exception {
+        RecordingSink live = new RecordingSink(false);
+        feed.subscribe(live, null);
+
+        Inventory laptop = save("Laptop", 3);
+        laptop.setStockStatus(StockStatus.OUT_OF_STOCK);
+        laptop.setQuantity(0);
+        repository.update(laptop);
+        laptop.setQuantity(5);
+        repository.update(laptop);
+        repository.deleteById(laptop.getId());
+
+        assertEquals(List.of(InventoryChangeType.CREATED, InventoryChangeType.OUT_OF_STOCK,
+                InventoryChangeType.UPDATED, InventoryChangeType.DELETED), live.awaitTypes(4));
+        long first = live.events.get(0).getSequence();
+        assertEquals(List.of(first, first + 1, first + 2, first + 3), live.events.stream().map(InventoryChangeEventDTO::getSequence).toList());
+        assertEquals(0, live.events.get(1).getQuantity());
+
+        // Resuming after the second event replays the last two from the history.
+        RecordingSink resumed = new RecordingSink(false);
+        feed.subscribe(resumed, first + 1);
+        assertEquals(List.of(InventoryChangeType.UPDATED, InventoryChangeType.DELETED), resumed.awaitTypes(2));
+
+        // A sequence from another run cannot be resumed.
+        RecordingSink stale = new RecordingSink(false);
+        feed.subscribe(stale, 50L);
+        assertEquals(List.of(InventoryChangeType.RESYNC), stale.awaitTypes(1));
+    }
+
+    @Test
+    void testSequenceOfAnEarlierRunIsNotResumed() throws Exception {
+        RecordingSink live = new RecordingSink(false);
+        feed.subscribe(live, null);
+        save("Laptop", 3);
+        save("Phone", 2);
+        live.awaitTypes(2);
+        long lastEventId = live.events.get(0).getSequence();
+        feed.close();
+
+        // After a restart, the new run has already passed the old sequence when the client comes back.
+        Thread.sleep(5);
+        try (InventoryChangeFeed restarted = new InventoryChangeFeed(100, 4, 60, Executors.newSingleThreadExecutor())) {
+            InMemoryInventoryRepository restartedRepository = new InMemoryInventoryRepository(
+                    InventoryJournal.NONE, SnapshotStore.NONE, RepositoryMetrics.NOOP, restarted);
+            RecordingSink watcher = new RecordingSink(false);
+            restarted.subscribe(watcher, null);
+            for (int i = 0; i < 5; i++) {
+                restartedRepository.save(new Inventory(0L, new Product(null, "Item " + i, "Misc", BigDecimal.ONE,
+                        null, LocalDate.now(), null), 1, StockStatus.IN_STOCK));
+            }
+            watcher.awaitTypes(5);
+            assertTrue(watcher.events.get(0).getSequence() > lastEventId);
+
+            RecordingSink resumed = new RecordingSink(false);
+            restarted.subscribe(resumed, lastEventId);
+            assertEquals(List.of(InventoryChangeType.RESYNC), resumed.awaitTypes(1));
+            Thread.sleep(50);
+            assertEquals(1, resumed.events.size());
+        }
+    }
+
+    @Test
+    void testCoalescesEventsForSlowSubscribers() throws Exception {
+        RecordingSink slow = new RecordingSink(true);
+        feed.subscribe(slow, null);
+
+        Inventory first = save("First", 1);
+        assertTrue(slow.firstSent.await(5, TimeUnit.SECONDS));
+        Inventory second = save("Second", 1);
+        // Ten updates of two products fit in a buffer of four once coalesced.
+        for (int i = 2; i <= 6; i++) {
+            first.setQuantity(i);
+            repository.update(first);
+            second.setQuantity(i * 10);
+            repository.update(second);
+        }
+        Thread.sleep(100);
+        slow.release.countDown();
+
+        // The in-flight event plus at most a full buffer arrive, and they still end in the latest state.
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Integer.valueOf(60).equals(lastQuantity(slow.events, second.getId())) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(slow.events.size() <= 5, slow.events.size() + " events");
+        assertEquals(InventoryChangeType.CREATED, slow.events.get(0).getType());
+        assertEquals(6, lastQuantity(slow.events, first.getId()));
+        assertEquals(60, lastQuantity(slow.events, second.getId()));
+    }
+
+    private static Integer lastQuantity(List<InventoryChangeEventDTO> events, long id) {
+        Integer quantity = null;
+        for (InventoryChangeEventDTO event : events) {
+            if (event.getId() == id) {
+                quantity = event.getQuantity();
+            }
+        }
+        return quantity;
+    }
+}
@@ -1,10 +1,20 @@
 package com.breakabletoy.ima_backend.unit;
 
 import com.breakabletoy.ima_backend.controller.InventoryController;
+import com.breakabletoy.ima_backend.dto.BatchOperationDTO;
+import com.breakabletoy.ima_backend.dto.BatchResultDTO;
 import com.breakabletoy.ima_backend.dto.InventoryDTO;
 import com.breakabletoy.ima_backend.dto.MetricsDTO;
 import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.dto.StockAdjustmentDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.BatchOperationType;
+import com.breakabletoy.ima_backend.enums.CatalogFormat;
 import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.StockConflictException;
+import com.breakabletoy.ima_backend.response.BatchResponse;
+import com.breakabletoy.ima_backend.response.PaginatedResponse;
 import com.breakabletoy.ima_backend.service.InventoryService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,11 +24,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -58,8 +73,7 @@ class InventoryControllerTest {
         List<InventoryDTO> inventoryList = List.of(inventoryDTO);
         long totalItems = 1L;
 
-        when(inventoryService.getInventory(any(PaginationRequestDTO.class))).thenReturn(inventoryList);
-        when(inventoryService.getTotalItems()).thenReturn(totalItems);
+        when(inventoryService.getInventory(any(PaginationRequestDTO.class))).thenReturn(new PaginatedResponse<>(inventoryList, totalItems));
 
         mockMvc.perform(get("/api/products")
                         .param("page", "0")
@@ -131,6 +145,28 @@ class InventoryControllerTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
+    @Test
+    void testConditionalGetReturnsNotModified() throws Exception {
+        when(inventoryService.getDataVersion()).thenReturn(3L);
+        when(inventoryService.getCategories()).thenReturn(List.of("Electronics"));
+
+        String eTag = mockMvc.perform(get("/api/products/categories"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/products/categories").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        verify(inventoryService, times(1)).getCategories();
+
+        // After a write the tag no longer matches.
+        when(inventoryService.getDataVersion()).thenReturn(4L);
+        mockMvc.perform(get("/api/products/categories").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
     @Test
     void testFindAllMetrics() throws Exception {
         MetricsDTO metricsDTO = new MetricsDTO(BigDecimal.TEN, BigDecimal.ONE, List.of());
@@ -142,4 +178,88 @@ class InventoryControllerTest {
                 .andExpect(jsonPath("$.totalValueInStock").value(10))
                 .andExpect(jsonPath("$.averagePriceInStock").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testApplyBatch() throws Exception {
+        List<BatchOperationDTO> operations = List.of(
+                new BatchOperationDTO(BatchOperationType.UPDATE, 1L, inventoryDTO),
+                new BatchOperationDTO(BatchOperationType.DELETE, 7L, null));
+        BatchResponse batchResponse = new BatchResponse(List.of(
+                new BatchResultDTO(0, BatchOperationType.UPDATE, 1L, true, inventoryDTO, null),
+                new BatchResultDTO(1, BatchOperationType.DELETE, 7L, false, null, "Inventory ID not found for delete")));
+
+        when(inventoryService.applyBatch(anyList())).thenReturn(batchResponse);
+
+        mockMvc.perform(post("/api/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(operations)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].error").value("Inventory ID not found for delete"));
+    }
+
+    @Test
+    void testAdjustStock() throws Exception {
+        InventoryDTO adjusted = new InventoryDTO(1L, null, 7, StockStatus.IN_STOCK);
+        adjusted.setVersion(43L);
+        when(inventoryService.adjustStock(eq(1L), any(StockAdjustmentDTO.class))).thenReturn(adjusted);
+
+        mockMvc.perform(patch("/api/products/1/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new StockAdjustmentDTO(-3, 42L))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.quantity").value(7))
+                .andExpect(jsonPath("$.version").value(43));
+    }
+
+    @Test
+    void testAdjustStock_ConflictReturnsCurrentItem() throws Exception {
+        Inventory current = new Inventory(1L,
+                new Product(1L, "Laptop", "Electronics", new BigDecimal("1000.00"), null, null, null), 5, StockStatus.IN_STOCK);
+        current.setVersion(44L);
+        when(inventoryService.adjustStock(eq(1L), any(StockAdjustmentDTO.class)))
+                .thenThrow(new StockConflictException("Inventory item changed since version 42",
+                        StockConflictException.Reason.VERSION_MISMATCH, current));
+
+        mockMvc.perform(patch("/api/products/1/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new StockAdjustmentDTO(-3, 42L))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.quantity").value(5))
+                .andExpect(jsonPath("$.version").value(44));
+    }
+
+    @Test
+    void testAdjustStock_InsufficientStockIsUnprocessable() throws Exception {
+        Inventory current = new Inventory(1L,
+                new Product(1L, "Laptop", "Electronics", new BigDecimal("1000.00"), null, null, null), 2, StockStatus.IN_STOCK);
+        when(inventoryService.adjustStock(eq(1L), any(StockAdjustmentDTO.class)))
+                .thenThrow(new StockConflictException("Not enough stock: 2 units left",
+                        StockConflictException.Reason.INSUFFICIENT_STOCK, current));
+
+        mockMvc.perform(patch("/api/products/1/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new StockAdjustmentDTO(-3, null))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.quantity").value(2));
+    }
+
+    @Test
+    void testExportInventory() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(inventoryService).exportInventory(eq(CatalogFormat.NDJSON), any(OutputStream.class));
+
+        MvcResult result = mockMvc.perform(get("/api/products/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n"));
+    }
+}
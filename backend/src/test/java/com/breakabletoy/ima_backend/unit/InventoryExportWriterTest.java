@@ -0,0 +1,59 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.service.InventoryExportWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * InventoryExportWriterTest checks the NDJSON and CSV export formats.
+ */
+class InventoryExportWriterTest {
+
+    private final List<Inventory> items = List.of(
+            new Inventory(1L, new Product(1L, "Laptop", "Electronics", new BigDecimal("1000.00"),
+                    LocalDate.of(2025, 12, 31), LocalDate.of(2025, 1, 1), null), 10, StockStatus.IN_STOCK),
+            new Inventory(2L, new Product(2L, "Shirt, \"large\"", "Clothing", new BigDecimal("20.50"),
+                    null, LocalDate.of(2025, 1, 2), null), 0, StockStatus.OUT_OF_STOCK));
+
+    @Test
+    void testWriteNdjson() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        InventoryExportWriter.writeNdjson(items, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(1, first.get("id").asLong());
+        assertEquals("Laptop", first.get("product").get("name").asText());
+        assertEquals(0, new BigDecimal("1000.00").compareTo(first.get("product").get("price").decimalValue()));
+        assertEquals("2025-12-31", first.get("product").get("expiryDate").asText());
+        assertTrue(first.get("product").get("dateUpdated").isNull());
+        assertEquals("IN_STOCK", first.get("stockStatus").asText());
+        assertEquals("Shirt, \"large\"", new ObjectMapper().readTree(lines[1]).get("product").get("name").asText());
+    }
+
+    @Test
+    void testWriteCsv() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        InventoryExportWriter.writeCsv(items, outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,productId,name,category,price,expiryDate,dateCreated,dateUpdated,quantity,stockStatus", lines[0]);
+        assertEquals("1,1,Laptop,Electronics,1000.00,2025-12-31,2025-01-01,,10,IN_STOCK", lines[1]);
+        assertEquals("2,2,\"Shirt, \"\"large\"\"\",Clothing,20.50,,2025-01-02,,0,OUT_OF_STOCK", lines[2]);
+    }
+}
@@ -0,0 +1,154 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.CatalogFormat;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.response.ImportResponse;
+import com.breakabletoy.ima_backend.service.BackgroundThreads;
+import com.breakabletoy.ima_backend.service.InventoryExportWriter;
+import com.breakabletoy.ima_backend.service.InventoryImporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * InventoryImporterTest checks that CSV and NDJSON imports store the valid rows in file order and
+ * report the invalid ones with their line numbers.
+ */
+class InventoryImporterTest {
+
+    private InMemoryInventoryRepository inventoryRepository;
+    private ExecutorService executor;
+    private InventoryImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        inventoryRepository = new InMemoryInventoryRepository();
+        executor = Executors.newFixedThreadPool(4);
+        importer = new InventoryImporter(inventoryRepository, executor, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ImportResponse importText(String text, CatalogFormat format) throws IOException {
+        return importer.importFrom(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), format);
+    }
+
+    @Test
+    void testImportCsv() throws IOException {
+        String csv = "name,category,price,quantity,stockStatus,expiryDate\n"
+                + "Laptop,Electronics,1000.00,10,IN_STOCK,2026-01-31\n"
+                + "\"Shirt, \"\"large\"\"\nblue\",Clothing,20.50,0,,\n"
+                + ",Clothing,5.00,1,,\n"
+                + "Phone,Electronics,abc,1,,\n"
+                + "Tablet,Electronics,300,2,,31/01/2026\n"
+                + "Cable,Electronics,3.50,,,\n";
+
+        ImportResponse response = importText(csv, CatalogFormat.CSV);
+
+        assertEquals(6, response.getRowsRead());
+        assertEquals(3, response.getImported());
+        assertEquals(3, response.getFailed());
+        assertEquals(List.of(5L, 6L, 7L), response.getErrors().stream().map(error -> error.getLine()).toList());
+        assertEquals("name is required", response.getErrors().get(0).getMessage());
+
+        Inventory shirt = inventoryRepository.getById(1L);
+        assertEquals("Shirt, \"large\"\nblue", shirt.getProduct().getName());
+        // Without a stock status it follows the quantity.
+        assertEquals(StockStatus.OUT_OF_STOCK, shirt.getStockStatus());
+        assertEquals("Cable", inventoryRepository.getById(2L).getProduct().getName());
+    }
+
+    @Test
+    void testImportNdjsonRoundTrip() throws IOException {
+        InMemoryInventoryRepository source = new InMemoryInventoryRepository();
+        for (int i = 0; i < 2500; i++) {
+            source.save(new Inventory(0L, new Product(null, "Item " + i,
+                    "Category " + (i % 7), new BigDecimal(i + ".25"), null, null, null), i % 5, StockStatus.IN_STOCK));
+        }
+        ByteArrayOutputStream export = new ByteArrayOutputStream();
+        InventoryExportWriter.writeNdjson(source.findAllSnapshot(), export);
+        String body = export.toString(StandardCharsets.UTF_8) + "{\"product\":{\"name\":\"Broken\"}}\nnot json\n";
+
+        ImportResponse response = importText(body, CatalogFormat.NDJSON);
+
+        assertEquals(2502, response.getRowsRead());
+        assertEquals(2500, response.getImported());
+        assertEquals(List.of(2501L, 2502L), response.getErrors().stream().map(error -> error.getLine()).toList());
+        // IDs follow the file order even though the rows were parsed in parallel.
+        assertEquals("Item 1234", inventoryRepository.getById(1234L).getProduct().getName());
+        assertEquals(0, new BigDecimal("1234.25").compareTo(inventoryRepository.getById(1234L).getProduct().getPrice()));
+        assertEquals(7, inventoryRepository.findAllCategories().size());
+    }
+
+    @Test
+    void testRoundTripOfNamesWithQuotes() throws IOException {
+        InMemoryInventoryRepository source = new InMemoryInventoryRepository();
+        source.save(new Inventory(0L, new Product(null, "5\" screen", "Electronics", new BigDecimal("99.00"), null, null, null),
+                3, StockStatus.IN_STOCK));
+        source.save(new Inventory(0L, new Product(null, "Cable", "Electronics", new BigDecimal("3.50"), null, null, null),
+                1, StockStatus.IN_STOCK));
+
+        for (CatalogFormat format : CatalogFormat.values()) {
+            ByteArrayOutputStream export = new ByteArrayOutputStream();
+            if (format == CatalogFormat.CSV) {
+                InventoryExportWriter.writeCsv(source.findAllSnapshot(), export);
+            } else {
+                InventoryExportWriter.writeNdjson(source.findAllSnapshot(), export);
+            }
+            inventoryRepository.clear();
+
+            ImportResponse response = importText(export.toString(StandardCharsets.UTF_8), format);
+
+            assertEquals(2, response.getRowsRead(), format.name());
+            assertEquals(2, response.getImported(), format.name());
+            assertEquals(List.of("5\" screen", "Cable"), inventoryRepository.findAllSnapshot().stream()
+                    .map(inventory -> inventory.getProduct().getName()).toList(), format.name());
+        }
+    }
+
+    @Test
+    void testImportNdjson_TrailingContentIsRejected() throws IOException {
+        ImportResponse response = importText("{\"product\":{\"name\":\"Pen\",\"category\":\"Office\",\"price\":1},"
+                + "\"quantity\":1} {\"quantity\":2}\n", CatalogFormat.NDJSON);
+
+        assertEquals(0, response.getImported());
+        assertEquals(1, response.getFailed());
+    }
+
+    @Test
+    void testImportOnVirtualThreads() throws IOException {
+        StringBuilder csv = new StringBuilder("name,category,price,quantity\n");
+        for (int i = 0; i < 5000; i++) {
+            csv.append("Item ").append(i).append(",Category ").append(i % 3).append(",1.50,").append(i % 4).append('\n');
+        }
+
+        ImportResponse response;
+        try (BackgroundThreads backgroundThreads = new BackgroundThreads(true)) {
+            InventoryImporter virtualImporter = new InventoryImporter(inventoryRepository,
+                    backgroundThreads.importExecutor(), backgroundThreads.importParallelism());
+            response = virtualImporter.importFrom(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                    CatalogFormat.CSV);
+        }
+
+        assertEquals(5000, response.getImported());
+        assertEquals(0, response.getFailed());
+        assertEquals("Item 4321", inventoryRepository.getById(4321L).getProduct().getName());
+    }
+}
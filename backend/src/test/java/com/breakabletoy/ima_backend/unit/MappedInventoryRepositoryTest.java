@@ -0,0 +1,114 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.ChangeSet;
+import com.breakabletoy.ima_backend.repository.InventoryChangeListener;
+import com.breakabletoy.ima_backend.repository.StockConflictException;
+import com.breakabletoy.ima_backend.repository.mapped.MappedInventoryRepository;
+import com.breakabletoy.ima_backend.repository.metrics.RepositoryMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * MappedInventoryRepositoryTest checks the mapped layout against the object layout (see
+ * AbstractLayoutRepositoryTest), and that the mapped files bring the catalog back after a restart.
+ * Small chunks make the files span many mappings.
+ */
+class MappedInventoryRepositoryTest extends AbstractLayoutRepositoryTest<MappedInventoryRepository> {
+
+    @TempDir
+    Path directory;
+
+    @Override
+    protected MappedInventoryRepository createRepository() {
+        return new MappedInventoryRepository(directory, 4096, RepositoryMetrics.NOOP, InventoryChangeListener.NONE, Duration.ofDays(7));
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    void testReopen_RestoresCatalog() {
+        Inventory item = repository.findAllWithoutPagination().get(0);
+        repository.close();
+        repository = createRepository();
+
+        // Row versions are kept in the records, so a version read before the restart still applies.
+        assertEquals(item.getQuantity() + 1, repository.adjustStock(item.getId(), 1, item.getVersion()).getQuantity());
+        assertThrows(StockConflictException.class, () -> repository.adjustStock(item.getId(), 1, item.getVersion()));
+        objectRepository.adjustStock(item.getId(), 1, null);
+
+        assertSameCatalog();
+
+        // New items continue the ID sequence and reuse the stored category names.
+        Inventory saved = repository.save(new Inventory(0L,
+                new Product(null, "Rake", "Garden", new BigDecimal("12.50"), null, null, null), 2, StockStatus.IN_STOCK));
+        assertEquals(400L, saved.getId());
+        assertEquals("Garden", repository.getById(400L).getProduct().getCategory());
+    }
+
+    @Test
+    void testChangesSince_RebuiltFromTheRecords() {
+        ChangeSet<Inventory> before = repository.findChangesSince(0, 1000);
+        long partialSync = repository.findChangesSince(0, 10).getVersion();
+        repository.close();
+        repository = createRepository();
+
+        // The live items come back in the order of their last change. The tombstones are gone, so a
+        // version from before the restart asks for a reset.
+        ChangeSet<Inventory> after = repository.findChangesSince(0, 1000);
+        assertEquals(ids(before.getUpserts()), ids(after.getUpserts()));
+        assertTrue(after.getDeletedIds().isEmpty());
+        assertTrue(repository.findChangesSince(partialSync, 10).isResetRequired());
+
+        // Later changes are listed after the restored ones.
+        Long adjustedId = after.getUpserts().get(0).getId();
+        Long deletedId = after.getUpserts().get(1).getId();
+        repository.setStock(adjustedId, 5);
+        repository.deleteById(deletedId);
+        ChangeSet<Inventory> unchanged = repository.findChangesSince(0, after.getUpserts().size() - 2);
+        assertTrue(unchanged.isHasMore());
+        assertFalse(ids(unchanged.getUpserts()).contains(adjustedId));
+        ChangeSet<Inventory> rest = repository.findChangesSince(unchanged.getVersion(), 10);
+        assertEquals(List.of(adjustedId), ids(rest.getUpserts()));
+        assertEquals(List.of(deletedId), rest.getDeletedIds());
+        assertFalse(rest.isHasMore());
+    }
+
+    @Test
+    void testChangesAndClear() {
+        repository.clear();
+        assertTrue(repository.findAllWithoutPagination().isEmpty());
+        assertTrue(repository.findAllCategories().isEmpty());
+
+        Product product = new Product(null, "Tablet", "Electronics", new BigDecimal("300.50"), null, null, null);
+        assertEquals(1L, repository.save(new Inventory(0L, product, 4, StockStatus.IN_STOCK)).getId());
+        long version = repository.findChangesSince(0, 10).getVersion();
+        repository.save(new Inventory(0L, new Product(null, "Pen", "Office", BigDecimal.ONE, null, null, null), 3, StockStatus.IN_STOCK));
+        repository.deleteById(1L);
+
+        ChangeSet<Inventory> changes = repository.findChangesSince(version, 1);
+        assertEquals(List.of(2L), changes.getUpserts().stream().map(Inventory::getId).toList());
+        assertTrue(changes.isHasMore());
+        changes = repository.findChangesSince(changes.getVersion(), 10);
+        assertEquals(List.of(1L), changes.getDeletedIds());
+        assertFalse(changes.isHasMore());
+
+        // Prices with more decimals than a record keeps are rejected without storing anything.
+        Product tooPrecise = new Product(null, "Scale", "Tools", new BigDecimal("1.23456"), null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> repository.save(new Inventory(0L, tooPrecise, 1, StockStatus.IN_STOCK)));
+        assertEquals(List.of("Office"), repository.findAllCategories());
+    }
+}
@@ -0,0 +1,86 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.repository.index.PostingList;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * PostingListTest checks PostingList against a BitSet holding the same IDs, while its chunks turn
+ * from arrays into bitmaps and back.
+ */
+class PostingListTest {
+
+    private static BitSet contents(PostingList list) {
+        BitSet ids = new BitSet();
+        list.addTo(ids);
+        return ids;
+    }
+
+    @Test
+    void testRandomWritesMatchABitSet() {
+        Random random = new Random(7);
+        PostingList list = new PostingList();
+        BitSet expected = new BitSet();
+        // Dense in the first chunk, so it becomes a bitmap, sparse in the others.
+        for (int i = 0; i < 50_000; i++) {
+            int id = (random.nextInt(4) == 0) ? random.nextInt(300_000) : random.nextInt(20_000);
+            if (random.nextInt(3) == 0) {
+                list.remove(id);
+                expected.clear(id);
+            } else {
+                list.add(id);
+                expected.set(id);
+            }
+        }
+        assertEquals(expected, contents(list));
+        assertEquals(expected.cardinality(), list.size());
+
+        // Emptying the dense chunk turns it back into an array, then removes it.
+        for (int id = 0; id < 20_000; id++) {
+            list.remove(id);
+            expected.clear(id);
+        }
+        assertEquals(expected, contents(list));
+        assertEquals(expected.cardinality(), list.size());
+    }
+
+    @Test
+    void testIntersect() {
+        PostingList even = new PostingList();
+        PostingList byThree = new PostingList();
+        PostingList sparse = new PostingList();
+        for (int id = 0; id < 200_000; id++) {
+            if (id % 2 == 0) {
+                even.add(id);
+            }
+            if (id % 3 == 0) {
+                byThree.add(id);
+            }
+        }
+        sparse.add(6);
+        sparse.add(9);
+        sparse.add(70_001);
+        sparse.add(150_000);
+
+        BitSet bySix = PostingList.intersect(even, byThree);
+        assertEquals((200_000 + 5) / 6, bySix.cardinality());
+        assertTrue(bySix.get(199_998));
+        BitSet expected = new BitSet();
+        expected.set(6);
+        expected.set(150_000);
+        assertEquals(expected, PostingList.intersect(even, byThree, sparse));
+        assertEquals(contents(sparse), PostingList.intersect(sparse));
+    }
+
+    @Test
+    void testNegativeIdsAreRejected() {
+        PostingList list = new PostingList();
+        assertThrows(IllegalArgumentException.class, () -> list.add(-1));
+        list.remove(-1);
+        assertTrue(list.isEmpty());
+    }
+}
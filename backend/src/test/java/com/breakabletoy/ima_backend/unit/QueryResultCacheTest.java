@@ -0,0 +1,106 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.dto.InventoryDTO;
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.SearchMode;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.response.PaginatedResponse;
+import com.breakabletoy.ima_backend.service.InventoryService;
+import com.breakabletoy.ima_backend.service.QueryResultCache;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * QueryResultCacheTest checks that cached query results are shared between equivalent requests,
+ * dropped after a write, and evicted when the cache is over its weight.
+ */
+class QueryResultCacheTest {
+
+    private static Inventory item(String name, String category) {
+        return new Inventory(0L, new Product(0L, name, category, new BigDecimal("10.00"),
+                null, LocalDate.of(2025, 1, 1), null), 5, StockStatus.IN_STOCK);
+    }
+
+    @Test
+    void testCachedResultsAreInvalidatedByWrites() {
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository();
+        QueryResultCache cache = new QueryResultCache(1000);
+        InventoryService service = new InventoryService(repository, cache);
+        repository.save(item("Laptop", "Electronics"));
+        repository.save(item("Shirt", "Clothing"));
+
+        PaginatedResponse<InventoryDTO> first = service.getInventory(new PaginationRequestDTO(1, 10, List.of("name"), null,
+                null, List.of("Electronics", "Clothing"), "LAP"));
+        // Same query: default sort order, categories in another order, search in another case.
+        PaginatedResponse<InventoryDTO> second = service.getInventory(new PaginationRequestDTO(1, 10, List.of("name"), List.of("asc"),
+                null, List.of("Clothing", "Electronics"), "lap", SearchMode.CONTAINS));
+        assertSame(first, second);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        Inventory laptop = item("Laptop Pro", "Electronics");
+        repository.save(laptop);
+        PaginatedResponse<InventoryDTO> third = service.getInventory(new PaginationRequestDTO(1, 10, List.of("name"), null,
+                null, List.of("Electronics", "Clothing"), "LAP"));
+        assertEquals(2, third.getTotalItems());
+        assertEquals(2, cache.getMisses());
+
+        repository.deleteById(laptop.getId());
+        assertEquals(1, service.getInventory(new PaginationRequestDTO(1, 10, List.of("name"), null,
+                null, List.of("Electronics", "Clothing"), "LAP")).getTotalItems());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedEntries() {
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository();
+        for (int i = 0; i < 10; i++) {
+            repository.save(item("Item " + i, "Misc"));
+        }
+        // Room for two pages of four items (weight 5 each), not three.
+        QueryResultCache cache = new QueryResultCache(12);
+        InventoryService service = new InventoryService(repository, cache);
+
+        service.getInventory(new PaginationRequestDTO(1, 4, null, null, null, null, null));
+        service.getInventory(new PaginationRequestDTO(2, 4, null, null, null, null, null));
+        service.getInventory(new PaginationRequestDTO(1, 4, null, null, null, null, null));
+        service.getInventory(new PaginationRequestDTO(3, 2, null, null, null, null, null));
+        assertEquals(1, cache.getEvictions());
+        assertTrue(cache.weight() <= 12);
+
+        // Page 2 was the least recently used and is gone; page 1 is still cached.
+        long misses = cache.getMisses();
+        service.getInventory(new PaginationRequestDTO(1, 4, null, null, null, null, null));
+        assertEquals(misses, cache.getMisses());
+        service.getInventory(new PaginationRequestDTO(2, 4, null, null, null, null, null));
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    void testNewerVersionDropsOlderEntriesAndStaleResultsAreNotStored() {
+        QueryResultCache cache = new QueryResultCache(1000);
+        PaginatedResponse<InventoryDTO> empty = new PaginatedResponse<>(List.of(), 0);
+        for (int page = 1; page <= 5; page++) {
+            cache.get(new PaginationRequestDTO(page, 10, null, null, null, null, null), 1, () -> empty);
+        }
+        assertEquals(5, cache.size());
+        assertEquals(5, cache.weight());
+
+        // The first result of version 2 replaces every entry of version 1.
+        cache.get(new PaginationRequestDTO(1, 10, null, null, null, null, null), 2, () -> empty);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.weight());
+        assertEquals(5, cache.getEvictions());
+
+        // A result computed at version 1 after version 2 was cached can never be served, so it is not kept.
+        cache.get(new PaginationRequestDTO(9, 10, null, null, null, null, null), 1, () -> empty);
+        assertEquals(1, cache.size());
+    }
+}
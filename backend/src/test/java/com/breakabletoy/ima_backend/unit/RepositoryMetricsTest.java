@@ -0,0 +1,64 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.dto.PaginationRequestDTO;
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.metrics.MicrometerRepositoryMetrics;
+import com.breakabletoy.ima_backend.repository.persistence.InventoryJournal;
+import com.breakabletoy.ima_backend.repository.persistence.SnapshotStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * RepositoryMetricsTest checks the meters the repository publishes for its queries and writes.
+ */
+class RepositoryMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private InMemoryInventoryRepository inventoryRepository;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        inventoryRepository = new InMemoryInventoryRepository(InventoryJournal.NONE, SnapshotStore.NONE,
+                new MicrometerRepositoryMetrics(registry));
+        for (int i = 0; i < 20; i++) {
+            Product product = new Product(null, "Item " + i, (i % 10 == 0) ? "Books" : "Toys",
+                    new BigDecimal("10.00"), null, null, null);
+            inventoryRepository.save(new Inventory(0L, product, 1, StockStatus.IN_STOCK));
+        }
+    }
+
+    @Test
+    void testSizesAndWrites() {
+        assertEquals(20, registry.get("inventory.catalog.size").gauge().value());
+        assertEquals(2, registry.get("inventory.catalog.categories").gauge().value());
+        assertEquals(20, registry.get("inventory.repository.write").tag("operation", "save").timer().count());
+
+        inventoryRepository.deleteById(3L);
+        assertEquals(1, registry.get("inventory.repository.write").tag("operation", "delete").timer().count());
+        assertEquals(19, registry.get("inventory.catalog.size").gauge().value());
+    }
+
+    @Test
+    void testQueryMeters() {
+        inventoryRepository.findAll(new PaginationRequestDTO(1, 2, List.of("name", "price"), List.of("desc", "asc"),
+                null, List.of("Books"), null));
+
+        assertEquals(1, registry.get("inventory.repository.query")
+                .tags("plan", "top_k", "categories", "true", "stockStatus", "false", "sort", "name").timer().count());
+        assertEquals(2, registry.get("inventory.repository.query.candidates").summary().totalAmount());
+        assertEquals(2, registry.get("inventory.repository.query.rows.scanned").summary().totalAmount());
+        assertEquals(2, registry.get("inventory.repository.query.rows.returned").summary().totalAmount());
+        assertEquals(1, registry.get("inventory.repository.query.sort.keys")
+                .tags("field", "price", "order", "asc", "position", "secondary").counter().count());
+    }
+}
@@ -0,0 +1,140 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.persistence.FileSnapshotStore;
+import com.breakabletoy.ima_backend.repository.persistence.FsyncPolicy;
+import com.breakabletoy.ima_backend.repository.persistence.InventoryJournal;
+import com.breakabletoy.ima_backend.repository.persistence.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * SnapshotTest checks that the repository restarts from its newest snapshot plus the write-ahead log
+ * written after it, that the log before the oldest kept snapshot is deleted, and that a corrupt snapshot
+ * is skipped without losing the writes after the snapshot it falls back to.
+ */
+class SnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog openLog() {
+        return new WriteAheadLog(directory.resolve("wal"), FsyncPolicy.ALWAYS, 10, 1024 * 1024);
+    }
+
+    private FileSnapshotStore openSnapshots() {
+        return new FileSnapshotStore(directory.resolve("snapshots"));
+    }
+
+    private static Inventory newInventory(String name, String category, String price, int quantity) {
+        Product product = new Product(null, name, category, new BigDecimal(price),
+                LocalDate.of(2026, 3, 1), LocalDate.of(2025, 1, 1), null);
+        return new Inventory(0L, product, quantity, StockStatus.IN_STOCK);
+    }
+
+    private List<Path> files(String subdirectory) throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve(subdirectory))) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void testRestartFromSnapshotAndLogTail() throws IOException {
+        WriteAheadLog wal = openLog();
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(wal, openSnapshots());
+        repository.save(newInventory("Laptop", "Electronics", "1000.00", 10));
+        repository.save(newInventory("Shirt", "Clothing", "20.50", 3));
+        assertTrue(repository.takeSnapshot());
+        // Nothing changed, so no new snapshot is written.
+        assertFalse(repository.takeSnapshot());
+        repository.save(newInventory("Phone", "Electronics", "500.00", 5));
+        repository.deleteById(0L);
+        wal.close();
+
+        // The segment before the checkpoint was deleted; only the tail remains.
+        assertEquals(1, files("wal").size());
+        assertEquals(1, files("snapshots").size());
+
+        WriteAheadLog reopened = openLog();
+        InMemoryInventoryRepository recovered = new InMemoryInventoryRepository(reopened, openSnapshots());
+        assertEquals(2, recovered.findAllWithoutPagination().size());
+        assertFalse(recovered.findById(0L).isPresent());
+        assertEquals("Shirt", recovered.getById(1L).getProduct().getName());
+        assertEquals(List.of("Clothing", "Electronics"), recovered.findAllCategories());
+        assertEquals(3, recovered.findCategoryMetrics().get(0).getTotalProductsInStock());
+        assertEquals(3L, recovered.save(newInventory("Tablet", "Electronics", "300.00", 1)).getId());
+        reopened.close();
+    }
+
+    @Test
+    void testCorruptSnapshotFallsBackToPrevious() throws IOException {
+        WriteAheadLog wal = openLog();
+        FileSnapshotStore snapshots = openSnapshots();
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(wal, snapshots);
+        repository.save(newInventory("Laptop", "Electronics", "1000.00", 10));
+        repository.takeSnapshot();
+        repository.save(newInventory("Shirt", "Clothing", "20.50", 3));
+        repository.takeSnapshot();
+        wal.close();
+
+        // Damage the newest snapshot; the older one is still complete, and so is the log after it.
+        List<Path> files = files("snapshots");
+        damage(files.get(files.size() - 1));
+
+        WriteAheadLog reopened = openLog();
+        InMemoryInventoryRepository recovered = new InMemoryInventoryRepository(reopened, openSnapshots());
+        assertEquals(2, recovered.findAllWithoutPagination().size());
+        assertEquals("Laptop", recovered.getById(0L).getProduct().getName());
+        assertEquals("Shirt", recovered.getById(1L).getProduct().getName());
+        reopened.close();
+    }
+
+    @Test
+    void testNoReadableSnapshotFailsTheLoad() throws IOException {
+        WriteAheadLog wal = openLog();
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(wal, openSnapshots());
+        repository.save(newInventory("Laptop", "Electronics", "1000.00", 10));
+        repository.takeSnapshot();
+        wal.close();
+        damage(files("snapshots").get(0));
+
+        // The log before the snapshot is gone, so starting empty would silently lose the catalog.
+        assertThrows(IllegalStateException.class, () -> openSnapshots().loadLatest());
+    }
+
+    @Test
+    void testSnapshotLargerThanOneMappingIsLoaded() throws IOException {
+        FileSnapshotStore snapshots = new FileSnapshotStore(directory.resolve("snapshots"), 256);
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(InventoryJournal.NONE, snapshots);
+        for (int i = 0; i < 100; i++) {
+            repository.save(newInventory("Item " + i, "Category " + (i % 7), "1.00", i + 1));
+        }
+        repository.takeSnapshot();
+        assertTrue(Files.size(files("snapshots").get(0)) > 10 * 256);
+
+        InMemoryInventoryRepository recovered = new InMemoryInventoryRepository(InventoryJournal.NONE,
+                new FileSnapshotStore(directory.resolve("snapshots"), 256));
+        assertEquals(100, recovered.findAllWithoutPagination().size());
+        assertEquals("Item 99", recovered.getById(99L).getProduct().getName());
+        assertEquals(7, recovered.findAllCategories().size());
+    }
+
+    private static void damage(Path snapshot) throws IOException {
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 0x7F;
+        Files.write(snapshot, bytes);
+    }
+}
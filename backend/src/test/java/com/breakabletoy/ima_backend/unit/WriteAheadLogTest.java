@@ -0,0 +1,109 @@
+package com.breakabletoy.ima_backend.unit;
+
+import com.breakabletoy.ima_backend.entity.Inventory;
+import com.breakabletoy.ima_backend.entity.Product;
+import com.breakabletoy.ima_backend.enums.StockStatus;
+import com.breakabletoy.ima_backend.repository.InMemoryInventoryRepository;
+import com.breakabletoy.ima_backend.repository.persistence.FsyncPolicy;
+import com.breakabletoy.ima_backend.repository.persistence.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/*
+ * WriteAheadLogTest checks that the repository comes back after a restart by replaying its
+ * write-ahead log, and that a torn record at the end of the log is discarded.
+ */
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog open(FsyncPolicy policy) {
+        return new WriteAheadLog(directory, policy, 10, 1024 * 1024);
+    }
+
+    private static Inventory newInventory(String name, String category, String price, int quantity) {
+        Product product = new Product(null, name, category, new BigDecimal(price),
+                LocalDate.of(2026, 3, 1), LocalDate.of(2025, 1, 1), null);
+        return new Inventory(0L, product, quantity, StockStatus.IN_STOCK);
+    }
+
+    @Test
+    void testReplayRestoresState() {
+        WriteAheadLog wal = open(FsyncPolicy.ALWAYS);
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(wal);
+        repository.save(newInventory("Laptop", "Electronics", "1000.00", 10));
+        repository.save(newInventory("Shirt", "Clothing", "20.50", 3));
+        repository.save(newInventory("Phone", "Electronics", "500.00", 5));
+        Inventory shirt = repository.getById(1L);
+        shirt.setQuantity(7);
+        repository.update(shirt);
+        repository.deleteById(2L);
+        wal.close();
+
+        WriteAheadLog reopened = open(FsyncPolicy.ALWAYS);
+        InMemoryInventoryRepository recovered = new InMemoryInventoryRepository(reopened);
+
+        List<Inventory> items = recovered.findAllWithoutPagination();
+        assertEquals(2, items.size());
+        assertEquals(7, recovered.getById(1L).getQuantity());
+        assertEquals(0, new BigDecimal("20.50").compareTo(recovered.getById(1L).getProduct().getPrice()));
+        assertEquals(LocalDate.of(2026, 3, 1), recovered.getById(1L).getProduct().getExpiryDate());
+        assertNull(recovered.getById(1L).getProduct().getDateUpdate());
+        assertFalse(recovered.findById(2L).isPresent());
+        // The counter continues after the highest recovered ID.
+        assertEquals(3L, recovered.save(newInventory("Tablet", "Electronics", "300.00", 1)).getId());
+        reopened.close();
+    }
+
+    @Test
+    void testClearIsReplayed() {
+        WriteAheadLog wal = open(FsyncPolicy.INTERVAL);
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(wal);
+        repository.save(newInventory("Laptop", "Electronics", "1000.00", 10));
+        repository.clear();
+        repository.save(newInventory("Phone", "Electronics", "500.00", 5));
+        wal.close();
+
+        WriteAheadLog reopened = open(FsyncPolicy.INTERVAL);
+        InMemoryInventoryRepository recovered = new InMemoryInventoryRepository(reopened);
+
+        assertEquals(1, recovered.findAllWithoutPagination().size());
+        assertEquals("Phone", recovered.getById(1L).getProduct().getName());
+        reopened.close();
+    }
+
+    @Test
+    void testTornTailIsDiscarded() throws IOException {
+        WriteAheadLog wal = open(FsyncPolicy.OS);
+        InMemoryInventoryRepository repository = new InMemoryInventoryRepository(wal);
+        repository.save(newInventory("Laptop", "Electronics", "1000.00", 10));
+        wal.close();
+
+        // Simulate a crash in the middle of writing the next record.
+        Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        WriteAheadLog reopened = open(FsyncPolicy.OS);
+        InMemoryInventoryRepository recovered = new InMemoryInventoryRepository(reopened);
+        recovered.save(newInventory("Phone", "Electronics", "500.00", 5));
+        reopened.close();
+
+        WriteAheadLog again = open(FsyncPolicy.OS);
+        assertEquals(2, new InMemoryInventoryRepository(again).findAllWithoutPagination().size());
+        again.close();
+    }
+}